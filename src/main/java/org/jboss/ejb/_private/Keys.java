@@ -18,6 +18,9 @@
 
 package org.jboss.ejb._private;
 
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+
 import org.jboss.ejb.client.AttachmentKey;
 import org.wildfly.naming.client.NamingProvider;
 import org.wildfly.security.auth.client.AuthenticationContext;
@@ -30,5 +33,9 @@ public final class Keys {
 
     public static final AttachmentKey<NamingProvider> NAMING_PROVIDER_ATTACHMENT_KEY = new AttachmentKey<>();
 
+    public static final AttachmentKey<BooleanSupplier> RETRY_PERMIT_ATTACHMENT_KEY = new AttachmentKey<>();
+
+    public static final AttachmentKey<Executor> RETRY_BACKOFF_ATTACHMENT_KEY = new AttachmentKey<>();
+
     private Keys() {}
 }
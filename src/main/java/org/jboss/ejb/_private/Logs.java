@@ -55,6 +55,7 @@ import java.net.URI;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeoutException;
 
 import static org.jboss.logging.Logger.Level.*;
@@ -448,6 +449,25 @@ public interface Logs extends BasicLogger {
     @Message(id = 516, value = "Exception resolving class %s for unmarshalling; it has either been blacklisted or not whitelisted")
     InvalidClassException cannotResolveFilteredClass(String clazz);
 
+    @Message(id = 517, value = "Protocol error: unknown compression codec %02x received")
+    IOException unknownCompressionCodec(int codec);
+
+    @Message(id = 518, value = "EJB request executor is saturated (%d active, %d queued requests)")
+    RejectedExecutionException requestExecutorSaturated(int active, int queued);
+
+    @LogMessage(level = WARN)
+    @Message(id = 519, value = "Virtual threads are not supported by this JVM; EJB requests will run on the default request executor")
+    void virtualThreadsUnavailable();
+
+    @Message(id = 520, value = "Invocation of %s was not dispatched because its deadline passed while it was queued")
+    EJBException invocationDeadlineExpired(EJBMethodLocator methodLocator);
+
+    @Message(id = 521, value = "Failed to copy a value passed through the local EJB transport")
+    EJBException localValueCopyFailed(@Cause Exception cause);
+
+    @Message(id = 522, value = "Streamed result was closed because the client did not read it for %d ms")
+    EJBException resultStreamIdle(long idleTimeout);
+
     // Remote messages; no ID for brevity but should be translated
 
     @Message(value = "No such EJB: %s")
@@ -459,6 +479,9 @@ public interface Logs extends BasicLogger {
     @Message(value = "No such EJB method %s found on %s")
     String remoteMessageNoSuchMethod(EJBMethodLocator methodLocator, EJBIdentifier ejbIdentifier);
 
+    @Message(value = "Server is busy")
+    String remoteMessageServerBusy();
+
     @Message(value = "Session is not active for invocation of method %s on %s")
     String remoteMessageSessionNotActive(EJBMethodLocator methodLocator, EJBIdentifier locator);
 
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.ejb._private.Logs;
@@ -40,6 +41,8 @@ public interface ClusterNodeSelector {
      * The selector can decide whether to pick an already connected node (from the passed {@code connectedNodes})
      * or decide to select a node to which a connection hasn't yet been established. If a node to which a connection
      * hasn't been established is selected then the cluster context will create a connection to it.
+     * <p>
+     * The given arrays may be shared between invocations and must not be modified.
      *
      * @param clusterName         the name of the cluster to which the nodes belong (will not be {@code null})
      * @param connectedNodes      the node names to which a connection has been established (may be empty but will not be {@code null})
@@ -48,6 +51,21 @@ public interface ClusterNodeSelector {
      */
     String selectNode(final String clusterName, final String[] connectedNodes, final String[] totalAvailableNodes);
 
+    /**
+     * Returns a node from among the {@code totalAvailableNodes}, as the target node for EJB invocations, using the
+     * live statistics of the nodes.  By default, the statistics are ignored and
+     * {@link #selectNode(String, String[], String[])} is called.
+     *
+     * @param clusterName         the name of the cluster to which the nodes belong (will not be {@code null})
+     * @param connectedNodes      the node names to which a connection has been established (may be empty but will not be {@code null})
+     * @param totalAvailableNodes all available nodes in the cluster, including connected nodes (will not be empty or {@code null})
+     * @param statistics          the statistics of the nodes invoked by the client context (will not be {@code null})
+     * @return the selected node name (must not be {@code null})
+     */
+    default String selectNode(final String clusterName, final String[] connectedNodes, final String[] totalAvailableNodes, final NodeStatistics statistics) {
+        return selectNode(clusterName, connectedNodes, totalAvailableNodes);
+    }
+
     /**
      * Always use the first available node, regardless of whether it is connected.
      */
@@ -85,6 +103,24 @@ public interface ClusterNodeSelector {
      */
     ClusterNodeSelector DEFAULT = simpleConnectionThresholdRandomSelector(5);
 
+    /**
+     * A selector which connects a minimum of 5 nodes like {@link #DEFAULT}, and then uses the connected node with the
+     * fewest outstanding requests.
+     */
+    ClusterNodeSelector LEAST_OUTSTANDING = minimumConnectionThreshold(5, RANDOM, useLeastOutstandingConnectedNode(RANDOM_CONNECTED));
+
+    /**
+     * A selector which connects a minimum of 5 nodes like {@link #DEFAULT}, and then uses the better of two random
+     * connected nodes, by response time and outstanding requests.
+     */
+    ClusterNodeSelector POWER_OF_TWO_CHOICES = minimumConnectionThreshold(5, RANDOM, usePowerOfTwoChoicesConnectedNode(RANDOM_CONNECTED));
+
+    /**
+     * A selector which connects a minimum of 5 nodes like {@link #DEFAULT}, and then uses a random connected node,
+     * weighted by the load the nodes reported.
+     */
+    ClusterNodeSelector LOAD_WEIGHTED = minimumConnectionThreshold(5, RANDOM, useLoadWeightedConnectedNode(RANDOM_CONNECTED));
+
     /**
      * A deployment node selector which check the server name if inside and prefer it if available for selection.
      * If no local node is used the DEFAULT will be used and connect a minimum of 5 nodes and select it randomly.
@@ -192,7 +228,114 @@ public interface ClusterNodeSelector {
      * @return the node selector (not {@code null})
      */
     static ClusterNodeSelector minimumConnectionThreshold(int minimum, ClusterNodeSelector unmet, ClusterNodeSelector met) {
-        return (clusterName, connectedNodes, totalAvailableNodes) -> (connectedNodes.length < minimum ? unmet : met).selectNode(clusterName, connectedNodes, totalAvailableNodes);
+        return new ClusterNodeSelector() {
+            public String selectNode(final String clusterName, final String[] connectedNodes, final String[] totalAvailableNodes) {
+                return (connectedNodes.length < minimum ? unmet : met).selectNode(clusterName, connectedNodes, totalAvailableNodes);
+            }
+
+            public String selectNode(final String clusterName, final String[] connectedNodes, final String[] totalAvailableNodes, final NodeStatistics statistics) {
+                return (connectedNodes.length < minimum ? unmet : met).selectNode(clusterName, connectedNodes, totalAvailableNodes, statistics);
+            }
+        };
+    }
+
+    /**
+     * Always try to use the connected node with the fewest outstanding requests, choosing randomly among equally
+     * loaded nodes.  If no nodes are connected, or no statistics are given, the fallback is used.
+     *
+     * @param fallback the fallback selector (must not be {@code null})
+     * @return the node selector (not {@code null})
+     */
+    static ClusterNodeSelector useLeastOutstandingConnectedNode(ClusterNodeSelector fallback) {
+        Assert.checkNotNullParam("fallback", fallback);
+        return new ClusterNodeSelector() {
+            public String selectNode(final String clusterName, final String[] connectedNodes, final String[] totalAvailableNodes) {
+                return fallback.selectNode(clusterName, connectedNodes, totalAvailableNodes);
+            }
+
+            public String selectNode(final String clusterName, final String[] connectedNodes, final String[] totalAvailableNodes, final NodeStatistics statistics) {
+                if (connectedNodes.length == 0) {
+                    return fallback.selectNode(clusterName, connectedNodes, totalAvailableNodes, statistics);
+                }
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                String selected = null;
+                int least = Integer.MAX_VALUE;
+                int ties = 0;
+                for (String node : connectedNodes) {
+                    final int outstanding = statistics.getOutstandingRequests(node);
+                    if (outstanding < least) {
+                        selected = node;
+                        least = outstanding;
+                        ties = 1;
+                    } else if (outstanding == least && random.nextInt(++ ties) == 0) {
+                        // each of the equally loaded nodes is selected with the same probability
+                        selected = node;
+                    }
+                }
+                return selected;
+            }
+        };
+    }
+
+    /**
+     * Always try to use a random connected node, weighted by the inverse of the load the nodes reported, so that less
+     * loaded nodes are used more often.  If no nodes are connected, or no statistics are given, the fallback is used.
+     *
+     * @param fallback the fallback selector (must not be {@code null})
+     * @return the node selector (not {@code null})
+     */
+    static ClusterNodeSelector useLoadWeightedConnectedNode(ClusterNodeSelector fallback) {
+        Assert.checkNotNullParam("fallback", fallback);
+        return new ClusterNodeSelector() {
+            public String selectNode(final String clusterName, final String[] connectedNodes, final String[] totalAvailableNodes) {
+                return fallback.selectNode(clusterName, connectedNodes, totalAvailableNodes);
+            }
+
+            public String selectNode(final String clusterName, final String[] connectedNodes, final String[] totalAvailableNodes, final NodeStatistics statistics) {
+                return connectedNodes.length > 0 ? statistics.selectLoadWeighted(connectedNodes) : fallback.selectNode(clusterName, connectedNodes, totalAvailableNodes, statistics);
+            }
+        };
+    }
+
+    /**
+     * Pick two random connected nodes and use the one with the lower expected response time, that is, its average
+     * response time multiplied by its outstanding requests plus one.  If either node has not responded yet, the one
+     * with fewer outstanding requests is used.  If no nodes are connected, or no statistics are given, the fallback is
+     * used.
+     *
+     * @param fallback the fallback selector (must not be {@code null})
+     * @return the node selector (not {@code null})
+     */
+    static ClusterNodeSelector usePowerOfTwoChoicesConnectedNode(ClusterNodeSelector fallback) {
+        Assert.checkNotNullParam("fallback", fallback);
+        return new ClusterNodeSelector() {
+            public String selectNode(final String clusterName, final String[] connectedNodes, final String[] totalAvailableNodes) {
+                return fallback.selectNode(clusterName, connectedNodes, totalAvailableNodes);
+            }
+
+            public String selectNode(final String clusterName, final String[] connectedNodes, final String[] totalAvailableNodes, final NodeStatistics statistics) {
+                final int length = connectedNodes.length;
+                if (length == 0) {
+                    return fallback.selectNode(clusterName, connectedNodes, totalAvailableNodes, statistics);
+                } else if (length == 1) {
+                    return connectedNodes[0];
+                }
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final int i = random.nextInt(length);
+                int j = random.nextInt(length - 1);
+                if (j >= i) j ++;
+                final String first = connectedNodes[i];
+                final String second = connectedNodes[j];
+                final int firstOutstanding = statistics.getOutstandingRequests(first);
+                final int secondOutstanding = statistics.getOutstandingRequests(second);
+                final long firstTime = statistics.getResponseTime(first, TimeUnit.NANOSECONDS);
+                final long secondTime = statistics.getResponseTime(second, TimeUnit.NANOSECONDS);
+                if (firstTime < 0L || secondTime < 0L) {
+                    return secondOutstanding < firstOutstanding ? second : first;
+                }
+                return (double) secondTime * (secondOutstanding + 1) < (double) firstTime * (firstOutstanding + 1) ? second : first;
+            }
+        };
     }
 
     /**
@@ -56,6 +56,21 @@ public interface DeploymentNodeSelector {
      */
     String selectNode(final String[] eligibleNodes, final String appName, final String moduleName, final String distinctName);
 
+    /**
+     * Selects and returns a node from among the <code>eligibleNodes</code>, using the live statistics of the nodes.
+     * By default, the statistics are ignored and {@link #selectNode(String[], String, String, String)} is called.
+     *
+     * @param eligibleNodes the eligible nodes which can handle the deployment; not {@code null}, will not be empty
+     * @param appName       the app name of the deployment
+     * @param moduleName    the module name of the deployment
+     * @param distinctName  the distinct name of the deployment
+     * @param statistics    the statistics of the nodes invoked by the client context (will not be {@code null})
+     * @return the node selection (must not be {@code null})
+     */
+    default String selectNode(final String[] eligibleNodes, final String appName, final String moduleName, final String distinctName, final NodeStatistics statistics) {
+        return selectNode(eligibleNodes, appName, moduleName, distinctName);
+    }
+
     /**
      * Create a deployment node selector that prefers one or more favorite nodes, falling back to another selector if
      * none of the favorites are found.
@@ -97,6 +112,24 @@ public interface DeploymentNodeSelector {
      */
     DeploymentNodeSelector RANDOM = (eligibleNodes, appName, moduleName, distinctName) -> eligibleNodes[ThreadLocalRandom.current().nextInt(eligibleNodes.length)];
 
+    /**
+     * A deployment node selector which randomly chooses the next node, weighted by the load the nodes reported, so
+     * that less loaded nodes are chosen more often.  Without statistics, it behaves like {@link #RANDOM}.
+     */
+    DeploymentNodeSelector LOAD_WEIGHTED = new DeploymentNodeSelector() {
+        public String selectNode(final String[] eligibleNodes, final String appName, final String moduleName, final String distinctName) {
+            return RANDOM.selectNode(eligibleNodes, appName, moduleName, distinctName);
+        }
+
+        public String selectNode(final String[] eligibleNodes, final String appName, final String moduleName, final String distinctName, final NodeStatistics statistics) {
+            final String node = statistics.selectLoadWeighted(eligibleNodes);
+            if (Logs.MAIN.isDebugEnabled()) {
+                Logs.MAIN.debugf("LOAD_WEIGHTED select node %s for [app: %s, module: %s,  distinctname: %s]", node, appName, moduleName, distinctName);
+            }
+            return node;
+        }
+    };
+
     /**
      * A deployment node selector which uses an approximate round-robin policy among all of the eligible nodes.  Note
      * that the round-robin node count may be shared among multiple node sets, thus certain specific usage patterns
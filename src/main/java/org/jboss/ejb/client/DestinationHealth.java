@@ -0,0 +1,292 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.client;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * The health of the destinations used by an EJB client context.  Destinations which fail to be connected to are kept
+ * out of selection for a while; the more often a destination failed recently, the longer it is kept out.  Once that
+ * time has passed, one invocation is let through as a probe, and the destination is healthy again if it succeeds.
+ * <p>
+ * Only destinations which failed are tracked, and checking a destination does not lock.  Destinations are forgotten
+ * in the order in which their failures decay, without scanning the tracked destinations.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class DestinationHealth {
+
+    static final long OPEN_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(SecurityUtils.getLong(SystemProperties.DISCOVERY_BLACKLIST_TIMEOUT, 5000L));
+    static final long HALF_LIFE = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, SecurityUtils.getLong(SystemProperties.DESTINATION_FAILURE_HALF_LIFE, 30000L)));
+
+    /**
+     * The factor by which the open time may grow for destinations which fail repeatedly.
+     */
+    static final int MAX_OPEN_FACTOR = 8;
+
+    private static final double FORGET_SCORE = 0.1;
+    private static final State DEAD = new State(0.0, 0L, 0L, 0L);
+
+    private final long openTimeout;
+    private final long halfLife;
+    private final ConcurrentHashMap<URI, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Expiry> expiries = new ConcurrentSkipListSet<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    DestinationHealth() {
+        this(OPEN_TIMEOUT, HALF_LIFE);
+    }
+
+    DestinationHealth(final long openTimeout, final long halfLife) {
+        this.openTimeout = openTimeout;
+        this.halfLife = halfLife;
+    }
+
+    /**
+     * Determine whether the destination may be selected.
+     *
+     * @param destination the destination
+     * @return {@code true} if the destination is healthy or may be probed, {@code false} if it should be skipped
+     */
+    boolean isAvailable(URI destination) {
+        return isAvailable(destination, System.nanoTime());
+    }
+
+    boolean isAvailable(URI destination, long now) {
+        final Entry entry = entries.get(destination);
+        return entry == null || entry.state.isAvailable(now);
+    }
+
+    /**
+     * Record that a request is being sent to the destination.  If the destination may be probed, the request becomes
+     * the probe, and the destination is not available to other requests until the probe completes or times out.
+     *
+     * @param destination the destination
+     */
+    void requestSent(URI destination) {
+        requestSent(destination, System.nanoTime());
+    }
+
+    void requestSent(URI destination, long now) {
+        final Entry entry = entries.get(destination);
+        if (entry == null) {
+            return;
+        }
+        State oldState, newState;
+        do {
+            oldState = entry.state;
+            if (oldState == DEAD || oldState.openUntil == 0L || ! oldState.isAvailable(now)) {
+                // healthy, or somebody else is probing
+                return;
+            }
+            newState = new State(oldState.score, oldState.updated, oldState.openUntil, now + openTimeout);
+        } while (! stateUpdater.compareAndSet(entry, oldState, newState));
+        scheduleExpiry(entry, newState);
+    }
+
+    /**
+     * Record that the destination could not be reached.
+     *
+     * @param destination the destination
+     */
+    void recordFailure(URI destination) {
+        recordFailure(destination, System.nanoTime());
+    }
+
+    void recordFailure(URI destination, long now) {
+        for (;;) {
+            final Entry entry = entries.computeIfAbsent(destination, Entry::new);
+            final State oldState = entry.state;
+            if (oldState == DEAD) {
+                // being forgotten; start over
+                entries.remove(destination, entry);
+                continue;
+            }
+            final double score = oldState.getScore(now, halfLife) + 1.0;
+            final long factor = Math.max(1L, Math.min(MAX_OPEN_FACTOR, Math.round(score)));
+            final State newState = new State(score, now, now + openTimeout * factor, 0L);
+            if (stateUpdater.compareAndSet(entry, oldState, newState)) {
+                scheduleExpiry(entry, newState);
+                expire(now);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Record that a request to the destination succeeded.
+     *
+     * @param destination the destination
+     */
+    void recordSuccess(URI destination) {
+        recordSuccess(destination, System.nanoTime());
+    }
+
+    void recordSuccess(URI destination, long now) {
+        final Entry entry = entries.get(destination);
+        if (entry == null) {
+            return;
+        }
+        State oldState, newState;
+        do {
+            oldState = entry.state;
+            if (oldState == DEAD || oldState.openUntil == 0L) {
+                // nothing to change; the failure score decays by itself
+                return;
+            }
+            // keep the score, so that a destination which fails again soon stays out for longer
+            newState = new State(oldState.getScore(now, halfLife), now, 0L, 0L);
+        } while (! stateUpdater.compareAndSet(entry, oldState, newState));
+        scheduleExpiry(entry, newState);
+        expire(now);
+    }
+
+    /**
+     * Get the destinations which are currently not available.  Intended for diagnostics only, as this method visits
+     * every tracked destination.
+     *
+     * @return the unavailable destinations (not {@code null})
+     */
+    Set<URI> getUnavailable() {
+        final long now = System.nanoTime();
+        expire(now);
+        final Set<URI> set = new HashSet<>();
+        for (Entry entry : entries.values()) {
+            if (! entry.state.isAvailable(now)) {
+                set.add(entry.destination);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Get the number of tracked destinations.
+     *
+     * @return the number of tracked destinations
+     */
+    int size() {
+        return entries.size();
+    }
+
+    private void scheduleExpiry(final Entry entry, final State state) {
+        final double score = state.score;
+        // the time it takes for the score to decay enough for the destination to be forgotten
+        final long decay = score <= FORGET_SCORE ? 0L : (long) (Math.log(score / FORGET_SCORE) / Math.log(2.0) * halfLife);
+        final long time = Math.max(state.updated + decay, Math.max(state.openUntil, state.probeUntil));
+        expiries.add(new Expiry(time, sequence.getAndIncrement(), entry));
+    }
+
+    /**
+     * Forget the destinations whose time has come, in time order.  Each state change schedules its own expiry, so
+     * an expiry for an entry which has changed since is skipped.
+     *
+     * @param now the current time
+     */
+    void expire(long now) {
+        Expiry expiry;
+        while ((expiry = firstOrNull()) != null && now - expiry.time >= 0L) {
+            if (! expiries.remove(expiry)) {
+                // somebody else got it
+                continue;
+            }
+            final Entry entry = expiry.entry;
+            final State state = entry.state;
+            if (state != DEAD && state.isForgettable(now, halfLife) && stateUpdater.compareAndSet(entry, state, DEAD)) {
+                entries.remove(entry.destination, entry);
+            }
+        }
+    }
+
+    private Expiry firstOrNull() {
+        // like first(), without throwing when empty
+        return expiries.ceiling(Expiry.MIN);
+    }
+
+    static final class State {
+        final double score;
+        final long updated;
+        // zero if the destination is healthy
+        final long openUntil;
+        // zero if no probe is outstanding
+        final long probeUntil;
+
+        State(final double score, final long updated, final long openUntil, final long probeUntil) {
+            this.score = score;
+            this.updated = updated;
+            this.openUntil = openUntil;
+            this.probeUntil = probeUntil;
+        }
+
+        boolean isAvailable(long now) {
+            if (this == DEAD || openUntil == 0L) {
+                return true;
+            }
+            if (now - openUntil < 0L) {
+                return false;
+            }
+            return probeUntil == 0L || now - probeUntil >= 0L;
+        }
+
+        double getScore(long now, long halfLife) {
+            final long elapsed = now - updated;
+            return elapsed <= 0L ? score : score * Math.pow(0.5, (double) elapsed / halfLife);
+        }
+
+        boolean isForgettable(long now, long halfLife) {
+            return (openUntil == 0L || now - openUntil >= 0L) && (probeUntil == 0L || now - probeUntil >= 0L) && getScore(now, halfLife) <= FORGET_SCORE;
+        }
+    }
+
+    static final class Entry {
+        final URI destination;
+        volatile State state = new State(0.0, 0L, 0L, 0L);
+
+        Entry(final URI destination) {
+            this.destination = destination;
+        }
+    }
+
+    static final class Expiry implements Comparable<Expiry> {
+        static final Expiry MIN = new Expiry(Long.MIN_VALUE, Long.MIN_VALUE, null);
+
+        final long time;
+        final long seq;
+        final Entry entry;
+
+        Expiry(final long time, final long seq, final Entry entry) {
+            this.time = time;
+            this.seq = seq;
+            this.entry = entry;
+        }
+
+        public int compareTo(final Expiry o) {
+            final int res = Long.compare(time, o.time);
+            return res != 0 ? res : Long.compare(seq, o.seq);
+        }
+    }
+
+    private static final AtomicReferenceFieldUpdater<Entry, State> stateUpdater = AtomicReferenceFieldUpdater.newUpdater(Entry.class, State.class, "state");
+}
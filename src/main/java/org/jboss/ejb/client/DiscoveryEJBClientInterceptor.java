@@ -33,6 +33,7 @@ import java.net.InetSocketAddress;
 import java.net.URI;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -86,8 +87,6 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
     public static final int PRIORITY = ClientInterceptorPriority.JBOSS_AFTER + 100;
 
     private static final AttachmentKey<Set<URI>> BL_KEY = new AttachmentKey<>();
-    private static final Map<URI, Long> blacklist = new ConcurrentHashMap<>();
-    private static final long BLACKLIST_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(SecurityUtils.getLong(SystemProperties.DISCOVERY_BLACKLIST_TIMEOUT, 5000L));
 
     /**
      * Construct a new instance.
@@ -135,6 +134,11 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
             processMissingTarget(context, e);
             throw e;
         }
+        final URI succeeded = context.getDestination();
+        if (succeeded != null) {
+            // closes the circuit if this invocation was probing a destination which failed before
+            context.getClientContext().getDestinationHealth().recordSuccess(succeeded);
+        }
         final EJBLocator<?> locator = context.getLocator();
         if (locator.isStateful() && locator.getAffinity() instanceof ClusterAffinity && context.getWeakAffinity() == Affinity.NONE) {
             // set the weak affinity to the location of the session (in case it failed over)
@@ -263,12 +267,14 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
 
         // Oops, we got some wrong information!
         if (shouldBlacklist(cause)) {
-            addBlackListedDestination(destination);
+            addBlackListedDestination(context, destination);
         } else {
             addInvocationBlackListedDestination(context, destination);
         }
 
         getDiscovery().processMissingTarget(destination, cause);
+        // whatever we discovered before is evidently out of date
+        context.getClientContext().getDiscoveryResultCache().invalidate();
 
         // clear the weak affinity so that cluster invocations can be re-targeted.
         context.setWeakAffinity(Affinity.NONE);
@@ -302,12 +308,12 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
         }
     }
 
-    static void addBlackListedDestination(URI destination) {
+    static void addBlackListedDestination(AbstractInvocationContext context, URI destination) {
         if (destination != null) {
             if (Logs.INVOCATION.isDebugEnabled()) {
                 Logs.INVOCATION.debugf("DiscoveryEJBClientInterceptor: blacklisting destination %s", destination);
             }
-            blacklist.put(destination, System.nanoTime());
+            context.getClientContext().getDestinationHealth().recordFailure(destination);
         }
     }
 
@@ -317,22 +323,8 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
             return true;
         }
 
-        // check if it is in the static blacklist
-        if (!blacklist.containsKey(destination)) {
-            return false;
-        }
-
-        // getBlacklist() will remove any blacklisted entries that are now > than BLACKLIST_TIMEOUT
-        // to check if any blacklisted destinations are now available to be used
-        return getBlacklist().contains(destination);
-    }
-
-    static Set<URI> getBlacklist(){
-        blacklist.entrySet().removeIf(e ->
-        {
-            return (System.nanoTime() - e.getValue()) > BLACKLIST_TIMEOUT;
-        });
-        return blacklist.keySet();
+        // check if the destination is kept out of selection for this client context
+        return ! context.getClientContext().getDestinationHealth().isAvailable(destination);
     }
 
     ServicesQueue discover(final AbstractInvocationContext invocationContext, FilterSpec filterSpec) {
@@ -350,6 +342,21 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
         return DISCOVERY_SUPPLIER.get();
     }
 
+    DiscoveredServices discoverServices(final AbstractInvocationContext invocationContext, final FilterSpec filterSpec, final boolean requireComplete) {
+        if (DiscoveryResultCache.isEnabled()) {
+            final DiscoveryResultCache resultCache = invocationContext.getClientContext().getDiscoveryResultCache();
+            final Discovery discovery = getDiscovery();
+            final List<ServiceURL> cached = resultCache.get(discovery, filterSpec, requireComplete);
+            if (cached != null) {
+                Logs.INVOCATION.tracef("DiscoveryEJBClientInterceptor: using cached discovery result (filter spec = %s, services = %s)", filterSpec, cached);
+                return new DiscoveredServices(cached);
+            }
+            final long generation = resultCache.currentGeneration();
+            return new DiscoveredServices(discover(invocationContext, filterSpec), resultCache, discovery, filterSpec, generation);
+        }
+        return new DiscoveredServices(discover(invocationContext, filterSpec), null, null, filterSpec, 0);
+    }
+
     private List<Throwable> executeDiscovery(AbstractInvocationContext context) {
         assert context.getDestination() == null;
         final EJBLocator<?> locator = context.getLocator();
@@ -433,12 +440,12 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
             Logs.INVOCATION.debugf("DiscoveryEJBClientInterceptor: performing first-match discovery(locator = %s, weak affinity = %s, filter spec = %s)", context.getLocator(), context.getWeakAffinity(), filterSpec);
         }
         final List<Throwable> problems;
-        final Set<URI> blacklist = getBlacklist();
-        try (final ServicesQueue queue = discover(context, filterSpec)) {
+        final DestinationHealth destinationHealth = context.getClientContext().getDestinationHealth();
+        try (final DiscoveredServices queue = discoverServices(context, filterSpec, false)) {
             ServiceURL serviceURL;
             while ((serviceURL = queue.takeService(DISCOVERY_TIMEOUT, TimeUnit.SECONDS)) != null) {
                 final URI location = serviceURL.getLocationURI();
-                if (!blacklist.contains(location)) {
+                if (destinationHealth.isAvailable(location)) {
                     // Got a match!  See if there's a node affinity to set for the invocation.
                     final AttributeValue nodeValue = serviceURL.getFirstAttributeValue(FILTER_ATTR_NODE);
                     if (nodeValue != null) {
@@ -492,18 +499,18 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
         Logs.INVOCATION.tracef("DiscoveryEJBClientInterceptor: performing any discovery(locator = %s, weak affinity = %s, filter spec = %s)", context.getLocator(), context.getWeakAffinity(), filterSpec);
         final List<Throwable> problems;
         // blacklist
-        final Set<URI> blacklist = getBlacklist();
+        final DestinationHealth destinationHealth = context.getClientContext().getDestinationHealth();
         final Map<URI, String> nodes = new HashMap<>();
         final Map<String, URI> uris = new HashMap<>();
         final Map<URI, List<String>> clusterAssociations = new HashMap<>();
 
         int nodeless = 0;
         long timeout = DISCOVERY_TIMEOUT * 1000;
-        try (final ServicesQueue queue = discover(context, filterSpec)) {
+        try (final DiscoveredServices queue = discoverServices(context, filterSpec, true)) {
             ServiceURL serviceURL;
             while ((serviceURL = queue.takeService(timeout, TimeUnit.MILLISECONDS)) != null) {
                 final URI location = serviceURL.getLocationURI();
-                if (!blacklist.contains(location)) {
+                if (destinationHealth.isAvailable(location)) {
                     // Got a match!  See if there's a node affinity to set for the invocation.
                     final AttributeValue nodeValue = serviceURL.getFirstAttributeValue(FILTER_ATTR_NODE);
                     if (nodeValue != null) {
@@ -571,7 +578,7 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
         } else if (nodeless == 0) {
             // use the deployment node selector
             DeploymentNodeSelector selector = context.getClientContext().getDeploymentNodeSelector();
-            nodeName = selector.selectNode(nodes.values().toArray(NO_STRINGS), locator.getAppName(), locator.getModuleName(), locator.getDistinctName());
+            nodeName = selector.selectNode(nodes.values().toArray(NO_STRINGS), locator.getAppName(), locator.getModuleName(), locator.getDistinctName(), context.getClientContext().getNodeStatistics());
             if (nodeName == null) {
                 throw Logs.INVOCATION.selectorReturnedNull(selector);
             }
@@ -628,13 +635,13 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
         Map<String, URI> nodes = new HashMap<>();
         final EJBClientContext clientContext = context.getClientContext();
         final List<Throwable> problems;
-        final Set<URI> blacklist = getBlacklist();
+        final DestinationHealth destinationHealth = context.getClientContext().getDestinationHealth();
         long timeout = DISCOVERY_TIMEOUT * 1000;
-        try (final ServicesQueue queue = discover(context, filterSpec)) {
+        try (final DiscoveredServices queue = discoverServices(context, filterSpec, true)) {
             ServiceURL serviceURL;
             while ((serviceURL = queue.takeService(timeout, TimeUnit.MILLISECONDS)) != null) {
                 final URI location = serviceURL.getLocationURI();
-                if (!blacklist.contains(location)) {
+                if (destinationHealth.isAvailable(location)) {
                     final EJBReceiver transportProvider = clientContext.getTransportProvider(location.getScheme());
                     if (transportProvider != null && satisfiesSourceAddress(serviceURL, transportProvider)) {
                         final AttributeValue nodeNameValue = serviceURL.getFirstAttributeValue(FILTER_ATTR_NODE);
@@ -656,6 +663,7 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
         }
 
         // Prefer nodes associated with a transaction, if possible
+        final Map<String, URI> discoveredNodes = nodes;
         nodes = tryFilterToPreferredNodes(context, nodes);
 
         final EJBLocator<?> locator = context.getLocator();
@@ -686,25 +694,14 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
             return problems;
         }
         // we have to run through the node selection process
-        ArrayList<String> availableNodes = new ArrayList<>(nodes.size());
-        ArrayList<String> connectedNodes = new ArrayList<>(nodes.size());
-        for (Map.Entry<String, URI> entry : nodes.entrySet()) {
-            final String nodeName = entry.getKey();
-            final URI uri = entry.getValue();
-            final EJBReceiver transportProvider = clientContext.getTransportProvider(uri.getScheme());
-            if (transportProvider != null) {
-                availableNodes.add(nodeName);
-                if (transportProvider.isConnected(uri)) {
-                    connectedNodes.add(nodeName);
-                }
-            }
-        }
+        final String clusterName = ((ClusterAffinity) locator.getAffinity()).getClusterName();
+        final ClusterNodes clusterNodes = getClusterNodes(clientContext, clusterName, nodes, nodes == discoveredNodes);
         if (Logs.INVOCATION.isDebugEnabled()) {
-            Logs.INVOCATION.debugf("DiscoveryEJBClientInterceptor: performing cluster discovery, multi node case (connected nodes = %s, available nodes = %s)", connectedNodes, availableNodes);
+            Logs.INVOCATION.debugf("DiscoveryEJBClientInterceptor: performing cluster discovery, multi node case (connected nodes = %s, available nodes = %s)", Arrays.toString(clusterNodes.connectedNodes), Arrays.toString(clusterNodes.availableNodes));
         }
 
         final ClusterNodeSelector selector = clientContext.getClusterNodeSelector();
-        final String selectedNode = selector.selectNode(((ClusterAffinity) locator.getAffinity()).getClusterName(), connectedNodes.toArray(NO_STRINGS), availableNodes.toArray(NO_STRINGS));
+        final String selectedNode = selector.selectNode(clusterName, clusterNodes.connectedNodes, clusterNodes.availableNodes, clientContext.getNodeStatistics());
 
         if (Logs.INVOCATION.isDebugEnabled()) {
             Logs.INVOCATION.debugf("DiscoveryEJBClientInterceptor: performing cluster discovery, multi-node case (cluster node selector = %s, selected node = %s)", selector.getClass().getName(), selectedNode);
@@ -728,6 +725,61 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
         return problems;
     }
 
+    /**
+     * Get the connected and available nodes of a cluster.  The result is cached per client context and cluster, and
+     * reused for as long as the discovered nodes and the current authentication context are the same and none of their
+     * receivers reports a change of connection state, so that the receivers need not be asked whether each node is
+     * connected on every invocation.  Checking the cached result does not allocate.
+     */
+    ClusterNodes getClusterNodes(final EJBClientContext clientContext, final String clusterName, final Map<String, URI> nodes, final boolean cacheable) {
+        final AuthenticationContext authenticationContext = AuthenticationContext.captureCurrent();
+        final ConcurrentHashMap<String, ClusterNodes> clusterNodesCache = clientContext.getClusterNodesCache();
+        if (cacheable) {
+            final ClusterNodes cached = clusterNodesCache.get(clusterName);
+            if (cached != null && cached.isCurrent(nodes, authenticationContext)) {
+                return cached;
+            }
+        }
+        // read the connection state versions first, so that a change while we build is caught on the next call
+        final ArrayList<EJBReceiver> receivers = new ArrayList<>(1);
+        for (URI uri : nodes.values()) {
+            final EJBReceiver transportProvider = clientContext.getTransportProvider(uri.getScheme());
+            if (transportProvider != null && ! receivers.contains(transportProvider)) {
+                receivers.add(transportProvider);
+            }
+        }
+        final EJBReceiver[] receiverArray = receivers.toArray(new EJBReceiver[receivers.size()]);
+        final long[] versions = new long[receiverArray.length];
+        boolean tracked = true;
+        for (int i = 0; i < receiverArray.length; i++) {
+            versions[i] = receiverArray[i].getConnectionStateVersion();
+            tracked &= versions[i] != -1;
+        }
+        final String[] nodeNames = new String[nodes.size()];
+        final URI[] uris = new URI[nodeNames.length];
+        final ArrayList<String> availableNodes = new ArrayList<>(nodeNames.length);
+        final ArrayList<String> connectedNodes = new ArrayList<>(nodeNames.length);
+        int i = 0;
+        for (Map.Entry<String, URI> entry : nodes.entrySet()) {
+            final String nodeName = entry.getKey();
+            final URI uri = entry.getValue();
+            nodeNames[i] = nodeName;
+            uris[i++] = uri;
+            final EJBReceiver transportProvider = clientContext.getTransportProvider(uri.getScheme());
+            if (transportProvider != null) {
+                availableNodes.add(nodeName);
+                if (transportProvider.isConnected(uri)) {
+                    connectedNodes.add(nodeName);
+                }
+            }
+        }
+        final ClusterNodes clusterNodes = new ClusterNodes(nodeNames, uris, authenticationContext, receiverArray, versions, connectedNodes.toArray(NO_STRINGS), availableNodes.toArray(NO_STRINGS));
+        if (cacheable && tracked) {
+            clusterNodesCache.put(clusterName, clusterNodes);
+        }
+        return clusterNodes;
+    }
+
     @SuppressWarnings("Java8CollectionRemoveIf")
     private Map<String, URI> tryFilterToPreferredNodes(AbstractInvocationContext context, Map<String, URI> nodes) {
         Collection<URI> attachment = context.getAttachment(TransactionInterceptor.PREFERRED_DESTINATIONS);
@@ -801,4 +853,105 @@ public final class DiscoveryEJBClientInterceptor implements EJBClientInterceptor
         }
         return false;
     }
+
+    /**
+     * The connected and available nodes of a cluster, as seen by one authentication context for one set of discovered
+     * nodes and connection state versions.
+     */
+    static final class ClusterNodes {
+        private final String[] nodeNames;
+        private final URI[] uris;
+        private final AuthenticationContext authenticationContext;
+        private final EJBReceiver[] receivers;
+        private final long[] versions;
+        final String[] connectedNodes;
+        final String[] availableNodes;
+
+        ClusterNodes(final String[] nodeNames, final URI[] uris, final AuthenticationContext authenticationContext, final EJBReceiver[] receivers, final long[] versions, final String[] connectedNodes, final String[] availableNodes) {
+            this.nodeNames = nodeNames;
+            this.uris = uris;
+            this.authenticationContext = authenticationContext;
+            this.receivers = receivers;
+            this.versions = versions;
+            this.connectedNodes = connectedNodes;
+            this.availableNodes = availableNodes;
+        }
+
+        boolean isCurrent(final Map<String, URI> nodes, final AuthenticationContext authenticationContext) {
+            // whether a node counts as connected depends on the identity used to connect to it
+            if (this.authenticationContext != authenticationContext) {
+                return false;
+            }
+            for (int i = 0; i < receivers.length; i++) {
+                if (receivers[i].getConnectionStateVersion() != versions[i]) {
+                    return false;
+                }
+            }
+            if (nodes.size() != nodeNames.length) {
+                return false;
+            }
+            for (int i = 0; i < nodeNames.length; i++) {
+                if (! uris[i].equals(nodes.get(nodeNames[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The services found for one filter specification, either replayed from the discovery result cache or taken from a
+     * live discovery queue.  Services taken from a live queue are recorded and cached when the queue is closed.
+     */
+    static final class DiscoveredServices implements AutoCloseable {
+        private final ServicesQueue queue;
+        private final DiscoveryResultCache resultCache;
+        private final Discovery discovery;
+        private final FilterSpec filterSpec;
+        private final long generation;
+        private final List<ServiceURL> services;
+        private int index;
+
+        DiscoveredServices(final List<ServiceURL> cached) {
+            queue = null;
+            resultCache = null;
+            discovery = null;
+            filterSpec = null;
+            generation = 0;
+            services = cached;
+        }
+
+        DiscoveredServices(final ServicesQueue queue, final DiscoveryResultCache resultCache, final Discovery discovery, final FilterSpec filterSpec, final long generation) {
+            this.queue = queue;
+            this.resultCache = resultCache;
+            this.discovery = discovery;
+            this.filterSpec = filterSpec;
+            this.generation = generation;
+            services = resultCache == null ? null : new ArrayList<>();
+        }
+
+        ServiceURL takeService(final long timeout, final TimeUnit timeUnit) throws InterruptedException {
+            if (queue == null) {
+                return index < services.size() ? services.get(index ++) : null;
+            }
+            final ServiceURL serviceURL = queue.takeService(timeout, timeUnit);
+            if (serviceURL != null && services != null) {
+                services.add(serviceURL);
+            }
+            return serviceURL;
+        }
+
+        List<Throwable> getProblems() {
+            return queue == null ? Collections.emptyList() : queue.getProblems();
+        }
+
+        public void close() {
+            if (queue != null) {
+                if (services != null) {
+                    resultCache.put(discovery, filterSpec, generation, services, queue.isFinished());
+                }
+                queue.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.client;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.wildfly.discovery.Discovery;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceURL;
+
+/**
+ * A cache of the service URLs which were discovered for a given filter specification, kept per EJB client context.
+ * Entries are dropped whenever a receiver of the context reports that the services it would discover changed (see
+ * {@link EJBReceiverContext#invalidateDiscoveryResults()}), and otherwise expire after a configurable timeout so that
+ * changes in providers which do not report them are still eventually picked up.  Once the cache is full, the least
+ * recently used entry is evicted.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class DiscoveryResultCache {
+    private static final long CACHE_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(SecurityUtils.getLong(SystemProperties.DISCOVERY_CACHE_TIMEOUT, 5000L));
+    static final int MAX_ENTRIES = 1024;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final int maxEntries;
+    // guarded by itself
+    private final LinkedHashMap<FilterSpec, Entry> entries;
+
+    DiscoveryResultCache() {
+        this(MAX_ENTRIES);
+    }
+
+    DiscoveryResultCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        entries = new LinkedHashMap<FilterSpec, Entry>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(final Map.Entry<FilterSpec, Entry> eldest) {
+                return size() > DiscoveryResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    static boolean isEnabled() {
+        return CACHE_TIMEOUT > 0;
+    }
+
+    /**
+     * Drop all cached results, including those of discoveries which are still running.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Get the cached services for the given filter.
+     *
+     * @param discovery the discovery instance which would otherwise be queried
+     * @param filterSpec the filter specification
+     * @param requireComplete {@code true} if only the complete result of a finished discovery is acceptable,
+     *      {@code false} if any cached match will do
+     * @return the cached services, or {@code null} if there is no usable entry
+     */
+    List<ServiceURL> get(final Discovery discovery, final FilterSpec filterSpec, final boolean requireComplete) {
+        return get(discovery, filterSpec, requireComplete, System.nanoTime());
+    }
+
+    List<ServiceURL> get(final Discovery discovery, final FilterSpec filterSpec, final boolean requireComplete, final long now) {
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(filterSpec);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.discovery != discovery || entry.generation != generation.get() || now - entry.timestamp > CACHE_TIMEOUT) {
+                entries.remove(filterSpec);
+                return null;
+            }
+        }
+        return requireComplete && ! entry.complete ? null : entry.services;
+    }
+
+    void put(final Discovery discovery, final FilterSpec filterSpec, final long generation, final List<ServiceURL> services, final boolean complete) {
+        put(discovery, filterSpec, generation, services, complete, System.nanoTime());
+    }
+
+    void put(final Discovery discovery, final FilterSpec filterSpec, final long generation, final List<ServiceURL> services, final boolean complete, final long now) {
+        if (services.isEmpty() || generation != this.generation.get()) {
+            // never cache a miss, as the next attempt may well establish the missing connections; nor a stale result
+            return;
+        }
+        synchronized (entries) {
+            entries.put(filterSpec, new Entry(discovery, generation, services, complete, now));
+        }
+    }
+
+    long currentGeneration() {
+        return generation.get();
+    }
+
+    static final class Entry {
+        final Discovery discovery;
+        final long generation;
+        final long timestamp;
+        final List<ServiceURL> services;
+        final boolean complete;
+
+        Entry(final Discovery discovery, final long generation, final List<ServiceURL> services, final boolean complete, final long timestamp) {
+            this.discovery = discovery;
+            this.generation = generation;
+            this.services = services;
+            this.complete = complete;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -22,6 +22,9 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.net.SocketAddress;
 import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
@@ -365,6 +368,49 @@ public final class EJBClient {
         return (Future<?>) invocationHandler.invoke(proxy, proxyMethodInfo, args);
     }
 
+    /**
+     * Perform an asynchronous invocation by method locator on a proxy, returning a completable future for the result.
+     * The future is completed on the given executor, or directly on the thread which receives the invocation
+     * response if the executor is {@code null}; in the latter case, dependent actions which may block should be
+     * registered using the {@code *Async} methods of the returned future.  Cancelling the returned future attempts
+     * to cancel the invocation.
+     *
+     * @param proxy the EJB proxy
+     * @param executor the executor to complete the result on, or {@code null} to complete it on the receiving thread
+     * @param methodLocator the method locator
+     * @param args the invocation arguments
+     * @param <T> the view type
+     * @return the completable future for the invocation result
+     * @throws Exception if the invocation failed for some reason
+     */
+    public static <T> CompletableFuture<?> invokeCompletable(T proxy, Executor executor, EJBMethodLocator methodLocator, Object... args) throws Exception {
+        final EJBInvocationHandler<? extends T> invocationHandler = EJBInvocationHandler.forProxy(proxy);
+        final EJBProxyInformation.ProxyMethodInfo proxyMethodInfo = invocationHandler.getProxyMethodInfo(methodLocator);
+        return invocationHandler.invokeCompletable(proxy, proxyMethodInfo, executor, args);
+    }
+
+    /**
+     * Perform a batch of asynchronous invocations of the same method by method locator on a proxy, returning a
+     * completable future for each result.  The target of the batch is resolved once, by its first invocation, and the
+     * remaining invocations are sent to the same destination without repeating discovery.  A receiver which supports
+     * it sends the requests of the batch together, once all of them were prepared.  Each future is completed as
+     * described in {@link #invokeCompletable(Object, Executor, EJBMethodLocator, Object...)}.
+     *
+     * @param proxy the EJB proxy
+     * @param executor the executor to complete the results on, or {@code null} to complete them on the receiving thread
+     * @param methodLocator the method locator
+     * @param argumentLists the invocation arguments of each invocation in the batch (must not be {@code null})
+     * @param <T> the view type
+     * @return the list of completable futures for the invocation results, in the order of {@code argumentLists}
+     * @throws Exception if the invocation failed for some reason
+     */
+    public static <T> List<CompletableFuture<?>> invokeBatch(T proxy, Executor executor, EJBMethodLocator methodLocator, List<Object[]> argumentLists) throws Exception {
+        Assert.checkNotNullParam("argumentLists", argumentLists);
+        final EJBInvocationHandler<? extends T> invocationHandler = EJBInvocationHandler.forProxy(proxy);
+        final EJBProxyInformation.ProxyMethodInfo proxyMethodInfo = invocationHandler.getProxyMethodInfo(methodLocator);
+        return invocationHandler.invokeBatch(proxy, proxyMethodInfo, executor, argumentLists);
+    }
+
     /**
      * Perform an invocation by method locator on a proxy, returning the result.
      *
@@ -38,6 +38,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -112,6 +114,13 @@ public final class EJBClientContext extends Attachable implements Contextual<EJB
 
     private final EJBTransportProvider[] transportProviders;
     private final long invocationTimeout;
+    private final Executor timerExecutor;
+    private final InvocationTimer invocationTimer;
+    private final DestinationHealth destinationHealth = new DestinationHealth();
+    private final NodeStatistics nodeStatistics = new NodeStatistics();
+    private final HedgingPolicy hedgingPolicy;
+    private final DiscoveryResultCache discoveryResultCache = new DiscoveryResultCache();
+    private final ConcurrentHashMap<String, DiscoveryEJBClientInterceptor.ClusterNodes> clusterNodesCache = new ConcurrentHashMap<>();
     private final EJBReceiverContext receiverContext;
     private final List<EJBClientConnection> configuredConnections;
     private final Map<String, EJBClientCluster> configuredClusters;
@@ -149,6 +158,9 @@ public final class EJBClientContext extends Attachable implements Contextual<EJB
             transportProviders = builderTransportProviders.toArray(new EJBTransportProvider[builderTransportProviders.size()]);
         }
         invocationTimeout = builder.invocationTimeout;
+        timerExecutor = builder.timerExecutor;
+        invocationTimer = new InvocationTimer("EJB client invocation timer", timerExecutor == null ? InvocationTimer.getDefaultExecutor() : timerExecutor);
+        hedgingPolicy = builder.hedgingPolicy == null ? new HedgingPolicy() : builder.hedgingPolicy;
         receiverContext = new EJBReceiverContext(this);
         final List<EJBClientConnection> clientConnections = builder.clientConnections;
         if (clientConnections == null || clientConnections.isEmpty()) {
@@ -492,6 +504,60 @@ public final class EJBClientContext extends Attachable implements Contextual<EJB
         return invocationTimeout;
     }
 
+    /**
+     * Get the timer used to expire invocations made through this context.
+     *
+     * @return the invocation timer (not {@code null})
+     */
+    InvocationTimer getInvocationTimer() {
+        return invocationTimer;
+    }
+
+    /**
+     * Get the health of the destinations used by this context.
+     *
+     * @return the destination health (not {@code null})
+     */
+    DestinationHealth getDestinationHealth() {
+        return destinationHealth;
+    }
+
+    /**
+     * Get the statistics of the cluster nodes invoked through this context.
+     *
+     * @return the node statistics (not {@code null})
+     */
+    NodeStatistics getNodeStatistics() {
+        return nodeStatistics;
+    }
+
+    /**
+     * Get the cache of the discovery results of this context.
+     *
+     * @return the discovery result cache (not {@code null})
+     */
+    DiscoveryResultCache getDiscoveryResultCache() {
+        return discoveryResultCache;
+    }
+
+    /**
+     * Get the cache of the connected and available nodes of each cluster, as last seen through this context.
+     *
+     * @return the cluster nodes by cluster name (not {@code null})
+     */
+    ConcurrentHashMap<String, DiscoveryEJBClientInterceptor.ClusterNodes> getClusterNodesCache() {
+        return clusterNodesCache;
+    }
+
+    /**
+     * Get the policy for hedging invocations made through this context.
+     *
+     * @return the hedging policy (not {@code null})
+     */
+    HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
     /**
      * Get the pre-configured connections for this context.  This information may not be used by some transport providers
      * and mainly exists for legacy compatibility purposes.
@@ -693,6 +759,8 @@ public final class EJBClientContext extends Attachable implements Contextual<EJB
         long invocationTimeout;
         int maximumConnectedClusterNodes = 10;
         int defaultCompression = -1;
+        Executor timerExecutor;
+        HedgingPolicy hedgingPolicy;
 
         /**
          * Construct a new instance.
@@ -728,6 +796,7 @@ public final class EJBClientContext extends Attachable implements Contextual<EJB
             clusterNodeSelector = clientContext.clusterNodeSelector;
             deploymentNodeSelector = clientContext.deploymentNodeSelector;
             invocationTimeout = clientContext.invocationTimeout;
+            timerExecutor = clientContext.timerExecutor;
         }
 
         public Builder addInterceptor(EJBClientInterceptor interceptor) {
@@ -835,6 +904,31 @@ public final class EJBClientContext extends Attachable implements Contextual<EJB
             return this;
         }
 
+        /**
+         * Set the executor which runs the tasks of the invocation timer, such as invocation timeouts.  These tasks may
+         * block, so the executor should not be shared with latency sensitive work.  If not set, a dedicated pool of
+         * daemon threads is used.
+         *
+         * @param timerExecutor the timer executor, or {@code null} to use the default
+         * @return this builder
+         */
+        public Builder setTimerExecutor(final Executor timerExecutor) {
+            this.timerExecutor = timerExecutor;
+            return this;
+        }
+
+        /**
+         * Set the hedging policy of the context, in place of one configured by system properties.  The policy holds the
+         * response times of the context, so it must not be shared with another context.
+         *
+         * @param hedgingPolicy the hedging policy, or {@code null} to use the default
+         * @return this builder
+         */
+        Builder setHedgingPolicy(final HedgingPolicy hedgingPolicy) {
+            this.hedgingPolicy = hedgingPolicy;
+            return this;
+        }
+
         public Builder setMaximumConnectedClusterNodes(final int maximumConnectedClusterNodes) {
             Assert.checkMinimumParameter("maximumConnectedClusterNodes", 0, maximumConnectedClusterNodes);
             this.maximumConnectedClusterNodes = maximumConnectedClusterNodes;
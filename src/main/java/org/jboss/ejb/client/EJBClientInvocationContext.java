@@ -25,18 +25,22 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
 
 import static java.lang.Math.max;
 import static java.lang.Thread.holdsLock;
 
+import org.jboss.ejb._private.Keys;
 import org.jboss.ejb._private.Logs;
 import org.jboss.ejb.client.annotation.ClientTransactionPolicy;
+import org.jboss.ejb.client.annotation.CompressionHint;
 import org.wildfly.common.Assert;
 import org.wildfly.common.annotation.NotNull;
 import org.wildfly.discovery.Discovery;
@@ -86,7 +90,20 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
 
     private int interceptorChainIndex;
     private boolean blockingCaller;
+    private volatile InvocationBatch batch;
     private int waiters = 0;
+    private CompletableResponse completableResponse;
+    private boolean completionScheduled;
+    private InvocationTimer.Timeout timeoutHandle;
+    // the node the outstanding request was sent to, for the node statistics
+    private String statisticsNode;
+    private long statisticsStartTime;
+    // the invocation which this invocation hedges, if it is a hedge
+    private final EJBClientInvocationContext original;
+    // the outstanding hedge of this invocation, and the timer which sends it
+    private EJBClientInvocationContext hedge;
+    private InvocationTimer.Timeout hedgeHandle;
+    private boolean hedged;
 
     EJBClientInvocationContext(final EJBInvocationHandler<?> invocationHandler, final EJBClientContext ejbClientContext, final Object invokedProxy, final Object[] parameters, final EJBProxyInformation.ProxyMethodInfo methodInfo, final int allowedRetries, final Supplier<AuthenticationContext> authenticationContextSupplier, final Discovery discoveryContext) {
         super(invocationHandler.getLocator(), ejbClientContext, authenticationContextSupplier != null ? authenticationContextSupplier.get() : AuthenticationContext.captureCurrent());
@@ -102,6 +119,27 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
         this.timeout = timeout;
         remainingRetries = allowedRetries;
         interceptorList = getClientContext().getInterceptors(getViewClass(), getInvokedMethod());
+        original = null;
+    }
+
+    /**
+     * Construct a hedge of the given invocation.  The hedge is not retried and has no timeout of its own; it is
+     * cancelled once the original invocation completes.
+     *
+     * @param original the invocation to hedge
+     */
+    private EJBClientInvocationContext(final EJBClientInvocationContext original) {
+        super(original.getLocator(), original.getClientContext(), original.getAuthenticationContext());
+        this.original = original;
+        invocationHandler = original.invocationHandler;
+        discoveryContext = original.discoveryContext;
+        invokedProxy = original.invokedProxy;
+        parameters = original.parameters;
+        methodInfo = original.methodInfo;
+        interceptorList = original.interceptorList;
+        timeout = 0L;
+        remainingRetries = 0;
+        getContextData().putAll(original.getContextData());
     }
 
     enum State {
@@ -246,6 +284,16 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
         return getClientContext().getDefaultCompression();
     }
 
+    /**
+     * Get the compression codec hint.  If no compression hint is given, {@link CompressionHint.Codec#DEFLATE} is
+     * returned.
+     *
+     * @return the compression codec hint (not {@code null})
+     */
+    public CompressionHint.Codec getCompressionCodec() {
+        return methodInfo.getCompressionCodec();
+    }
+
     /**
      * Get the method type signature string, used to identify the method.
      *
@@ -264,6 +312,20 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
         return methodInfo.getMethodLocator();
     }
 
+    /**
+     * Get the batch that this invocation is sent with, if the batch is still being sent.
+     *
+     * @return the incomplete batch of this invocation, or {@code null} if it is not sent with a batch
+     */
+    public InvocationBatch getBatch() {
+        final InvocationBatch batch = this.batch;
+        return batch == null || batch.isComplete() ? null : batch;
+    }
+
+    void setBatch(final InvocationBatch batch) {
+        this.batch = batch;
+    }
+
     /**
      * Determine whether this invocation is currently blocking the calling thread.
      *
@@ -325,6 +387,23 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
     }
 
     public void requestRetry() {
+        final BooleanSupplier retryPermit = getAttachment(Keys.RETRY_PERMIT_ATTACHMENT_KEY);
+        if (retryPermit != null) {
+            synchronized (lock) {
+                if (retryRequested || remainingRetries == 0) {
+                    // the retry is already permitted, or will not happen anyway
+                    retryRequested = true;
+                    return;
+                }
+            }
+            if (! retryPermit.getAsBoolean()) {
+                // the transport has run out of retries for the destination
+                if (Logs.INVOCATION.isDebugEnabled()) {
+                    Logs.INVOCATION.debugf("Retry of invocation denied by the transport");
+                }
+                return;
+            }
+        }
         if (Logs.INVOCATION.isDebugEnabled()) {
             Logs.INVOCATION.debugf("Requesting retry of invocation!");
         }
@@ -335,6 +414,7 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
 
     void sendRequestInitial() {
         assert checkState() == State.SENDING;
+        scheduleTimeout(0L);
         for (;;) {
             assert interceptorChainIndex == 0;
             try {
@@ -443,6 +523,181 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
         }
     }
 
+    /**
+     * Arm the invocation timer, if this invocation has a timeout and the timer is not already armed.  The timer fails
+     * the invocation when it expires, even if nobody is waiting for the result.
+     *
+     * @param minimumDelay the minimum delay in nanoseconds
+     */
+    private void scheduleTimeout(long minimumDelay) {
+        synchronized (lock) {
+            final long timeout = this.timeout;
+            if (timeout <= 0L || timeoutHandle != null) {
+                return;
+            }
+            // timeout in ms, elapsed time in nanosecs
+            final long remaining = max(minimumDelay, timeout * 1_000_000L - max(0L, System.nanoTime() - startTime));
+            timeoutHandle = getClientContext().getInvocationTimer().schedule(this::timedOut, remaining, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Handle the expiry of the invocation timer.
+     */
+    void timedOut() {
+        final long timeout;
+        synchronized (lock) {
+            timeoutHandle = null;
+            timeout = this.timeout;
+            if (timeout <= 0L || resultProducer != null || ! state.isWaiting()) {
+                // the result is already here, or a waiter already timed out this invocation
+                return;
+            }
+            if (state == State.SENDING) {
+                // the request is still going through the interceptor chain; look again on the next tick
+                scheduleTimeout(InvocationTimer.TICK_DURATION);
+                return;
+            }
+            this.timeout = 0;
+        }
+        resultReady(new ThrowableResult(() -> new TimeoutException("No invocation response received in " + timeout + " milliseconds")));
+        // cancel on the peer; the receiver releases the invocation once the peer confirms the cancellation
+        final EJBReceiver receiver = getReceiver();
+        if (receiver != null) receiver.cancelInvocation(receiverInvocationContext, true);
+    }
+
+    /**
+     * Arm the hedge timer, if hedging is enabled and this is an invocation of an idempotent method of a clustered
+     * stateless EJB outside of a transaction which was not hedged before.  The hedge is sent to another node if the
+     * invocation is not answered within the delay given by the hedging policy.
+     *
+     * @param destination the destination the invocation was sent to
+     */
+    private void scheduleHedge(final URI destination) {
+        final HedgingPolicy hedgingPolicy = getClientContext().getHedgingPolicy();
+        if (! hedgingPolicy.isEnabled() || destination == null || ! isIdempotent() || getTransaction() != null) {
+            return;
+        }
+        final EJBLocator<?> locator = getLocator();
+        if (! locator.isStateless() || ! (locator.getAffinity() instanceof ClusterAffinity)) {
+            return;
+        }
+        hedgingPolicy.requestSent();
+        final long delay = hedgingPolicy.getDelay(getInvokedMethod());
+        if (delay < 0L || delay >= getRemainingInvocationTime(TimeUnit.NANOSECONDS)) {
+            return;
+        }
+        synchronized (lock) {
+            if (hedged || state != State.SENT && state != State.WAITING || resultProducer != null) {
+                return;
+            }
+            hedged = true;
+            // the timer only hands the hedge over, as sending it runs the whole interceptor chain
+            final Executor executor = hedgingPolicy.getExecutor();
+            hedgeHandle = getClientContext().getInvocationTimer().schedule(() -> executor.execute(() -> sendHedge(destination)), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Handle the expiry of the hedge timer by sending a hedge of this invocation to another node than the given one,
+     * if the hedging budget allows it.  This runs on the executor of the hedging policy.
+     *
+     * @param destination the destination the invocation was sent to
+     */
+    void sendHedge(final URI destination) {
+        final EJBClientInvocationContext hedge;
+        synchronized (lock) {
+            hedgeHandle = null;
+            if (state != State.SENT && state != State.WAITING || resultProducer != null || cancelRequested) {
+                return;
+            }
+            if (! getClientContext().getHedgingPolicy().tryHedge()) {
+                if (Logs.INVOCATION.isDebugEnabled()) {
+                    Logs.INVOCATION.debugf("Hedge of invocation denied by the hedging budget");
+                }
+                return;
+            }
+            hedge = this.hedge = new EJBClientInvocationContext(this);
+        }
+        if (Logs.INVOCATION.isDebugEnabled()) {
+            Logs.INVOCATION.debugf("Sending hedge of invocation %s, which was sent to %s", this, destination);
+        }
+        DiscoveryEJBClientInterceptor.addInvocationBlackListedDestination(hedge, destination);
+        hedge.sendRequestInitial();
+        // the result of the hedge passes its own interceptors first, so that a failure is recorded against the
+        // destination of the hedge; only a success is offered to this invocation, which otherwise keeps waiting
+        hedge.getCompletableFuture(getClientContext().getHedgingPolicy().getExecutor()).whenComplete((result, failure) -> {
+            if (failure == null) {
+                hedgeResultReady(hedge, result);
+            } else if (Logs.INVOCATION.isDebugEnabled()) {
+                Logs.INVOCATION.debugf(failure, "Hedge of invocation %s failed", this);
+            }
+        });
+    }
+
+    /**
+     * Accept the successful result of a hedge of this invocation, if the hedge answered before the original
+     * invocation.  The original request is cancelled then, and this invocation takes over the destination of the hedge.
+     *
+     * @param hedge the hedge which answered
+     * @param result the result of the hedge
+     */
+    void hedgeResultReady(final EJBClientInvocationContext hedge, final Object result) {
+        final boolean accepted;
+        synchronized (lock) {
+            accepted = this.hedge == hedge && (state == State.SENT || state == State.WAITING) && this.resultProducer == null && pendingFailure == null;
+            if (accepted) {
+                // the hedge won; it must not be cancelled along with the original request
+                this.hedge = null;
+                setDestination(hedge.getDestination());
+                setTargetAffinity(hedge.getTargetAffinity());
+                this.resultProducer = new HedgeResult(hedge, result);
+                transition(State.READY);
+            }
+            checkStateInvariants();
+        }
+        if (! accepted) {
+            return;
+        }
+        if (log.isTraceEnabled()) {
+            log.tracef("Result of hedge is ready for %s: result: %s", this, result);
+        }
+        checkCompletion();
+        final EJBReceiver receiver = getReceiver();
+        if (receiver != null) {
+            // this invocation is complete, so the receiver does not wait for the peer to confirm the cancellation;
+            // sending the request may still block, so keep it off the thread which delivered the result
+            getClientContext().getHedgingPolicy().getExecutor().execute(() -> receiver.cancelInvocation(receiverInvocationContext, true));
+        }
+    }
+
+    /**
+     * Cancel this hedge because the original invocation completed.  This runs on the executor of the hedging policy.
+     */
+    void cancelHedge() {
+        synchronized (lock) {
+            if (! state.isWaiting()) {
+                return;
+            }
+            cancelRequested = true;
+            if (state == State.SENDING) {
+                // the request is abandoned once it was sent
+                return;
+            }
+        }
+        abandonHedge();
+    }
+
+    /**
+     * Abandon this hedge, which was sent.  The hedge is completed as cancelled first, so that the receiver does not wait
+     * for the peer to confirm the cancellation; the response of the peer, if any, is discarded.
+     */
+    private void abandonHedge() {
+        resultReady(CANCELLED);
+        final EJBReceiver receiver = getReceiver();
+        if (receiver != null) receiver.cancelInvocation(receiverInvocationContext, true);
+    }
+
     State checkState() {
         synchronized (lock) {
             return state;
@@ -491,10 +746,21 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
                     throw t;
                 }
                 setReceiver(receiver);
+                final Affinity targetAffinity = getTargetAffinity();
+                final String nodeName = targetAffinity instanceof NodeAffinity ? ((NodeAffinity) targetAffinity).getNodeName() : null;
                 synchronized (lock) {
                     transition(State.SENT);
+                    if (nodeName != null) {
+                        getClientContext().getNodeStatistics().requestSent(nodeName);
+                        statisticsNode = nodeName;
+                        statisticsStartTime = System.nanoTime();
+                    }
                     checkStateInvariants();
                 }
+                if (destination != null) {
+                    // this request may become the probe of a destination which failed before
+                    getClientContext().getDestinationHealth().requestSent(destination);
+                }
                 try {
                     receiver.processInvocation(receiverInvocationContext);
                 } catch (Throwable t) {
@@ -502,10 +768,17 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
                         if (state != State.SENT) {
                             transition(State.SENT);
                         }
+                        recordNodeStatistics(false);
                         checkStateInvariants();
                     }
                     throw t;
                 }
+                if (original == null) {
+                    scheduleHedge(destination);
+                } else if (cancelRequested) {
+                    // the original invocation completed while this hedge was being sent
+                    abandonHedge();
+                }
             } else {
                 try {
                     if (Logs.INVOCATION.isDebugEnabled()) {
@@ -697,9 +970,14 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
 
     void resultReady(EJBReceiverInvocationContext.ResultProducer resultProducer) {
         Assert.checkNotNullParam("resultProducer", resultProducer);
+        final Object lock = this.lock;
+        final boolean accepted;
         synchronized (lock) {
-            if (state.isWaiting() && this.resultProducer == null) {
+            accepted = state.isWaiting() && this.resultProducer == null;
+            if (accepted) {
                 this.resultProducer = resultProducer;
+                // local results say nothing about how fast the node is
+                recordNodeStatistics(resultProducer != CANCELLED && resultProducer != ONE_WAY && resultProducer != EJBReceiverInvocationContext.ResultProducer.NULL);
                 if (state == State.WAITING || state == State.SENT) {
                     transition(State.READY);
                 }
@@ -707,15 +985,20 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
                 if (log.isTraceEnabled()) {
                     log.tracef("Result is ready for %s: result producer: %s, current state: %s", this, resultProducer, state);
                 }
-                return;
-            }
-            checkStateInvariants();
-            if (log.isTraceEnabled()) {
-                log.tracef("Result discarded for %s: result producer: %s, current state: %s", this, resultProducer, state);
+            } else {
+                checkStateInvariants();
+                if (log.isTraceEnabled()) {
+                    log.tracef("Result discarded for %s: result producer: %s, current state: %s", this, resultProducer, state);
+                }
             }
         }
-        // for whatever reason, we don't care
-        resultProducer.discardResult();
+        if (! accepted) {
+            // for whatever reason, we don't care
+            resultProducer.discardResult();
+        } else if (! holdsLock(lock)) {
+            // complete any pending completion stage from the delivering thread
+            checkCompletion();
+        }
     }
 
     /**
@@ -783,12 +1066,105 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
         return new FutureResponse();
     }
 
+    /**
+     * Get a completable future which is completed when the invocation result is available.  The result is acquired
+     * directly on the thread which delivers it (typically the transport thread) if {@code executor} is {@code null},
+     * otherwise it is acquired on the given executor.  Cancelling the returned future cancels the invocation.
+     *
+     * @param executor the executor to acquire the result on, or {@code null} to acquire it on the delivering thread
+     * @return the completable future (not {@code null})
+     */
+    CompletableFuture<Object> getCompletableFuture(Executor executor) {
+        final Object lock = this.lock;
+        Assert.assertNotHoldsLock(lock);
+        CompletableResponse response;
+        synchronized (lock) {
+            response = completableResponse;
+            if (response == null) {
+                response = completableResponse = new CompletableResponse(executor);
+            }
+        }
+        checkCompletion();
+        return response;
+    }
+
+    /**
+     * Schedule completion of the completable response, if one was requested and the result is available.
+     */
+    void checkCompletion() {
+        final Object lock = this.lock;
+        Assert.assertNotHoldsLock(lock);
+        final CompletableResponse response;
+        synchronized (lock) {
+            response = completableResponse;
+            if (response == null || completionScheduled || state != State.READY && state != State.DONE) {
+                return;
+            }
+            completionScheduled = true;
+        }
+        final Executor executor = response.executor;
+        if (executor == null) {
+            complete(response);
+        } else try {
+            executor.execute(() -> complete(response));
+        } catch (Throwable t) {
+            // executor rejected the task; fall back to the current thread
+            complete(response);
+        }
+    }
+
+    private void complete(CompletableResponse response) {
+        final Object result;
+        try {
+            result = getResult();
+        } catch (Throwable t) {
+            final boolean retry;
+            synchronized (lock) {
+                retry = state == State.SENDING;
+                if (retry) {
+                    completionScheduled = false;
+                }
+            }
+            if (retry) {
+                sendRequestInitial();
+                checkCompletion();
+            } else {
+                response.completeExceptionally(t);
+            }
+            return;
+        }
+        response.complete(result);
+    }
+
     void proceedAsynchronously() {
         if (getInvokedMethod().getReturnType() == void.class) {
             resultReady(EJBReceiverInvocationContext.ResultProducer.NULL);
         }
     }
 
+    /**
+     * Record the completion of the outstanding request in the statistics of the node it was sent to, if any.
+     *
+     * @param responded {@code true} if a response was received from the node, {@code false} otherwise
+     */
+    private void recordNodeStatistics(boolean responded) {
+        Assert.assertHoldsLock(lock);
+        final String statisticsNode = this.statisticsNode;
+        if (statisticsNode != null) {
+            this.statisticsNode = null;
+            final NodeStatistics nodeStatistics = getClientContext().getNodeStatistics();
+            if (responded) {
+                final long responseTime = System.nanoTime() - statisticsStartTime;
+                nodeStatistics.requestCompleted(statisticsNode, responseTime);
+                if (methodInfo.isIdempotent()) {
+                    getClientContext().getHedgingPolicy().recordResponse(getInvokedMethod(), responseTime);
+                }
+            } else {
+                nodeStatistics.requestAbandoned(statisticsNode);
+            }
+        }
+    }
+
     /**
      * Transition to a new state, guarded by assertions.
      *
@@ -831,10 +1207,31 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
                 break;
             }
         }
+        if (newState != State.WAITING) {
+            // the request is over, possibly without a result, for example if the connection failed
+            recordNodeStatistics(false);
+        }
         switch (newState) {
             case READY:
             case DONE: {
                 this.remainingRetries = 0;
+                final InvocationTimer.Timeout timeoutHandle = this.timeoutHandle;
+                if (timeoutHandle != null) {
+                    // the result is here; the timer is re-armed if the invocation is retried
+                    timeoutHandle.cancel();
+                    this.timeoutHandle = null;
+                }
+                final InvocationTimer.Timeout hedgeHandle = this.hedgeHandle;
+                if (hedgeHandle != null) {
+                    hedgeHandle.cancel();
+                    this.hedgeHandle = null;
+                }
+                final EJBClientInvocationContext hedge = this.hedge;
+                if (hedge != null) {
+                    // the hedge lost; cancel it outside of the lock
+                    this.hedge = null;
+                    getClientContext().getHedgingPolicy().getExecutor().execute(hedge::cancelHedge);
+                }
                 // fall thru
             }
             case WAITING:{
@@ -1084,8 +1481,20 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
             synchronized (lock) {
                 retry = state == State.SENDING;
             }
-            if (retry) sendRequestInitial();
+            if (retry) {
+                final Executor backoff = getAttachment(Keys.RETRY_BACKOFF_ATTACHMENT_KEY);
+                if (backoff != null) {
+                    // let the transport delay the retry
+                    backoff.execute(() -> {
+                        sendRequestInitial();
+                        checkCompletion();
+                    });
+                    return;
+                }
+                sendRequestInitial();
+            }
         }
+        checkCompletion();
     }
 
     final class FutureResponse implements Future<Object> {
@@ -1215,6 +1624,26 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
         }
     }
 
+    final class CompletableResponse extends CompletableFuture<Object> {
+        private final Executor executor;
+        private final FutureResponse futureResponse = new FutureResponse();
+
+        CompletableResponse(final Executor executor) {
+            this.executor = executor;
+        }
+
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            if (isDone()) {
+                return isCancelled();
+            }
+            if (futureResponse.cancel(mayInterruptIfRunning)) {
+                super.cancel(mayInterruptIfRunning);
+                return true;
+            }
+            return isCancelled();
+        }
+    }
+
     static final class ThrowableResult implements EJBReceiverInvocationContext.ResultProducer {
         private final Supplier<? extends Throwable> pendingFailure;
 
@@ -1237,6 +1666,26 @@ public final class EJBClientInvocationContext extends AbstractInvocationContext
         }
     }
 
+    final class HedgeResult implements EJBReceiverInvocationContext.ResultProducer {
+        private final EJBClientInvocationContext hedge;
+        private final Object result;
+
+        HedgeResult(final EJBClientInvocationContext hedge, final Object result) {
+            this.hedge = hedge;
+            this.result = result;
+        }
+
+        public Object getResult() {
+            // the context data returned by the peer was stored on the hedge
+            getContextData().putAll(hedge.getContextData());
+            return result;
+        }
+
+        public void discardResult() {
+            // ignored
+        }
+    }
+
     static final Supplier<Throwable> CANCELLED_PRODUCER = Logs.INVOCATION::requestCancelled;
 
     static final ThrowableResult CANCELLED = new ThrowableResult(CANCELLED_PRODUCER);
@@ -23,7 +23,12 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.rmi.RemoteException;
+import java.net.URI;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
@@ -162,30 +167,28 @@ final class EJBInvocationHandler<T> extends Attachable implements InvocationHand
         }
         // otherwise it's a business method
         assert methodInfo.getMethodType() == EJBProxyInformation.MT_BUSINESS;
-        final EJBClientContext clientContext = EJBClientContext.getCurrent();
-        final Discovery discoveryContext = DISCOVERY_SUPPLIER.get();
-
-        if (Logs.INVOCATION.isDebugEnabled()) {
-            Logs.INVOCATION.debugf("Calling invoke(module = %s, strong affinity = %s, weak affinity = %s): ", locatorRef.get().getIdentifier(), locatorRef.get().getAffinity(), weakAffinity);
-        }
-        final EJBClientInvocationContext invocationContext = new EJBClientInvocationContext(this, clientContext, proxy, args, methodInfo, MAX_RETRIES, authenticationContextSupplier, discoveryContext);
-        invocationContext.setLocator(locatorRef.get());
-        invocationContext.setBlockingCaller(true);
-        invocationContext.setWeakAffinity(getWeakAffinity());
+        final EJBClientInvocationContext invocationContext = createInvocationContext(proxy, methodInfo, args);
 
         try {
+            final boolean blocking = ! async && ! methodInfo.isClientAsync();
+            if (! blocking) {
+                // the caller does not wait for the result, so it is not blocked even while the request is sent
+                invocationContext.setBlockingCaller(false);
+            }
             // send the request
             invocationContext.sendRequestInitial();
 
-            if (! async && ! methodInfo.isClientAsync()) {
+            if (blocking) {
                 // wait for invocation to complete
                 return invocationContext.awaitResponse();
             }
             // proceed asynchronously
-            invocationContext.setBlockingCaller(false);
             // force async...
             if (method.getReturnType() == Future.class) {
                 return invocationContext.getFutureResponse();
+            } else if (EJBProxyInformation.isFutureType(method.getReturnType())) {
+                // CompletionStage or CompletableFuture; complete from the thread which delivers the result
+                return invocationContext.getCompletableFuture(null);
             } else if (method.getReturnType() == void.class) {
                 invocationContext.setDiscardResult();
                 // Void return
@@ -213,6 +216,91 @@ final class EJBInvocationHandler<T> extends Attachable implements InvocationHand
         }
     }
 
+    /**
+     * Invoke a business method, returning a completable future for the result instead of waiting for it.
+     *
+     * @param proxy the proxy being invoked
+     * @param methodInfo the method to invoke
+     * @param executor the executor to complete the future on, or {@code null} to complete it on the thread which
+     *  delivers the result
+     * @param args the invocation arguments
+     * @return the completable future for the invocation result
+     * @throws Exception if the invocation could not be started
+     */
+    CompletableFuture<Object> invokeCompletable(final Object proxy, final EJBProxyInformation.ProxyMethodInfo methodInfo, final Executor executor, final Object... args) throws Exception {
+        if (methodInfo.getMethodType() != EJBProxyInformation.MT_BUSINESS) {
+            return CompletableFuture.completedFuture(invoke(proxy, methodInfo, args));
+        }
+        final EJBClientInvocationContext invocationContext = createInvocationContext(proxy, methodInfo, args);
+        // the caller gets a future, so it is not blocked even while the request is sent
+        invocationContext.setBlockingCaller(false);
+        invocationContext.sendRequestInitial();
+        return invocationContext.getCompletableFuture(executor);
+    }
+
+    /**
+     * Invoke a business method once for each of the given argument lists.  The destination is resolved by the first
+     * invocation only and is reused by the rest of the batch, which are then written back-to-back from the calling
+     * thread so that the transport can coalesce them.  An invocation of the batch which fails is retried and
+     * rediscovered individually.
+     *
+     * @param proxy the proxy being invoked
+     * @param methodInfo the method to invoke
+     * @param executor the executor to complete the futures on, or {@code null} to complete them on the thread which
+     *  delivers each result
+     * @param argumentLists the arguments of each invocation
+     * @return the completable futures for the invocation results, in the order of the argument lists
+     * @throws Exception if an invocation could not be started
+     */
+    List<CompletableFuture<?>> invokeBatch(final Object proxy, final EJBProxyInformation.ProxyMethodInfo methodInfo, final Executor executor, final List<Object[]> argumentLists) throws Exception {
+        final List<CompletableFuture<?>> futures = new ArrayList<>(argumentLists.size());
+        if (methodInfo.getMethodType() != EJBProxyInformation.MT_BUSINESS) {
+            for (Object[] args : argumentLists) {
+                futures.add(invokeCompletable(proxy, methodInfo, executor, args));
+            }
+            return futures;
+        }
+        final InvocationBatch batch = new InvocationBatch();
+        URI destination = null;
+        Affinity targetAffinity = null;
+        try {
+            for (Object[] args : argumentLists) {
+                final EJBClientInvocationContext invocationContext = createInvocationContext(proxy, methodInfo, args);
+                if (destination != null) {
+                    // skip discovery for the rest of the batch
+                    invocationContext.setDestination(destination);
+                    invocationContext.setTargetAffinity(targetAffinity);
+                }
+                invocationContext.setBlockingCaller(false);
+                invocationContext.setBatch(batch);
+                invocationContext.sendRequestInitial();
+                if (destination == null) {
+                    destination = invocationContext.getDestination();
+                    targetAffinity = invocationContext.getTargetAffinity();
+                }
+                futures.add(invocationContext.getCompletableFuture(executor));
+            }
+        } finally {
+            // send whatever the receivers held back
+            batch.complete();
+        }
+        return futures;
+    }
+
+    private EJBClientInvocationContext createInvocationContext(final Object proxy, final EJBProxyInformation.ProxyMethodInfo methodInfo, final Object[] args) {
+        final EJBClientContext clientContext = EJBClientContext.getCurrent();
+        final Discovery discoveryContext = DISCOVERY_SUPPLIER.get();
+
+        if (Logs.INVOCATION.isDebugEnabled()) {
+            Logs.INVOCATION.debugf("Calling invoke(module = %s, strong affinity = %s, weak affinity = %s): ", locatorRef.get().getIdentifier(), locatorRef.get().getAffinity(), weakAffinity);
+        }
+        final EJBClientInvocationContext invocationContext = new EJBClientInvocationContext(this, clientContext, proxy, args, methodInfo, MAX_RETRIES, authenticationContextSupplier, discoveryContext);
+        invocationContext.setLocator(locatorRef.get());
+        invocationContext.setBlockingCaller(true);
+        invocationContext.setWeakAffinity(getWeakAffinity());
+        return invocationContext;
+    }
+
     void setWeakAffinity(Affinity newWeakAffinity) {
         weakAffinity = newWeakAffinity;
     }
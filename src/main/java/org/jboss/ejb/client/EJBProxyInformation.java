@@ -30,6 +30,8 @@ import java.security.PrivilegedAction;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
 import java.util.zip.Deflater;
 
@@ -85,10 +87,13 @@ final class EJBProxyInformation<T> {
             final int classCompressionLevel;
             final ProxyMethodInfo.CompressionHint classCompressRequest;
             final ProxyMethodInfo.CompressionHint classCompressResponse;
+            final CompressionHint.Codec classCompressionCodec;
             if (classCompressionHint == null) {
                 classCompressionLevel = -1;
                 classCompressRequest = classCompressResponse = ProxyMethodInfo.CompressionHint.NONE;
+                classCompressionCodec = CompressionHint.Codec.DEFLATE;
             } else {
+                classCompressionCodec = classCompressionHint.codec();
                 classCompressionLevel = classCompressionHint.compressionLevel() == -1 ? Deflater.DEFAULT_COMPRESSION : classCompressionHint.compressionLevel();
                 classCompressRequest = ProxyMethodInfo.CompressionHint.fromBoolean(classCompressionHint.compressRequest());
                 classCompressResponse = ProxyMethodInfo.CompressionHint.fromBoolean(classCompressionHint.compressResponse());
@@ -97,7 +102,7 @@ final class EJBProxyInformation<T> {
             final boolean classAsync = ENABLE_SCANNING && type.getAnnotation(ClientAsynchronous.class) != null;
 
             for (Method method : type.getMethods()) {
-                final boolean alwaysAsync = method.getReturnType() == Future.class;
+                final boolean alwaysAsync = isFutureType(method.getReturnType());
                 final boolean idempotent = classIdempotent || ENABLE_SCANNING && method.getAnnotation(Idempotent.class) != null;
                 final boolean clientAsync = alwaysAsync || classAsync || ENABLE_SCANNING && method.getAnnotation(ClientAsynchronous.class) != null;
                 final CompressionHint compressionHint = ENABLE_SCANNING ? method.getAnnotation(CompressionHint.class) : null;
@@ -107,12 +112,15 @@ final class EJBProxyInformation<T> {
                 final int compressionLevel;
                 final ProxyMethodInfo.CompressionHint compressRequest;
                 final ProxyMethodInfo.CompressionHint compressResponse;
+                final CompressionHint.Codec compressionCodec;
                 final ClientTransactionPolicy transactionPolicy;
                 if (compressionHint == null) {
                     compressionLevel = classCompressionLevel;
                     compressRequest = classCompressRequest;
                     compressResponse = classCompressResponse;
+                    compressionCodec = classCompressionCodec;
                 } else {
+                    compressionCodec = compressionHint.codec();
                     compressionLevel = compressionHint.compressionLevel() == -1 ? Deflater.DEFAULT_COMPRESSION : compressionHint.compressionLevel();
                     compressRequest = ProxyMethodInfo.CompressionHint.fromBoolean(compressionHint.compressRequest());
                     compressResponse = ProxyMethodInfo.CompressionHint.fromBoolean(compressionHint.compressResponse());
@@ -132,7 +140,7 @@ final class EJBProxyInformation<T> {
                 final String methodName = method.getName();
                 final int methodType = getMethodType(type, methodName, methodParamTypes);
                 final EJBMethodLocator methodLocator = new EJBMethodLocator(methodName, parameterTypeNames);
-                final ProxyMethodInfo proxyMethodInfo = new ProxyMethodInfo(methodType, compressionLevel, compressRequest, compressResponse, idempotent, transactionPolicy, method, methodLocator, b.toString(), clientAsync, interceptors);
+                final ProxyMethodInfo proxyMethodInfo = new ProxyMethodInfo(methodType, compressionLevel, compressRequest, compressResponse, compressionCodec, idempotent, transactionPolicy, method, methodLocator, b.toString(), clientAsync, interceptors);
                 methodInfoMap.put(method, proxyMethodInfo);
                 fallbackMap.put(method, proxyMethodInfo);
                 methodLocatorMap.put(methodLocator, proxyMethodInfo);
@@ -147,6 +155,7 @@ final class EJBProxyInformation<T> {
                 final int compressionLevel = classCompressionLevel;
                 final ProxyMethodInfo.CompressionHint compressRequest = classCompressRequest;
                 final ProxyMethodInfo.CompressionHint compressResponse = classCompressResponse;
+                final CompressionHint.Codec compressionCodec = classCompressionCodec;
                 final ClientTransactionPolicy transactionPolicy;
                 transactionPolicy = clientAsync ? ClientTransactionPolicy.NOT_SUPPORTED : classTransactionHint != null ? classTransactionHint.value() : ClientTransactionPolicy.SUPPORTS;
                 // build the old signature format
@@ -162,7 +171,7 @@ final class EJBProxyInformation<T> {
                 }
                 final int methodType = getMethodType(type, methodName, methodParamTypes);
                 final EJBMethodLocator methodLocator = new EJBMethodLocator(methodName, parameterTypeNames);
-                final ProxyMethodInfo proxyMethodInfo = new ProxyMethodInfo(methodType, compressionLevel, compressRequest, compressResponse, idempotent, transactionPolicy, method, methodLocator, b.toString(), clientAsync, interceptors);
+                final ProxyMethodInfo proxyMethodInfo = new ProxyMethodInfo(methodType, compressionLevel, compressRequest, compressResponse, compressionCodec, idempotent, transactionPolicy, method, methodLocator, b.toString(), clientAsync, interceptors);
                 methodInfoMap.put(method, proxyMethodInfo);
                 fallbackMap.put(method, proxyMethodInfo);
                 methodLocatorMap.put(methodLocator, proxyMethodInfo);
@@ -334,6 +343,7 @@ final class EJBProxyInformation<T> {
         final int compressionLevel;
         final CompressionHint compressRequest;
         final CompressionHint compressResponse;
+        final org.jboss.ejb.client.annotation.CompressionHint.Codec compressionCodec;
         final boolean idempotent;
         final ClientTransactionPolicy transactionPolicy;
         final Method method;
@@ -342,11 +352,12 @@ final class EJBProxyInformation<T> {
         final boolean clientAsync;
         final EJBClientContext.InterceptorList interceptors;
 
-        ProxyMethodInfo(final int methodType, final int compressionLevel, final CompressionHint compressRequest, final CompressionHint compressResponse, final boolean idempotent, final ClientTransactionPolicy transactionPolicy, final Method method, final EJBMethodLocator methodLocator, final String signature, final boolean clientAsync, final EJBClientContext.InterceptorList interceptors) {
+        ProxyMethodInfo(final int methodType, final int compressionLevel, final CompressionHint compressRequest, final CompressionHint compressResponse, final org.jboss.ejb.client.annotation.CompressionHint.Codec compressionCodec, final boolean idempotent, final ClientTransactionPolicy transactionPolicy, final Method method, final EJBMethodLocator methodLocator, final String signature, final boolean clientAsync, final EJBClientContext.InterceptorList interceptors) {
             this.methodType = methodType;
             this.compressionLevel = compressionLevel;
             this.compressRequest = compressRequest;
             this.compressResponse = compressResponse;
+            this.compressionCodec = compressionCodec;
             this.idempotent = idempotent;
             this.transactionPolicy = transactionPolicy;
             this.method = method;
@@ -392,6 +403,10 @@ final class EJBProxyInformation<T> {
             return compressResponse;
         }
 
+        org.jboss.ejb.client.annotation.CompressionHint.Codec getCompressionCodec() {
+            return compressionCodec;
+        }
+
         EJBMethodLocator getMethodLocator() {
             return methodLocator;
         }
@@ -402,7 +417,18 @@ final class EJBProxyInformation<T> {
 
         boolean isSynchronous() {
             final Class<?> returnType = method.getReturnType();
-            return returnType != void.class && returnType != Future.class;
+            return returnType != void.class && ! isFutureType(returnType);
         }
     }
+
+    /**
+     * Determine whether the given method return type is a future or completion stage type, which implies that the
+     * method is always invoked asynchronously.
+     *
+     * @param returnType the method return type
+     * @return {@code true} if the method result is delivered as a future, {@code false} otherwise
+     */
+    static boolean isFutureType(Class<?> returnType) {
+        return returnType == Future.class || returnType == CompletionStage.class || returnType == CompletableFuture.class;
+    }
 }
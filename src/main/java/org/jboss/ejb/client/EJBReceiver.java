@@ -102,4 +102,18 @@ public abstract class EJBReceiver extends Attachable {
     protected boolean isConnected(final URI uri) {
         return true;
     }
+
+    /**
+     * Get the current version of the connection state of this receiver.  Receivers which track connections as they
+     * are opened and closed return a value which changes whenever the result of {@link #isConnected(URI)} may have
+     * changed for any URI, allowing callers to cache the connection state of their nodes for the authentication
+     * context that they queried it with.  The default returns
+     * {@code -1}, meaning that the connection state is not tracked and {@link #isConnected(URI)} must be queried
+     * every time.
+     *
+     * @return the connection state version, or {@code -1} if the connection state is not tracked
+     */
+    protected long getConnectionStateVersion() {
+        return -1;
+    }
 }
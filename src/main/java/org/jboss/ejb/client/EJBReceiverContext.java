@@ -38,4 +38,12 @@ public final class EJBReceiverContext {
     public EJBClientContext getClientContext() {
         return clientContext;
     }
+
+    /**
+     * Discard the discovery results cached by the client context.  Intended to be called by receivers whenever the set
+     * of services they would report changes, for example when a module is deployed or a cluster node leaves.
+     */
+    public void invalidateDiscoveryResults() {
+        clientContext.getDiscoveryResultCache().invalidate();
+    }
 }
@@ -87,6 +87,18 @@ public final class EJBReceiverInvocationContext extends AbstractReceiverInvocati
         clientInvocationContext.failed(cause, retryExecutor);
     }
 
+    /**
+     * Indicate the load that a node reported along with the response to this invocation.  The load is kept for
+     * load-aware node selectors.
+     *
+     * @param nodeName the name of the reporting node (must not be {@code null})
+     * @param load the number of invocations that the node is processing or has queued
+     */
+    public void nodeLoadReported(String nodeName, int load) {
+        Assert.checkNotNullParam("nodeName", nodeName);
+        getClientContext().getNodeStatistics().loadReported(nodeName, load);
+    }
+
     /*
      * Provide access to key invocation context information
      */
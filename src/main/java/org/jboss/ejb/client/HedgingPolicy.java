@@ -0,0 +1,246 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.client;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The policy for hedging invocations of idempotent methods.  If an invocation of an idempotent stateless method is not
+ * answered within the {@link #PERCENTILE}th percentile of the recent response times of the method, a duplicate of it
+ * is sent to another node of the cluster, and whichever answers first is used.  Over a sliding window of
+ * {@link #WINDOW} seconds, at most {@link #BUDGET_PERCENT} percent of the invocations which may be hedged are, so that
+ * a slow cluster is not made slower by hedges.
+ * <p>
+ * Hedging is disabled unless a percentile is configured.  The response times are kept per method in histograms with
+ * buckets a quarter of a power of two wide; older samples are halved away as new ones arrive.  The histograms of the
+ * methods of a class are held by that class, so they do not keep the class loader of an undeployed view alive.
+ * <p>
+ * Hedges are sent and cancelled on the executor of the policy, as sending a hedge runs the whole interceptor chain.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class HedgingPolicy {
+
+    static final int PERCENTILE = SecurityUtils.getInteger(SystemProperties.HEDGE_PERCENTILE, 0);
+    static final int BUDGET_PERCENT = Math.max(0, SecurityUtils.getInteger(SystemProperties.HEDGE_BUDGET_PERCENT, 5));
+    static final int WINDOW = 10;
+
+    /**
+     * The number of responses of a method which must be known before its invocations are hedged.
+     */
+    static final int MIN_SAMPLES = 20;
+
+    /**
+     * The number of responses of a method after which the counts of its histogram are halved.
+     */
+    static final int MAX_SAMPLES = 2000;
+
+    private static final long SLOT_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+    private final int percentile;
+    private final int budgetPercent;
+    private final Executor executor;
+    private final ClassValue<ConcurrentHashMap<Method, Histogram>> histograms = new ClassValue<ConcurrentHashMap<Method, Histogram>>() {
+        protected ConcurrentHashMap<Method, Histogram> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    // per-second slots of the budget window, indexed by second modulo the window size
+    private final long[] requests = new long[WINDOW];
+    private final long[] hedges = new long[WINDOW];
+    private long requestTotal;
+    private long hedgeTotal;
+    private long currentSlot;
+
+    HedgingPolicy() {
+        this(PERCENTILE, BUDGET_PERCENT, System.nanoTime());
+    }
+
+    HedgingPolicy(final int percentile, final int budgetPercent, final long now) {
+        this(percentile, budgetPercent, now, DefaultExecutorHolder.EXECUTOR);
+    }
+
+    HedgingPolicy(final int percentile, final int budgetPercent, final long now, final Executor executor) {
+        this.percentile = percentile;
+        this.budgetPercent = budgetPercent;
+        this.executor = executor;
+        currentSlot = Math.floorDiv(now, SLOT_NANOS);
+    }
+
+    /**
+     * Get the executor which sends and cancels hedges.
+     *
+     * @return the executor (not {@code null})
+     */
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Determine whether invocations may be hedged at all.
+     *
+     * @return {@code true} if hedging is enabled, {@code false} otherwise
+     */
+    boolean isEnabled() {
+        return percentile > 0 && percentile < 100 && budgetPercent > 0;
+    }
+
+    /**
+     * Record the response time of an invocation of the given method.
+     *
+     * @param method the invoked method
+     * @param responseTime the time it took to receive the response, in nanoseconds
+     */
+    void recordResponse(Method method, long responseTime) {
+        if (isEnabled()) {
+            histograms.get(method.getDeclaringClass()).computeIfAbsent(method, ignored -> new Histogram()).record(Math.max(0L, responseTime));
+        }
+    }
+
+    /**
+     * Get the time after which an unanswered invocation of the given method is hedged.
+     *
+     * @param method the invoked method
+     * @return the delay in nanoseconds, or {@code -1} if too few responses of the method are known
+     */
+    long getDelay(Method method) {
+        final Histogram histogram = histograms.get(method.getDeclaringClass()).get(method);
+        return histogram == null ? -1L : histogram.getPercentile(percentile);
+    }
+
+    /**
+     * Record an invocation which may be hedged.
+     */
+    void requestSent() {
+        requestSent(System.nanoTime());
+    }
+
+    synchronized void requestSent(final long now) {
+        final int idx = advance(now);
+        requests[idx] ++;
+        requestTotal ++;
+    }
+
+    /**
+     * Attempt to take a hedge out of the budget.
+     *
+     * @return {@code true} if the hedge may be sent, {@code false} if the budget is exhausted
+     */
+    boolean tryHedge() {
+        return tryHedge(System.nanoTime());
+    }
+
+    synchronized boolean tryHedge(final long now) {
+        final int idx = advance(now);
+        // all quantities are in percent of a hedge
+        if (requestTotal * budgetPercent - hedgeTotal * 100L < 100L) {
+            return false;
+        }
+        hedges[idx] ++;
+        hedgeTotal ++;
+        return true;
+    }
+
+    private int advance(final long now) {
+        final long slot = Math.floorDiv(now, SLOT_NANOS);
+        final long elapsed = slot - currentSlot;
+        if (elapsed > 0L) {
+            // expire the slots which have left the window
+            for (long i = 1; i <= Math.min(elapsed, WINDOW); i ++) {
+                final int idx = (int) Math.floorMod(currentSlot + i, (long) WINDOW);
+                requestTotal -= requests[idx];
+                hedgeTotal -= hedges[idx];
+                requests[idx] = 0L;
+                hedges[idx] = 0L;
+            }
+            currentSlot = slot;
+        }
+        return (int) Math.floorMod(currentSlot, (long) WINDOW);
+    }
+
+    static final class DefaultExecutorHolder {
+        // the interceptor chain of a hedge may block, for example in discovery, so it must not run on the timer
+        static final ExecutorService EXECUTOR;
+
+        static {
+            final AtomicInteger threadCount = new AtomicInteger();
+            EXECUTOR = Executors.newCachedThreadPool(r -> {
+                final Thread thread = new Thread(r, "EJB client hedge " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private DefaultExecutorHolder() {
+        }
+    }
+
+    static final class Histogram {
+        // four buckets per power of two, up to 2^40 ns (about 18 minutes)
+        static final int BUCKETS = 39 * 4;
+
+        private final long[] counts = new long[BUCKETS];
+        private long total;
+
+        synchronized void record(long value) {
+            counts[bucketOf(value)] ++;
+            if (++ total >= MAX_SAMPLES) {
+                // let the recent responses count for more than the old ones
+                total = 0L;
+                for (int i = 0; i < BUCKETS; i ++) {
+                    total += counts[i] >>= 1;
+                }
+            }
+        }
+
+        synchronized long getPercentile(int percentile) {
+            if (total < MIN_SAMPLES) {
+                return -1L;
+            }
+            final long target = (total * percentile + 99L) / 100L;
+            long seen = 0L;
+            for (int i = 0; i < BUCKETS; i ++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return upperBoundOf(i);
+                }
+            }
+            return upperBoundOf(BUCKETS - 1);
+        }
+
+        static int bucketOf(long value) {
+            if (value < 4L) {
+                return 0;
+            }
+            final int exponent = 63 - Long.numberOfLeadingZeros(value);
+            final int bucket = (exponent - 2) * 4 + (int) (value >>> exponent - 2 & 3L);
+            return Math.min(bucket, BUCKETS - 1);
+        }
+
+        static long upperBoundOf(int bucket) {
+            // the lowest value of the next bucket
+            return (5L + (bucket & 3)) << (bucket >>> 2);
+        }
+    }
+}
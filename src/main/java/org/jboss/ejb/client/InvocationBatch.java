@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.ejb._private.Logs;
+import org.wildfly.common.Assert;
+
+/**
+ * A batch of invocations which are sent together, as started by
+ * {@link EJBClient#invokeBatch(Object, java.util.concurrent.Executor, EJBMethodLocator, List)}.  While the batch is
+ * being sent, a receiver may hold the requests of the batch back and send them at once when the batch completes, by
+ * means of a completion action.  The receiver may keep its pending state in the attachments of the batch.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class InvocationBatch extends Attachable {
+    private final List<Runnable> completionActions = new ArrayList<>();
+    private boolean complete;
+
+    InvocationBatch() {
+    }
+
+    /**
+     * Add an action to run when all the invocations of the batch were sent.  The action runs on the thread which sent
+     * the batch.
+     *
+     * @param action the action to run (must not be {@code null})
+     * @return {@code true} if the action was added, or {@code false} if the batch is already complete, in which case
+     *      the caller must not hold any request back
+     */
+    public boolean addCompletionAction(Runnable action) {
+        Assert.checkNotNullParam("action", action);
+        synchronized (completionActions) {
+            if (complete) {
+                return false;
+            }
+            completionActions.add(action);
+            return true;
+        }
+    }
+
+    /**
+     * Determine whether all the invocations of the batch were sent.
+     *
+     * @return {@code true} if the batch is complete, {@code false} otherwise
+     */
+    public boolean isComplete() {
+        synchronized (completionActions) {
+            return complete;
+        }
+    }
+
+    void complete() {
+        final Runnable[] actions;
+        synchronized (completionActions) {
+            if (complete) {
+                return;
+            }
+            complete = true;
+            actions = completionActions.toArray(new Runnable[completionActions.size()]);
+            completionActions.clear();
+        }
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (Throwable t) {
+                Logs.INVOCATION.trace("Invocation batch completion action failed", t);
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.client;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jboss.ejb._private.Logs;
+import org.wildfly.common.Assert;
+
+/**
+ * A hashed timer wheel used to expire invocations.  Timeouts are added and cancelled without locking; a single timer
+ * thread moves them into the wheel and runs the ones which expire on the given executor.  The thread is only started
+ * when there is a pending timeout and exits once the wheel is empty.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class InvocationTimer {
+
+    static final long TICK_DURATION = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, SecurityUtils.getLong(SystemProperties.TIMER_TICK_DURATION, 10L)));
+    static final int WHEEL_SIZE = 512;
+    static final int MAX_THREADS = Math.max(1, SecurityUtils.getInteger(SystemProperties.TIMER_MAX_THREADS, Math.max(4, Runtime.getRuntime().availableProcessors())));
+
+    private final String name;
+    private final long tickDuration;
+    private final Executor executor;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+    // the following are only accessed by the timer thread, or while the thread is stopped and the lock is held
+    private long startTime;
+    private long tick;
+    private int scheduled;
+
+    // protected by lock
+    private final Object lock = new Object();
+    private Thread thread;
+
+    InvocationTimer(final String name, final Executor executor) {
+        this(name, TICK_DURATION, WHEEL_SIZE, executor);
+    }
+
+    InvocationTimer(final String name, final long tickDuration, final int wheelSize, final Executor executor) {
+        Assert.checkNotNullParam("name", name);
+        Assert.checkMinimumParameter("tickDuration", 1L, tickDuration);
+        Assert.checkMinimumParameter("wheelSize", 1, wheelSize);
+        Assert.checkNotNullParam("executor", executor);
+        this.name = name;
+        this.tickDuration = tickDuration;
+        this.executor = executor;
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        wheel = new Bucket[size];
+        for (int i = 0; i < size; i ++) {
+            wheel[i] = new Bucket();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Schedule a task to run once the given delay has elapsed.  The task is run on this timer's executor, and is never
+     * run early; it may run up to one tick late.
+     *
+     * @param task the task to run (must not be {@code null})
+     * @param delay the delay
+     * @param unit the delay unit (must not be {@code null})
+     * @return the handle which may be used to cancel the task (not {@code null})
+     */
+    Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Assert.checkNotNullParam("task", task);
+        Assert.checkNotNullParam("unit", unit);
+        final Timeout timeout = new Timeout(task, System.nanoTime() + Math.max(0L, unit.toNanos(delay)));
+        added.add(timeout);
+        synchronized (lock) {
+            if (thread == null) {
+                final Thread thread = new Thread(this::run, name);
+                thread.setDaemon(true);
+                this.thread = thread;
+                thread.start();
+            }
+        }
+        return timeout;
+    }
+
+    /**
+     * Get the executor used by timers which were not given one.  Expired tasks may block, for example while cancelling
+     * an invocation, so they are run by a dedicated pool of daemon threads rather than a shared pool.
+     *
+     * @return the default executor (not {@code null})
+     */
+    static Executor getDefaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Get the executor which runs expired tasks.
+     *
+     * @return the executor (not {@code null})
+     */
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Determine whether the timer thread is currently running.
+     *
+     * @return {@code true} if the timer thread is running, {@code false} otherwise
+     */
+    boolean isRunning() {
+        synchronized (lock) {
+            return thread != null;
+        }
+    }
+
+    private void run() {
+        startTime = System.nanoTime();
+        tick = 0;
+        for (;;) {
+            final long deadline = startTime + (tick + 1) * tickDuration;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0L) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            removeCancelled();
+            transferAdded();
+            wheel[(int) (tick & mask)].expire();
+            tick ++;
+            if (scheduled == 0) {
+                synchronized (lock) {
+                    if (added.isEmpty()) {
+                        // nothing is scheduled; the next call to schedule starts a new thread
+                        thread = null;
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            final Bucket bucket = timeout.bucket;
+            if (bucket != null) {
+                bucket.remove(timeout);
+                scheduled --;
+            }
+        }
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state != Timeout.STATE_INIT) {
+                // cancelled before it made it into the wheel
+                continue;
+            }
+            // the tick during which the deadline passes, but never earlier than the current tick
+            final long expireTick = Math.max(tick, (timeout.deadline - startTime + tickDuration - 1) / tickDuration - 1);
+            timeout.rounds = (expireTick - tick) / wheel.length;
+            wheel[(int) (expireTick & mask)].add(timeout);
+            scheduled ++;
+        }
+    }
+
+    final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (tail == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            final Timeout next = timeout.next;
+            final Timeout prev = timeout.prev;
+            if (prev == null) {
+                head = next;
+            } else {
+                prev.next = next;
+            }
+            if (next == null) {
+                tail = prev;
+            } else {
+                next.prev = prev;
+            }
+            timeout.next = timeout.prev = null;
+            timeout.bucket = null;
+        }
+
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                final Timeout next = timeout.next;
+                if (timeout.rounds <= 0L) {
+                    remove(timeout);
+                    scheduled --;
+                    timeout.expire();
+                } else {
+                    timeout.rounds --;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * A handle for a scheduled task.
+     */
+    final class Timeout {
+        static final int STATE_INIT = 0;
+        static final int STATE_CANCELLED = 1;
+        static final int STATE_EXPIRED = 2;
+
+        private final long deadline;
+        volatile Runnable task;
+        @SuppressWarnings("unused")
+        volatile int state;
+
+        // timer thread only
+        long rounds;
+        Bucket bucket;
+        Timeout next;
+        Timeout prev;
+
+        Timeout(final Runnable task, final long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the task, if it has not yet run.
+         *
+         * @return {@code true} if the task was cancelled, {@code false} if it already ran or was cancelled
+         */
+        boolean cancel() {
+            if (! stateUpdater.compareAndSet(this, STATE_INIT, STATE_CANCELLED)) {
+                return false;
+            }
+            // do not retain the task until the timer thread gets around to removing this timeout
+            task = null;
+            cancelled.add(this);
+            return true;
+        }
+
+        /**
+         * Determine whether the task was cancelled.
+         *
+         * @return {@code true} if the task was cancelled, {@code false} otherwise
+         */
+        boolean isCancelled() {
+            return state == STATE_CANCELLED;
+        }
+
+        /**
+         * Determine whether the task has expired, that is, whether it was (or is being) run.
+         *
+         * @return {@code true} if the task expired, {@code false} otherwise
+         */
+        boolean isExpired() {
+            return state == STATE_EXPIRED;
+        }
+
+        void expire() {
+            if (! stateUpdater.compareAndSet(this, STATE_INIT, STATE_EXPIRED)) {
+                return;
+            }
+            final Runnable task = this.task;
+            this.task = null;
+            try {
+                executor.execute(task);
+            } catch (Throwable t) {
+                Logs.MAIN.taskFailed(task, t);
+            }
+        }
+    }
+
+    static final class DefaultExecutorHolder {
+        static final ThreadPoolExecutor EXECUTOR;
+
+        static {
+            final AtomicInteger threadCount = new AtomicInteger();
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                final Thread thread = new Thread(r, "EJB client timer task " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            EXECUTOR = executor;
+        }
+
+        private DefaultExecutorHolder() {
+        }
+    }
+
+    private static final AtomicIntegerFieldUpdater<Timeout> stateUpdater = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+}
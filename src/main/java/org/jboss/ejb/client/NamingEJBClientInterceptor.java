@@ -221,7 +221,7 @@ public final class NamingEJBClientInterceptor implements EJBClientInterceptor {
 
         // Oops, we got some wrong information!
         if(shouldBlacklist(cause)){
-            addBlackListedDestination(destination);
+            addBlackListedDestination(context, destination);
         } else {
             addInvocationBlackListedDestination(context, destination);
         }
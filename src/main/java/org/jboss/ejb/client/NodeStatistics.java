@@ -0,0 +1,226 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import org.wildfly.common.Assert;
+
+/**
+ * Live statistics about the nodes that an EJB client context invokes, for use by latency- and load-aware
+ * {@link ClusterNodeSelector}s and {@link DeploymentNodeSelector}s.  For each node, the number of outstanding
+ * requests, a moving average of the response time, and the latest load reported by the node are kept.
+ * <p>
+ * The response time average reacts to a slower response at once, and decays with the time since the last
+ * response otherwise, so that a node which was slow is eventually tried again.  Recording and reading the statistics
+ * does not lock.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class NodeStatistics {
+
+    static final long DECAY_TIME = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, SecurityUtils.getLong(SystemProperties.RESPONSE_TIME_DECAY, 10000L)));
+
+    private static final Sample NO_SAMPLE = new Sample(-1.0, 0L);
+
+    private final long decayTime;
+    private final ConcurrentHashMap<String, Node> nodes = new ConcurrentHashMap<>();
+
+    NodeStatistics() {
+        this(DECAY_TIME);
+    }
+
+    NodeStatistics(final long decayTime) {
+        this.decayTime = decayTime;
+    }
+
+    /**
+     * Get the number of requests which were sent to the given node and have not completed yet.
+     *
+     * @param nodeName the node name (must not be {@code null})
+     * @return the number of outstanding requests
+     */
+    public int getOutstandingRequests(String nodeName) {
+        Assert.checkNotNullParam("nodeName", nodeName);
+        final Node node = nodes.get(nodeName);
+        return node == null ? 0 : node.outstanding;
+    }
+
+    /**
+     * Get the moving average of the response time of the given node.
+     *
+     * @param nodeName the node name (must not be {@code null})
+     * @param timeUnit the time unit of the result (must not be {@code null})
+     * @return the average response time, or {@code -1} if no response was received from the node yet
+     */
+    public long getResponseTime(String nodeName, TimeUnit timeUnit) {
+        Assert.checkNotNullParam("nodeName", nodeName);
+        Assert.checkNotNullParam("timeUnit", timeUnit);
+        return getResponseTime(nodeName, timeUnit, System.nanoTime());
+    }
+
+    long getResponseTime(String nodeName, TimeUnit timeUnit, long now) {
+        final Node node = nodes.get(nodeName);
+        if (node == null) {
+            return -1L;
+        }
+        final Sample sample = node.sample;
+        if (sample == NO_SAMPLE) {
+            return -1L;
+        }
+        return timeUnit.convert((long) sample.getAverage(now, decayTime), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the latest load reported by the given node, that is, the number of invocations it was processing or had
+     * queued when it last responded.
+     *
+     * @param nodeName the node name (must not be {@code null})
+     * @return the load, or {@code -1} if the node did not report its load yet
+     */
+    public int getLoad(String nodeName) {
+        Assert.checkNotNullParam("nodeName", nodeName);
+        final Node node = nodes.get(nodeName);
+        return node == null ? -1 : node.load;
+    }
+
+    /**
+     * Select a random node, weighting each node by the inverse of its reported load, so that a node with twice
+     * the load is selected half as often.  Nodes which did not report their load yet are weighted as if idle.
+     *
+     * @param nodeNames the nodes to select from (must not be empty)
+     * @return the selected node
+     */
+    String selectLoadWeighted(String[] nodeNames) {
+        final int length = nodeNames.length;
+        if (length == 1) {
+            return nodeNames[0];
+        }
+        final double[] weights = new double[length];
+        double total = 0.0;
+        for (int i = 0; i < length; i ++) {
+            total += weights[i] = 1.0 / (Math.max(0, getLoad(nodeNames[i])) + 1);
+        }
+        double point = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < length - 1; i ++) {
+            point -= weights[i];
+            if (point < 0.0) {
+                return nodeNames[i];
+            }
+        }
+        return nodeNames[length - 1];
+    }
+
+    /**
+     * Record the load reported by the given node.
+     *
+     * @param nodeName the node name
+     * @param load the reported load
+     */
+    void loadReported(String nodeName, int load) {
+        nodes.computeIfAbsent(nodeName, Node::new).load = Math.max(0, load);
+    }
+
+    /**
+     * Record that a request is being sent to the given node.
+     *
+     * @param nodeName the node name
+     */
+    void requestSent(String nodeName) {
+        outstandingUpdater.incrementAndGet(nodes.computeIfAbsent(nodeName, Node::new));
+    }
+
+    /**
+     * Record that a response to a request previously {@linkplain #requestSent(String) sent} to the given node was
+     * received.
+     *
+     * @param nodeName the node name
+     * @param responseTime the time it took to receive the response, in nanoseconds
+     */
+    void requestCompleted(String nodeName, long responseTime) {
+        requestCompleted(nodeName, responseTime, System.nanoTime());
+    }
+
+    void requestCompleted(String nodeName, long responseTime, long now) {
+        final Node node = nodes.get(nodeName);
+        if (node == null) {
+            return;
+        }
+        outstandingUpdater.decrementAndGet(node);
+        final double value = Math.max(0L, responseTime);
+        Sample oldSample, newSample;
+        do {
+            oldSample = node.sample;
+            final double average = oldSample.getAverage(now, decayTime);
+            if (oldSample == NO_SAMPLE || value >= average) {
+                // a slower response is taken as it is
+                newSample = new Sample(value, now);
+            } else {
+                final double weight = Math.exp(- (double) Math.max(0L, now - oldSample.updated) / decayTime);
+                newSample = new Sample(oldSample.average * weight + value * (1.0 - weight), now);
+            }
+        } while (! sampleUpdater.compareAndSet(node, oldSample, newSample));
+    }
+
+    /**
+     * Record that a request previously {@linkplain #requestSent(String) sent} to the given node completed without a
+     * response, for example because the connection failed.
+     *
+     * @param nodeName the node name
+     */
+    void requestAbandoned(String nodeName) {
+        final Node node = nodes.get(nodeName);
+        if (node != null) {
+            outstandingUpdater.decrementAndGet(node);
+        }
+    }
+
+    static final class Sample {
+        // nanoseconds; negative if there is no sample
+        final double average;
+        final long updated;
+
+        Sample(final double average, final long updated) {
+            this.average = average;
+            this.updated = updated;
+        }
+
+        double getAverage(long now, long decayTime) {
+            final long elapsed = now - updated;
+            return elapsed <= 0L ? average : average * Math.exp(- (double) elapsed / decayTime);
+        }
+    }
+
+    static final class Node {
+        final String nodeName;
+        volatile int outstanding;
+        volatile Sample sample = NO_SAMPLE;
+        volatile int load = -1;
+
+        Node(final String nodeName) {
+            this.nodeName = nodeName;
+        }
+    }
+
+    private static final AtomicIntegerFieldUpdater<Node> outstandingUpdater = AtomicIntegerFieldUpdater.newUpdater(Node.class, "outstanding");
+    private static final AtomicReferenceFieldUpdater<Node, Sample> sampleUpdater = AtomicReferenceFieldUpdater.newUpdater(Node.class, Sample.class, "sample");
+}
@@ -26,9 +26,16 @@ final class SystemProperties {
 
     static final String DISCOVERY_ADDITIONAL_NODE_TIMEOUT = "org.jboss.ejb.client.discovery.additional-node-timeout";
     static final String DISCOVERY_BLACKLIST_TIMEOUT = "org.jboss.ejb.client.discovery.blacklist.timeout";
+    static final String DISCOVERY_CACHE_TIMEOUT = "org.jboss.ejb.client.discovery.cache.timeout";
     static final String DISCOVERY_TIMEOUT = "org.jboss.ejb.client.discovery.timeout";
+    static final String DESTINATION_FAILURE_HALF_LIFE = "org.jboss.ejb.client.destination-failure-half-life";
+    static final String HEDGE_BUDGET_PERCENT = "org.jboss.ejb.client.hedge-budget-percent";
+    static final String HEDGE_PERCENTILE = "org.jboss.ejb.client.hedge-percentile";
     static final String JBOSS_NODE_NAME = "jboss.node.name";
     static final String MAX_ENTRIES = "org.jboss.ejb.client.max-retries";
+    static final String RESPONSE_TIME_DECAY = "org.jboss.ejb.client.response-time-decay";
+    static final String TIMER_MAX_THREADS = "org.jboss.ejb.client.timer-max-threads";
+    static final String TIMER_TICK_DURATION = "org.jboss.ejb.client.timer-tick-duration";
     static final String VIEW_ANNOTATION_SCAN_ENABLED = "org.jboss.ejb.client.view.annotation.scan.enabled";
     static final String WILDFLY_TESTSUITE_HACK = "org.jboss.ejb.client.wildfly-testsuite-hack";
 
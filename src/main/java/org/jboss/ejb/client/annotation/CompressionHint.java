@@ -49,4 +49,25 @@ public @interface CompressionHint {
      * The compression level to be used while compressing the data. The values can be any of those that are supported by {@link Deflater}. By default the compression level is {@link Deflater#DEFAULT_COMPRESSION}
      */
     int compressionLevel() default Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * The codec to be used to compress the data.  By default this is {@link Codec#DEFLATE}.  Codecs other than
+     * DEFLATE are only used if the peer supports them; otherwise DEFLATE is used instead.
+     */
+    Codec codec() default Codec.DEFLATE;
+
+    /**
+     * The compression codecs which may be requested.
+     */
+    enum Codec {
+        /**
+         * DEFLATE compression, using the {@link #compressionLevel() compression level}.
+         */
+        DEFLATE,
+        /**
+         * LZ4 block compression, which is much faster than DEFLATE at the cost of a lower compression ratio.  The
+         * compression level is ignored.
+         */
+        LZ4,
+    }
 }
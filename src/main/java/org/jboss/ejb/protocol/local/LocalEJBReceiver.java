@@ -0,0 +1,461 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.local;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.ejb.EJBException;
+import javax.ejb.NoSuchEJBException;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+
+import org.jboss.ejb._private.Logs;
+import org.jboss.ejb.client.Affinity;
+import org.jboss.ejb.client.AttachmentKey;
+import org.jboss.ejb.client.ClusterAffinity;
+import org.jboss.ejb.client.EJBClient;
+import org.jboss.ejb.client.EJBClientContext;
+import org.jboss.ejb.client.EJBClientInvocationContext;
+import org.jboss.ejb.client.EJBIdentifier;
+import org.jboss.ejb.client.EJBLocator;
+import org.jboss.ejb.client.EJBMethodLocator;
+import org.jboss.ejb.client.EJBModuleIdentifier;
+import org.jboss.ejb.client.EJBReceiver;
+import org.jboss.ejb.client.EJBReceiverInvocationContext;
+import org.jboss.ejb.client.EJBReceiverSessionCreationContext;
+import org.jboss.ejb.client.EJBSessionCreationInvocationContext;
+import org.jboss.ejb.client.SessionID;
+import org.jboss.ejb.client.StatelessEJBLocator;
+import org.jboss.ejb.server.Association;
+import org.jboss.ejb.server.CancelHandle;
+import org.jboss.ejb.server.InvocationRequest;
+import org.jboss.ejb.server.ListenerHandle;
+import org.jboss.ejb.server.ModuleAvailabilityListener;
+import org.jboss.ejb.server.SessionOpenRequest;
+import org.wildfly.common.Assert;
+import org.wildfly.common.annotation.NotNull;
+import org.wildfly.discovery.AttributeValue;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceType;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.spi.DiscoveryResult;
+import org.wildfly.security.auth.server.SecurityDomain;
+import org.wildfly.security.auth.server.SecurityIdentity;
+
+/**
+ * The EJB receiver of the local transport.  Requests are handed to the association in the calling thread, and the
+ * association writes its responses straight back to the invocation context.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class LocalEJBReceiver extends EJBReceiver {
+
+    private static final AttachmentKey<CancelHandle> CANCEL_HANDLE_KEY = new AttachmentKey<>();
+
+    private final Association association;
+    private final String nodeName;
+    private final LocalTransportProvider.ParameterPassing parameterPassing;
+    private final Executor executor;
+
+    // guarded by this
+    private final Set<EJBModuleIdentifier> modules = new LinkedHashSet<>();
+    private ListenerHandle moduleListenerHandle;
+    // replaced (never modified) under the lock of this receiver
+    private volatile List<ServiceURL> serviceURLs = Collections.emptyList();
+
+    LocalEJBReceiver(final Association association, final String nodeName, final LocalTransportProvider.ParameterPassing parameterPassing, final Executor executor) {
+        this.association = association;
+        this.nodeName = nodeName;
+        this.parameterPassing = parameterPassing;
+        this.executor = executor;
+    }
+
+    void start() {
+        final ListenerHandle handle = association.registerModuleAvailabilityListener(new ModuleAvailabilityListener() {
+            public void moduleAvailable(final List<EJBModuleIdentifier> modules) {
+                updateModules(modules, true);
+            }
+
+            public void moduleUnavailable(final List<EJBModuleIdentifier> modules) {
+                updateModules(modules, false);
+            }
+        });
+        synchronized (this) {
+            moduleListenerHandle = handle;
+        }
+    }
+
+    void close() {
+        final ListenerHandle handle;
+        synchronized (this) {
+            handle = moduleListenerHandle;
+            moduleListenerHandle = null;
+            modules.clear();
+            serviceURLs = Collections.emptyList();
+        }
+        if (handle != null) {
+            handle.close();
+        }
+    }
+
+    private synchronized void updateModules(final List<EJBModuleIdentifier> changed, final boolean available) {
+        if (available) {
+            modules.addAll(changed);
+        } else {
+            modules.removeAll(changed);
+        }
+        if (modules.isEmpty()) {
+            serviceURLs = Collections.emptyList();
+            return;
+        }
+        final ServiceURL.Builder builder = new ServiceURL.Builder();
+        builder.setUri(LocalTransportProvider.LOCAL_URI);
+        builder.setAbstractType(EJBClientContext.EJB_SERVICE_TYPE.getAbstractType());
+        builder.setAbstractTypeAuthority(EJBClientContext.EJB_SERVICE_TYPE.getAbstractTypeAuthority());
+        builder.addAttribute(EJBClientContext.FILTER_ATTR_NODE, AttributeValue.fromString(nodeName));
+        for (EJBModuleIdentifier moduleIdentifier : modules) {
+            final String appName = moduleIdentifier.getAppName();
+            final String moduleName = moduleIdentifier.getModuleName();
+            final String distinctName = moduleIdentifier.getDistinctName();
+            final String module = appName.isEmpty() ? moduleName : appName + "/" + moduleName;
+            if (distinctName.isEmpty()) {
+                builder.addAttribute(EJBClientContext.FILTER_ATTR_EJB_MODULE, AttributeValue.fromString(module));
+            } else {
+                builder.addAttribute(EJBClientContext.FILTER_ATTR_EJB_MODULE_DISTINCT, AttributeValue.fromString(module + "/" + distinctName));
+            }
+        }
+        serviceURLs = Collections.singletonList(builder.create());
+    }
+
+    void discover(final ServiceType serviceType, final FilterSpec filterSpec, final DiscoveryResult result) {
+        for (ServiceURL serviceURL : serviceURLs) {
+            if (serviceURL.satisfies(filterSpec) && serviceType.implies(serviceURL)) {
+                result.addMatch(serviceURL);
+            }
+        }
+    }
+
+    protected void processInvocation(final EJBReceiverInvocationContext receiverContext) throws Exception {
+        final LocalInvocationRequest request = new LocalInvocationRequest(receiverContext);
+        final CancelHandle cancelHandle = association.receiveInvocationRequest(request);
+        receiverContext.getClientInvocationContext().putAttachment(CANCEL_HANDLE_KEY, cancelHandle);
+    }
+
+    protected boolean cancelInvocation(final EJBReceiverInvocationContext receiverContext, final boolean cancelIfRunning) {
+        final CancelHandle cancelHandle = receiverContext.getClientInvocationContext().getAttachment(CANCEL_HANDLE_KEY);
+        if (cancelHandle == null) {
+            return false;
+        }
+        cancelHandle.cancel(cancelIfRunning);
+        return true;
+    }
+
+    protected SessionID createSession(final EJBReceiverSessionCreationContext receiverContext) throws Exception {
+        final EJBSessionCreationInvocationContext context = receiverContext.getClientInvocationContext();
+        final StatelessEJBLocator<?> statelessLocator = context.getLocator().asStateless();
+        final LocalSessionOpenRequest request = new LocalSessionOpenRequest(context);
+        association.receiveSessionOpenRequest(request);
+        final SessionID sessionId;
+        try {
+            sessionId = request.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Logs.MAIN.operationInterrupted();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new EJBException(new UndeclaredThrowableException(cause));
+        }
+        final Affinity affinity = request.strongAffinity;
+        context.setLocator(statelessLocator.withSessionAndAffinity(sessionId, affinity == null ? statelessLocator.getAffinity() : affinity));
+        return sessionId;
+    }
+
+    private static SecurityIdentity getCurrentIdentity() {
+        final SecurityDomain securityDomain = SecurityDomain.getCurrent();
+        return securityDomain == null ? null : securityDomain.getCurrentSecurityIdentity();
+    }
+
+    private static ClassLoader getClassLoader(final Class<?> clazz) {
+        final ClassLoader classLoader = clazz.getClassLoader();
+        return classLoader == null ? LocalEJBReceiver.class.getClassLoader() : classLoader;
+    }
+
+    abstract class LocalRequest {
+        final SecurityIdentity identity = getCurrentIdentity();
+
+        public String getProtocol() {
+            return "local";
+        }
+
+        public SecurityIdentity getSecurityIdentity() {
+            return identity;
+        }
+
+        abstract EJBIdentifier getEJBIdentifier();
+
+        abstract void fail(Exception exception);
+
+        public void writeNoSuchEJB() {
+            fail(new NoSuchEJBException(Logs.REMOTING.remoteMessageNoSuchEJB(getEJBIdentifier()) + " @ " + LocalTransportProvider.LOCAL_URI));
+        }
+
+        public void writeWrongViewType() {
+            fail(Logs.REMOTING.invalidViewTypeForInvocation(Logs.REMOTING.remoteMessageBadViewType(getEJBIdentifier())));
+        }
+
+        public void writeNotStateful() {
+            fail(Logs.REMOTING.ejbNotStateful(Logs.REMOTING.remoteMessageEJBNotStateful(getEJBIdentifier())));
+        }
+    }
+
+    final class LocalInvocationRequest extends LocalRequest implements InvocationRequest {
+        private final EJBReceiverInvocationContext receiverContext;
+        private final EJBClientInvocationContext context;
+        private final boolean blockingCaller;
+        private final ClassLoader clientClassLoader;
+
+        LocalInvocationRequest(final EJBReceiverInvocationContext receiverContext) {
+            this.receiverContext = receiverContext;
+            context = receiverContext.getClientInvocationContext();
+            // a caller which waits for the result anyway may as well run the invocation itself
+            blockingCaller = context.isBlockingCaller() && context.isSynchronous();
+            clientClassLoader = getClassLoader(context.getViewClass());
+        }
+
+        public Executor getRequestExecutor() {
+            return blockingCaller ? Runnable::run : executor;
+        }
+
+        public boolean isBlockingCaller() {
+            return blockingCaller;
+        }
+
+        @NotNull
+        public EJBIdentifier getEJBIdentifier() {
+            return context.getLocator().getIdentifier();
+        }
+
+        @NotNull
+        public EJBMethodLocator getMethodLocator() {
+            return context.getMethodLocator();
+        }
+
+        public long getRemainingInvocationTime(final TimeUnit timeUnit) {
+            return context.getRemainingInvocationTime(timeUnit);
+        }
+
+        public Resolved getRequestContent(final ClassLoader classLoader) {
+            final ValueCopier copier = ValueCopier.create(parameterPassing, classLoader);
+            final Object[] parameters = context.getParameters();
+            final Object[] copiedParameters = parameters == null ? new Object[0] : copier.copy(parameters);
+            final Map<String, Object> attachments = new HashMap<>();
+            for (Map.Entry<String, Object> entry : context.getContextData().entrySet()) {
+                attachments.put(entry.getKey(), copier.copy(entry.getValue()));
+            }
+            final EJBLocator<?> locator = context.getLocator();
+            final Affinity weakAffinity = context.getWeakAffinity();
+            final Transaction transaction = context.getTransaction();
+            return new Resolved() {
+                @NotNull
+                public Map<String, Object> getAttachments() {
+                    return attachments;
+                }
+
+                @NotNull
+                public Object[] getParameters() {
+                    return copiedParameters;
+                }
+
+                @NotNull
+                public EJBLocator<?> getEJBLocator() {
+                    return locator;
+                }
+
+                @NotNull
+                public Affinity getWeakAffinity() {
+                    return weakAffinity;
+                }
+
+                public boolean hasTransaction() {
+                    return transaction != null;
+                }
+
+                public Transaction getTransaction() {
+                    return transaction;
+                }
+
+                public void writeInvocationResult(final Object result) {
+                    receiverContext.resultReady(new LocalResultProducer(result, attachments));
+                }
+            };
+        }
+
+        void fail(final Exception exception) {
+            receiverContext.requestFailed(exception);
+        }
+
+        public void writeException(@NotNull final Exception exception) {
+            Assert.checkNotNullParam("exception", exception);
+            receiverContext.resultReady(new EJBReceiverInvocationContext.ResultProducer.Failed(() -> (Exception) ValueCopier.create(parameterPassing, clientClassLoader).copy(exception)));
+        }
+
+        public void writeNoSuchMethod() {
+            fail(new IllegalArgumentException(Logs.REMOTING.remoteMessageNoSuchMethod(getMethodLocator(), getEJBIdentifier())));
+        }
+
+        public void writeSessionNotActive() {
+            fail(new EJBException(Logs.REMOTING.remoteMessageSessionNotActive(getMethodLocator(), getEJBIdentifier())));
+        }
+
+        public void writeCancelResponse() {
+            receiverContext.requestCancelled();
+        }
+
+        public void writeProceedAsync() {
+            receiverContext.proceedAsynchronously();
+        }
+
+        public void convertToStateful(@NotNull final SessionID sessionId) throws IllegalArgumentException, IllegalStateException {
+            Assert.checkNotNullParam("sessionId", sessionId);
+            final Object invokedProxy = context.getInvokedProxy();
+            EJBClient.convertToStateful(invokedProxy, sessionId);
+            context.setLocator(EJBClient.getLocatorFor(invokedProxy));
+        }
+
+        public void updateStrongAffinity(@NotNull final Affinity affinity) {
+            Assert.checkNotNullParam("affinity", affinity);
+            context.setLocator(context.getLocator().withNewAffinity(affinity));
+        }
+
+        public void updateWeakAffinity(@NotNull final Affinity affinity) {
+            Assert.checkNotNullParam("affinity", affinity);
+            context.setWeakAffinity(affinity);
+        }
+
+        /**
+         * Produces the result in the client, copying it and the returned context data on the thread which consumes
+         * the result.
+         */
+        final class LocalResultProducer implements EJBReceiverInvocationContext.ResultProducer {
+            private final Object result;
+            private final Map<String, Object> attachments;
+
+            LocalResultProducer(final Object result, final Map<String, Object> attachments) {
+                this.result = result;
+                this.attachments = attachments;
+            }
+
+            public Object getResult() throws Exception {
+                final ValueCopier copier = ValueCopier.create(parameterPassing, clientClassLoader);
+                final Object copiedResult = copier.copy(result);
+                final Map<String, Object> contextData = context.getContextData();
+                for (Map.Entry<String, Object> entry : attachments.entrySet()) {
+                    final String key = entry.getKey();
+                    final Object value = entry.getValue();
+                    if (value != null && ! key.equals(EJBClientInvocationContext.PRIVATE_ATTACHMENTS_KEY) && ! key.equals(Affinity.WEAK_AFFINITY_CONTEXT_KEY)) {
+                        contextData.put(key, copier.copy(value));
+                    }
+                }
+                return copiedResult;
+            }
+
+            public void discardResult() {
+            }
+        }
+    }
+
+    final class LocalSessionOpenRequest extends LocalRequest implements SessionOpenRequest {
+        private final EJBSessionCreationInvocationContext context;
+        final CompletableFuture<SessionID> result = new CompletableFuture<>();
+        volatile Affinity strongAffinity;
+
+        LocalSessionOpenRequest(final EJBSessionCreationInvocationContext context) {
+            this.context = context;
+        }
+
+        public Executor getRequestExecutor() {
+            // the caller waits for the session anyway
+            return Runnable::run;
+        }
+
+        public boolean isBlockingCaller() {
+            return true;
+        }
+
+        @NotNull
+        public EJBIdentifier getEJBIdentifier() {
+            return context.getLocator().getIdentifier();
+        }
+
+        public boolean hasTransaction() {
+            return context.getTransaction() != null;
+        }
+
+        public Transaction getTransaction() throws SystemException, IllegalStateException {
+            return context.getTransaction();
+        }
+
+        void fail(final Exception exception) {
+            result.completeExceptionally(exception);
+        }
+
+        public void writeException(@NotNull final Exception exception) {
+            Assert.checkNotNullParam("exception", exception);
+            fail((Exception) ValueCopier.create(parameterPassing, getClassLoader(context.getViewClass())).copy(exception));
+        }
+
+        public void writeCancelResponse() {
+            fail(Logs.REMOTING.requestCancelled());
+        }
+
+        public void convertToStateful(@NotNull final SessionID sessionId) throws IllegalArgumentException, IllegalStateException {
+            Assert.checkNotNullParam("sessionId", sessionId);
+            if (! result.complete(sessionId)) {
+                throw Logs.REMOTING.cannotAddSessionID();
+            }
+        }
+
+        public void updateStrongAffinity(@NotNull final Affinity affinity) {
+            Assert.checkNotNullParam("affinity", affinity);
+            if (affinity instanceof ClusterAffinity) {
+                strongAffinity = affinity;
+            }
+        }
+
+        public void updateWeakAffinity(@NotNull final Affinity affinity) {
+            Assert.checkNotNullParam("affinity", affinity);
+            context.setWeakAffinity(affinity);
+        }
+    }
+}
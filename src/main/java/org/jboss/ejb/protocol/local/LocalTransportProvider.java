@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.local;
+
+import java.net.URI;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.ejb._private.Logs;
+import org.jboss.ejb.client.AttachmentKey;
+import org.jboss.ejb.client.EJBClientContext;
+import org.jboss.ejb.client.EJBReceiver;
+import org.jboss.ejb.client.EJBReceiverContext;
+import org.jboss.ejb.client.EJBTransportProvider;
+import org.jboss.ejb.server.Association;
+import org.wildfly.common.Assert;
+
+/**
+ * The local transport provider, which dispatches invocations of EJBs in the same JVM directly to their
+ * {@link Association}, without marshalling them or using the network.  The modules of the association are made
+ * available to discovery under the {@code local} URI scheme, so that proxies use this transport for the EJBs it
+ * provides without any change.
+ * <p>
+ * Parameters, results and exceptions are copied between the class loaders of the client and the EJB, unless the
+ * {@linkplain ParameterPassing#REFERENCE by reference} parameter passing mode is used.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class LocalTransportProvider implements EJBTransportProvider {
+
+    /**
+     * The URI of the local destination.
+     */
+    public static final URI LOCAL_URI = URI.create("local:-");
+
+    static final AttachmentKey<LocalEJBReceiver> ATTACHMENT_KEY = new AttachmentKey<>();
+    private static final Logs log = Logs.MAIN;
+
+    private final Association association;
+    private final String nodeName;
+    private final ParameterPassing parameterPassing;
+    private final Executor executor;
+
+    private LocalTransportProvider(final Association association, final String nodeName, final ParameterPassing parameterPassing, final Executor executor) {
+        this.association = association;
+        this.nodeName = nodeName;
+        this.parameterPassing = parameterPassing;
+        this.executor = executor;
+    }
+
+    /**
+     * Create a new local transport provider which copies the values passed between the client and the EJB.
+     * Invocations which do not block their caller run on a dedicated pool of daemon threads.
+     *
+     * @param association the association to dispatch invocations to (must not be {@code null})
+     * @param nodeName the name of the local node (must not be {@code null})
+     * @return the local transport provider (not {@code null})
+     */
+    public static LocalTransportProvider create(final Association association, final String nodeName) {
+        return create(association, nodeName, ParameterPassing.COPY, DefaultExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * Create a new local transport provider.  Synchronous invocations run in the calling thread; invocations whose
+     * caller does not wait for the result run on the given executor.
+     *
+     * @param association the association to dispatch invocations to (must not be {@code null})
+     * @param nodeName the name of the local node (must not be {@code null})
+     * @param parameterPassing the parameter passing mode (must not be {@code null})
+     * @param executor the executor for invocations which do not block their caller (must not be {@code null})
+     * @return the local transport provider (not {@code null})
+     */
+    public static LocalTransportProvider create(final Association association, final String nodeName, final ParameterPassing parameterPassing, final Executor executor) {
+        Assert.checkNotNullParam("association", association);
+        Assert.checkNotNullParam("nodeName", nodeName);
+        Assert.checkNotNullParam("parameterPassing", parameterPassing);
+        Assert.checkNotNullParam("executor", executor);
+        return new LocalTransportProvider(association, nodeName, parameterPassing, executor);
+    }
+
+    public void notifyRegistered(final EJBReceiverContext receiverContext) {
+        final EJBClientContext clientContext = receiverContext.getClientContext();
+        final LocalEJBReceiver receiver = new LocalEJBReceiver(association, nodeName, parameterPassing, executor);
+        if (clientContext.putAttachmentIfAbsent(ATTACHMENT_KEY, receiver) == null) {
+            receiver.start();
+        }
+        log.tracef("LocalTransportProvider %s registered receiver %s with client context %s", this, receiver, clientContext);
+    }
+
+    public boolean supportsProtocol(final String uriScheme) {
+        return "local".equals(uriScheme);
+    }
+
+    public EJBReceiver getReceiver(final EJBReceiverContext receiverContext, final String uriScheme) throws IllegalArgumentException {
+        if ("local".equals(uriScheme)) {
+            final LocalEJBReceiver receiver = receiverContext.getClientContext().getAttachment(ATTACHMENT_KEY);
+            if (receiver != null) {
+                return receiver;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported EJB receiver protocol " + uriScheme);
+    }
+
+    public void close(final EJBReceiverContext receiverContext) throws Exception {
+        final LocalEJBReceiver receiver = receiverContext.getClientContext().getAttachment(ATTACHMENT_KEY);
+        if (receiver != null) {
+            receiver.close();
+        }
+    }
+
+    static final class DefaultExecutorHolder {
+        // EJB invocations may block for a long time, so they must not run on a shared pool such as the common pool
+        static final ExecutorService EXECUTOR;
+
+        static {
+            final AtomicInteger threadCount = new AtomicInteger();
+            EXECUTOR = Executors.newCachedThreadPool(r -> {
+                final Thread thread = new Thread(r, "EJB local invocation " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private DefaultExecutorHolder() {
+        }
+    }
+
+    /**
+     * The ways in which values are passed between the client and the EJB.
+     */
+    public enum ParameterPassing {
+        /**
+         * Copy parameters, results and exceptions with an in-memory clone, except for values of well-known immutable
+         * types.  Each side sees its own copy, as if the EJB was invoked remotely.
+         */
+        COPY,
+        /**
+         * Pass all values by reference.  This is only correct if the client and the EJB share the classes of the
+         * values, and neither modifies a value after passing it, for example because all of them are immutable.
+         */
+        REFERENCE,
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.local;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.jboss.ejb._private.Logs;
+import org.jboss.marshalling.cloner.ClassLoaderClassCloner;
+import org.jboss.marshalling.cloner.ClonerConfiguration;
+import org.jboss.marshalling.cloner.ObjectCloner;
+import org.jboss.marshalling.cloner.ObjectCloners;
+
+/**
+ * A copier of the values passed between a local client and the EJB it invokes.  Values of well-known immutable
+ * types are never copied; all other values are cloned in memory into the target class loader.  The values copied by
+ * one copier share the same clone table, so that references between them are preserved.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class ValueCopier {
+
+    /**
+     * A copier which passes all values by reference.
+     */
+    static final ValueCopier BY_REFERENCE = new ValueCopier(null, false);
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(
+        String.class,
+        Boolean.class,
+        Character.class,
+        Byte.class,
+        Short.class,
+        Integer.class,
+        Long.class,
+        Float.class,
+        Double.class,
+        BigInteger.class,
+        BigDecimal.class,
+        UUID.class
+    ));
+
+    private final ClassLoader classLoader;
+    private final boolean copy;
+    private ObjectCloner cloner;
+
+    private ValueCopier(final ClassLoader classLoader, final boolean copy) {
+        this.classLoader = classLoader;
+        this.copy = copy;
+    }
+
+    /**
+     * Get a copier for the given parameter passing mode.
+     *
+     * @param parameterPassing the parameter passing mode
+     * @param classLoader the class loader to copy values into
+     * @return the copier
+     */
+    static ValueCopier create(final LocalTransportProvider.ParameterPassing parameterPassing, final ClassLoader classLoader) {
+        return parameterPassing == LocalTransportProvider.ParameterPassing.REFERENCE ? BY_REFERENCE : new ValueCopier(classLoader, true);
+    }
+
+    /**
+     * Copy a value.
+     *
+     * @param value the value to copy
+     * @return the copy, or the value itself if it does not need to be copied
+     */
+    Object copy(final Object value) {
+        if (! copy || value == null || IMMUTABLE_TYPES.contains(value.getClass())) {
+            return value;
+        }
+        ObjectCloner cloner = this.cloner;
+        if (cloner == null) {
+            final ClonerConfiguration configuration = new ClonerConfiguration();
+            configuration.setClassCloner(new ClassLoaderClassCloner(classLoader));
+            cloner = this.cloner = ObjectCloners.getSerializingObjectClonerFactory().createCloner(configuration);
+        }
+        try {
+            return cloner.clone(value);
+        } catch (IOException | ClassNotFoundException e) {
+            throw Logs.MAIN.localValueCopyFailed(e);
+        }
+    }
+
+    /**
+     * Copy each of the given values.
+     *
+     * @param values the values to copy
+     * @return the copies
+     */
+    Object[] copy(final Object[] values) {
+        if (! copy || values == null || values.length == 0) {
+            return values;
+        }
+        final Object[] copies = new Object[values.length];
+        for (int i = 0; i < values.length; i ++) {
+            copies[i] = copy(values[i]);
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jboss.remoting3.MessageOutputStream;
+
+/**
+ * A message output stream which only compresses a message if it turns out to be larger than a threshold.  The
+ * beginning of the message is buffered; if the message is closed before the buffer exceeds the threshold, it is sent
+ * uncompressed, otherwise the compressed message header is written followed by the compressed message.  The outcome
+ * is recorded in the method's {@link CompressionStatistics.MethodStatistics}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class AdaptiveCompressionOutputStream extends MessageOutputStream {
+
+    private final MessageOutputStream underlying;
+    private final CompressionPool compressionPool;
+    private final int codec;
+    private final int level;
+    private final CompressionStatistics.MethodStatistics statistics;
+    private byte[] buffer;
+    private int count;
+    private OutputStream delegate;
+    private long uncompressedSize;
+    private long compressedSize;
+
+    AdaptiveCompressionOutputStream(final MessageOutputStream underlying, final CompressionPool compressionPool, final int codec, final int level, final int threshold, final CompressionStatistics.MethodStatistics statistics) throws IOException {
+        this.underlying = underlying;
+        this.compressionPool = compressionPool;
+        this.codec = codec;
+        this.level = level;
+        this.statistics = statistics;
+        if (threshold <= 0) {
+            startCompression();
+        } else {
+            buffer = new byte[threshold];
+        }
+    }
+
+    public void write(final int b) throws IOException {
+        if (delegate == null) {
+            if (count < buffer.length) {
+                buffer[count ++] = (byte) b;
+                return;
+            }
+            startCompression();
+        }
+        uncompressedSize ++;
+        delegate.write(b);
+    }
+
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (delegate == null) {
+            if (len <= buffer.length - count) {
+                System.arraycopy(b, off, buffer, count, len);
+                count += len;
+                return;
+            }
+            startCompression();
+        }
+        uncompressedSize += len;
+        delegate.write(b, off, len);
+    }
+
+    public void flush() throws IOException {
+        // the message is flushed when it is closed
+    }
+
+    public void close() throws IOException {
+        if (delegate == null) {
+            if (buffer == null) {
+                // already closed
+                return;
+            }
+            statistics.recordBelowThreshold();
+            final byte[] buffer = this.buffer;
+            this.buffer = null;
+            underlying.write(buffer, 0, count);
+            underlying.close();
+        } else {
+            final OutputStream delegate = this.delegate;
+            if (delegate == underlying) {
+                return;
+            }
+            this.delegate = underlying;
+            delegate.close();
+            statistics.recordCompressed(uncompressedSize, compressedSize);
+        }
+    }
+
+    public MessageOutputStream cancel() {
+        return underlying.cancel();
+    }
+
+    private void startCompression() throws IOException {
+        if (codec == Protocol.CODEC_DEFLATE) {
+            underlying.write(Protocol.COMPRESSED_INVOCATION_MESSAGE);
+        } else {
+            underlying.write(Protocol.CODEC_COMPRESSED_INVOCATION_MESSAGE);
+            underlying.write(codec);
+        }
+        delegate = compressionPool.getOutputStream(codec, new OutputStream() {
+            public void write(final int b) throws IOException {
+                compressedSize ++;
+                underlying.write(b);
+            }
+
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                compressedSize += len;
+                underlying.write(b, off, len);
+            }
+
+            public void flush() throws IOException {
+                underlying.flush();
+            }
+
+            public void close() throws IOException {
+                underlying.close();
+            }
+        }, level);
+        if (count > 0) {
+            uncompressedSize = count;
+            delegate.write(buffer, 0, count);
+        }
+        buffer = null;
+        count = 0;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for invocation requests.  The number of requests in flight is limited both per connection and
+ * for all connections of a remote EJB service; a request beyond either limit is rejected before its parameters are
+ * unmarshalled, so that the client can retry it elsewhere.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class AdmissionControl {
+
+    /**
+     * The default maximum number of requests in flight for all connections, or 0 for no limit.
+     */
+    static final int DEFAULT_MAX_REQUESTS = SecurityUtils.getInteger(SystemProperties.MAX_REQUESTS, 0);
+
+    /**
+     * The default maximum number of requests in flight per connection, or 0 for no limit.
+     */
+    static final int DEFAULT_MAX_CONNECTION_REQUESTS = SecurityUtils.getInteger(SystemProperties.MAX_CONNECTION_REQUESTS, 0);
+
+    private final int maxRequests;
+    private final int maxConnectionRequests;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    AdmissionControl(final int maxRequests, final int maxConnectionRequests) {
+        this.maxRequests = maxRequests;
+        this.maxConnectionRequests = maxConnectionRequests;
+    }
+
+    AdmissionControl() {
+        this(DEFAULT_MAX_REQUESTS, DEFAULT_MAX_CONNECTION_REQUESTS);
+    }
+
+    /**
+     * Attempt to admit a request.  If the request is admitted, {@link #release(AtomicInteger)} must be called once
+     * it is complete.
+     *
+     * @param connectionInFlight the count of requests in flight on the connection of the request
+     * @return {@code true} if the request was admitted, {@code false} if it must be rejected
+     */
+    boolean tryAcquire(final AtomicInteger connectionInFlight) {
+        final int connectionCount = connectionInFlight.incrementAndGet();
+        final int count = inFlight.incrementAndGet();
+        if (maxConnectionRequests > 0 && connectionCount > maxConnectionRequests || maxRequests > 0 && count > maxRequests) {
+            release(connectionInFlight);
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Release an admitted request.
+     *
+     * @param connectionInFlight the count of requests in flight on the connection of the request
+     */
+    void release(final AtomicInteger connectionInFlight) {
+        connectionInFlight.decrementAndGet();
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Get the number of requests in flight for all connections.
+     *
+     * @return the number of requests in flight
+     */
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Get the number of rejected requests.
+     *
+     * @return the number of rejected requests
+     */
+    long getRejectedCount() {
+        return rejected.sum();
+    }
+}
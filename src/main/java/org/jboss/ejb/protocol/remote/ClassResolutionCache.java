@@ -0,0 +1,171 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.jboss.ejb.client.EJBModuleIdentifier;
+
+/**
+ * A cache of class resolution results for the requests of a server channel.  The decisions of the class resolver
+ * filter are cached by class name, and resolved classes are cached by class loader and class name.  Classes are only
+ * cached for the class loader of this cache and for class loaders bound to a module, and they are dropped once no
+ * available module is bound to their class loader any more.
+ * <p>
+ * Each cache is bounded; once a cache is full, further results are simply not cached.  In particular, a class loader
+ * which cannot be bound because too many modules are bound already gets no cached classes at all, so that nothing is
+ * ever cached which could not be dropped again.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class ClassResolutionCache {
+
+    static final int DEFAULT_SIZE = SecurityUtils.getInteger(SystemProperties.CLASS_RESOLUTION_CACHE_SIZE, 512);
+
+    // our own classes stay around as long as we do, so they are always cached
+    private static final ClassLoader OWN_CLASS_LOADER = ClassResolutionCache.class.getClassLoader();
+
+    private final Function<String, Boolean> classResolverFilter;
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Boolean> filterDecisions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ClassLoader, ConcurrentHashMap<String, Class<?>>> classesByLoader = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<EJBModuleIdentifier, ClassLoader> loadersByModule = new ConcurrentHashMap<>();
+
+    ClassResolutionCache(final Function<String, Boolean> classResolverFilter, final int maxSize) {
+        this.classResolverFilter = classResolverFilter;
+        this.maxSize = maxSize;
+        bindOwnClassLoader();
+    }
+
+    /**
+     * Determine whether the class resolver filter allows the given class name.
+     *
+     * @param className the class name
+     * @return {@code true} if the class may be resolved, {@code false} otherwise
+     */
+    boolean isAllowed(final String className) {
+        final Function<String, Boolean> classResolverFilter = this.classResolverFilter;
+        if (classResolverFilter == null) {
+            return true;
+        }
+        Boolean allowed = filterDecisions.get(className);
+        if (allowed == null) {
+            allowed = Boolean.valueOf(classResolverFilter.apply(className) == Boolean.TRUE);
+            if (filterDecisions.size() < maxSize) {
+                filterDecisions.putIfAbsent(className, allowed);
+            }
+        }
+        return allowed.booleanValue();
+    }
+
+    /**
+     * Get a previously resolved class.
+     *
+     * @param classLoader the class loader (must not be {@code null})
+     * @param className the class name
+     * @return the class, or {@code null} if it is not cached
+     */
+    Class<?> getClass(final ClassLoader classLoader, final String className) {
+        final ConcurrentHashMap<String, Class<?>> classes = classesByLoader.get(classLoader);
+        return classes == null ? null : classes.get(className);
+    }
+
+    /**
+     * Cache a resolved class.
+     *
+     * @param classLoader the class loader which was used to resolve the class (must not be {@code null})
+     * @param className the class name
+     * @param clazz the resolved class
+     */
+    void putClass(final ClassLoader classLoader, final String className, final Class<?> clazz) {
+        // only bound class loaders have a map; classes of any other class loader are not cached
+        final ConcurrentHashMap<String, Class<?>> classes = classesByLoader.get(classLoader);
+        if (classes != null && classes.size() < maxSize) {
+            classes.putIfAbsent(className, clazz);
+        }
+    }
+
+    /**
+     * Record the class loader of a module, so that its classes can be cached and then dropped when the module becomes
+     * unavailable.  If too many modules are bound already, the class loader is not bound and its classes are not
+     * cached.
+     *
+     * @param module the module identifier
+     * @param classLoader the class loader of the module
+     */
+    void bind(final EJBModuleIdentifier module, final ClassLoader classLoader) {
+        if (loadersByModule.get(module) == classLoader) {
+            // already bound; the common case
+            return;
+        }
+        synchronized (loadersByModule) {
+            final ClassLoader previous = loadersByModule.get(module);
+            if (previous == classLoader || previous == null && loadersByModule.size() >= maxSize) {
+                return;
+            }
+            loadersByModule.put(module, classLoader);
+            classesByLoader.computeIfAbsent(classLoader, ignored -> new ConcurrentHashMap<>());
+            if (previous != null) {
+                unbound(previous);
+            }
+        }
+    }
+
+    /**
+     * Drop the cached classes of the given modules.
+     *
+     * @param modules the modules which became unavailable
+     */
+    void invalidate(final List<EJBModuleIdentifier> modules) {
+        synchronized (loadersByModule) {
+            for (EJBModuleIdentifier module : modules) {
+                final ClassLoader classLoader = loadersByModule.remove(module);
+                if (classLoader != null) {
+                    unbound(classLoader);
+                }
+            }
+        }
+    }
+
+    // must be called under the lock of loadersByModule
+    private void unbound(final ClassLoader classLoader) {
+        if (classLoader != OWN_CLASS_LOADER && ! loadersByModule.containsValue(classLoader)) {
+            classesByLoader.remove(classLoader);
+        }
+    }
+
+    /**
+     * Drop all cached results.
+     */
+    void clear() {
+        filterDecisions.clear();
+        synchronized (loadersByModule) {
+            loadersByModule.clear();
+            classesByLoader.clear();
+            bindOwnClassLoader();
+        }
+    }
+
+    private void bindOwnClassLoader() {
+        if (maxSize > 0 && OWN_CLASS_LOADER != null) {
+            classesByLoader.put(OWN_CLASS_LOADER, new ConcurrentHashMap<>());
+        }
+    }
+}
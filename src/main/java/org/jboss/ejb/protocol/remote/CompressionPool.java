@@ -0,0 +1,272 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.protocol.remote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.jboss.ejb._private.Logs;
+
+/**
+ * A bounded pool of {@link Deflater} instances (one queue per compression level) and {@link Inflater} instances
+ * belonging to a single channel.  Instances are {@linkplain Deflater#reset() reset} when the stream using them is
+ * closed and made available again; instances which do not fit in the pool, and all pooled instances once the pool
+ * is closed, are {@linkplain Deflater#end() ended} straight away so that their native memory is released without
+ * waiting for finalization.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class CompressionPool {
+
+    static final int DEFAULT_POOL_SIZE = SecurityUtils.getInteger(SystemProperties.COMPRESSION_POOL_SIZE, 4);
+
+    // levels -1 (default) through 9
+    private static final int LEVELS = 11;
+
+    private final ArrayBlockingQueue<Deflater>[] deflaters;
+    private final ArrayBlockingQueue<Inflater> inflaters;
+    private volatile boolean closed;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+
+    CompressionPool() {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    @SuppressWarnings("unchecked")
+    CompressionPool(final int size) {
+        if (size > 0) {
+            deflaters = new ArrayBlockingQueue[LEVELS];
+            for (int i = 0; i < LEVELS; i ++) {
+                deflaters[i] = new ArrayBlockingQueue<>(size);
+            }
+            inflaters = new ArrayBlockingQueue<>(size);
+        } else {
+            deflaters = null;
+            inflaters = null;
+        }
+    }
+
+    /**
+     * Get a deflating output stream for the given level, which returns its deflater to this pool when closed.
+     *
+     * @param out the stream to write compressed data to
+     * @param level the compression level ({@link Deflater#DEFAULT_COMPRESSION} or 0 through 9)
+     * @return the deflating stream
+     */
+    DeflaterOutputStream getDeflaterOutputStream(final OutputStream out, final int level) {
+        final Deflater deflater = getDeflater(level);
+        return new DeflaterOutputStream(out, deflater) {
+            private boolean done;
+
+            public void close() throws IOException {
+                if (done) return;
+                done = true;
+                try {
+                    super.close();
+                } finally {
+                    release(level, deflater);
+                }
+            }
+        };
+    }
+
+    /**
+     * Get an inflating input stream which returns its inflater to this pool when closed.
+     *
+     * @param in the stream to read compressed data from
+     * @return the inflating stream
+     */
+    InflaterInputStream getInflaterInputStream(final InputStream in) {
+        final Inflater inflater = getInflater();
+        return new InflaterInputStream(in, inflater) {
+            private boolean done;
+
+            public void close() throws IOException {
+                if (done) return;
+                done = true;
+                try {
+                    super.close();
+                } finally {
+                    release(inflater);
+                }
+            }
+        };
+    }
+
+    /**
+     * Get a decompressing input stream for the given codec.
+     *
+     * @param codec the codec identifier
+     * @param in the stream to read compressed data from
+     * @return the decompressing stream
+     * @throws IOException if the codec is not known
+     */
+    InputStream getInputStream(final int codec, final InputStream in) throws IOException {
+        switch (codec) {
+            case Protocol.CODEC_DEFLATE: return getInflaterInputStream(in);
+            case Protocol.CODEC_LZ4: return new LZ4BlockInputStream(in);
+            default: throw Logs.REMOTING.unknownCompressionCodec(codec);
+        }
+    }
+
+    /**
+     * Get a compressing output stream for the given codec.
+     *
+     * @param codec the codec identifier
+     * @param out the stream to write compressed data to
+     * @param level the compression level, if the codec supports levels
+     * @return the compressing stream
+     * @throws IOException if the codec is not known
+     */
+    OutputStream getOutputStream(final int codec, final OutputStream out, final int level) throws IOException {
+        switch (codec) {
+            case Protocol.CODEC_DEFLATE: return getDeflaterOutputStream(out, level);
+            case Protocol.CODEC_LZ4: return new LZ4BlockOutputStream(out);
+            default: throw Logs.REMOTING.unknownCompressionCodec(codec);
+        }
+    }
+
+    Deflater getDeflater(final int level) {
+        final Deflater deflater = deflaters == null || level < -1 || level > 9 ? null : deflaters[level + 1].poll();
+        if (deflater != null) {
+            hits.increment();
+            return deflater;
+        }
+        misses.increment();
+        return new Deflater(level);
+    }
+
+    Inflater getInflater() {
+        final Inflater inflater = inflaters == null ? null : inflaters.poll();
+        if (inflater != null) {
+            hits.increment();
+            return inflater;
+        }
+        misses.increment();
+        return new Inflater();
+    }
+
+    void release(final int level, final Deflater deflater) {
+        if (deflaters == null || closed || level < -1 || level > 9) {
+            deflater.end();
+            discards.increment();
+            return;
+        }
+        deflater.reset();
+        if (! deflaters[level + 1].offer(deflater)) {
+            deflater.end();
+            discards.increment();
+        } else if (closed) {
+            // raced with close()
+            drain();
+        }
+    }
+
+    void release(final Inflater inflater) {
+        if (inflaters == null || closed) {
+            inflater.end();
+            discards.increment();
+            return;
+        }
+        inflater.reset();
+        if (! inflaters.offer(inflater)) {
+            inflater.end();
+            discards.increment();
+        } else if (closed) {
+            // raced with close()
+            drain();
+        }
+    }
+
+    /**
+     * Close this pool, ending all pooled instances.  Instances released after this point are ended immediately.
+     */
+    void close() {
+        closed = true;
+        drain();
+    }
+
+    private void drain() {
+        if (deflaters != null) {
+            for (ArrayBlockingQueue<Deflater> queue : deflaters) {
+                Deflater deflater;
+                while ((deflater = queue.poll()) != null) {
+                    deflater.end();
+                }
+            }
+            Inflater inflater;
+            while ((inflater = inflaters.poll()) != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Get the number of requests which were satisfied by a pooled instance.
+     *
+     * @return the hit count
+     */
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of requests which required a new instance to be created.
+     *
+     * @return the miss count
+     */
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of released instances which were ended instead of being pooled.
+     *
+     * @return the discard count
+     */
+    long getDiscardCount() {
+        return discards.sum();
+    }
+
+    /**
+     * Get the number of instances currently available in this pool.
+     *
+     * @return the pooled instance count
+     */
+    int getPooledCount() {
+        if (deflaters == null) {
+            return 0;
+        }
+        int count = inflaters.size();
+        for (ArrayBlockingQueue<Deflater> queue : deflaters) {
+            count += queue.size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-method compression statistics of a channel.  Besides recording how often and how well each method's messages
+ * were compressed, the statistics decide whether a message is worth compressing at all: once the measured
+ * compression ratio of a method is poor, its messages are sent uncompressed, except for an occasional probe which
+ * keeps the measurement current.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class CompressionStatistics {
+
+    /**
+     * The minimum size of a message, in bytes, before it is compressed.
+     */
+    static final int THRESHOLD = SecurityUtils.getInteger(SystemProperties.COMPRESSION_THRESHOLD, 512);
+
+    /**
+     * The compressed size, in percent of the uncompressed size, above which compression is considered not worthwhile.
+     */
+    static final int MAX_RATIO = SecurityUtils.getInteger(SystemProperties.COMPRESSION_MAX_RATIO, 90);
+
+    // one in this many messages of a method with a poor ratio is compressed anyway, to re-measure
+    private static final int PROBE_INTERVAL = 32;
+
+    private final ConcurrentHashMap<Object, MethodStatistics> methods = new ConcurrentHashMap<>();
+
+    /**
+     * Get the statistics for a method, creating them if needed.
+     *
+     * @param key the method key
+     * @return the method statistics
+     */
+    MethodStatistics get(final Object key) {
+        final MethodStatistics statistics = methods.get(key);
+        return statistics != null ? statistics : methods.computeIfAbsent(key, ignored -> new MethodStatistics());
+    }
+
+    /**
+     * Get a read-only view of the statistics of every method seen so far.
+     *
+     * @return the statistics by method key
+     */
+    Map<Object, MethodStatistics> getMethodStatistics() {
+        return Collections.unmodifiableMap(methods);
+    }
+
+    static final class MethodStatistics {
+        private final LongAdder compressed = new LongAdder();
+        private final LongAdder skippedSmall = new LongAdder();
+        private final LongAdder skippedRatio = new LongAdder();
+        private final LongAdder uncompressedBytes = new LongAdder();
+        private final LongAdder compressedBytes = new LongAdder();
+        private final AtomicInteger skipCount = new AtomicInteger();
+        // moving average of the compressed size in percent of the uncompressed size, or -1 if not yet measured
+        private volatile int ratio = -1;
+
+        MethodStatistics() {
+        }
+
+        /**
+         * Determine whether the next message of this method should be compressed, based on the measured ratio.
+         *
+         * @return {@code true} to compress, {@code false} to send the message uncompressed
+         */
+        boolean shouldCompress() {
+            final int ratio = this.ratio;
+            if (ratio <= MAX_RATIO || skipCount.incrementAndGet() % PROBE_INTERVAL == 0) {
+                return true;
+            }
+            skippedRatio.increment();
+            return false;
+        }
+
+        void recordCompressed(final long uncompressedSize, final long compressedSize) {
+            compressed.increment();
+            uncompressedBytes.add(uncompressedSize);
+            compressedBytes.add(compressedSize);
+            final int sample = uncompressedSize == 0 ? 100 : (int) Math.min(100L * compressedSize / uncompressedSize, 1000L);
+            final int old = ratio;
+            ratio = old < 0 ? sample : (old * 3 + sample) >> 2;
+        }
+
+        void recordBelowThreshold() {
+            skippedSmall.increment();
+        }
+
+        /**
+         * Get the number of compressed messages.
+         *
+         * @return the number of compressed messages
+         */
+        long getCompressedCount() {
+            return compressed.sum();
+        }
+
+        /**
+         * Get the number of messages sent uncompressed because they were smaller than the threshold.
+         *
+         * @return the number of small messages
+         */
+        long getBelowThresholdCount() {
+            return skippedSmall.sum();
+        }
+
+        /**
+         * Get the number of messages sent uncompressed because of a poor compression ratio.
+         *
+         * @return the number of poorly compressible messages
+         */
+        long getPoorRatioCount() {
+            return skippedRatio.sum();
+        }
+
+        /**
+         * Get the total uncompressed size of the compressed messages.
+         *
+         * @return the uncompressed size in bytes
+         */
+        long getUncompressedBytes() {
+            return uncompressedBytes.sum();
+        }
+
+        /**
+         * Get the total compressed size of the compressed messages.
+         *
+         * @return the compressed size in bytes
+         */
+        long getCompressedBytes() {
+            return compressedBytes.sum();
+        }
+
+        /**
+         * Get the recent compression ratio.
+         *
+         * @return the compressed size in percent of the uncompressed size, or -1 if nothing was compressed yet
+         */
+        int getRatio() {
+            return ratio;
+        }
+    }
+}
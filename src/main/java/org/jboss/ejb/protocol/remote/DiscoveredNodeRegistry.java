@@ -21,6 +21,8 @@ package org.jboss.ejb.protocol.remote;
 import java.net.URI;
 import java.util.List;
 
+import org.jboss.ejb.client.EJBModuleIdentifier;
+
 /**
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
@@ -35,4 +37,13 @@ interface DiscoveredNodeRegistry {
     void removeNode(String clusterName, String nodeName);
 
     void removeCluster(String clusterName);
+
+    /**
+     * Indicate that the services which discovery would report changed, so that cached discovery results are dropped.
+     */
+    void servicesChanged();
+
+    void moduleAvailable(EJBModuleIdentifier module, NodeInformation nodeInformation);
+
+    void moduleUnavailable(EJBModuleIdentifier module, NodeInformation nodeInformation);
 }
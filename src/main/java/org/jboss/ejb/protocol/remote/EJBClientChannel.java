@@ -18,6 +18,7 @@
 
 package org.jboss.ejb.protocol.remote;
 
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static org.jboss.ejb.protocol.remote.TCCLUtils.getAndSetSafeTCCL;
 import static org.jboss.ejb.protocol.remote.TCCLUtils.resetTCCL;
@@ -25,31 +26,44 @@ import static org.xnio.Bits.allAreClear;
 import static org.xnio.Bits.allAreSet;
 import static org.xnio.IoUtils.safeClose;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.InvalidObjectException;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.ejb.CreateException;
 import javax.ejb.EJBException;
@@ -74,6 +88,7 @@ import org.jboss.ejb.client.EJBLocator;
 import org.jboss.ejb.client.EJBModuleIdentifier;
 import org.jboss.ejb.client.EJBReceiverInvocationContext;
 import org.jboss.ejb.client.EJBSessionCreationInvocationContext;
+import org.jboss.ejb.client.InvocationBatch;
 import org.jboss.ejb.client.NodeAffinity;
 import org.jboss.ejb.client.RequestSendFailedException;
 import org.jboss.ejb.client.SessionID;
@@ -82,6 +97,7 @@ import org.jboss.ejb.client.StatelessEJBLocator;
 import org.jboss.ejb.client.TransactionID;
 import org.jboss.ejb.client.UserTransactionID;
 import org.jboss.ejb.client.XidTransactionID;
+import org.jboss.ejb.client.annotation.CompressionHint;
 import org.jboss.marshalling.ByteInput;
 import org.jboss.marshalling.Marshaller;
 import org.jboss.marshalling.MarshallerFactory;
@@ -114,6 +130,7 @@ import org.wildfly.transaction.client.provider.remoting.SimpleIdResolver;
 import org.xnio.Cancellable;
 import org.xnio.FutureResult;
 import org.xnio.IoFuture;
+import org.xnio.XnioWorker;
 
 /**
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
@@ -123,7 +140,15 @@ import org.xnio.IoFuture;
 @SuppressWarnings("deprecation")
 class EJBClientChannel {
 
-    private final MarshallerFactory marshallerFactory;
+    // the number of chunks of a streamed result which the server may send ahead of the consumer
+    static final int WINDOW = Math.max(1, SecurityUtils.getInteger(SystemProperties.RESULT_STREAM_WINDOW, 4));
+    private static final Object[] NO_ELEMENTS = new Object[0];
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final MarshallerPool marshallerPool;
+    private final CompressionPool compressionPool = new CompressionPool();
+    private final CompressionStatistics compressionStatistics = new CompressionStatistics();
+    private final InterningObjectTable objectTable;
 
     private final Channel channel;
     private final int version;
@@ -131,11 +156,14 @@ class EJBClientChannel {
 
     private final InvocationTracker invocationTracker;
 
-    private final MarshallingConfiguration configuration;
     private final IntIndexMap<UserTransactionID> userTxnIds = new IntIndexHashMap<UserTransactionID>(UserTransactionID::getId);
 
     private final RemoteTransactionContext transactionContext;
     private final AtomicInteger finishedParts = new AtomicInteger(0);
+    private final AtomicInteger outstandingInvocations = new AtomicInteger(0);
+    private final AtomicInteger invocationMessages = new AtomicInteger(0);
+    private final AttachmentKey<PendingBatch> pendingBatchKey = new AttachmentKey<>();
+    private final ConcurrentHashMap<Integer, ResultStreamReader> resultStreams = new ConcurrentHashMap<>();
     private final AtomicReference<FutureResult<EJBClientChannel>> futureResultRef;
 
     private final RetryExecutorWrapper retryExecutorWrapper;
@@ -145,7 +173,7 @@ class EJBClientChannel {
         this.version = version;
         this.discoveredNodeRegistry = discoveredNodeRegistry;
         this.retryExecutorWrapper = retryExecutorWrapper;
-        marshallerFactory = Marshalling.getProvidedMarshallerFactory("river");
+        final MarshallerFactory marshallerFactory = Marshalling.getProvidedMarshallerFactory("river");
         MarshallingConfiguration configuration = new MarshallingConfiguration();
         configuration.setClassResolver(ProtocolClassResolver.INSTANCE);
         final Connection connection = channel.getConnection();
@@ -157,27 +185,58 @@ class EJBClientChannel {
             configuration.setVersion(2);
             // Do not wait for cluster topology report.
             finishedParts.set(0b10);
+            objectTable = null;
         } else {
-            configuration.setObjectTable(ProtocolV3ObjectTable.INSTANCE);
+            if (version >= 4) {
+                // intern EJB identifiers and method locators for this connection
+                objectTable = new InterningObjectTable(InterningObjectTable.DEFAULT_LIMIT);
+                configuration.setObjectTable(objectTable);
+            } else {
+                objectTable = null;
+                configuration.setObjectTable(ProtocolV3ObjectTable.INSTANCE);
+            }
             configuration.setObjectResolver(new ProtocolV3ObjectResolver(connection, true));
             configuration.setVersion(4);
             // server does not present v3 unless the transaction service is also present
         }
         transactionContext = RemoteTransactionContext.getInstance();
-        this.configuration = configuration;
-        invocationTracker = new InvocationTracker(this.channel, channel.getOption(RemotingOptions.MAX_OUTBOUND_MESSAGES).intValue(), EJBClientChannel::mask);
+        marshallerPool = new MarshallerPool(marshallerFactory, configuration);
+        invocationTracker = new InvocationTracker(this.channel, channel.getOption(RemotingOptions.MAX_OUTBOUND_MESSAGES).intValue(), version < 4 ? EJBClientChannel::mask : EJBClientChannel::maskV4);
         futureResultRef = new AtomicReference<>(futureResult);
         final String nodeName = connection.getRemoteEndpointName();
         final NodeInformation nodeInformation = discoveredNodeRegistry.getNodeInformation(nodeName);
         nodeInformation.addAddress(this);
         nodeInformation.setInvalid(false);
-        channel.addCloseHandler((ignored1, ignored2) -> nodeInformation.removeConnection(this));
+        channel.addCloseHandler((ignored1, ignored2) -> {
+            nodeInformation.removeConnection(this);
+            compressionPool.close();
+            for (ResultStreamReader resultStream : resultStreams.values()) {
+                resultStream.channelClosed(new ClosedChannelException());
+            }
+        });
     }
 
     static int mask(int original) {
         return original & 0xffff;
     }
 
+    // protocol 4 and up use packed invocation IDs; keep them within three bytes on the wire
+    static int maskV4(int original) {
+        return original & 0x1f_ffff;
+    }
+
+    int readInvocationId(final DataInput input) throws IOException {
+        return version < 4 ? input.readUnsignedShort() : PackedInteger.readPackedInteger(input);
+    }
+
+    void writeInvocationId(final DataOutput output, final int invId) throws IOException {
+        if (version < 4) {
+            output.writeShort(invId);
+        } else {
+            PackedInteger.writePackedInteger(output, invId);
+        }
+    }
+
     private void processMessage(final MessageInputStream message) {
         boolean leaveOpen = false;
         try {
@@ -195,18 +254,29 @@ class EJBClientChannel {
                 case Protocol.SESSION_NOT_ACTIVE:
                 case Protocol.EJB_NOT_STATEFUL:
                 case Protocol.BAD_VIEW_TYPE:
+                case Protocol.SERVER_BUSY:
                 case Protocol.PROCEED_ASYNC_RESPONSE:{
-                    final int invId = message.readUnsignedShort();
+                    final int invId = readInvocationId(message);
                     leaveOpen = invocationTracker.signalResponse(invId, msg, message, false);
                     break;
                 }
-                case Protocol.COMPRESSED_INVOCATION_MESSAGE: {
-                    DataInputStream inputStream = new DataInputStream(new InflaterInputStream(message));
+                case Protocol.COMPRESSED_INVOCATION_MESSAGE:
+                case Protocol.CODEC_COMPRESSED_INVOCATION_MESSAGE: {
+                    final int codec = msg == Protocol.COMPRESSED_INVOCATION_MESSAGE ? Protocol.CODEC_DEFLATE : message.readUnsignedByte();
+                    DataInputStream inputStream = new DataInputStream(compressionPool.getInputStream(codec, message));
                     final int realMessageId = inputStream.readByte();
-                    final int invId = inputStream.readUnsignedShort();
+                    final int invId = readInvocationId(inputStream);
                     leaveOpen = invocationTracker.signalResponse(invId, realMessageId, new ResponseMessageInputStream(inputStream, invId), false);
                     break;
                 }
+                case Protocol.RESULT_STREAM_CHUNK: {
+                    final int invId = readInvocationId(message);
+                    final ResultStreamReader resultStream = resultStreams.get(Integer.valueOf(invId));
+                    if (resultStream != null) {
+                        resultStream.chunkArrived(message.readUnsignedByte(), message);
+                    }
+                    break;
+                }
                 case Protocol.MODULE_AVAILABLE: {
                     int count = PackedInteger.readPackedInteger(message);
                     final NodeInformation nodeInformation = discoveredNodeRegistry.getNodeInformation(getChannel().getConnection().getRemoteEndpointName());
@@ -331,6 +401,7 @@ class EJBClientChannel {
 
     public void processInvocation(final EJBReceiverInvocationContext receiverContext, final ConnectionPeerIdentity peerIdentity) {
         MethodInvocation invocation = invocationTracker.addInvocation(id -> new MethodInvocation(id, receiverContext));
+        outstandingInvocations.incrementAndGet();
         final EJBClientInvocationContext invocationContext = receiverContext.getClientInvocationContext();
         invocationContext.putAttachment(INV_KEY, invocation);
         final EJBLocator<?> locator = invocationContext.getLocator();
@@ -340,18 +411,25 @@ class EJBClientChannel {
         } else {
             peerIdentityId = 0; // unused
         }
-        try (MessageOutputStream underlying = invocationTracker.allocateMessage()) {
+        // V4: a request of a batch is held back, and sent together with the rest of the batch
+        final InvocationBatch batch = version >= 4 ? invocationContext.getBatch() : null;
+        try (MessageOutputStream underlying = batch == null ? allocateInvocationMessage() : new BatchedRequest(batch, invocation, receiverContext, peerIdentity)) {
             MessageOutputStream out = handleCompression(invocationContext, underlying);
+            final Marshaller marshaller = getMarshaller();
             try {
                 out.write(Protocol.INVOCATION_REQUEST);
-                out.writeShort(invocation.getIndex());
-
-                Marshaller marshaller = getMarshaller();
-                marshaller.start(new NoFlushByteOutput(Marshalling.createByteOutput(out)));
+                writeInvocationId(out, invocation.getIndex());
 
                 final Method invokedMethod = invocationContext.getInvokedMethod();
                 final Object[] parameters = invocationContext.getParameters();
 
+                if (version >= 4) {
+                    // V4: large binary parameters go straight onto the message, ahead of the marshalled part
+                    RawSegments.writeParameters(out, parameters);
+                }
+
+                marshaller.start(new NoFlushByteOutput(Marshalling.createByteOutput(out)));
+
                 if (version < 3) {
                     // method name as UTF string
                     out.writeUTF(invokedMethod.getName());
@@ -375,16 +453,24 @@ class EJBClientChannel {
                     // write sec context
                     marshaller.writeInt(peerIdentityId);
 
+                    if (version >= 4) {
+                        // V4: write the remaining time before the invocation times out, so the peer can drop it if it expires
+                        PackedInteger.writePackedInteger(marshaller, getRemainingTimeout(invocationContext));
+                    }
+
                     // write weak affinity
                     marshaller.writeObject(invocationContext.getWeakAffinity());
 
+                    // V4: accept a streamed result only if the method is declared to return exactly one of the streamable types
+                    int flags = version >= 4 ? streamKindOf(invokedMethod.getReturnType()) + 1 << Protocol.STREAM_RESULT_KIND_SHIFT : 0;
+
                     // write response compression info
                     if (invocationContext.isCompressResponse()) {
                         int compressionLevel = invocationContext.getCompressionLevel() > 0 ? invocationContext.getCompressionLevel() : 9;
-                        marshaller.writeByte(compressionLevel);
-                    } else {
-                        marshaller.writeByte(0);
+                        // V4: the codec to use for the response shares the flags byte
+                        flags |= compressionLevel | getCompressionCodec(invocationContext) << Protocol.COMPRESS_RESPONSE_CODEC_SHIFT;
                     }
+                    marshaller.writeByte(flags);
 
                     // write txn context
                     invocation.setOutflowHandle(writeTransaction(invocationContext.getTransaction(), marshaller, invocationContext.getAuthenticationContext()));
@@ -395,7 +481,8 @@ class EJBClientChannel {
                 // and the parameters
                 if (parameters != null && parameters.length > 0) {
                     for (final Object methodParam : parameters) {
-                        marshaller.writeObject(methodParam);
+                        // raw parameters were already written
+                        marshaller.writeObject(version >= 4 && RawSegments.isRaw(methodParam) ? null : methodParam);
                     }
                 }
 
@@ -482,6 +569,7 @@ class EJBClientChannel {
 
                 // finished
                 marshaller.finish();
+                marshallerPool.release(marshaller);
             } catch (IOException e) {
                 underlying.cancel();
                 throw e;
@@ -489,13 +577,37 @@ class EJBClientChannel {
                 out.close();
             }
         } catch (IOException e) {
+            // no response will ever arrive for this invocation
+            invocation.free();
             receiverContext.requestFailed(new RequestSendFailedException(e.getMessage() + " @ " + peerIdentity.getConnection().getPeerURI(), e, true), getRetryExecutor(receiverContext) );
         } catch (RollbackException | SystemException | RuntimeException e) {
+            invocation.free();
             receiverContext.requestFailed(new EJBException(e.getMessage(), e), getRetryExecutor(receiverContext));
             return;
         }
     }
 
+    private MessageOutputStream allocateInvocationMessage() throws IOException {
+        invocationMessages.incrementAndGet();
+        return invocationTracker.allocateMessage();
+    }
+
+    private PendingBatch getPendingBatch(final InvocationBatch batch) {
+        PendingBatch pendingBatch = batch.getAttachment(pendingBatchKey);
+        if (pendingBatch == null) {
+            pendingBatch = new PendingBatch();
+            final PendingBatch appearing = batch.putAttachmentIfAbsent(pendingBatchKey, pendingBatch);
+            if (appearing != null) {
+                return appearing;
+            }
+            if (! batch.addCompletionAction(pendingBatch::send)) {
+                // the batch completed meanwhile; nothing may be held back anymore
+                pendingBatch.send();
+            }
+        }
+        return pendingBatch;
+    }
+
     /**
      * Wraps the {@link MessageOutputStream message output stream} into a relevant {@link DataOutputStream}, taking into account various factors like the necessity to
      * compress the data that gets passed along the stream
@@ -533,16 +645,19 @@ class EJBClientChannel {
 
         // create a compressed invocation data *only* if the request has to be compressed (note, it's perfectly valid for certain methods to just specify that only the response is compressed)
         if (invocationContext.isCompressRequest()) {
-            // write out the header indicating that it's a compressed stream
-            messageOutputStream.write(Protocol.COMPRESSED_INVOCATION_MESSAGE);
-            // create the deflater using the specified level
-            final Deflater deflater = new Deflater(compressionLevel);
-            // wrap the message outputstream with the deflater stream so that *any subsequent* data writes to the stream are compressed
-            final DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(messageOutputStream, deflater);
+            final CompressionStatistics.MethodStatistics statistics = compressionStatistics.get(invocationContext.getInvokedMethod());
+            if (! statistics.shouldCompress()) {
+                if (Logs.REMOTING.isTraceEnabled()) {
+                    Logs.REMOTING.trace("Not compressing request data for EJB invocation on method " + invocationContext.getInvokedMethod() + " due to poor compression ratio of " + statistics.getRatio() + "%");
+                }
+                return messageOutputStream;
+            }
+            final int codec = getCompressionCodec(invocationContext);
+            // wrap the message outputstream with a stream which switches to compressed framing once the request is larger than the threshold
             if (Logs.REMOTING.isTraceEnabled()) {
-                Logs.REMOTING.trace("Using a compressing stream with compression level = " + compressionLevel + " for request data for EJB invocation on method " + invocationContext.getInvokedMethod());
+                Logs.REMOTING.trace("Using a compressing stream with codec = " + codec + ", compression level = " + compressionLevel + " for request data for EJB invocation on method " + invocationContext.getInvokedMethod());
             }
-            return new WrapperMessageOutputStream(messageOutputStream, deflaterOutputStream);
+            return new AdaptiveCompressionOutputStream(messageOutputStream, compressionPool, codec, compressionLevel, CompressionStatistics.THRESHOLD, statistics);
         } else {
             // just return a normal DataOutputStream without any compression
             return messageOutputStream;
@@ -550,6 +665,53 @@ class EJBClientChannel {
 
     }
 
+    /**
+     * Get the remaining invocation timeout to send to the peer.
+     *
+     * @param invocationContext the EJB client invocation context
+     * @return the remaining time in milliseconds, or 0 if the invocation has no timeout
+     */
+    private static int getRemainingTimeout(final EJBClientInvocationContext invocationContext) {
+        final long remaining = invocationContext.getRemainingInvocationTime(TimeUnit.MILLISECONDS);
+        if (remaining == Long.MAX_VALUE) {
+            // no timeout
+            return 0;
+        }
+        // an already expired invocation is still sent, but with the smallest possible deadline
+        return (int) max(1L, min(remaining, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Get the kind of streamed result which a method may receive.  Only a method declared to return exactly
+     * {@code Iterator}, {@code Stream} or {@code InputStream} accepts a streamed result; a subtype could not be
+     * represented by the lazy view which is returned in its place.
+     *
+     * @param returnType the declared return type of the method
+     * @return the stream kind, or -1 if the result must not be streamed
+     */
+    static int streamKindOf(final Class<?> returnType) {
+        if (returnType == Iterator.class) {
+            return Protocol.STREAM_KIND_ITERATOR;
+        } else if (returnType == Stream.class) {
+            return Protocol.STREAM_KIND_STREAM;
+        } else if (returnType == InputStream.class) {
+            return Protocol.STREAM_KIND_INPUT_STREAM;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the wire identifier of the compression codec to use for the given invocation.  Codecs other than DEFLATE
+     * require protocol version 4.
+     *
+     * @param invocationContext the EJB client invocation context
+     * @return the codec identifier
+     */
+    private int getCompressionCodec(final EJBClientInvocationContext invocationContext) {
+        return version >= 4 && invocationContext.getCompressionCodec() == CompressionHint.Codec.LZ4 ? Protocol.CODEC_LZ4 : Protocol.CODEC_DEFLATE;
+    }
+
     private TransactionID calculateTransactionId(final Transaction transaction) throws RollbackException, SystemException, InvalidTransactionException {
         final URI location = channel.getConnection().getPeerURI();
         Assert.assertNotNull(transaction);
@@ -650,7 +812,7 @@ class EJBClientChannel {
             final int index = invocation.getIndex();
             try (MessageOutputStream out = invocationTracker.allocateMessage()) {
                 out.write(Protocol.CANCEL_REQUEST);
-                out.writeShort(index);
+                writeInvocationId(out, index);
                 if (version >= 3) {
                     out.writeBoolean(cancelIfRunning);
                 }
@@ -663,14 +825,14 @@ class EJBClientChannel {
     }
 
     private Marshaller getMarshaller() throws IOException {
-        return marshallerFactory.createMarshaller(configuration);
+        return marshallerPool.getMarshaller();
     }
 
     public <T> StatefulEJBLocator<T> openSession(final StatelessEJBLocator<T> statelessLocator, final ConnectionPeerIdentity identity, EJBSessionCreationInvocationContext clientInvocationContext) throws Exception {
         SessionOpenInvocation<T> invocation = invocationTracker.addInvocation(id -> new SessionOpenInvocation<>(id, statelessLocator, clientInvocationContext));
         try (MessageOutputStream out = invocationTracker.allocateMessage()) {
             out.write(Protocol.OPEN_SESSION_REQUEST);
-            out.writeShort(invocation.getIndex());
+            writeInvocationId(out, invocation.getIndex());
             writeRawIdentifier(statelessLocator, out);
             if (version >= 3) {
                 out.writeInt(identity.getId());
@@ -720,7 +882,7 @@ class EJBClientChannel {
                 final ClassLoader oldCL = getAndSetSafeTCCL();
                 // receive message body
                 try {
-                    final int version = min(3, StreamUtils.readInt8(message));
+                    final int version = min(Protocol.LATEST_VERSION, StreamUtils.readInt8(message));
                     // drain the rest of the message because it's just garbage really
                     while (message.read() != -1) {
                         message.skip(Long.MAX_VALUE);
@@ -786,6 +948,24 @@ class EJBClientChannel {
         return invocationTracker;
     }
 
+    /**
+     * Get the number of method invocations sent over this channel which have not yet completed.
+     *
+     * @return the number of outstanding invocations
+     */
+    int getOutstandingInvocations() {
+        return outstandingInvocations.get();
+    }
+
+    /**
+     * Get the number of messages carrying method invocation requests which were sent over this channel.
+     *
+     * @return the number of invocation request messages
+     */
+    int getInvocationMessages() {
+        return invocationMessages.get();
+    }
+
     /**
      * Glue two stack traces together.
      *
@@ -856,12 +1036,14 @@ class EJBClientChannel {
                         int size = PackedInteger.readPackedInteger(response);
                         byte[] bytes = new byte[size];
                         response.readFully(bytes);
-                        // todo: pool unmarshallers?  use very small instance count config?
                         if (1 <= version && version <= 2) {
-                            try (final Unmarshaller unmarshaller = createUnmarshaller()) {
+                            final Unmarshaller unmarshaller = createUnmarshaller();
+                            try {
                                 unmarshaller.start(response);
                                 affinity = unmarshaller.readObject(Affinity.class);
                                 unmarshaller.finish();
+                            } finally {
+                                releaseUnmarshaller(unmarshaller);
                             }
                         } else {
                             affinity = statelessLocator.getAffinity();
@@ -921,7 +1103,8 @@ class EJBClientChannel {
                                 }
                             }
                         }
-                        try (final Unmarshaller unmarshaller = createUnmarshaller()) {
+                        final Unmarshaller unmarshaller = createUnmarshaller();
+                        try {
                             unmarshaller.start(response);
                             e = unmarshaller.readObject(Exception.class);
                             unmarshaller.finish();
@@ -931,6 +1114,8 @@ class EJBClientChannel {
                                     response.skip(Long.MAX_VALUE);
                                 }
                             }
+                        } finally {
+                            releaseUnmarshaller(unmarshaller);
                         }
                         glueStackTraces(e, Thread.currentThread().getStackTrace(), 1, "asynchronous invocation");
                         break;
@@ -1016,7 +1201,27 @@ class EJBClientChannel {
     }
 
     Unmarshaller createUnmarshaller() throws IOException {
-        return marshallerFactory.createUnmarshaller(configuration);
+        return marshallerPool.getUnmarshaller();
+    }
+
+    void releaseUnmarshaller(final Unmarshaller unmarshaller) {
+        marshallerPool.release(unmarshaller);
+    }
+
+    MarshallerPool getMarshallerPool() {
+        return marshallerPool;
+    }
+
+    CompressionPool getCompressionPool() {
+        return compressionPool;
+    }
+
+    CompressionStatistics getCompressionStatistics() {
+        return compressionStatistics;
+    }
+
+    InterningObjectTable getObjectTable() {
+        return objectTable;
     }
 
     Channel getChannel() {
@@ -1073,6 +1278,124 @@ class EJBClientChannel {
         }
     }
 
+    /**
+     * A request of an invocation batch, buffered until the batch completes.  The request is handed to the pending
+     * batch of this channel when it is closed, unless it was cancelled.
+     */
+    final class BatchedRequest extends MessageOutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final InvocationBatch batch;
+        private final MethodInvocation invocation;
+        private final EJBReceiverInvocationContext receiverContext;
+        private final ConnectionPeerIdentity peerIdentity;
+        private boolean done;
+
+        BatchedRequest(final InvocationBatch batch, final MethodInvocation invocation, final EJBReceiverInvocationContext receiverContext, final ConnectionPeerIdentity peerIdentity) {
+            this.batch = batch;
+            this.invocation = invocation;
+            this.receiverContext = receiverContext;
+            this.peerIdentity = peerIdentity;
+        }
+
+        public void write(final int b) {
+            bytes.write(b);
+        }
+
+        public void write(final byte[] b, final int off, final int len) {
+            bytes.write(b, off, len);
+        }
+
+        public void flush() {
+        }
+
+        public void close() throws IOException {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (! getPendingBatch(batch).add(this)) {
+                // the batch was already sent
+                try (MessageOutputStream out = allocateInvocationMessage()) {
+                    try {
+                        writeTo(out);
+                    } catch (IOException e) {
+                        out.cancel();
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        public MessageOutputStream cancel() {
+            done = true;
+            return this;
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        void writeTo(final MessageOutputStream out) throws IOException {
+            bytes.writeTo(out);
+        }
+
+        void sendFailed(final IOException e) {
+            // no response will ever arrive for this invocation
+            invocation.free();
+            receiverContext.requestFailed(new RequestSendFailedException(e.getMessage() + " @ " + peerIdentity.getConnection().getPeerURI(), e, true), getRetryExecutor(receiverContext));
+        }
+    }
+
+    /**
+     * The requests of an invocation batch which are held back for this channel.  They are sent as a single
+     * {@link Protocol#INVOCATION_BATCH} message when the batch completes.
+     */
+    final class PendingBatch {
+        private final List<BatchedRequest> requests = new ArrayList<>();
+        private boolean sent;
+
+        synchronized boolean add(final BatchedRequest request) {
+            if (sent) {
+                return false;
+            }
+            requests.add(request);
+            return true;
+        }
+
+        void send() {
+            final BatchedRequest[] toSend;
+            synchronized (this) {
+                sent = true;
+                toSend = requests.toArray(new BatchedRequest[requests.size()]);
+                requests.clear();
+            }
+            if (toSend.length == 0) {
+                return;
+            }
+            try (MessageOutputStream out = allocateInvocationMessage()) {
+                try {
+                    if (toSend.length == 1) {
+                        toSend[0].writeTo(out);
+                    } else {
+                        out.writeByte(Protocol.INVOCATION_BATCH);
+                        PackedInteger.writePackedInteger(out, toSend.length);
+                        for (BatchedRequest request : toSend) {
+                            PackedInteger.writePackedInteger(out, request.size());
+                            request.writeTo(out);
+                        }
+                    }
+                } catch (IOException e) {
+                    out.cancel();
+                    throw e;
+                }
+            } catch (IOException e) {
+                for (BatchedRequest request : toSend) {
+                    request.sendFailed(e);
+                }
+            }
+        }
+    }
+
     final class MethodInvocation extends Invocation {
         private final EJBReceiverInvocationContext receiverInvocationContext;
         private final AtomicInteger refCounter = new AtomicInteger(1);
@@ -1100,6 +1423,7 @@ class EJBClientChannel {
             final int newVal = refCounter.decrementAndGet();
             if (newVal == 0) {
                 invocationTracker.remove(this);
+                outstandingInvocations.decrementAndGet();
             }
         }
 
@@ -1111,8 +1435,14 @@ class EJBClientChannel {
         private void handleResponse(final int id, final DataInputStream inputStream) {
             switch (id) {
                 case Protocol.INVOCATION_RESPONSE: {
-                    free();
                     final EJBClientInvocationContext context = receiverInvocationContext.getClientInvocationContext();
+                    if (objectTable != null) {
+                        // the peer has read the request, including any interned definitions
+                        objectTable.confirm(context.getLocator().getIdentifier());
+                        objectTable.confirm(context.getMethodLocator());
+                    }
+                    boolean rawResult = false;
+                    ResultStreamReader resultStream = null;
                     if (version >= 3) try {
                         final int cmd = inputStream.readUnsignedByte();
                         final XAOutflowHandle outflowHandle = getOutflowHandle();
@@ -1156,13 +1486,29 @@ class EJBClientChannel {
                                 Logs.INVOCATION.debugf("EJBClientChannel.handleResponse: updated strong affinity = %s", context.getLocator().getAffinity());
                             }
                         }
+                        if (allAreSet(updateBits, Protocol.UPDATE_BIT_LOAD)) {
+                            receiverInvocationContext.nodeLoadReported(channel.getConnection().getRemoteEndpointName(), PackedInteger.readPackedInteger(inputStream));
+                        }
+                        rawResult = allAreSet(updateBits, Protocol.UPDATE_BIT_RAW_RESULT);
+                        if (allAreSet(updateBits, Protocol.UPDATE_BIT_STREAMED_RESULT)) {
+                            // the invocation ID stays in use until the stream ends
+                            resultStream = new ResultStreamReader(this, inputStream.readUnsignedByte());
+                            resultStreams.put(Integer.valueOf(getIndex()), resultStream);
+                        }
                     } catch (RuntimeException | IOException | RollbackException | SystemException e) {
+                        if (resultStream != null) {
+                            resultStream.close();
+                        }
+                        free();
                         receiverInvocationContext.requestFailed(new EJBException(e), getRetryExecutor(receiverInvocationContext) );
                         safeClose(inputStream);
                         break;
                     }
                     final NamingProvider provider = context.getProxyAttachment(Keys.NAMING_PROVIDER_ATTACHMENT_KEY);
-                    receiverInvocationContext.resultReady(new MethodCallResultProducer(provider, inputStream, id));
+                    if (resultStream == null) {
+                        free();
+                    }
+                    receiverInvocationContext.resultReady(new MethodCallResultProducer(provider, inputStream, id, rawResult, resultStream));
                     break;
                 }
                 case Protocol.CANCEL_RESPONSE: {
@@ -1199,6 +1545,19 @@ class EJBClientChannel {
                     }
                     break;
                 }
+                case Protocol.SERVER_BUSY: {
+                    free();
+                    try {
+                        final XAOutflowHandle outflowHandle = getOutflowHandle();
+                        if (outflowHandle != null) outflowHandle.forgetEnlistment();
+                        disassociateRemoteTxIfPossible(receiverInvocationContext.getClientInvocationContext());
+                        // the request was not processed, so it may be retried on another node
+                        receiverInvocationContext.requestFailed(new RequestSendFailedException(Logs.REMOTING.remoteMessageServerBusy() + " @ " + getChannel().getConnection().getPeerURI(), true), getRetryExecutor(receiverInvocationContext));
+                    } finally {
+                        safeClose(inputStream);
+                    }
+                    break;
+                }
                 case Protocol.BAD_VIEW_TYPE: {
                     free();
                     try {
@@ -1304,11 +1663,15 @@ class EJBClientChannel {
             private final NamingProvider namingProvider;
             private final InputStream inputStream;
             private final int id;
+            private final boolean rawResult;
+            private final ResultStreamReader resultStream;
 
-            MethodCallResultProducer(final NamingProvider provider, final InputStream inputStream, final int id) {
+            MethodCallResultProducer(final NamingProvider provider, final InputStream inputStream, final int id, final boolean rawResult, final ResultStreamReader resultStream) {
                 namingProvider = provider;
                 this.inputStream = inputStream;
                 this.id = id;
+                this.rawResult = rawResult;
+                this.resultStream = resultStream;
             }
 
             public Object apply(final Void ignored0, final Void ignored1) throws Exception {
@@ -1319,9 +1682,19 @@ class EJBClientChannel {
                     response = new ResponseMessageInputStream(inputStream, id);
                 }
                 Object result;
-                try (final Unmarshaller unmarshaller = createUnmarshaller()) {
+                Unmarshaller unmarshaller = null;
+                try {
+                    // V4: a raw result precedes the marshalled part of the response
+                    final Object raw = rawResult ? RawSegments.readValue(new DataInputStream(response)) : null;
+                    unmarshaller = createUnmarshaller();
                     unmarshaller.start(response);
                     result = unmarshaller.readObject();
+                    if (rawResult) {
+                        result = raw;
+                    } else if (resultStream != null) {
+                        // V4: the elements follow in chunks, which are read as the caller consumes the result
+                        result = resultStream.getView();
+                    }
                     int attachments = unmarshaller.readUnsignedByte();
                     final EJBClientInvocationContext clientInvocationContext = receiverInvocationContext.getClientInvocationContext();
                     for (int i = 0; i < attachments; i ++) {
@@ -1346,6 +1719,12 @@ class EJBClientChannel {
                 } catch (IOException | ClassNotFoundException ex) {
                     discardResult();
                     throw new EJBException("Failed to read response", ex);
+                } catch (RuntimeException ex) {
+                    // the streamed result must not be left to the server's idle timeout
+                    discardResult();
+                    throw ex;
+                } finally {
+                    releaseUnmarshaller(unmarshaller);
                 }
                 return result;
             }
@@ -1360,6 +1739,9 @@ class EJBClientChannel {
 
             public void discardResult() {
                 safeClose(inputStream);
+                if (resultStream != null) {
+                    resultStream.close();
+                }
             }
         }
 
@@ -1393,7 +1775,8 @@ class EJBClientChannel {
                             }
                         }
                     }
-                    try (final Unmarshaller unmarshaller = createUnmarshaller()) {
+                    final Unmarshaller unmarshaller = createUnmarshaller();
+                    try {
                         unmarshaller.start(response);
                         e = unmarshaller.readObject(Exception.class);
                         if (version < 3) {
@@ -1405,6 +1788,8 @@ class EJBClientChannel {
                             }
                         }
                         unmarshaller.finish();
+                    } finally {
+                        releaseUnmarshaller(unmarshaller);
                     }
                 } catch (IOException | ClassNotFoundException ex) {
                     discardResult();
@@ -1423,6 +1808,367 @@ class EJBClientChannel {
         }
     }
 
+    /**
+     * The client side of a streamed invocation result.  Chunks are copied and queued as they arrive and read by the
+     * thread which consumes the result.  The server may only send a chunk for which it was granted credit; the initial
+     * window is granted when the result is first read, and one more chunk each time a chunk is taken from the queue.
+     * The invocation ID is only released once the stream has ended and no credit for it is still being sent, so that
+     * a credit can never reach a later invocation which reuses the ID.
+     */
+    final class ResultStreamReader {
+        private final MethodInvocation invocation;
+        private final int kind;
+
+        // all guarded by this
+        private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+        private boolean started;
+        private boolean ended;
+        private boolean closed;
+        private boolean released;
+        private int sending;
+        private IOException failure;
+
+        // only accessed by the consuming thread
+        private boolean finished;
+        private Object[] elements = NO_ELEMENTS;
+        private int elementCount;
+        private int elementPos;
+        private byte[] bytes = NO_BYTES;
+        private int bytePos;
+
+        ResultStreamReader(final MethodInvocation invocation, final int kind) {
+            this.invocation = invocation;
+            this.kind = kind;
+        }
+
+        Object getView() {
+            switch (kind) {
+                case Protocol.STREAM_KIND_INPUT_STREAM: {
+                    return new ResultInputStream();
+                }
+                case Protocol.STREAM_KIND_STREAM: {
+                    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new ResultIterator(), Spliterator.ORDERED), false).onClose(this::close);
+                }
+                default: {
+                    return new ResultIterator();
+                }
+            }
+        }
+
+        /**
+         * Handle an arriving chunk.  The chunk is copied, so the message may always be closed afterwards; the channel
+         * never has to hold messages open for a consumer which is slow or gone.
+         *
+         * @throws IOException if the chunk could not be read from the message
+         */
+        void chunkArrived(final int state, final MessageInputStream message) throws IOException {
+            final boolean last = state != Protocol.STREAM_CHUNK_MORE;
+            final byte[] data;
+            synchronized (this) {
+                if (ended) {
+                    return;
+                }
+            }
+            try {
+                // the server never sends more than the credited chunks, so at most the window is held here
+                data = readRemaining(message);
+            } catch (IOException e) {
+                channelClosed(e);
+                throw e;
+            }
+            final boolean release;
+            synchronized (this) {
+                if (ended) {
+                    return;
+                }
+                ended = last;
+                if (! closed) {
+                    chunks.add(new Chunk(state, data));
+                    notifyAll();
+                }
+                release = last && sending == 0;
+            }
+            if (release) {
+                // the server is done with the invocation ID
+                release();
+            }
+        }
+
+        void channelClosed(final IOException cause) {
+            synchronized (this) {
+                if (ended) {
+                    return;
+                }
+                ended = true;
+                released = true;
+                failure = cause;
+                notifyAll();
+            }
+            resultStreams.remove(Integer.valueOf(invocation.getIndex()), this);
+        }
+
+        /**
+         * Close the result.  Queued chunks are dropped, and unless the server has already ended the stream, it is
+         * cancelled; the server then closes its end and answers with a final chunk, after which the invocation ID
+         * is released.
+         */
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                chunks.clear();
+                notifyAll();
+            }
+            sendCredit(0);
+        }
+
+        private void sendCredit(final int credit) {
+            synchronized (this) {
+                if (ended) {
+                    // the invocation ID may already belong to another invocation
+                    return;
+                }
+                sending ++;
+            }
+            try (MessageOutputStream out = invocationTracker.allocateMessage()) {
+                out.write(Protocol.RESULT_STREAM_CREDIT);
+                writeInvocationId(out, invocation.getIndex());
+                PackedInteger.writePackedInteger(out, credit);
+            } catch (IOException ignored) {
+                // the channel is closing, which ends the stream
+            } finally {
+                final boolean release;
+                synchronized (this) {
+                    release = -- sending == 0 && ended;
+                }
+                if (release) {
+                    release();
+                }
+            }
+        }
+
+        private void release() {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            resultStreams.remove(Integer.valueOf(invocation.getIndex()), this);
+            invocation.free();
+        }
+
+        /**
+         * Take the next chunk, waiting for it to arrive.
+         *
+         * @return the chunk, or {@code null} if the result was closed
+         * @throws IOException if the channel was closed before the stream ended
+         */
+        private Chunk takeChunk() throws IOException {
+            final boolean start;
+            synchronized (this) {
+                start = ! started;
+                started = true;
+            }
+            if (start) {
+                sendCredit(WINDOW);
+            }
+            final Chunk chunk;
+            synchronized (this) {
+                while (chunks.isEmpty()) {
+                    if (closed) {
+                        return null;
+                    }
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                }
+                chunk = chunks.poll();
+            }
+            if (chunk.state == Protocol.STREAM_CHUNK_MORE) {
+                sendCredit(1);
+            }
+            return chunk;
+        }
+
+        /**
+         * Read the next chunk into the element or byte buffer.
+         *
+         * @return {@code true} if a chunk was read, {@code false} if the stream has ended
+         * @throws IOException if the chunk could not be read, or if the stream failed with an {@code IOException}
+         */
+        boolean nextChunk() throws IOException {
+            if (finished) {
+                return false;
+            }
+            final Chunk chunk;
+            try {
+                chunk = takeChunk();
+            } catch (IOException e) {
+                finished = true;
+                throw e;
+            }
+            if (chunk == null) {
+                finished = true;
+                return false;
+            }
+            try (ByteArrayInputStream message = new ByteArrayInputStream(chunk.data)) {
+                switch (chunk.state) {
+                    case Protocol.STREAM_CHUNK_CANCELLED: {
+                        finished = true;
+                        return false;
+                    }
+                    case Protocol.STREAM_CHUNK_FAILED: {
+                        finished = true;
+                        final Exception exception;
+                        final Unmarshaller unmarshaller = createUnmarshaller();
+                        try {
+                            unmarshaller.start(Marshalling.createByteInput(message));
+                            exception = unmarshaller.readObject(Exception.class);
+                            unmarshaller.finish();
+                        } finally {
+                            releaseUnmarshaller(unmarshaller);
+                        }
+                        if (exception instanceof IOException) {
+                            throw (IOException) exception;
+                        } else if (exception instanceof RuntimeException) {
+                            throw (RuntimeException) exception;
+                        } else {
+                            throw new EJBException(exception);
+                        }
+                    }
+                    default: {
+                        finished = chunk.state == Protocol.STREAM_CHUNK_LAST;
+                        if (kind == Protocol.STREAM_KIND_INPUT_STREAM) {
+                            final DataInputStream input = new DataInputStream(message);
+                            bytes = new byte[PackedInteger.readPackedInteger(input)];
+                            input.readFully(bytes);
+                            bytePos = 0;
+                        } else {
+                            final Unmarshaller unmarshaller = createUnmarshaller();
+                            try {
+                                unmarshaller.start(Marshalling.createByteInput(message));
+                                final int count = PackedInteger.readPackedInteger(unmarshaller);
+                                if (elements.length < count) {
+                                    elements = new Object[count];
+                                }
+                                for (int i = 0; i < count; i ++) {
+                                    elements[i] = unmarshaller.readObject();
+                                }
+                                unmarshaller.finish();
+                                elementCount = count;
+                                elementPos = 0;
+                            } finally {
+                                releaseUnmarshaller(unmarshaller);
+                            }
+                        }
+                        return true;
+                    }
+                }
+            } catch (ClassNotFoundException e) {
+                finished = true;
+                close();
+                throw new InvalidObjectException(e.toString());
+            } catch (IOException | RuntimeException e) {
+                if (! finished) {
+                    finished = true;
+                    close();
+                }
+                throw e;
+            }
+        }
+
+        final class ResultIterator implements Iterator<Object>, AutoCloseable {
+            public boolean hasNext() {
+                try {
+                    while (elementPos == elementCount) {
+                        if (! nextChunk()) {
+                            return false;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new EJBException("Failed to read result stream", e);
+                }
+            }
+
+            public Object next() {
+                if (! hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Object element = elements[elementPos];
+                elements[elementPos ++] = null;
+                return element;
+            }
+
+            public void close() {
+                ResultStreamReader.this.close();
+            }
+        }
+
+        final class ResultInputStream extends InputStream {
+            public int read() throws IOException {
+                while (bytePos == bytes.length) {
+                    if (! nextChunk()) {
+                        return -1;
+                    }
+                }
+                return bytes[bytePos ++] & 0xff;
+            }
+
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                while (bytePos == bytes.length) {
+                    if (! nextChunk()) {
+                        return -1;
+                    }
+                }
+                final int cnt = Math.min(len, bytes.length - bytePos);
+                System.arraycopy(bytes, bytePos, b, off, cnt);
+                bytePos += cnt;
+                return cnt;
+            }
+
+            public int available() {
+                return bytes.length - bytePos;
+            }
+
+            public void close() {
+                ResultStreamReader.this.close();
+            }
+        }
+    }
+
+    static final class Chunk {
+        final int state;
+        final byte[] data;
+
+        Chunk(final int state, final byte[] data) {
+            this.state = state;
+            this.data = data;
+        }
+    }
+
+    static byte[] readRemaining(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int cnt;
+        while ((cnt = inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, cnt);
+        }
+        return out.toByteArray();
+    }
+
     private static void disassociateRemoteTxIfPossible(AbstractInvocationContext context) {
         AbstractTransaction transaction = context.getTransaction();
         if (transaction instanceof RemoteTransaction) {
@@ -1433,10 +2179,6 @@ class EJBClientChannel {
         }
     }
 
-    private Executor getRetryExecutor() {
-        return retryExecutorWrapper.getExecutor(getChannel().getConnection().getEndpoint().getXnioWorker());
-    }
-
     /*
      * Provides a retry executor which will transfer the given thread contexts to the worker thread before execution.
      */
@@ -1444,9 +2186,9 @@ class EJBClientChannel {
         EJBClientContext ejbClientContext = ejbReceiverInvocationContext.getClientContext();
         Discovery discovery = ejbReceiverInvocationContext.getDiscovery();
         AuthenticationContext authentoicationContext = ejbReceiverInvocationContext.getAuthenticationContext();
-        Executor executor = getChannel().getConnection().getEndpoint().getXnioWorker();
+        XnioWorker worker = getChannel().getConnection().getEndpoint().getXnioWorker();
 
-        return retryExecutorWrapper.getExecutor(executor, ejbClientContext, discovery, authentoicationContext);
+        return retryExecutorWrapper.getExecutor(worker, ejbReceiverInvocationContext, ejbClientContext, discovery, authentoicationContext);
     }
 
     static class ResponseMessageInputStream extends MessageInputStream implements ByteInput {
@@ -18,14 +18,19 @@
 
 package org.jboss.ejb.protocol.remote;
 
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.security.AccessController.doPrivileged;
 import static org.jboss.ejb.protocol.remote.TCCLUtils.getAndSetSafeTCCL;
 import static org.jboss.ejb.protocol.remote.TCCLUtils.resetTCCL;
 import static org.xnio.IoUtils.safeClose;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InvalidClassException;
@@ -35,14 +40,19 @@ import java.net.Inet6Address;
 import java.net.SocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.security.PrivilegedAction;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.stream.Stream;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterInputStream;
 
 import javax.ejb.EJBException;
 import javax.transaction.HeuristicMixedException;
@@ -77,6 +87,7 @@ import org.jboss.ejb.server.InvocationRequest;
 import org.jboss.ejb.server.ListenerHandle;
 import org.jboss.ejb.server.ModuleAvailabilityListener;
 import org.jboss.ejb.server.Request;
+import org.jboss.ejb.server.RequestExecutorStrategy;
 import org.jboss.ejb.server.SessionOpenRequest;
 import org.jboss.marshalling.AbstractClassResolver;
 import org.jboss.marshalling.Marshaller;
@@ -100,6 +111,7 @@ import org.wildfly.transaction.client.ImportResult;
 import org.wildfly.transaction.client.LocalTransaction;
 import org.wildfly.transaction.client.SimpleXid;
 import org.wildfly.transaction.client.provider.remoting.RemotingTransactionServer;
+import org.xnio.XnioExecutor;
 import org.wildfly.transaction.client.spi.SubordinateTransactionControl;
 
 /**
@@ -112,17 +124,31 @@ final class EJBServerChannel {
 
     private static final char METHOD_PARAM_TYPE_SEPARATOR = ',';
 
+    // elements of a streamed result per chunk
+    static final int CHUNK_SIZE = max(1, SecurityUtils.getInteger(SystemProperties.RESULT_STREAM_CHUNK_SIZE, 128));
+    // bytes of a streamed input stream result per chunk
+    static final int BYTE_CHUNK_SIZE = 65536;
+    // milliseconds a streamed result may wait for credit before it is closed; 0 = never
+    static final long IDLE_TIMEOUT = max(0L, SecurityUtils.getLong(SystemProperties.RESULT_STREAM_IDLE_TIMEOUT, 60000L));
+
     private final RemotingTransactionServer transactionServer;
     private final Channel channel;
     private final int version;
     private final MessageTracker messageTracker;
     private final MarshallerFactory marshallerFactory;
     private final MarshallingConfiguration configuration;
+    private final MarshallerPool marshallerPool;
+    private final CompressionPool compressionPool = new CompressionPool();
+    private final CompressionStatistics compressionStatistics = new CompressionStatistics();
     private final IntIndexHashMap<InProgress> invocations = new IntIndexHashMap<>(InProgress::getInvId);
-    private final Function<String, Boolean>  classResolverFilter;
+    private final ConcurrentHashMap<Integer, ResultStreamWriter> resultStreams = new ConcurrentHashMap<>();
+    private final ClassResolutionCache classResolutionCache;
+    private final RequestExecutorStrategy executorStrategy;
+    private final AdmissionControl admissionControl;
+    private final AtomicInteger inFlight = new AtomicInteger();
 
     EJBServerChannel(final RemotingTransactionServer transactionServer, final Channel channel, final int version, final MessageTracker messageTracker,
-                     final Function<String, Boolean>  classResolverFilter) {
+                     final Function<String, Boolean>  classResolverFilter, final RequestExecutorStrategy executorStrategy, final AdmissionControl admissionControl) {
         this.transactionServer = transactionServer;
         this.channel = channel;
         this.version = version;
@@ -134,13 +160,36 @@ final class EJBServerChannel {
             configuration.setObjectResolver(new ProtocolV1ObjectResolver(channel.getConnection(), true));
             configuration.setVersion(2);
         } else {
-            configuration.setObjectTable(ProtocolV3ObjectTable.INSTANCE);
+            // from V4 on, clients may intern EJB identifiers and method locators; responses are not interned
+            configuration.setObjectTable(version >= 4 ? new InterningObjectTable(0) : ProtocolV3ObjectTable.INSTANCE);
             configuration.setObjectResolver(new ProtocolV3ObjectResolver(channel.getConnection(), true));
             configuration.setVersion(4);
         }
         marshallerFactory = new RiverMarshallerFactory();
         this.configuration = configuration;
-        this.classResolverFilter = classResolverFilter;
+        marshallerPool = new MarshallerPool(marshallerFactory, configuration);
+        classResolutionCache = new ClassResolutionCache(classResolverFilter, ClassResolutionCache.DEFAULT_SIZE);
+        this.executorStrategy = executorStrategy;
+        this.admissionControl = admissionControl;
+        channel.addCloseHandler((closed, exception) -> {
+            compressionPool.close();
+            classResolutionCache.clear();
+            for (ResultStreamWriter resultStream : resultStreams.values()) {
+                resultStream.close();
+            }
+        });
+    }
+
+    int readInvocationId(final DataInput input) throws IOException {
+        return version < 4 ? input.readUnsignedShort() : PackedInteger.readPackedInteger(input);
+    }
+
+    void writeInvocationId(final DataOutput output, final int invId) throws IOException {
+        if (version < 4) {
+            output.writeShort(invId);
+        } else {
+            PackedInteger.writePackedInteger(output, invId);
+        }
     }
 
     Channel.Receiver getReceiver(final Association association, final ListenerHandle handle1, final ListenerHandle handle2) {
@@ -155,6 +204,35 @@ final class EJBServerChannel {
         return new ModuleAvailabilityWriter();
     }
 
+    CompressionStatistics getCompressionStatistics() {
+        return compressionStatistics;
+    }
+
+    int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    void removeInvocation(final int invId) {
+        if (invocations.removeKey(invId) != null) {
+            admissionControl.release(inFlight);
+        }
+    }
+
+    private void writeServerBusy(final int invId) {
+        if (version < 4) {
+            // older clients do not know the busy response; they get a send failure instead
+            writeFailedResponse(invId, new RequestSendFailedException(Logs.REMOTING.remoteMessageServerBusy(), true));
+            return;
+        }
+        try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
+            os.writeByte(Protocol.SERVER_BUSY);
+            writeInvocationId(os, invId);
+        } catch (IOException e) {
+            // nothing to do at this point; the client doesn't want the response
+            Logs.REMOTING.trace("EJB server busy response write failed", e);
+        }
+    }
+
     class ReceiverImpl implements Channel.Receiver {
         private final Association association;
         private final ListenerHandle handle1;
@@ -192,29 +270,57 @@ final class EJBServerChannel {
             try {
                 final int code = message.readUnsignedByte();
                 switch (code) {
+                    case Protocol.CODEC_COMPRESSED_INVOCATION_MESSAGE:
+                        if (version < 4) {
+                            Logs.REMOTING.invalidMessageReceived(code);
+                            break;
+                        }
+                        // fall through
                     case Protocol.COMPRESSED_INVOCATION_MESSAGE:
                     case Protocol.INVOCATION_REQUEST: {
-                        try (InputStream input = code == Protocol.COMPRESSED_INVOCATION_MESSAGE ? new InflaterInputStream(message) : message) {
-                            // now if we get an error, we can respond.
-                            if(code == Protocol.COMPRESSED_INVOCATION_MESSAGE) {
-                                int verify = input.read();
-                                if(verify != Protocol.INVOCATION_REQUEST) {
-                                    throw new RuntimeException();
+                        handleInvocationMessage(code, message);
+                        break;
+                    }
+                    case Protocol.INVOCATION_BATCH: {
+                        if (version < 4) {
+                            Logs.REMOTING.invalidMessageReceived(code);
+                            break;
+                        }
+                        // each request of the batch is read into memory, as the previous one may still be reading its content
+                        final int count = PackedInteger.readPackedInteger(message);
+                        for (int i = 0; i < count; i ++) {
+                            final InputStream request = new ByteArrayInputStream(readBatchedRequest(message, PackedInteger.readPackedInteger(message)));
+                            final int requestCode = request.read();
+                            switch (requestCode) {
+                                case Protocol.CODEC_COMPRESSED_INVOCATION_MESSAGE:
+                                case Protocol.COMPRESSED_INVOCATION_MESSAGE:
+                                case Protocol.INVOCATION_REQUEST: {
+                                    handleInvocationMessage(requestCode, request);
+                                    break;
+                                }
+                                default: {
+                                    Logs.REMOTING.invalidMessageReceived(requestCode);
+                                    break;
                                 }
-
-                            }
-                            final int invId = (input.read() << 8) | input.read();
-                            try {
-                                handleInvocationRequest(invId, input);
-                            } catch (IOException | ClassNotFoundException e) {
-                                // write response back to client
-                                writeFailedResponse(invId, e);
                             }
                         }
                         break;
                     }
+                    case Protocol.RESULT_STREAM_CREDIT: {
+                        if (version < 4) {
+                            Logs.REMOTING.invalidMessageReceived(code);
+                            break;
+                        }
+                        final int invId = readInvocationId(message);
+                        final int credit = PackedInteger.readPackedInteger(message);
+                        final ResultStreamWriter resultStream = resultStreams.get(Integer.valueOf(invId));
+                        if (resultStream != null) {
+                            resultStream.addCredit(credit);
+                        }
+                        break;
+                    }
                     case Protocol.OPEN_SESSION_REQUEST: {
-                        final int invId = message.readUnsignedShort();
+                        final int invId = readInvocationId(message);
                         try {
                             handleSessionOpenRequest(invId, message);
                         } catch (IOException e) {
@@ -224,7 +330,7 @@ final class EJBServerChannel {
                         break;
                     }
                     case Protocol.CANCEL_REQUEST: {
-                        final int invId = message.readUnsignedShort();
+                        final int invId = readInvocationId(message);
                         try {
                             handleCancelRequest(invId, message);
                         } catch (IOException e) {
@@ -237,7 +343,7 @@ final class EJBServerChannel {
                     case Protocol.TXN_PREPARE_REQUEST:
                     case Protocol.TXN_FORGET_REQUEST:
                     case Protocol.TXN_BEFORE_COMPLETION_REQUEST: {
-                        final int invId = message.readUnsignedShort();
+                        final int invId = readInvocationId(message);
                         try {
                             handleTxnRequest(code, invId, message);
                         } catch (IOException e) {
@@ -246,7 +352,7 @@ final class EJBServerChannel {
                         break;
                     }
                     case Protocol.TXN_RECOVERY_REQUEST: {
-                        final int invId = message.readUnsignedShort();
+                        final int invId = readInvocationId(message);
                         try {
                             handleTxnRecoverRequest(invId, message);
                         } catch (IOException e) {
@@ -268,10 +374,54 @@ final class EJBServerChannel {
             }
         }
 
+        private void handleInvocationMessage(final int code, final InputStream message) throws IOException {
+            final InputStream compressed;
+            if (code == Protocol.COMPRESSED_INVOCATION_MESSAGE) {
+                compressed = compressionPool.getInflaterInputStream(message);
+            } else if (code == Protocol.CODEC_COMPRESSED_INVOCATION_MESSAGE) {
+                compressed = compressionPool.getInputStream(message.read(), message);
+            } else {
+                compressed = null;
+            }
+            try (InputStream input = compressed != null ? compressed : message) {
+                // now if we get an error, we can respond.
+                if(compressed != null) {
+                    int verify = input.read();
+                    if(verify != Protocol.INVOCATION_REQUEST) {
+                        throw new RuntimeException();
+                    }
+
+                }
+                final int invId = readInvocationId(new DataInputStream(input));
+                try {
+                    handleInvocationRequest(invId, input);
+                } catch (IOException | ClassNotFoundException e) {
+                    // write response back to client
+                    writeFailedResponse(invId, e);
+                }
+            }
+        }
+
+        private byte[] readBatchedRequest(final MessageInputStream message, final int length) throws IOException {
+            // the length is not trusted, so the buffer only grows as the bytes arrive
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(min(length, 8192));
+            final byte[] buffer = new byte[min(length, 8192)];
+            int remaining = length;
+            while (remaining > 0) {
+                final int res = message.read(buffer, 0, min(remaining, buffer.length));
+                if (res == -1) {
+                    throw new EOFException();
+                }
+                bytes.write(buffer, 0, res);
+                remaining -= res;
+            }
+            return bytes.toByteArray();
+        }
+
         private void writeTxnResponse(final int invId, final int flag) {
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.TXN_RESPONSE);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
                 os.writeBoolean(true);
                 PackedInteger.writePackedInteger(os, flag);
             } catch (IOException e) {
@@ -283,7 +433,7 @@ final class EJBServerChannel {
         private void writeTxnResponse(final int invId) {
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.TXN_RESPONSE);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
                 os.writeBoolean(false);
             } catch (IOException e) {
                 // nothing to do at this point; the client doesn't want the response
@@ -373,14 +523,15 @@ final class EJBServerChannel {
             }
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.TXN_RECOVERY_RESPONSE);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
                 PackedInteger.writePackedInteger(os, xids.length);
-                final Marshaller marshaller = marshallerFactory.createMarshaller(configuration);
+                final Marshaller marshaller = marshallerPool.getMarshaller();
                 marshaller.start(new NoFlushByteOutput(Marshalling.createByteOutput(os)));
                 for (Xid xid : xids) {
                     marshaller.writeObject(new XidTransactionID(xid));
                 }
                 marshaller.finish();
+                marshallerPool.release(marshaller);
             } catch (IOException e) {
                 // nothing to do at this point; the client doesn't want the response
                 Logs.REMOTING.trace("EJB transaction response write failed", e);
@@ -420,8 +571,24 @@ final class EJBServerChannel {
         }
 
         void handleInvocationRequest(final int invId, final InputStream input) throws IOException, ClassNotFoundException {
+            if (! admissionControl.tryAcquire(inFlight)) {
+                writeServerBusy(invId);
+                return;
+            }
+            boolean ok = false;
+            try {
+                handleAdmittedInvocationRequest(invId, input);
+                ok = true;
+            } finally {
+                if (! ok) {
+                    admissionControl.release(inFlight);
+                }
+            }
+        }
+
+        private void handleAdmittedInvocationRequest(final int invId, final InputStream input) throws IOException, ClassNotFoundException {
             final MarshallingConfiguration configuration = EJBServerChannel.this.configuration.clone();
-            final ServerClassResolver classResolver = new ServerClassResolver(EJBServerChannel.this.classResolverFilter);
+            final ServerClassResolver classResolver = new ServerClassResolver(classResolutionCache);
             configuration.setClassResolver(classResolver);
             final Unmarshaller unmarshaller;
 
@@ -430,13 +597,21 @@ final class EJBServerChannel {
 
             final Connection connection = channel.getConnection();
             final SecurityIdentity identity;
+            int timeout = 0;
+            RawSegments rawParameters = null;
             if (version >= 3) {
+                if (version >= 4) {
+                    rawParameters = RawSegments.readParameters(input instanceof DataInput ? (DataInput) input : new DataInputStream(input));
+                }
                 unmarshaller = marshallerFactory.createUnmarshaller(configuration);
                 unmarshaller.start(Marshalling.createByteInput(input));
                 identifier = unmarshaller.readObject(EJBIdentifier.class);
                 methodLocator = unmarshaller.readObject(EJBMethodLocator.class);
                 int identityId = unmarshaller.readInt();
                 identity = identityId == 0 ? connection.getLocalIdentity() : connection.getLocalIdentity(identityId);
+                if (version >= 4) {
+                    timeout = PackedInteger.readPackedInteger(unmarshaller);
+                }
             } else {
                 assert version <= 2;
                 DataInputStream data = new DataInputStream(input);
@@ -462,12 +637,20 @@ final class EJBServerChannel {
                 identity = connection.getLocalIdentity();
             }
             final RemotingInvocationRequest request = new RemotingInvocationRequest(
-                invId, identifier, methodLocator, classResolver, unmarshaller, identity
+                invId, identifier, methodLocator, classResolver, unmarshaller, rawParameters, identity, timeout
             );
             InProgress value = new InProgress(request);
             invocations.put(value);
+            if (request.isExpired()) {
+                // the caller has already given up on it, so the association never sees it
+                request.writeDeadlineExpired();
+                return;
+            }
             try {
                 value.setCancelHandle(association.receiveInvocationRequest(request));
+            } catch (RejectedExecutionException e) {
+                // the request executor is saturated, e.g. by a bulkhead; the client may retry elsewhere
+                request.writeServerBusy();
             } catch (Throwable t) {
                 //this should not happen
                 //but no harm in being defensive
@@ -512,12 +695,13 @@ final class EJBServerChannel {
     private void writeFailedResponse(final int invId, final Throwable e) {
         try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
             os.writeByte(Protocol.APPLICATION_EXCEPTION);
-            os.writeShort(invId);
-            final Marshaller marshaller = marshallerFactory.createMarshaller(configuration);
+            writeInvocationId(os, invId);
+            final Marshaller marshaller = marshallerPool.getMarshaller();
             marshaller.start(new NoFlushByteOutput(Marshalling.createByteOutput(os)));
             marshaller.writeObject(new RequestSendFailedException(e.getMessage() + "@" + channel.getConnection().getPeerURI(), e));
             marshaller.writeByte(0);
             marshaller.finish();
+            marshallerPool.release(marshaller);
         } catch (IOException e2) {
             // nothing to do at this point; the client doesn't want the response
             Logs.REMOTING.trace("EJB response write failed", e2);
@@ -537,7 +721,7 @@ final class EJBServerChannel {
         }
 
         public Executor getRequestExecutor() {
-            return channel.getConnection().getEndpoint().getXnioWorker();
+            return executorStrategy.getRequestExecutor(this, channel.getConnection().getEndpoint().getXnioWorker());
         }
 
         public SocketAddress getPeerAddress() {
@@ -564,13 +748,13 @@ final class EJBServerChannel {
             final String message = Logs.REMOTING.remoteMessageNoSuchEJB(getEJBIdentifier());
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.NO_SUCH_EJB);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
                 os.writeUTF(message);
             } catch (IOException e) {
                 // nothing to do at this point; the client doesn't want the response
                 Logs.REMOTING.trace("EJB response write failed", e);
             } finally {
-                invocations.removeKey(invId);
+                removeInvocation(invId);
             }
         }
 
@@ -579,34 +763,35 @@ final class EJBServerChannel {
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 if (version >= 3) {
                     os.writeByte(Protocol.BAD_VIEW_TYPE);
-                    os.writeShort(invId);
+                    writeInvocationId(os, invId);
                     os.writeUTF(message);
                 } else {
                     os.writeByte(Protocol.APPLICATION_EXCEPTION);
-                    os.writeShort(invId);
-                    final Marshaller marshaller = marshallerFactory.createMarshaller(configuration);
+                    writeInvocationId(os, invId);
+                    final Marshaller marshaller = marshallerPool.getMarshaller();
                     marshaller.start(new NoFlushByteOutput(Marshalling.createByteOutput(os)));
                     marshaller.writeObject(Logs.REMOTING.invalidViewTypeForInvocation(message));
                     marshaller.writeByte(0);
                     marshaller.finish();
+                    marshallerPool.release(marshaller);
                 }
             } catch (IOException e) {
                 // nothing to do at this point; the client doesn't want the response
                 Logs.REMOTING.trace("EJB response write failed", e);
             } finally {
-                invocations.removeKey(invId);
+                removeInvocation(invId);
             }
         }
 
         public void writeCancelResponse() {
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.CANCEL_RESPONSE);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
             } catch (IOException e) {
                 // nothing to do at this point; the client doesn't want the response
                 Logs.REMOTING.trace("EJB response write failed", e);
             } finally {
-                invocations.removeKey(invId);
+                removeInvocation(invId);
             }
         }
 
@@ -614,13 +799,13 @@ final class EJBServerChannel {
             final String message = Logs.REMOTING.remoteMessageEJBNotStateful(getEJBIdentifier());
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.EJB_NOT_STATEFUL);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
                 os.writeUTF(message);
             } catch (IOException e) {
                 // nothing to do at this point; the client doesn't want the response
                 Logs.REMOTING.trace("EJB response write failed", e);
             } finally {
-                invocations.removeKey(invId);
+                removeInvocation(invId);
             }
         }
 
@@ -646,18 +831,19 @@ final class EJBServerChannel {
         protected void writeFailure(Exception reason) {
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.APPLICATION_EXCEPTION);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
                 if (version >= 3) os.writeByte(getEnlistmentStatus());
-                final Marshaller marshaller = marshallerFactory.createMarshaller(configuration);
+                final Marshaller marshaller = marshallerPool.getMarshaller();
                 marshaller.start(new NoFlushByteOutput(Marshalling.createByteOutput(os)));
                 marshaller.writeObject(reason);
                 marshaller.writeByte(0);
                 marshaller.finish();
+                marshallerPool.release(marshaller);
             } catch (IOException e) {
                 // nothing to do at this point; the client doesn't want the response
                 Logs.REMOTING.trace("EJB response write failed", e);
             } finally {
-                invocations.removeKey(invId);
+                removeInvocation(invId);
             }
         }
 
@@ -726,12 +912,12 @@ final class EJBServerChannel {
             super.convertToStateful(sessionId);
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.OPEN_SESSION_RESPONSE);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
                 final byte[] encodedForm = sessionId.getEncodedForm();
                 PackedInteger.writePackedInteger(os, encodedForm.length);
                 os.write(encodedForm);
                 if (1 <= version && version <= 2) {
-                    final Marshaller marshaller = marshallerFactory.createMarshaller(configuration);
+                    final Marshaller marshaller = marshallerPool.getMarshaller();
                     marshaller.start(new NoFlushByteOutput(Marshalling.createByteOutput(os)));
                     if (strongAffinityUpdate != null) {
                         marshaller.writeObject(strongAffinityUpdate);
@@ -739,6 +925,7 @@ final class EJBServerChannel {
                         marshaller.writeObject(new NodeAffinity(channel.getConnection().getEndpoint().getName()));
                     }
                     marshaller.finish();
+                    marshallerPool.release(marshaller);
                 } else {
                     assert version >= 3;
                     os.writeByte(txnCmd);
@@ -775,14 +962,63 @@ final class EJBServerChannel {
         final EJBMethodLocator methodLocator;
         final ServerClassResolver classResolver;
         final Unmarshaller remaining;
+        final RawSegments rawParameters;
+        final int timeout;
+        final long startTime;
         int txnCmd = 0; // assume nobody will ask about the transaction
 
-        RemotingInvocationRequest(final int invId, final EJBIdentifier identifier, final EJBMethodLocator methodLocator, final ServerClassResolver classResolver, final Unmarshaller remaining, final SecurityIdentity identity) {
+        RemotingInvocationRequest(final int invId, final EJBIdentifier identifier, final EJBMethodLocator methodLocator, final ServerClassResolver classResolver, final Unmarshaller remaining, final RawSegments rawParameters, final SecurityIdentity identity, final int timeout) {
             super(invId, identity);
             this.identifier = identifier;
             this.methodLocator = methodLocator;
             this.classResolver = classResolver;
             this.remaining = remaining;
+            this.rawParameters = rawParameters;
+            this.timeout = timeout;
+            this.startTime = System.nanoTime();
+        }
+
+        public long getRemainingInvocationTime(final TimeUnit timeUnit) {
+            Assert.checkNotNullParam("timeUnit", timeUnit);
+            final int timeout = this.timeout;
+            if (timeout <= 0) {
+                return Long.MAX_VALUE;
+            }
+            // timeout in ms, elapsed time in nanosecs
+            return max(0L, timeUnit.convert(timeout * 1_000_000L - (System.nanoTime() - startTime), TimeUnit.NANOSECONDS));
+        }
+
+        public Executor getRequestExecutor() {
+            final Executor executor = super.getRequestExecutor();
+            if (timeout <= 0) {
+                return executor;
+            }
+            // the caller stops waiting once the deadline passes, so do not start work which was queued for too long
+            return task -> executor.execute(() -> {
+                if (isExpired()) {
+                    writeDeadlineExpired();
+                } else {
+                    task.run();
+                }
+            });
+        }
+
+        boolean isExpired() {
+            return timeout > 0 && getRemainingInvocationTime(TimeUnit.NANOSECONDS) == 0L;
+        }
+
+        void writeDeadlineExpired() {
+            safeClose(remaining);
+            writeException(Logs.REMOTING.invocationDeadlineExpired(methodLocator));
+        }
+
+        void writeServerBusy() {
+            safeClose(remaining);
+            try {
+                EJBServerChannel.this.writeServerBusy(invId);
+            } finally {
+                removeInvocation(invId);
+            }
         }
 
         public void convertToStateful(final SessionID sessionId) throws IllegalArgumentException, IllegalStateException {
@@ -794,7 +1030,12 @@ final class EJBServerChannel {
 
         public Resolved getRequestContent(final ClassLoader classLoader) throws IOException, ClassNotFoundException {
             classResolver.setClassLoader(classLoader);
+            if (classLoader != null) {
+                classResolutionCache.bind(identifier.getModuleIdentifier(), classLoader);
+            }
             int responseCompressLevel = 0;
+            int responseCodec = Protocol.CODEC_DEFLATE;
+            int streamKind = -1;
             // resolve the rest of everything here
             try (Unmarshaller unmarshaller = remaining) {
                 Affinity weakAffinity = Affinity.NONE;
@@ -805,6 +1046,11 @@ final class EJBServerChannel {
                     if (weakAffinity == null) weakAffinity = Affinity.NONE;
                     int flags = unmarshaller.readUnsignedByte();
                     responseCompressLevel = flags & Protocol.COMPRESS_RESPONSE;
+                    if (version >= 4) {
+                        responseCodec = (flags & Protocol.COMPRESS_RESPONSE_CODEC) >>> Protocol.COMPRESS_RESPONSE_CODEC_SHIFT;
+                        // the client only accepts a streamed result for the return type it declared
+                        streamKind = ((flags & Protocol.STREAM_RESULT_KIND) >>> Protocol.STREAM_RESULT_KIND_SHIFT) - 1;
+                    }
                     transactionSupplier = readTransaction(unmarshaller);
                     locator = unmarshaller.readObject(EJBLocator.class);
                     // do identity checks for these strings to guarantee integrity.
@@ -831,6 +1077,9 @@ final class EJBServerChannel {
                 for (int i = 0; i < parameters.length; i ++) {
                     parameters[i] = unmarshaller.readObject();
                 }
+                if (rawParameters != null) {
+                    rawParameters.applyTo(parameters);
+                }
                 int attachmentCount = PackedInteger.readPackedInteger(unmarshaller);
                 final Map<String, Object> attachments = new HashMap<>(attachmentCount);
                 for (int i = 0; i < attachmentCount; i ++) {
@@ -897,6 +1146,9 @@ final class EJBServerChannel {
                 }
 
                 final int finalResponseCompressLevel = responseCompressLevel == 15 ? Deflater.DEFAULT_COMPRESSION : min(responseCompressLevel, 9);
+                // fall back to DEFLATE for any codec we do not know
+                final int finalResponseCodec = responseCodec == Protocol.CODEC_LZ4 ? responseCodec : Protocol.CODEC_DEFLATE;
+                final int finalStreamKind = streamKind;
                 return new Resolved() {
 
                     @NotNull
@@ -935,16 +1187,23 @@ final class EJBServerChannel {
                     }
 
                     public void writeInvocationResult(final Object result) {
+                        final ResultStreamWriter resultStream = isOfStreamKind(finalStreamKind, result) ? new ResultStreamWriter(invId, finalStreamKind, result) : null;
+                        final boolean rawResult = resultStream == null && version >= 4 && RawSegments.isRaw(result);
+                        if (resultStream != null) {
+                            // the client only asks for chunks once it has read the response
+                            resultStreams.put(Integer.valueOf(invId), resultStream);
+                        }
                         MessageOutputStream os;
                         try (MessageOutputStream underlying = messageTracker.openMessageUninterruptibly()) {
-                            if(finalResponseCompressLevel != 0) {
-                                underlying.writeByte(Protocol.COMPRESSED_INVOCATION_MESSAGE);
-                                os = new WrapperMessageOutputStream(underlying, new DeflaterOutputStream(underlying, new Deflater(finalResponseCompressLevel)));
+                            final CompressionStatistics.MethodStatistics statistics;
+                            if(finalResponseCompressLevel != 0 && (statistics = compressionStatistics.get(Arrays.asList(identifier, methodLocator))).shouldCompress()) {
+                                // switch to compressed framing only once the response is larger than the threshold
+                                os = new AdaptiveCompressionOutputStream(underlying, compressionPool, finalResponseCodec, finalResponseCompressLevel, CompressionStatistics.THRESHOLD, statistics);
                             } else {
                                 os = underlying;
                             }
                             os.writeByte(Protocol.INVOCATION_RESPONSE);
-                            os.writeShort(invId);
+                            writeInvocationId(os, invId);
                             if (version >= 3) {
                                 os.writeByte(txnCmd);
                                 int updateBits = 0;
@@ -957,6 +1216,15 @@ final class EJBServerChannel {
                                 if (strongAffinityUpdate != null) {
                                     updateBits |= Protocol.UPDATE_BIT_STRONG_AFFINITY;
                                 }
+                                if (version >= 4) {
+                                    updateBits |= Protocol.UPDATE_BIT_LOAD;
+                                    if (rawResult) {
+                                        updateBits |= Protocol.UPDATE_BIT_RAW_RESULT;
+                                    }
+                                    if (resultStream != null) {
+                                        updateBits |= Protocol.UPDATE_BIT_STREAMED_RESULT;
+                                    }
+                                }
                                 os.writeByte(updateBits);
                                 if (sessionId != null) {
                                     final byte[] bytes = sessionId.getEncodedForm();
@@ -975,10 +1243,21 @@ final class EJBServerChannel {
                                     PackedInteger.writePackedInteger(os, bytes.length);
                                     os.write(bytes);
                                 }
+                                if (version >= 4) {
+                                    // this invocation is still counted, so the load is at least one
+                                    PackedInteger.writePackedInteger(os, max(0, admissionControl.getInFlight() - 1));
+                                    if (rawResult) {
+                                        RawSegments.writeValue(os, result);
+                                    }
+                                    if (resultStream != null) {
+                                        os.writeByte(resultStream.getKind());
+                                    }
+                                }
                             }
-                            final Marshaller marshaller = marshallerFactory.createMarshaller(configuration);
+                            final Marshaller marshaller = marshallerPool.getMarshaller();
                             marshaller.start(new NoFlushByteOutput(Marshalling.createByteOutput(os)));
-                            marshaller.writeObject(result);
+                            // a raw result was already written, and a streamed result follows in chunks
+                            marshaller.writeObject(rawResult || resultStream != null ? null : result);
                             attachments.remove(EJBClient.SOURCE_ADDRESS_KEY);
                             if (version >= 3) {
                                 attachments.remove(Affinity.WEAK_AFFINITY_CONTEXT_KEY);
@@ -1003,12 +1282,19 @@ final class EJBServerChannel {
                                 ProtocolObjectResolver.disableNonSerReplacement();
                             }
                             marshaller.finish();
+                            marshallerPool.release(marshaller);
                             os.close();
+                            if (resultStream != null) {
+                                resultStream.startIdleTimer();
+                            }
                         } catch (IOException e) {
                             // nothing to do at this point; the client doesn't want the response
                             Logs.REMOTING.trace("EJB response write failed", e);
+                            if (resultStream != null) {
+                                resultStream.close();
+                            }
                         } finally {
-                            invocations.removeKey(invId);
+                            removeInvocation(invId);
                         }
                     }
 
@@ -1024,7 +1310,7 @@ final class EJBServerChannel {
             }
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.PROCEED_ASYNC_RESPONSE);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
             } catch (IOException e) {
                 // nothing to do at this point; the client doesn't want the response
                 Logs.REMOTING.trace("EJB async response write failed", e);
@@ -1040,13 +1326,13 @@ final class EJBServerChannel {
             final String message = Logs.REMOTING.remoteMessageNoSuchMethod(methodLocator, identifier);
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.NO_SUCH_METHOD);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
                 os.writeUTF(message);
             } catch (IOException e) {
                 // nothing to do at this point; the client doesn't want the response
                 Logs.REMOTING.trace("EJB response write failed", e);
             } finally {
-                invocations.removeKey(invId);
+                removeInvocation(invId);
             }
         }
 
@@ -1054,13 +1340,13 @@ final class EJBServerChannel {
             final String message = Logs.REMOTING.remoteMessageSessionNotActive(methodLocator, identifier);
             try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.NO_SUCH_METHOD);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
                 os.writeUTF(message);
             } catch (IOException e) {
                 // nothing to do at this point; the client doesn't want the response
                 Logs.REMOTING.trace("EJB response write failed", e);
             } finally {
-                invocations.removeKey(invId);
+                removeInvocation(invId);
             }
         }
 
@@ -1080,12 +1366,12 @@ final class EJBServerChannel {
         void writeCancellation() {
             if (version >= 3) try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
                 os.writeByte(Protocol.CANCEL_RESPONSE);
-                os.writeShort(invId);
+                writeInvocationId(os, invId);
             } catch (IOException e) {
                 // nothing to do at this point; the client doesn't want the response
                 Logs.REMOTING.trace("EJB response write failed", e);
             } finally {
-                invocations.removeKey(invId);
+                removeInvocation(invId);
             } else {
                 writeFailure(Logs.REMOTING.requestCancelled());
             }
@@ -1115,6 +1401,290 @@ final class EJBServerChannel {
         return null;
     }
 
+    /**
+     * Determine whether a result is streamed.  The client names the kind of stream it accepts from the declared return
+     * type of the method, so a result is never streamed just because its runtime type happens to be streamable.
+     *
+     * @param kind the stream kind the client accepts, or -1 if it accepts none
+     * @param result the invocation result
+     * @return {@code true} if the result is streamed
+     */
+    static boolean isOfStreamKind(final int kind, final Object result) {
+        switch (kind) {
+            case Protocol.STREAM_KIND_ITERATOR: return result instanceof Iterator;
+            case Protocol.STREAM_KIND_STREAM: return result instanceof Stream;
+            case Protocol.STREAM_KIND_INPUT_STREAM: return result instanceof InputStream;
+            default: return false;
+        }
+    }
+
+    /**
+     * The server side of a streamed invocation result.  A chunk is only written once the client has granted credit
+     * for it, so a slow client never has more than its window of chunks in flight.  Chunks are written from a worker
+     * thread with the class loader which was current when the result was produced, but outside of the transaction and
+     * security context of the invocation, which has already completed.  A result which waits for credit for longer
+     * than the idle timeout is closed, so a client which never reads or closes it cannot pin its resources.
+     */
+    final class ResultStreamWriter implements Runnable {
+        private final int invId;
+        private final int kind;
+        private final Iterator<?> iterator;
+        private final InputStream inputStream;
+        private final AutoCloseable resource;
+        private final ClassLoader classLoader;
+
+        // all guarded by this
+        private int credit;
+        private boolean cancelled;
+        private boolean running;
+        private boolean expired;
+        private boolean done;
+        private long lastActive;
+        private XnioExecutor.Key idleKey;
+
+        ResultStreamWriter(final int invId, final int kind, final Object result) {
+            this.invId = invId;
+            this.kind = kind;
+            classLoader = TCCLUtils.getTCCL();
+            if (kind == Protocol.STREAM_KIND_INPUT_STREAM) {
+                inputStream = (InputStream) result;
+                iterator = null;
+                resource = inputStream;
+            } else if (kind == Protocol.STREAM_KIND_STREAM) {
+                final Stream<?> stream = (Stream<?>) result;
+                inputStream = null;
+                iterator = stream.iterator();
+                resource = stream;
+            } else {
+                inputStream = null;
+                iterator = (Iterator<?>) result;
+                resource = iterator instanceof AutoCloseable ? (AutoCloseable) iterator : null;
+            }
+        }
+
+        int getKind() {
+            return kind;
+        }
+
+        void startIdleTimer() {
+            synchronized (this) {
+                lastActive = System.nanoTime();
+            }
+            scheduleIdleCheck(IDLE_TIMEOUT);
+        }
+
+        private void scheduleIdleCheck(final long delay) {
+            if (IDLE_TIMEOUT == 0) {
+                return;
+            }
+            final XnioExecutor.Key key = channel.getConnection().getEndpoint().getXnioWorker().getIoThread().executeAfter(this::checkIdle, delay, TimeUnit.MILLISECONDS);
+            synchronized (this) {
+                if (! done) {
+                    idleKey = key;
+                    return;
+                }
+            }
+            key.remove();
+        }
+
+        private void checkIdle() {
+            final long remaining;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                // a stream which is being written is not idle
+                remaining = running ? IDLE_TIMEOUT : IDLE_TIMEOUT - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastActive);
+                if (remaining <= 0) {
+                    expired = true;
+                    running = true;
+                }
+            }
+            if (remaining > 0) {
+                scheduleIdleCheck(remaining);
+            } else {
+                channel.getConnection().getEndpoint().getXnioWorker().execute(this);
+            }
+        }
+
+        void addCredit(final int amount) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                lastActive = System.nanoTime();
+                if (amount == 0) {
+                    // the client has closed its end
+                    cancelled = true;
+                } else {
+                    credit += amount;
+                }
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            channel.getConnection().getEndpoint().getXnioWorker().execute(this);
+        }
+
+        public void run() {
+            final ClassLoader oldCL = TCCLUtils.getAndSetTCCL(classLoader);
+            try {
+                for (;;) {
+                    final boolean cancel;
+                    final boolean expire;
+                    synchronized (this) {
+                        if (done) {
+                            return;
+                        }
+                        cancel = cancelled;
+                        expire = expired && ! cancel;
+                        if (! cancel && ! expire) {
+                            if (credit == 0) {
+                                running = false;
+                                lastActive = System.nanoTime();
+                                return;
+                            }
+                            credit --;
+                        }
+                    }
+                    final boolean ended;
+                    if (cancel) {
+                        ended = writeEnd(Protocol.STREAM_CHUNK_CANCELLED, null);
+                    } else if (expire) {
+                        ended = writeEnd(Protocol.STREAM_CHUNK_FAILED, Logs.REMOTING.resultStreamIdle(IDLE_TIMEOUT));
+                    } else {
+                        ended = writeChunk();
+                    }
+                    if (ended) {
+                        close();
+                        return;
+                    }
+                }
+            } finally {
+                resetTCCL(oldCL);
+            }
+        }
+
+        /**
+         * Write the next chunk.
+         *
+         * @return {@code true} if the stream has ended
+         */
+        private boolean writeChunk() {
+            if (inputStream != null) {
+                final byte[] bytes = new byte[BYTE_CHUNK_SIZE];
+                int size = 0;
+                boolean last = false;
+                try {
+                    while (size < bytes.length) {
+                        final int cnt = inputStream.read(bytes, size, bytes.length - size);
+                        if (cnt == -1) {
+                            last = true;
+                            break;
+                        }
+                        size += cnt;
+                    }
+                } catch (IOException e) {
+                    return writeEnd(Protocol.STREAM_CHUNK_FAILED, e);
+                }
+                try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
+                    os.writeByte(Protocol.RESULT_STREAM_CHUNK);
+                    writeInvocationId(os, invId);
+                    os.writeByte(last ? Protocol.STREAM_CHUNK_LAST : Protocol.STREAM_CHUNK_MORE);
+                    PackedInteger.writePackedInteger(os, size);
+                    os.write(bytes, 0, size);
+                } catch (IOException e) {
+                    Logs.REMOTING.trace("EJB result stream write failed", e);
+                    return true;
+                }
+                return last;
+            }
+            final Object[] elements = new Object[CHUNK_SIZE];
+            int count = 0;
+            final boolean last;
+            try {
+                while (count < elements.length && iterator.hasNext()) {
+                    elements[count ++] = iterator.next();
+                }
+                last = ! iterator.hasNext();
+            } catch (RuntimeException e) {
+                return writeEnd(Protocol.STREAM_CHUNK_FAILED, e);
+            }
+            MessageOutputStream os = null;
+            try {
+                os = messageTracker.openMessageUninterruptibly();
+                os.writeByte(Protocol.RESULT_STREAM_CHUNK);
+                writeInvocationId(os, invId);
+                os.writeByte(last ? Protocol.STREAM_CHUNK_LAST : Protocol.STREAM_CHUNK_MORE);
+                final Marshaller marshaller = marshallerPool.getMarshaller();
+                try {
+                    marshaller.start(new NoFlushByteOutput(Marshalling.createByteOutput(os)));
+                    PackedInteger.writePackedInteger(marshaller, count);
+                    for (int i = 0; i < count; i ++) {
+                        marshaller.writeObject(elements[i]);
+                    }
+                    marshaller.finish();
+                    marshallerPool.release(marshaller);
+                } catch (IOException e) {
+                    // most likely an element which cannot be marshalled; report it in place of the chunk
+                    os.cancel();
+                    safeClose(os);
+                    return writeEnd(Protocol.STREAM_CHUNK_FAILED, e);
+                }
+                os.close();
+            } catch (IOException e) {
+                safeClose(os);
+                Logs.REMOTING.trace("EJB result stream write failed", e);
+                return true;
+            }
+            return last;
+        }
+
+        /**
+         * Write the chunk which ends a stream that failed or was cancelled.
+         *
+         * @return {@code true} always
+         */
+        private boolean writeEnd(final int state, final Exception exception) {
+            try (MessageOutputStream os = messageTracker.openMessageUninterruptibly()) {
+                os.writeByte(Protocol.RESULT_STREAM_CHUNK);
+                writeInvocationId(os, invId);
+                os.writeByte(state);
+                if (exception != null) {
+                    final Marshaller marshaller = marshallerPool.getMarshaller();
+                    marshaller.start(new NoFlushByteOutput(Marshalling.createByteOutput(os)));
+                    marshaller.writeObject(exception);
+                    marshaller.finish();
+                    marshallerPool.release(marshaller);
+                }
+            } catch (IOException e) {
+                Logs.REMOTING.trace("EJB result stream write failed", e);
+            }
+            return true;
+        }
+
+        void close() {
+            final XnioExecutor.Key key;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                key = idleKey;
+            }
+            if (key != null) {
+                key.remove();
+            }
+            resultStreams.remove(Integer.valueOf(invId), this);
+            if (resource != null) try {
+                resource.close();
+            } catch (Exception e) {
+                Logs.REMOTING.trace("Failed to close EJB result stream", e);
+            }
+        }
+    }
+
     static final class InProgress {
         private final RemotingInvocationRequest incomingInvocation;
         private CancelHandle cancelHandle;
@@ -1151,11 +1721,11 @@ final class EJBServerChannel {
 
     static final class ServerClassResolver extends AbstractClassResolver {
         private ClassLoader classLoader;
-        private final Function<String, Boolean> classResolverFilter;
+        private final ClassResolutionCache cache;
 
-        ServerClassResolver(final Function<String, Boolean> classResolverFilter) {
+        ServerClassResolver(final ClassResolutionCache cache) {
             super(true);
-            this.classResolverFilter = classResolverFilter;
+            this.cache = cache;
         }
 
         public Class<?> resolveProxyClass(final Unmarshaller unmarshaller, final String[] interfaces) throws IOException, ClassNotFoundException {
@@ -1188,12 +1758,22 @@ final class EJBServerChannel {
             return super.resolveClass(unmarshaller, name, serialVersionUID);
         }
 
+        protected Class<?> loadClass(final String name) throws ClassNotFoundException {
+            final ClassLoader classLoader = getClassLoader();
+            Class<?> clazz = cache.getClass(classLoader, name);
+            if (clazz == null) {
+                clazz = super.loadClass(name);
+                cache.putClass(classLoader, name, clazz);
+            }
+            return clazz;
+        }
+
         void setClassLoader(final ClassLoader classLoader) {
             this.classLoader = classLoader == null ? getClass().getClassLoader() : classLoader;
         }
 
         private void checkFilter(String className) throws InvalidClassException {
-            if (classResolverFilter != null && classResolverFilter.apply(className) != Boolean.TRUE) {
+            if (! cache.isAllowed(className)) {
                 throw Logs.REMOTING.cannotResolveFilteredClass(className);
             }
         }
@@ -1313,6 +1893,7 @@ final class EJBServerChannel {
         }
 
         public void moduleUnavailable(final List<EJBModuleIdentifier> modules) {
+            classResolutionCache.invalidate(modules);
             doWrite(false, modules);
         }
 
@@ -70,7 +70,7 @@ class EJBSimpleTransactionControl implements SimpleTransactionControl {
         final EJBTransactionOperations.PlainTransactionInvocation invocation = invocationTracker.addInvocation(EJBTransactionOperations.PlainTransactionInvocation::new);
         try (MessageOutputStream os = invocationTracker.allocateMessage(invocation)) {
             os.writeByte(type);
-            os.writeShort(invocation.getIndex());
+            channel.writeInvocationId(os, invocation.getIndex());
             final byte[] encoded = transactionID.getEncodedForm();
             PackedInteger.writePackedInteger(os, encoded.length);
             os.write(encoded);
@@ -111,7 +111,9 @@ class EJBSimpleTransactionControl implements SimpleTransactionControl {
 
     static SystemException readAppException(final EJBClientChannel channel, final BlockingInvocation.Response response) throws SystemException {
         Exception e;
-        try (final Unmarshaller unmarshaller = channel.createUnmarshaller()) {
+        Unmarshaller unmarshaller = null;
+        try {
+            unmarshaller = channel.createUnmarshaller();
             try (MessageInputStream inputStream = response.getInputStream()) {
                 unmarshaller.start(Marshalling.createByteInput(inputStream));
                 e = unmarshaller.readObject(Exception.class);
@@ -124,6 +126,8 @@ class EJBSimpleTransactionControl implements SimpleTransactionControl {
             }
         } catch (IOException | ClassNotFoundException e1) {
             throw new SystemException();
+        } finally {
+            channel.releaseUnmarshaller(unmarshaller);
         }
         if (e == null) {
             throw new SystemException();
@@ -91,7 +91,7 @@ class EJBTransactionOperations implements RemotingOperations {
         final PlainTransactionInvocation invocation = invocationTracker.addInvocation(PlainTransactionInvocation::new);
         try (MessageOutputStream os = invocationTracker.allocateMessage(invocation)) {
             os.writeByte(type);
-            os.writeShort(invocation.getIndex());
+            channel.writeInvocationId(os, invocation.getIndex());
             final byte[] encoded = transactionID.getEncodedForm();
             PackedInteger.writePackedInteger(os, encoded.length);
             os.write(encoded);
@@ -132,7 +132,9 @@ class EJBTransactionOperations implements RemotingOperations {
 
     static XAException readAppException(final EJBClientChannel channel, final BlockingInvocation.Response response) throws XAException {
         Exception e;
-        try (final Unmarshaller unmarshaller = channel.createUnmarshaller()) {
+        Unmarshaller unmarshaller = null;
+        try {
+            unmarshaller = channel.createUnmarshaller();
             try (MessageInputStream inputStream = response.getInputStream()) {
                 unmarshaller.start(Marshalling.createByteInput(inputStream));
                 e = unmarshaller.readObject(Exception.class);
@@ -145,6 +147,8 @@ class EJBTransactionOperations implements RemotingOperations {
             }
         } catch (IOException | ClassNotFoundException e1) {
             throw new XAException(XAException.XAER_RMERR);
+        } finally {
+            channel.releaseUnmarshaller(unmarshaller);
         }
         if (e == null) {
             throw new XAException(XAException.XAER_RMFAIL);
@@ -172,7 +176,7 @@ class EJBTransactionOperations implements RemotingOperations {
         final PlainTransactionInvocation invocation = invocationTracker.addInvocation(PlainTransactionInvocation::new);
         try (MessageOutputStream os = invocationTracker.allocateMessage(invocation)) {
             os.writeByte(Protocol.TXN_RECOVERY_REQUEST);
-            os.writeShort(invocation.getIndex());
+            channel.writeInvocationId(os, invocation.getIndex());
             os.writeUTF(parentName);
             os.writeInt(flag);
         } catch (IOException e) {
@@ -186,11 +190,15 @@ class EJBTransactionOperations implements RemotingOperations {
                     final Xid[] xids = new Xid[count];
                     // unmarshall it :(
                     final Unmarshaller unmarshaller = channel.createUnmarshaller();
-                    unmarshaller.start(Marshalling.createByteInput(inputStream));
-                    for (int i = 0; i < count; i ++) {
-                        xids[i ++] = unmarshaller.readObject(XidTransactionID.class).getXid();
+                    try {
+                        unmarshaller.start(Marshalling.createByteInput(inputStream));
+                        for (int i = 0; i < count; i ++) {
+                            xids[i ++] = unmarshaller.readObject(XidTransactionID.class).getXid();
+                        }
+                        unmarshaller.finish();
+                    } finally {
+                        channel.releaseUnmarshaller(unmarshaller);
                     }
-                    unmarshaller.finish();
                     return xids;
                 }
                 case Protocol.APPLICATION_EXCEPTION: {
@@ -0,0 +1,204 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.ejb.client.EJBIdentifier;
+import org.jboss.ejb.client.EJBMethodLocator;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.ObjectTable;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * A connection-scoped object table for protocol version 4 and up.  In addition to the predefined objects of
+ * {@link ProtocolV3ObjectTable}, EJB identifiers and method locators are interned: the first time one of them is
+ * written on a connection it is assigned a small integer ID and sent along with its definition.  Once the peer is
+ * known to have read the definition, only the ID is sent.
+ * <p>
+ * A peer has certainly read a definition once it sent back a successful response to a request which carried the
+ * definition.  Until then, the definition is repeated with each use; the receiver accepts identical redefinitions.
+ * Since the receiving side never learns which definitions were confirmed, interning is one way; a table created
+ * with a limit of zero only reads interned objects.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class InterningObjectTable implements ObjectTable {
+
+    /**
+     * The object index which introduces an interned object.
+     */
+    static final int INTERNED = 0xff;
+
+    /**
+     * The maximum number of interned objects per connection which a reader accepts.
+     */
+    static final int MAX_ENTRIES = 1 << 16;
+
+    /**
+     * The number of interned objects a writer allocates by default.
+     */
+    static final int DEFAULT_LIMIT = max(0, min(MAX_ENTRIES, SecurityUtils.getInteger(SystemProperties.INTERN_TABLE_SIZE, 1024)));
+
+    private static final int KIND_IDENTIFIER = 0;
+    private static final int KIND_METHOD_LOCATOR = 1;
+
+    private final int limit;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final ConcurrentHashMap<Object, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Object> definitions = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a new instance.
+     *
+     * @param limit the maximum number of objects to intern when writing, or 0 to only read interned objects
+     */
+    InterningObjectTable(final int limit) {
+        this.limit = limit;
+    }
+
+    public Writer getObjectWriter(final Object object) throws IOException {
+        final Writer writer = ProtocolV3ObjectTable.INSTANCE.getObjectWriter(object);
+        if (writer != null || limit == 0 || ! (object instanceof EJBIdentifier || object instanceof EJBMethodLocator)) {
+            return writer;
+        }
+        final Entry entry = entries.get(object);
+        if (entry != null) {
+            return entry;
+        }
+        if (nextId.get() >= limit) {
+            // table is full; marshal normally
+            return null;
+        }
+        // returns null (and adds nothing) if we lost the race for the last ID
+        return entries.computeIfAbsent(object, ignored -> {
+            final int id = nextId.getAndIncrement();
+            return id < limit ? new Entry(id) : null;
+        });
+    }
+
+    public Object readObject(final Unmarshaller unmarshaller) throws IOException, ClassNotFoundException {
+        final int idx = unmarshaller.readUnsignedByte();
+        if (idx != INTERNED) {
+            return ProtocolV3ObjectTable.INSTANCE.readObject(idx, unmarshaller);
+        }
+        final int value = PackedInteger.readPackedInteger(unmarshaller);
+        final int id = value >>> 1;
+        if (id >= MAX_ENTRIES) {
+            throw new InvalidObjectException("ObjectTable " + getClass().getName() + " cannot accept interned object index " + id);
+        }
+        if ((value & 1) == 0) {
+            final Object object = definitions.get(Integer.valueOf(id));
+            if (object == null) {
+                throw new InvalidObjectException("ObjectTable " + getClass().getName() + " cannot find an interned object for index " + id);
+            }
+            return object;
+        }
+        final Object object;
+        final int kind = unmarshaller.readUnsignedByte();
+        if (kind == KIND_IDENTIFIER) {
+            final String appName = unmarshaller.readObject(String.class);
+            final String moduleName = unmarshaller.readObject(String.class);
+            final String beanName = unmarshaller.readObject(String.class);
+            final String distinctName = unmarshaller.readObject(String.class);
+            object = new EJBIdentifier(appName, moduleName, beanName, distinctName);
+        } else if (kind == KIND_METHOD_LOCATOR) {
+            final String methodName = unmarshaller.readObject(String.class);
+            final String[] parameterTypeNames = new String[PackedInteger.readPackedInteger(unmarshaller)];
+            for (int i = 0; i < parameterTypeNames.length; i++) {
+                parameterTypeNames[i] = unmarshaller.readObject(String.class);
+            }
+            object = new EJBMethodLocator(methodName, parameterTypeNames);
+        } else {
+            throw new InvalidObjectException("ObjectTable " + getClass().getName() + " cannot read interned object of kind " + kind);
+        }
+        final Object existing = definitions.putIfAbsent(Integer.valueOf(id), object);
+        if (existing == null) {
+            return object;
+        }
+        if (! existing.equals(object)) {
+            throw new InvalidObjectException("ObjectTable " + getClass().getName() + " cannot redefine interned object index " + id);
+        }
+        return existing;
+    }
+
+    /**
+     * Record that the peer has read the definition of the given object, if it is interned.  From now on, only its ID
+     * is written.
+     *
+     * @param object the object
+     */
+    void confirm(final Object object) {
+        if (object != null) {
+            final Entry entry = entries.get(object);
+            if (entry != null) {
+                entry.confirmed = true;
+            }
+        }
+    }
+
+    /**
+     * Get the number of interned objects.
+     *
+     * @return the number of interned objects
+     */
+    int size() {
+        return limit == 0 ? definitions.size() : entries.size();
+    }
+
+    static final class Entry implements Writer {
+        private final int id;
+        volatile boolean confirmed;
+
+        Entry(final int id) {
+            this.id = id;
+        }
+
+        public void writeObject(final Marshaller marshaller, final Object object) throws IOException {
+            marshaller.writeByte(INTERNED);
+            if (confirmed) {
+                PackedInteger.writePackedInteger(marshaller, id << 1);
+                return;
+            }
+            PackedInteger.writePackedInteger(marshaller, id << 1 | 1);
+            if (object instanceof EJBIdentifier) {
+                final EJBIdentifier identifier = (EJBIdentifier) object;
+                marshaller.writeByte(KIND_IDENTIFIER);
+                marshaller.writeObject(identifier.getAppName());
+                marshaller.writeObject(identifier.getModuleName());
+                marshaller.writeObject(identifier.getBeanName());
+                marshaller.writeObject(identifier.getDistinctName());
+            } else {
+                final EJBMethodLocator methodLocator = (EJBMethodLocator) object;
+                marshaller.writeByte(KIND_METHOD_LOCATOR);
+                marshaller.writeObject(methodLocator.getMethodName());
+                final int parameterCount = methodLocator.getParameterCount();
+                PackedInteger.writePackedInteger(marshaller, parameterCount);
+                for (int i = 0; i < parameterCount; i++) {
+                    marshaller.writeObject(methodLocator.getParameterTypeName(i));
+                }
+            }
+        }
+    }
+}
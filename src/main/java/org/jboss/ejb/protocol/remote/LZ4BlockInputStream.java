@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+
+/**
+ * An input stream which decompresses data written by {@link LZ4BlockOutputStream}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class LZ4BlockInputStream extends InputStream {
+
+    private final DataInputStream in;
+    private final byte[] buffer = new byte[LZ4BlockOutputStream.BLOCK_SIZE];
+    private byte[] compressed = new byte[0];
+    private int position;
+    private int limit;
+    private boolean eof;
+    private boolean closed;
+
+    LZ4BlockInputStream(final InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    public int read() throws IOException {
+        if (! ensureData()) {
+            return -1;
+        }
+        return buffer[position ++] & 0xff;
+    }
+
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (! ensureData()) {
+            return -1;
+        }
+        final int cnt = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, cnt);
+        position += cnt;
+        return cnt;
+    }
+
+    public int available() throws IOException {
+        return closed ? 0 : limit - position;
+    }
+
+    public void close() throws IOException {
+        if (! closed) {
+            closed = true;
+            in.close();
+        }
+    }
+
+    private boolean ensureData() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == limit) {
+            if (eof) {
+                return false;
+            }
+            readBlock();
+        }
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        final int length;
+        try {
+            length = PackedInteger.readPackedInteger(in);
+        } catch (EOFException e) {
+            throw new EOFException("Unexpected end of compressed stream");
+        }
+        position = limit = 0;
+        if (length == 0) {
+            eof = true;
+            return;
+        }
+        final int compressedLength = PackedInteger.readPackedInteger(in);
+        // blocks are never larger than the writer's block size, so this also bounds the buffers
+        if (length < 0 || length > buffer.length || compressedLength < 0 || compressedLength >= length) {
+            throw new StreamCorruptedException("Malformed compressed block header");
+        }
+        if (compressedLength == 0) {
+            // stored
+            in.readFully(buffer, 0, length);
+        } else {
+            if (compressed.length < compressedLength) {
+                compressed = new byte[compressedLength];
+            }
+            in.readFully(compressed, 0, compressedLength);
+            if (LZ4Codec.decompress(compressed, 0, compressedLength, buffer, 0, length) != length) {
+                throw new StreamCorruptedException("Malformed compressed block");
+            }
+        }
+        limit = length;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream which compresses data in blocks using {@link LZ4Codec}.  Each block is written as a packed
+ * uncompressed length, followed by a packed compressed length (zero if the block is stored uncompressed because it
+ * did not shrink) and the block data.  The stream is terminated by a zero uncompressed length.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class LZ4BlockOutputStream extends OutputStream {
+
+    static final int BLOCK_SIZE = 1 << 16;
+
+    private final DataOutputStream out;
+    private final byte[] buffer;
+    private final byte[] compressed;
+    private final int[] table = new int[LZ4Codec.HASH_TABLE_SIZE];
+    private int count;
+    private boolean closed;
+
+    LZ4BlockOutputStream(final OutputStream out) {
+        this(out, BLOCK_SIZE);
+    }
+
+    LZ4BlockOutputStream(final OutputStream out, final int blockSize) {
+        this.out = new DataOutputStream(out);
+        buffer = new byte[blockSize];
+        compressed = new byte[LZ4Codec.maxCompressedLength(blockSize)];
+    }
+
+    public void write(final int b) throws IOException {
+        ensureOpen();
+        if (count == buffer.length) {
+            writeBlock();
+        }
+        buffer[count ++] = (byte) b;
+    }
+
+    public void write(final byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (count == buffer.length) {
+                writeBlock();
+            }
+            final int cnt = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, cnt);
+            count += cnt;
+            off += cnt;
+            len -= cnt;
+        }
+    }
+
+    public void flush() throws IOException {
+        ensureOpen();
+        writeBlock();
+        out.flush();
+    }
+
+    /**
+     * Write any pending data and the end of stream marker without closing the underlying stream.
+     *
+     * @throws IOException if the write fails
+     */
+    void finish() throws IOException {
+        ensureOpen();
+        writeBlock();
+        PackedInteger.writePackedInteger(out, 0);
+        closed = true;
+    }
+
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        final int count = this.count;
+        if (count == 0) {
+            return;
+        }
+        this.count = 0;
+        final int compressedLength = LZ4Codec.compress(buffer, 0, count, compressed, 0, table);
+        PackedInteger.writePackedInteger(out, count);
+        if (compressedLength < count) {
+            PackedInteger.writePackedInteger(out, compressedLength);
+            out.write(compressed, 0, compressedLength);
+        } else {
+            // stored
+            PackedInteger.writePackedInteger(out, 0);
+            out.write(buffer, 0, count);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
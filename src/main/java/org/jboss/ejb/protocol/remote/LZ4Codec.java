@@ -0,0 +1,221 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+
+/**
+ * A pure Java implementation of the LZ4 block format.  It trades compression ratio for speed: there is no entropy
+ * coding, and matches are found through a single-probe hash table, which makes it considerably cheaper than
+ * DEFLATE for large, repetitive payloads such as serialized result sets.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class LZ4Codec {
+
+    static final int HASH_TABLE_SIZE = 1 << 12;
+
+    private static final int MIN_MATCH = 4;
+    // the last match must start at least 12 bytes before the end of the block
+    private static final int MF_LIMIT = 12;
+    // the last 5 bytes of a block are always literals
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_DISTANCE = 0xffff;
+
+    private LZ4Codec() {
+    }
+
+    /**
+     * Get the maximum size of the compressed form of a block of the given size.
+     *
+     * @param length the uncompressed length
+     * @return the maximum compressed length
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compress a block.
+     *
+     * @param src the source bytes
+     * @param srcOff the offset of the block in {@code src}
+     * @param srcLen the length of the block
+     * @param dst the destination array, which must have room for {@link #maxCompressedLength(int)} bytes
+     * @param dstOff the offset to write to in {@code dst}
+     * @param table the hash table to use, of {@link #HASH_TABLE_SIZE} entries (its content is overwritten)
+     * @return the compressed length
+     */
+    static int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int[] table) {
+        final int end = srcOff + srcLen;
+        final int mfLimit = end - MF_LIMIT;
+        final int matchLimit = end - LAST_LITERALS;
+        int anchor = srcOff;
+        int ip = srcOff;
+        int op = dstOff;
+        if (srcLen > MF_LIMIT) {
+            Arrays.fill(table, -1);
+            while (ip < mfLimit) {
+                final int seq = readInt(src, ip);
+                final int h = hash(seq);
+                int ref = table[h];
+                table[h] = ip;
+                if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != seq) {
+                    // skip faster through incompressible data
+                    ip += 1 + ((ip - anchor) >>> 6);
+                    continue;
+                }
+                // extend the match backwards into the pending literals
+                while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+                    ip --;
+                    ref --;
+                }
+                int matchLen = MIN_MATCH;
+                while (ip + matchLen < matchLimit && src[ip + matchLen] == src[ref + matchLen]) {
+                    matchLen ++;
+                }
+                op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLen, dst, op);
+                ip += matchLen;
+                anchor = ip;
+            }
+        }
+        // last literals
+        final int litLen = end - anchor;
+        final int token = op ++;
+        if (litLen >= 15) {
+            dst[token] = (byte) 0xf0;
+            op = writeLength(litLen - 15, dst, op);
+        } else {
+            dst[token] = (byte) (litLen << 4);
+        }
+        System.arraycopy(src, anchor, dst, op, litLen);
+        op += litLen;
+        return op - dstOff;
+    }
+
+    /**
+     * Decompress a block.
+     *
+     * @param src the source bytes
+     * @param srcOff the offset of the compressed block in {@code src}
+     * @param srcLen the length of the compressed block
+     * @param dst the destination array
+     * @param dstOff the offset to write to in {@code dst}
+     * @param dstLen the maximum number of bytes to write to {@code dst}
+     * @return the decompressed length
+     * @throws IOException if the compressed block is malformed
+     */
+    static int decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen) throws IOException {
+        final int end = srcOff + srcLen;
+        final int dstEnd = dstOff + dstLen;
+        int ip = srcOff;
+        int op = dstOff;
+        while (ip < end) {
+            final int token = src[ip ++] & 0xff;
+            int litLen = token >>> 4;
+            if (litLen == 15) {
+                int b;
+                do {
+                    if (ip == end) throw corrupt();
+                    b = src[ip ++] & 0xff;
+                    litLen += b;
+                } while (b == 255);
+            }
+            if (litLen > end - ip || litLen > dstEnd - op) throw corrupt();
+            System.arraycopy(src, ip, dst, op, litLen);
+            ip += litLen;
+            op += litLen;
+            if (ip == end) {
+                // last literals
+                break;
+            }
+            if (end - ip < 2) throw corrupt();
+            final int offset = src[ip ++] & 0xff | (src[ip ++] & 0xff) << 8;
+            if (offset == 0 || offset > op - dstOff) throw corrupt();
+            int matchLen = token & 0x0f;
+            if (matchLen == 15) {
+                int b;
+                do {
+                    if (ip == end) throw corrupt();
+                    b = src[ip ++] & 0xff;
+                    matchLen += b;
+                } while (b == 255);
+            }
+            matchLen += MIN_MATCH;
+            if (matchLen > dstEnd - op) throw corrupt();
+            final int ref = op - offset;
+            if (offset >= matchLen) {
+                System.arraycopy(dst, ref, dst, op, matchLen);
+            } else {
+                // overlapping copy repeats the pattern
+                for (int i = 0; i < matchLen; i ++) {
+                    dst[op + i] = dst[ref + i];
+                }
+            }
+            op += matchLen;
+        }
+        return op - dstOff;
+    }
+
+    private static int writeSequence(byte[] src, int anchor, int litLen, int offset, int matchLen, byte[] dst, int op) {
+        final int token = op ++;
+        int tokenValue;
+        if (litLen >= 15) {
+            tokenValue = 0xf0;
+            op = writeLength(litLen - 15, dst, op);
+        } else {
+            tokenValue = litLen << 4;
+        }
+        System.arraycopy(src, anchor, dst, op, litLen);
+        op += litLen;
+        dst[op ++] = (byte) offset;
+        dst[op ++] = (byte) (offset >>> 8);
+        final int ml = matchLen - MIN_MATCH;
+        if (ml >= 15) {
+            tokenValue |= 0x0f;
+            op = writeLength(ml - 15, dst, op);
+        } else {
+            tokenValue |= ml;
+        }
+        dst[token] = (byte) tokenValue;
+        return op;
+    }
+
+    private static int writeLength(int length, byte[] dst, int op) {
+        while (length >= 255) {
+            dst[op ++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op ++] = (byte) length;
+        return op;
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return b[i] & 0xff | (b[i + 1] & 0xff) << 8 | (b[i + 2] & 0xff) << 16 | (b[i + 3] & 0xff) << 24;
+    }
+
+    private static int hash(int seq) {
+        return seq * -1640531535 >>> 20;
+    }
+
+    private static IOException corrupt() {
+        return new StreamCorruptedException("Malformed compressed block");
+    }
+}
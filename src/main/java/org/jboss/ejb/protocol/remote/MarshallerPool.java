@@ -0,0 +1,136 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.protocol.remote;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jboss.ejb._private.Logs;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * A bounded pool of marshallers and unmarshallers which share a single marshalling configuration.  Every protocol
+ * message is a separate marshalling stream, so instances are reset (class and instance caches cleared) before
+ * they are made available again.  Instances which fail to reset are simply dropped.  A marshaller is only released
+ * after its stream was finished; one whose write failed may still hold the state of the broken stream, so it is
+ * dropped instead of being released.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class MarshallerPool {
+
+    static final int DEFAULT_POOL_SIZE = SecurityUtils.getInteger(SystemProperties.MARSHALLER_POOL_SIZE, 16);
+
+    private final MarshallerFactory marshallerFactory;
+    private final MarshallingConfiguration configuration;
+    private final ArrayBlockingQueue<Marshaller> marshallers;
+    private final ArrayBlockingQueue<Unmarshaller> unmarshallers;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    MarshallerPool(final MarshallerFactory marshallerFactory, final MarshallingConfiguration configuration) {
+        this(marshallerFactory, configuration, DEFAULT_POOL_SIZE);
+    }
+
+    MarshallerPool(final MarshallerFactory marshallerFactory, final MarshallingConfiguration configuration, final int size) {
+        this.marshallerFactory = marshallerFactory;
+        this.configuration = configuration;
+        if (size > 0) {
+            marshallers = new ArrayBlockingQueue<>(size);
+            unmarshallers = new ArrayBlockingQueue<>(size);
+        } else {
+            marshallers = null;
+            unmarshallers = null;
+        }
+    }
+
+    Marshaller getMarshaller() throws IOException {
+        final Marshaller marshaller = marshallers == null ? null : marshallers.poll();
+        if (marshaller != null) {
+            hits.increment();
+            return marshaller;
+        }
+        misses.increment();
+        return marshallerFactory.createMarshaller(configuration);
+    }
+
+    Unmarshaller getUnmarshaller() throws IOException {
+        final Unmarshaller unmarshaller = unmarshallers == null ? null : unmarshallers.poll();
+        if (unmarshaller != null) {
+            hits.increment();
+            return unmarshaller;
+        }
+        misses.increment();
+        return marshallerFactory.createUnmarshaller(configuration);
+    }
+
+    void release(final Marshaller marshaller) {
+        if (marshallers == null || marshaller == null) {
+            return;
+        }
+        try {
+            marshaller.clearClassCache();
+        } catch (Throwable t) {
+            Logs.REMOTING.trace("Dropping marshaller which could not be reset", t);
+            return;
+        }
+        marshallers.offer(marshaller);
+    }
+
+    void release(final Unmarshaller unmarshaller) {
+        if (unmarshaller == null) {
+            return;
+        }
+        try {
+            // no-op if the stream was already finished
+            unmarshaller.finish();
+            if (unmarshallers == null) {
+                return;
+            }
+            unmarshaller.clearClassCache();
+        } catch (Throwable t) {
+            Logs.REMOTING.trace("Dropping unmarshaller which could not be reset", t);
+            return;
+        }
+        unmarshallers.offer(unmarshaller);
+    }
+
+    /**
+     * Get the number of requests which were satisfied by a pooled instance.
+     *
+     * @return the hit count
+     */
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of requests which required a new instance to be created.
+     *
+     * @return the miss count
+     */
+    long getMissCount() {
+        return misses.sum();
+    }
+}
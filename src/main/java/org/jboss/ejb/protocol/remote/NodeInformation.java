@@ -26,7 +26,6 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -60,12 +59,21 @@ final class NodeInformation {
     private final ConcurrentMap<String, ClusterNodeInformation> clustersByName = new ConcurrentHashMap<>(1);
     private final ConcurrentMap<EJBClientChannel, InetSocketAddress> addressesByConnection = new ConcurrentHashMap<>(1);
 
-    private volatile List<ServiceURL> serviceURLCache;
+    // number of connections reporting each module; guarded by this
+    private final Map<EJBModuleIdentifier, Integer> moduleConnectionCounts = new HashMap<>();
+    private final DiscoveredNodeRegistry registry;
+
+    private volatile ServiceURLCache serviceURLCache;
 
     private volatile boolean invalid;
 
     NodeInformation(final String nodeName) {
+        this(nodeName, null);
+    }
+
+    NodeInformation(final String nodeName, final DiscoveredNodeRegistry registry) {
         this.nodeName = nodeName;
+        this.registry = registry;
     }
 
     String getNodeName() {
@@ -73,10 +81,33 @@ final class NodeInformation {
     }
 
     boolean discover(ServiceType serviceType, FilterSpec filterSpec, DiscoveryResult discoveryResult) {
+        return discover(serviceType, filterSpec, filterSpec.accept(RemotingEJBDiscoveryProvider.MI_EXTRACTOR), discoveryResult);
+    }
+
+    /**
+     * Discover the services of this node which match the given filter.
+     *
+     * @param serviceType the service type
+     * @param filterSpec the filter specification
+     * @param module the module which the filter requires, or {@code null} if it does not require a specific module
+     * @param discoveryResult the result to report matches to
+     * @return {@code true} if any match was found, {@code false} otherwise
+     */
+    boolean discover(ServiceType serviceType, FilterSpec filterSpec, EJBModuleIdentifier module, DiscoveryResult discoveryResult) {
         if (invalid) return false;
         boolean found = false;
-        List<ServiceURL> serviceURLCache = getServiceURLCache();
-        for (ServiceURL serviceURL : serviceURLCache) {
+        final ServiceURLCache serviceURLCache = getServiceURLCache();
+        final List<ServiceURL> candidates;
+        if (module == null) {
+            candidates = serviceURLCache.serviceURLs;
+        } else {
+            // only the services which carry the module can satisfy the filter
+            candidates = serviceURLCache.serviceURLsByModule.get(module);
+            if (candidates == null) {
+                return false;
+            }
+        }
+        for (ServiceURL serviceURL : candidates) {
             if (serviceURL.satisfies(filterSpec) && serviceType.implies(serviceURL)) {
                 found = true;
                 discoveryResult.addMatch(serviceURL);
@@ -100,14 +131,26 @@ final class NodeInformation {
         }
     }
 
-    private List<ServiceURL> getServiceURLCache() {
-        List<ServiceURL> serviceURLCache = this.serviceURLCache;
+    static final class ServiceURLCache {
+        final List<ServiceURL> serviceURLs;
+        final Map<EJBModuleIdentifier, List<ServiceURL>> serviceURLsByModule;
+
+        ServiceURLCache(final List<ServiceURL> serviceURLs, final Map<EJBModuleIdentifier, List<ServiceURL>> serviceURLsByModule) {
+            this.serviceURLs = serviceURLs;
+            this.serviceURLsByModule = serviceURLsByModule;
+        }
+    }
+
+    private ServiceURLCache getServiceURLCache() {
+        ServiceURLCache serviceURLCache = this.serviceURLCache;
         if (serviceURLCache == null) {
             synchronized (this) {
                 serviceURLCache = this.serviceURLCache;
                 if (serviceURLCache == null) {
                     // the final list to store
-                    serviceURLCache = new ArrayList<>();
+                    final List<ServiceURL> serviceURLs = new ArrayList<>();
+                    // the same service URLs, indexed by each module they carry
+                    final Map<EJBModuleIdentifier, List<ServiceURL>> serviceURLsByModule = new HashMap<>();
                     HashMap<URI, TempInfo> map = new HashMap<>();
                     // hostname representations encountered - these can vary
                     Set<String> hostReps = new HashSet<String>();
@@ -177,6 +220,7 @@ final class NodeInformation {
                     // populate the service URLs from the cross product (!) of clusters and modules
                     final AttributeValue nodeNameValue = AttributeValue.fromString(nodeName);
                     for (TempInfo info : map.values()) {
+                        final int firstIndex = serviceURLs.size();
                         final ServiceURL.Builder builder = new ServiceURL.Builder();
                         builder.setUri(info.destination);
                         builder.setAbstractType(EJBClientContext.EJB_SERVICE_TYPE.getAbstractType());
@@ -201,7 +245,7 @@ final class NodeInformation {
                             }
                         }
                         // create a no-cluster mapping
-                        serviceURLCache.add(builder.create());
+                        serviceURLs.add(builder.create());
                         if (info.clusters != null) for (Map.Entry<String, CidrAddress> entry : info.clusters.entrySet()) {
                             final String clusterName = entry.getKey();
                             builder.addAttribute(EJBClientContext.FILTER_ATTR_CLUSTER, AttributeValue.fromString(clusterName));
@@ -213,11 +257,17 @@ final class NodeInformation {
                                 final AttributeValue value = AttributeValue.fromString(cidrAddress.toString());
                                 builder.addAttribute(EJBClientContext.FILTER_ATTR_SOURCE_IP, value);
                             }
-                            serviceURLCache.add(builder.create());
+                            serviceURLs.add(builder.create());
+                        }
+                        if (info.modules != null) {
+                            final List<ServiceURL> infoServiceURLs = serviceURLs.subList(firstIndex, serviceURLs.size());
+                            for (EJBModuleIdentifier moduleIdentifier : info.modules) {
+                                serviceURLsByModule.computeIfAbsent(moduleIdentifier, ignored -> new ArrayList<>()).addAll(infoServiceURLs);
+                            }
                         }
                     }
 
-                    this.serviceURLCache = serviceURLCache;
+                    this.serviceURLCache = serviceURLCache = new ServiceURLCache(serviceURLs, serviceURLsByModule);
                 }
             }
         }
@@ -278,12 +328,16 @@ final class NodeInformation {
     }
 
     void setInvalid(final boolean invalid) {
-        this.invalid = invalid;
+        if (this.invalid != invalid) {
+            this.invalid = invalid;
+            servicesChanged();
+        }
     }
 
     void addAddress(final String protocol, final String clusterName, final CidrAddress block, final InetSocketAddress destination) {
         synchronized (this) {
             serviceURLCache = null;
+            servicesChanged();
             clustersByName.computeIfAbsent(clusterName, name -> new ClusterNodeInformation())
                 .getAddressTablesByProtocol()
                 .computeIfAbsent(protocol, ignored -> new CidrAddressTable<>())
@@ -295,6 +349,7 @@ final class NodeInformation {
     void removeCluster(final String clusterName) {
         synchronized (this) {
             serviceURLCache = null;
+            servicesChanged();
             clustersByName.remove(clusterName);
         }
     }
@@ -302,16 +357,27 @@ final class NodeInformation {
     void addModules(final EJBClientChannel clientChannel, final EJBModuleIdentifier[] moduleList) {
         synchronized (this) {
             serviceURLCache = null;
-            Collections.addAll(modulesByConnection.computeIfAbsent(clientChannel, ignored -> new HashSet<>()), moduleList);
+            servicesChanged();
+            final Set<EJBModuleIdentifier> set = modulesByConnection.computeIfAbsent(clientChannel, ignored -> new HashSet<>());
+            for (EJBModuleIdentifier module : moduleList) {
+                if (set.add(module)) {
+                    moduleAdded(module);
+                }
+            }
         }
     }
 
     void removeModules(final EJBClientChannel clientChannel, final HashSet<EJBModuleIdentifier> toRemove) {
         synchronized (this) {
             serviceURLCache = null;
+            servicesChanged();
             final Set<EJBModuleIdentifier> set = modulesByConnection.get(clientChannel);
             if (set != null) {
-                set.removeAll(toRemove);
+                for (EJBModuleIdentifier module : toRemove) {
+                    if (set.remove(module)) {
+                        moduleRemoved(module);
+                    }
+                }
             }
         }
     }
@@ -319,9 +385,10 @@ final class NodeInformation {
     void removeModule(final EJBClientChannel clientChannel, final EJBModuleIdentifier toRemove) {
         synchronized (this) {
             serviceURLCache = null;
+            servicesChanged();
             final Set<EJBModuleIdentifier> set = modulesByConnection.get(clientChannel);
-            if (set != null) {
-                set.remove(toRemove);
+            if (set != null && set.remove(toRemove)) {
+                moduleRemoved(toRemove);
             }
         }
     }
@@ -330,16 +397,53 @@ final class NodeInformation {
         synchronized (this) {
             addressesByConnection.put(clientChannel, (InetSocketAddress) clientChannel.getChannel().getConnection().getPeerAddress());
             serviceURLCache = null;
+            servicesChanged();
         }
     }
 
     void removeConnection(EJBClientChannel clientChannel) {
         synchronized (this) {
-            boolean moduleRemoved = modulesByConnection.remove(clientChannel) != null;
+            final Set<EJBModuleIdentifier> removedModules = modulesByConnection.remove(clientChannel);
+            boolean moduleRemoved = removedModules != null;
+            if (moduleRemoved) {
+                for (EJBModuleIdentifier module : removedModules) {
+                    moduleRemoved(module);
+                }
+            }
             boolean addressRemoved = addressesByConnection.remove(clientChannel) != null;
             if (moduleRemoved || addressRemoved) {
                 serviceURLCache = null;
+                servicesChanged();
+            }
+        }
+    }
+
+    private void servicesChanged() {
+        if (registry != null) {
+            registry.servicesChanged();
+        }
+    }
+
+    // must be called under lock
+    private void moduleAdded(final EJBModuleIdentifier module) {
+        if (moduleConnectionCounts.merge(module, Integer.valueOf(1), Integer::sum).intValue() == 1 && registry != null) {
+            registry.moduleAvailable(module, this);
+        }
+    }
+
+    // must be called under lock
+    private void moduleRemoved(final EJBModuleIdentifier module) {
+        final Integer count = moduleConnectionCounts.get(module);
+        if (count == null) {
+            return;
+        }
+        if (count.intValue() == 1) {
+            moduleConnectionCounts.remove(module);
+            if (registry != null) {
+                registry.moduleUnavailable(module, this);
             }
+        } else {
+            moduleConnectionCounts.put(module, Integer.valueOf(count.intValue() - 1));
         }
     }
 
@@ -23,10 +23,20 @@ package org.jboss.ejb.protocol.remote;
  */
 final class Protocol {
 
-    public static final int LATEST_VERSION = 3;
+    public static final int LATEST_VERSION = 4;
 
     // flags field (v3 and up)
     public static final int COMPRESS_RESPONSE = 0b0000_1111;
+    // v4 and up: response compression codec
+    static final int COMPRESS_RESPONSE_CODEC = 0b0011_0000;
+    static final int COMPRESS_RESPONSE_CODEC_SHIFT = 4;
+    // v4 and up: the kind of streamed result the client accepts, plus one; 0 = the result must not be streamed
+    static final int STREAM_RESULT_KIND = 0b1100_0000;
+    static final int STREAM_RESULT_KIND_SHIFT = 6;
+
+    // compression codec identifiers
+    static final int CODEC_DEFLATE = 0;
+    static final int CODEC_LZ4     = 1;
 
     public static final int OPEN_SESSION_REQUEST   = 0x01; // c → s
     public static final int OPEN_SESSION_RESPONSE  = 0x02; // s → c
@@ -64,10 +74,31 @@ final class Protocol {
     // v3 and up
     public static final int BAD_VIEW_TYPE         = 0x1C; // s → c
 
+    // v4 and up
+    public static final int CODEC_COMPRESSED_INVOCATION_MESSAGE = 0x1D; // s → c & c → s
+    public static final int SERVER_BUSY                         = 0x1E; // s → c
+    public static final int RESULT_STREAM_CHUNK                 = 0x1F; // s → c
+    public static final int RESULT_STREAM_CREDIT                = 0x20; // c → s
+    public static final int INVOCATION_BATCH                    = 0x21; // c → s
+
+    static final int UPDATE_BIT_STREAMED_RESULT = 0b100000; // v4 and up
+    static final int UPDATE_BIT_RAW_RESULT      = 0b10000; // v4 and up
+    static final int UPDATE_BIT_LOAD            = 0b1000; // v4 and up
     static final int UPDATE_BIT_STRONG_AFFINITY = 0b100;
     static final int UPDATE_BIT_WEAK_AFFINITY   = 0b010;
     static final int UPDATE_BIT_SESSION_ID      = 0b001;
 
+    // v4 and up: the kind of a streamed result
+    static final int STREAM_KIND_ITERATOR     = 0;
+    static final int STREAM_KIND_STREAM       = 1;
+    static final int STREAM_KIND_INPUT_STREAM = 2;
+
+    // v4 and up: the state of a result stream after a chunk
+    static final int STREAM_CHUNK_MORE      = 0;
+    static final int STREAM_CHUNK_LAST      = 1;
+    static final int STREAM_CHUNK_FAILED    = 2;
+    static final int STREAM_CHUNK_CANCELLED = 3;
+
     private Protocol() {
     }
 }
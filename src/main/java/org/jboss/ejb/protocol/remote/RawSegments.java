@@ -0,0 +1,217 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Binary values which are written as raw, length-prefixed segments instead of being marshalled.  A segment is
+ * written straight onto the message stream ahead of the marshalled part of the message, so that the bytes are not
+ * copied through the marshaller buffer, and is read back into a single array of the exact size.
+ * <p>
+ * A segment starts with a type byte.  Arrays and buffers are followed by the packed length and the bytes; streams
+ * are followed by a sequence of chunks, each with its packed length, terminated by an empty chunk.  A value of a
+ * raw type is always read back as a value of the same type; streams are read back as in-memory streams.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class RawSegments {
+
+    /**
+     * The smallest {@code byte[]} value which is written as a raw segment.  Buffers and streams are always written as
+     * raw segments, as they cannot be marshalled.
+     */
+    static final int THRESHOLD = Math.max(0, SecurityUtils.getInteger(SystemProperties.RAW_SEGMENT_THRESHOLD, 8192));
+
+    static final int TYPE_BYTES = 0;
+    static final int TYPE_BUFFER = 1;
+    static final int TYPE_STREAM = 2;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final int[] indexes;
+    private final Object[] values;
+
+    private RawSegments(final int[] indexes, final Object[] values) {
+        this.indexes = indexes;
+        this.values = values;
+    }
+
+    /**
+     * Determine whether the given value is written as a raw segment.
+     *
+     * @param value the value
+     * @return {@code true} if the value is written as a raw segment, {@code false} if it is marshalled
+     */
+    static boolean isRaw(final Object value) {
+        return value instanceof ByteBuffer || value instanceof InputStream || value instanceof byte[] && ((byte[]) value).length >= THRESHOLD;
+    }
+
+    /**
+     * Write the raw segments of the given invocation parameters.  The parameters which are written here must be
+     * marshalled as {@code null}.
+     *
+     * @param output the message output
+     * @param parameters the invocation parameters (may be {@code null})
+     * @throws IOException if writing fails
+     */
+    static void writeParameters(final DataOutput output, final Object[] parameters) throws IOException {
+        int count = 0;
+        if (parameters != null) {
+            for (Object parameter : parameters) {
+                if (isRaw(parameter)) count ++;
+            }
+        }
+        PackedInteger.writePackedInteger(output, count);
+        if (count > 0) {
+            for (int i = 0; i < parameters.length; i ++) {
+                if (isRaw(parameters[i])) {
+                    PackedInteger.writePackedInteger(output, i);
+                    writeValue(output, parameters[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the raw segments of invocation parameters.
+     *
+     * @param input the message input
+     * @return the raw parameters, or {@code null} if there are none
+     * @throws IOException if reading fails
+     */
+    static RawSegments readParameters(final DataInput input) throws IOException {
+        final int count = PackedInteger.readPackedInteger(input);
+        if (count == 0) {
+            return null;
+        }
+        final int[] indexes = new int[count];
+        final Object[] values = new Object[count];
+        for (int i = 0; i < count; i ++) {
+            indexes[i] = PackedInteger.readPackedInteger(input);
+            values[i] = readValue(input);
+        }
+        return new RawSegments(indexes, values);
+    }
+
+    /**
+     * Put the raw parameters into their places among the unmarshalled parameters.
+     *
+     * @param parameters the unmarshalled parameters
+     * @throws InvalidObjectException if a raw parameter has no place among the parameters
+     */
+    void applyTo(final Object[] parameters) throws InvalidObjectException {
+        for (int i = 0; i < indexes.length; i ++) {
+            final int index = indexes[i];
+            if (index >= parameters.length) {
+                throw new InvalidObjectException("Invalid raw parameter index " + index);
+            }
+            parameters[index] = values[i];
+        }
+    }
+
+    /**
+     * Write a single raw value.
+     *
+     * @param output the message output
+     * @param value the value, for which {@link #isRaw(Object)} must be {@code true}
+     * @throws IOException if writing fails, or if reading a stream value fails
+     */
+    static void writeValue(final DataOutput output, final Object value) throws IOException {
+        if (value instanceof byte[]) {
+            final byte[] bytes = (byte[]) value;
+            output.writeByte(TYPE_BYTES);
+            PackedInteger.writePackedInteger(output, bytes.length);
+            output.write(bytes);
+        } else if (value instanceof ByteBuffer) {
+            // leave the position of the caller's buffer alone
+            final ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            final int length = buffer.remaining();
+            output.writeByte(TYPE_BUFFER);
+            PackedInteger.writePackedInteger(output, length);
+            if (buffer.hasArray()) {
+                output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            } else {
+                final byte[] chunk = new byte[Math.min(length, CHUNK_SIZE)];
+                while (buffer.hasRemaining()) {
+                    final int cnt = Math.min(chunk.length, buffer.remaining());
+                    buffer.get(chunk, 0, cnt);
+                    output.write(chunk, 0, cnt);
+                }
+            }
+        } else {
+            final InputStream stream = (InputStream) value;
+            output.writeByte(TYPE_STREAM);
+            final byte[] chunk = new byte[CHUNK_SIZE];
+            int cnt;
+            while ((cnt = stream.read(chunk)) != -1) {
+                if (cnt > 0) {
+                    PackedInteger.writePackedInteger(output, cnt);
+                    output.write(chunk, 0, cnt);
+                }
+            }
+            PackedInteger.writePackedInteger(output, 0);
+        }
+    }
+
+    /**
+     * Read a single raw value.
+     *
+     * @param input the message input
+     * @return the value
+     * @throws IOException if reading fails
+     */
+    static Object readValue(final DataInput input) throws IOException {
+        final int type = input.readUnsignedByte();
+        switch (type) {
+            case TYPE_BYTES: {
+                final byte[] bytes = new byte[PackedInteger.readPackedInteger(input)];
+                input.readFully(bytes);
+                return bytes;
+            }
+            case TYPE_BUFFER: {
+                final byte[] bytes = new byte[PackedInteger.readPackedInteger(input)];
+                input.readFully(bytes);
+                return ByteBuffer.wrap(bytes);
+            }
+            case TYPE_STREAM: {
+                byte[] bytes = new byte[CHUNK_SIZE];
+                int size = 0;
+                int cnt;
+                while ((cnt = PackedInteger.readPackedInteger(input)) > 0) {
+                    if (bytes.length - size < cnt) {
+                        bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + cnt));
+                    }
+                    input.readFully(bytes, size, cnt);
+                    size += cnt;
+                }
+                return new ByteArrayInputStream(bytes, 0, size);
+            }
+            default: {
+                throw new InvalidObjectException("Invalid raw segment type " + type);
+            }
+        }
+    }
+}
@@ -26,6 +26,11 @@ import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.security.PrivilegedAction;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
 
 import javax.ejb.CreateException;
 import javax.net.ssl.SSLException;
@@ -36,6 +41,8 @@ import org.jboss.ejb.client.AbstractInvocationContext;
 import org.jboss.ejb.client.Affinity;
 import org.jboss.ejb.client.AttachmentKey;
 import org.jboss.ejb.client.ClusterAffinity;
+import org.jboss.ejb.client.EJBClientInvocationContext;
+import org.jboss.ejb.client.EJBLocator;
 import org.jboss.ejb.client.EJBReceiver;
 import org.jboss.ejb.client.EJBReceiverContext;
 import org.jboss.ejb.client.EJBReceiverInvocationContext;
@@ -44,6 +51,7 @@ import org.jboss.ejb.client.RequestSendFailedException;
 import org.jboss.ejb.client.SessionID;
 import org.jboss.ejb.client.StatefulEJBLocator;
 import org.jboss.ejb.client.StatelessEJBLocator;
+import org.jboss.remoting3.Channel;
 import org.jboss.remoting3.ClientServiceHandle;
 import org.jboss.remoting3.Connection;
 import org.jboss.remoting3.ConnectionPeerIdentity;
@@ -64,35 +72,63 @@ class RemoteEJBReceiver extends EJBReceiver {
     private static final Logs log = Logs.MAIN;
     static final AttachmentKey<EJBClientChannel> EJBCC_KEY = new AttachmentKey<>();
 
+    /**
+     * The number of EJB channels opened on each connection.  This is opt-in, and the channels of a connection all
+     * share its I/O thread; see {@link SystemProperties#CHANNELS_PER_CONNECTION}.
+     */
+    static final int CHANNELS_PER_CONNECTION = Math.max(1, SecurityUtils.getInteger(SystemProperties.CHANNELS_PER_CONNECTION, 1));
+    /**
+     * {@code true} to send each invocation over the channel with the fewest outstanding invocations, {@code false}
+     * to use the channels in turn.
+     */
+    static final boolean LEAST_LOADED_CHANNEL = "least-loaded".equals(SecurityUtils.getString(SystemProperties.CHANNEL_SELECTION, "round-robin"));
+
     private final RemoteTransportProvider remoteTransportProvider;
     private final EJBReceiverContext receiverContext;
     private final RemotingEJBDiscoveryProvider discoveredNodeRegistry;
 
+    // the first channel of each connection; also used for discovery, sessions and transactions
     final ClientServiceHandle<EJBClientChannel> serviceHandle;
+    // all channels of each connection, starting with serviceHandle
+    private final ClientServiceHandle<EJBClientChannel>[] channelHandles;
+    private final AtomicInteger nextChannel = new AtomicInteger();
 
     private final RetryExecutorWrapper retryExecutorWrapper = new RetryExecutorWrapper();
 
+    // number of open EJB channels by peer URI; replaced (never modified) under the lock of this receiver
+    private volatile Map<URI, Integer> connectedPeers = Collections.emptyMap();
+    private volatile long connectionStateVersion;
+
     RemoteEJBReceiver(final RemoteTransportProvider remoteTransportProvider, final EJBReceiverContext receiverContext, final RemotingEJBDiscoveryProvider discoveredNodeRegistry) {
         this.remoteTransportProvider = remoteTransportProvider;
         this.receiverContext = receiverContext;
         this.discoveredNodeRegistry = discoveredNodeRegistry;
-        serviceHandle = new ClientServiceHandle<>("jboss.ejb", channel -> EJBClientChannel.construct(channel, this.discoveredNodeRegistry, retryExecutorWrapper));
+        @SuppressWarnings("unchecked")
+        final ClientServiceHandle<EJBClientChannel>[] channelHandles = new ClientServiceHandle[CHANNELS_PER_CONNECTION];
+        for (int i = 0; i < channelHandles.length; i ++) {
+            channelHandles[i] = new ClientServiceHandle<>("jboss.ejb", channel -> {
+                channelOpened(channel);
+                return EJBClientChannel.construct(channel, this.discoveredNodeRegistry, retryExecutorWrapper);
+            });
+        }
+        this.channelHandles = channelHandles;
+        serviceHandle = channelHandles[0];
     }
 
     final IoFuture.HandlingNotifier<ConnectionPeerIdentity, EJBReceiverInvocationContext> notifier = new IoFuture.HandlingNotifier<ConnectionPeerIdentity, EJBReceiverInvocationContext>() {
         public void handleDone(final ConnectionPeerIdentity peerIdentity, final EJBReceiverInvocationContext attachment) {
-            serviceHandle.getClientService(peerIdentity.getConnection(), OptionMap.EMPTY).addNotifier((ioFuture, attachment1) -> {
+            selectChannelHandle(attachment.getClientInvocationContext(), peerIdentity.getConnection()).getClientService(peerIdentity.getConnection(), OptionMap.EMPTY).addNotifier((ioFuture, attachment1) -> {
                 final EJBClientChannel ejbClientChannel;
                 try {
 
                     ejbClientChannel = ioFuture.getInterruptibly();
                 } catch (IOException e) {
                     // should generally not be possible but we should handle it cleanly regardless
-                    attachment1.requestFailed(new RequestSendFailedException(e + "@" + peerIdentity.getConnection().getPeerURI(), false), retryExecutorWrapper.getExecutor(peerIdentity.getConnection().getEndpoint().getXnioWorker()));
+                    attachment1.requestFailed(new RequestSendFailedException(e + "@" + peerIdentity.getConnection().getPeerURI(), false), retryExecutorWrapper.getExecutor(peerIdentity.getConnection().getEndpoint().getXnioWorker(), attachment1));
                     return;
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
-                    attachment1.requestFailed(new RequestSendFailedException(e + "@" + peerIdentity.getConnection().getPeerURI(), false), retryExecutorWrapper.getExecutor(peerIdentity.getConnection().getEndpoint().getXnioWorker()));
+                    attachment1.requestFailed(new RequestSendFailedException(e + "@" + peerIdentity.getConnection().getPeerURI(), false), retryExecutorWrapper.getExecutor(peerIdentity.getConnection().getEndpoint().getXnioWorker(), attachment1));
                     return;
                 }
                 attachment1.getClientInvocationContext().putAttachment(EJBCC_KEY, ejbClientChannel);
@@ -115,7 +151,7 @@ class RemoteEJBReceiver extends EJBReceiver {
             } else if (exception instanceof SSLHandshakeException && exception instanceof ConnectException) {
                 Logs.REMOTING.error("Error while connecting @ " + destination + " becauese of incorrect protocol and port combination compare to the server.");
             }
-            attachment.requestFailed(new RequestSendFailedException("Destination @ " + destination, exception, false), retryExecutorWrapper.getExecutor(Endpoint.getCurrent().getXnioWorker()));
+            attachment.requestFailed(new RequestSendFailedException("Destination @ " + destination, exception, false), retryExecutorWrapper.getExecutor(Endpoint.getCurrent().getXnioWorker(), attachment));
         }
     };
 
@@ -141,7 +177,72 @@ class RemoteEJBReceiver extends EJBReceiver {
         }
     }
 
+    /**
+     * Select the channel of the given connection to send an invocation over.  Invocations of a stateful session always
+     * use the same channel, so that they reach the server in order, and transactional invocations use the first
+     * channel, which also carries the transaction control messages of the connection.
+     *
+     * @param context the invocation context
+     * @param connection the connection
+     * @return the handle of the selected channel
+     */
+    ClientServiceHandle<EJBClientChannel> selectChannelHandle(final EJBClientInvocationContext context, final Connection connection) {
+        final ClientServiceHandle<EJBClientChannel>[] channelHandles = this.channelHandles;
+        if (channelHandles.length == 1) {
+            return serviceHandle;
+        }
+        final int index = selectChannel(context.getLocator(), context.getTransaction() != null, channelHandles.length, LEAST_LOADED_CHANNEL, nextChannel.getAndIncrement(), i -> {
+            final IoFuture<EJBClientChannel> future = channelHandles[i].getClientService(connection, OptionMap.EMPTY);
+            try {
+                // a channel which is still being opened has no outstanding invocations yet
+                return future.getStatus() == IoFuture.Status.DONE ? future.get().getOutstandingInvocations() : 0;
+            } catch (IOException e) {
+                return -1;
+            }
+        });
+        return channelHandles[index];
+    }
+
+    /**
+     * Select the index of the channel to send an invocation over.
+     *
+     * @param locator the locator of the invoked EJB
+     * @param transactional {@code true} if the invocation is part of a transaction
+     * @param count the number of channels
+     * @param leastLoaded {@code true} to select the channel with the fewest outstanding invocations, {@code false} to
+     *      use the channels in turn
+     * @param next a counter which is advanced for every invocation
+     * @param outstanding the number of outstanding invocations of the channel with the given index, or {@code -1} if
+     *      the channel cannot be used
+     * @return the index of the selected channel
+     */
+    static int selectChannel(final EJBLocator<?> locator, final boolean transactional, final int count, final boolean leastLoaded, final int next, final IntUnaryOperator outstanding) {
+        if (count == 1 || transactional) {
+            return 0;
+        }
+        if (locator.isStateful()) {
+            return Math.floorMod(locator.asStateful().getSessionId().hashCode(), count);
+        }
+        // start at a rotating position so that ties are spread over the channels
+        final int start = Math.floorMod(next, count);
+        if (! leastLoaded) {
+            return start;
+        }
+        int best = -1;
+        int bestOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i ++) {
+            final int index = (start + i) % count;
+            final int channelOutstanding = outstanding.applyAsInt(index);
+            if (channelOutstanding >= 0 && channelOutstanding < bestOutstanding) {
+                best = index;
+                bestOutstanding = channelOutstanding;
+            }
+        }
+        return best == -1 ? 0 : best;
+    }
+
     protected void processInvocation(final EJBReceiverInvocationContext receiverContext) throws Exception {
+        retryExecutorWrapper.requestSent(receiverContext);
         final AuthenticationContext authenticationContext = receiverContext.getAuthenticationContext();
         final IoFuture<ConnectionPeerIdentity> futureConnection = getConnection(receiverContext.getClientInvocationContext(), receiverContext.getClientInvocationContext().getDestination(), authenticationContext);
         // this actually causes the invocation to move forward
@@ -182,6 +283,10 @@ class RemoteEJBReceiver extends EJBReceiver {
     }
 
     protected boolean isConnected(final URI uri) {
+        // a peer without an open EJB channel is never connected; otherwise it depends on the current identity
+        if (! connectedPeers.containsKey(uri)) {
+            return false;
+        }
         final IoFuture<ConnectionPeerIdentity> future = Endpoint.getCurrent().getConnectedIdentityIfExists(uri, "ejb", "jboss", AuthenticationContext.captureCurrent());
         try {
             return future != null && future.getStatus() == IoFuture.Status.DONE && future.get().getConnection().isOpen();
@@ -191,6 +296,33 @@ class RemoteEJBReceiver extends EJBReceiver {
         }
     }
 
+    protected long getConnectionStateVersion() {
+        return connectionStateVersion;
+    }
+
+    private void channelOpened(final Channel channel) {
+        final URI peerURI = channel.getConnection().getPeerURI();
+        if (peerURI == null) {
+            return;
+        }
+        synchronized (this) {
+            final Map<URI, Integer> newPeers = new HashMap<>(connectedPeers);
+            newPeers.merge(peerURI, Integer.valueOf(1), Integer::sum);
+            connectedPeers = newPeers;
+            connectionStateVersion++;
+        }
+        channel.addCloseHandler((closed, exception) -> channelClosed(peerURI));
+    }
+
+    private void channelClosed(final URI peerURI) {
+        synchronized (this) {
+            final Map<URI, Integer> newPeers = new HashMap<>(connectedPeers);
+            newPeers.computeIfPresent(peerURI, (uri, count) -> count.intValue() == 1 ? null : Integer.valueOf(count.intValue() - 1));
+            connectedPeers = newPeers;
+            connectionStateVersion++;
+        }
+    }
+
     private IoFuture<ConnectionPeerIdentity> getConnection(final AbstractInvocationContext context, final URI target, @NotNull AuthenticationContext authenticationContext) throws Exception {
         Affinity affinity = context.getLocator().getAffinity();
         String cluster = (affinity instanceof ClusterAffinity) ? ((ClusterAffinity) affinity).getClusterName() : context.getInitialCluster();
@@ -212,6 +344,8 @@ class RemoteEJBReceiver extends EJBReceiver {
     }
 
     public void close() throws Exception {
-        serviceHandle.closeChannel();
+        for (ClientServiceHandle<EJBClientChannel> channelHandle : channelHandles) {
+            channelHandle.closeChannel();
+        }
     }
 }
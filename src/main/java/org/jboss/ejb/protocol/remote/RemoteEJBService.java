@@ -28,6 +28,7 @@ import java.util.function.Function;
 
 import org.jboss.ejb.server.Association;
 import org.jboss.ejb.server.ListenerHandle;
+import org.jboss.ejb.server.RequestExecutorStrategy;
 import org.jboss.remoting3.Channel;
 import org.jboss.remoting3.MessageInputStream;
 import org.jboss.remoting3.MessageOutputStream;
@@ -48,8 +49,9 @@ public final class RemoteEJBService {
 
     private final OpenListener openListener;
     private final CallbackBuffer callbackBuffer = new CallbackBuffer();
+    private final AdmissionControl admissionControl = new AdmissionControl();
 
-    private RemoteEJBService(final Association association, final RemotingTransactionService transactionService, final Function<String, Boolean> classResolverFilter) {
+    private RemoteEJBService(final Association association, final RemotingTransactionService transactionService, final Function<String, Boolean> classResolverFilter, final RequestExecutorStrategy executorStrategy) {
         openListener = new OpenListener() {
             public void channelOpened(final Channel channel) {
                 final MessageTracker messageTracker = new MessageTracker(channel, channel.getOption(RemotingOptions.MAX_OUTBOUND_MESSAGES).intValue());
@@ -67,7 +69,7 @@ public final class RemoteEJBService {
                         try {
                             final int version;
                             try {
-                                version = min(3, StreamUtils.readInt8(message));
+                                version = min(Protocol.LATEST_VERSION, StreamUtils.readInt8(message));
                                 // drain the rest of the message because it's just garbage really
                                 while (message.read() != -1) {
                                     message.skip(Long.MAX_VALUE);
@@ -77,7 +79,7 @@ public final class RemoteEJBService {
                                 return;
                             }
                             final EJBServerChannel serverChannel = new EJBServerChannel(transactionService.getServerForConnection(channel.getConnection()),
-                                    channel, version, messageTracker, classResolverFilter);
+                                    channel, version, messageTracker, classResolverFilter, executorStrategy, admissionControl);
                             callbackBuffer.addListener((sc, a) -> {
                                 final ListenerHandle handle1 = a.registerClusterTopologyListener(sc.createTopologyListener());
                                 final ListenerHandle handle2 = a.registerModuleAvailabilityListener(sc.createModuleListener());
@@ -128,9 +130,26 @@ public final class RemoteEJBService {
      */
     public static RemoteEJBService create(final Association association, final RemotingTransactionService transactionService,
                                           final Function<String, Boolean>  classResolverFilter) {
+        return create(association, transactionService, classResolverFilter, RequestExecutorStrategy.DEFAULT);
+    }
+
+    /**
+     * Create a new remote EJB service instance with a request executor strategy.
+     *
+     * @param association the association to use (must not be {@code null})
+     * @param transactionService the Remoting transaction server to use (must not be {@code null})
+     * @param classResolverFilter filter function to apply to class names before resolving them during unmarshalling.
+     *                            Must return {@link Boolean#TRUE} for the classname to be resolved, else unmarshalling
+     *                            will fail. May be {@code null} in which case no filtering is performed
+     * @param executorStrategy the strategy which selects the executor of each request (must not be {@code null})
+     * @return the remote EJB service instance (not {@code null})
+     */
+    public static RemoteEJBService create(final Association association, final RemotingTransactionService transactionService,
+                                          final Function<String, Boolean>  classResolverFilter, final RequestExecutorStrategy executorStrategy) {
         Assert.checkNotNullParam("association", association);
         Assert.checkNotNullParam("transactionService", transactionService);
-        return new RemoteEJBService(association, transactionService, classResolverFilter);
+        Assert.checkNotNullParam("executorStrategy", executorStrategy);
+        return new RemoteEJBService(association, transactionService, classResolverFilter, executorStrategy);
     }
 
     /**
@@ -142,6 +161,26 @@ public final class RemoteEJBService {
         return openListener;
     }
 
+    /**
+     * Get the number of invocation requests currently in flight on all connections of this service.
+     *
+     * @return the number of requests in flight
+     */
+    public int getInFlightRequestCount() {
+        return admissionControl.getInFlight();
+    }
+
+    /**
+     * Get the number of invocation requests rejected because the server was busy.  The limits are set by the
+     * {@code org.jboss.ejb.server.max-requests} and {@code org.jboss.ejb.server.max-connection-requests} system
+     * properties.
+     *
+     * @return the number of rejected requests
+     */
+    public long getRejectedRequestCount() {
+        return admissionControl.getRejectedCount();
+    }
+
     /**
      * Indicate that the server is up, which will allow client invocations to proceed.  This method must be called
      * in order for invocations to flow through the server.
@@ -35,6 +35,7 @@ import java.net.UnknownHostException;
 import java.security.GeneralSecurityException;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -51,6 +52,7 @@ import org.jboss.ejb.client.DiscoveryEJBClientInterceptor;
 import org.jboss.ejb.client.EJBClientConnection;
 import org.jboss.ejb.client.EJBClientContext;
 import org.jboss.ejb.client.EJBModuleIdentifier;
+import org.jboss.ejb.client.EJBReceiverContext;
 import org.jboss.logging.Logger;
 import org.jboss.remoting3.ConnectionPeerIdentity;
 import org.jboss.remoting3.Endpoint;
@@ -89,15 +91,24 @@ final class RemotingEJBDiscoveryProvider implements DiscoveryProvider, Discovere
     private final ConcurrentHashMap<String, Set<String>> clusterNodes = new ConcurrentHashMap<>();
 
     private final ConcurrentHashMap<String, URI> effectiveAuthURIs = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<EJBModuleIdentifier, Set<NodeInformation>> nodesByModule = new ConcurrentHashMap<>();
     
     private static final long DESTINATION_RECHECK_INTERVAL = TimeUnit.MILLISECONDS.toNanos(SecurityUtils.getLong(SystemProperties.DESTINATION_RECHECK_INTERVAL, 5000L));
 
+    private final EJBReceiverContext receiverContext;
+
     public RemotingEJBDiscoveryProvider() {
+        this(null);
+    }
+
+    RemotingEJBDiscoveryProvider(final EJBReceiverContext receiverContext) {
         Endpoint.getCurrent(); //this will blow up if remoting is not present, preventing this from being registered
+        this.receiverContext = receiverContext;
     }
 
     public NodeInformation getNodeInformation(final String nodeName) {
-        return nodes.computeIfAbsent(nodeName, NodeInformation::new);
+        return nodes.computeIfAbsent(nodeName, name -> new NodeInformation(name, this));
     }
 
     public List<NodeInformation> getAllNodeInformation() {
@@ -106,17 +117,46 @@ final class RemotingEJBDiscoveryProvider implements DiscoveryProvider, Discovere
 
     public void addNode(final String clusterName, final String nodeName, URI registeredBy) {
         effectiveAuthURIs.putIfAbsent(clusterName, registeredBy);
-        clusterNodes.computeIfAbsent(clusterName, ignored -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(nodeName);
+        if (clusterNodes.computeIfAbsent(clusterName, ignored -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(nodeName)) {
+            servicesChanged();
+        }
     }
 
     public void removeNode(final String clusterName, final String nodeName) {
-        clusterNodes.getOrDefault(clusterName, Collections.emptySet()).remove(nodeName);
+        if (clusterNodes.getOrDefault(clusterName, Collections.emptySet()).remove(nodeName)) {
+            servicesChanged();
+        }
     }
 
     public void removeCluster(final String clusterName) {
         final Set<String> removed = clusterNodes.remove(clusterName);
         if (removed != null) removed.clear();
         effectiveAuthURIs.remove(clusterName);
+        servicesChanged();
+    }
+
+    public void servicesChanged() {
+        if (receiverContext != null) {
+            receiverContext.invalidateDiscoveryResults();
+        }
+    }
+
+    public void moduleAvailable(final EJBModuleIdentifier module, final NodeInformation nodeInformation) {
+        nodesByModule.computeIfAbsent(module, ignored -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(nodeInformation);
+    }
+
+    public void moduleUnavailable(final EJBModuleIdentifier module, final NodeInformation nodeInformation) {
+        nodesByModule.getOrDefault(module, Collections.emptySet()).remove(nodeInformation);
+    }
+
+    /**
+     * Get the nodes which might satisfy a filter requiring the given module.
+     *
+     * @param module the module required by the filter, or {@code null} if the filter does not require a specific module
+     * @return the candidate nodes
+     */
+    Collection<NodeInformation> getCandidateNodes(final EJBModuleIdentifier module) {
+        return module == null ? nodes.values() : nodesByModule.getOrDefault(module, Collections.emptySet());
     }
 
     private boolean haveNotExpiredFailedDestination(URI uri) {
@@ -471,11 +511,11 @@ final class RemotingEJBDiscoveryProvider implements DiscoveryProvider, Discovere
                     if (node != null) {
                         if (eagerNodes == null || !eagerNodes.contains(node)) {
                             final NodeInformation information = nodes.get(node);
-                            if (information != null) information.discover(serviceType, filterSpec, result);
+                            if (information != null) information.discover(serviceType, filterSpec, module, result);
                         }
-                    } else for (NodeInformation information : nodes.values()) {
+                    } else for (NodeInformation information : getCandidateNodes(module)) {
                         if (eagerNodes == null || !eagerNodes.contains(information.getNodeName())) {
-                            information.discover(serviceType, filterSpec, result);
+                            information.discover(serviceType, filterSpec, module, result);
                         }
                     }
                     result.complete();
@@ -486,14 +526,14 @@ final class RemotingEJBDiscoveryProvider implements DiscoveryProvider, Discovere
                         if (eagerNodes == null || !eagerNodes.contains(node)) {
                             final NodeInformation information = nodes.get(node);
                             if (information != null) {
-                                if (information.discover(serviceType, filterSpec, result)) {
+                                if (information.discover(serviceType, filterSpec, module, result)) {
                                     ok = true;
                                 }
                             }
                         }
-                    } else for (NodeInformation information : nodes.values()) {
+                    } else for (NodeInformation information : getCandidateNodes(module)) {
                         if (eagerNodes == null || !eagerNodes.contains(information.getNodeName())) {
-                            if (information.discover(serviceType, filterSpec, result)) {
+                            if (information.discover(serviceType, filterSpec, module, result)) {
                                 ok = true;
                             }
                         }
@@ -558,18 +598,19 @@ final class RemotingEJBDiscoveryProvider implements DiscoveryProvider, Discovere
             } else if (eagerNodes != null) {
                 final DiscoveryResult result = this.discoveryResult;
                 final String node = filterSpec.accept(NODE_EXTRACTOR);
+                final EJBModuleIdentifier module = filterSpec.accept(MI_EXTRACTOR);
                 if (node != null) {
                     if (!eagerNodes.contains(node)) {
                         final NodeInformation information = nodes.get(node);
                         if (information != null) {
-                            if (information.discover(serviceType, filterSpec, result)) {
+                            if (information.discover(serviceType, filterSpec, module, result)) {
                                 eagerNodes.add(node);
                             }
                         }
                     }
-                } else for (NodeInformation information : nodes.values()) {
+                } else for (NodeInformation information : getCandidateNodes(module)) {
                     if (!eagerNodes.contains(information.getNodeName())) {
-                        if (information.discover(serviceType, filterSpec, result)) {
+                        if (information.discover(serviceType, filterSpec, module, result)) {
                             eagerNodes.add(information.getNodeName());
                         }
                     }
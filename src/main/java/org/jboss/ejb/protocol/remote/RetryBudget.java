@@ -0,0 +1,182 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.protocol.remote;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A limit on the number of retries sent to a single destination.  Over a sliding window of {@link #WINDOW} seconds,
+ * retries may be made at {@link #MIN_PER_SECOND} per second, plus {@link #PERCENT} percent of the requests sent to the
+ * destination in the same window.  This keeps a failing destination from being flooded with retries while still
+ * allowing every in-flight request to fail over when a node goes away under normal load.
+ * <p>
+ * Neither recording requests nor taking out retries locks.  The retries of the current second are counted in a single
+ * packed state, which a retry is taken out of by compare-and-set, so that no two retries can use up the same part of
+ * the budget.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class RetryBudget {
+
+    static final int PERCENT = Math.max(0, SecurityUtils.getInteger(SystemProperties.RETRY_BUDGET_PERCENT, 20));
+    static final int MIN_PER_SECOND = Math.max(0, SecurityUtils.getInteger(SystemProperties.RETRY_BUDGET_MIN_PER_SECOND, 10));
+    static final int WINDOW = 10;
+
+    private static final long SLOT_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+    private static final AtomicLongFieldUpdater<RetryBudget> retryStateUpdater = AtomicLongFieldUpdater.newUpdater(RetryBudget.class, "retryState");
+
+    private final int percent;
+    private final int minPerSecond;
+    // per-second slots of the window, indexed by second modulo the window size; each slot holds the (truncated) second
+    // it counts in its upper half and the count in its lower half, so that requests are counted without locking
+    private final AtomicLongArray requests = new AtomicLongArray(WINDOW);
+    // the retries of the seconds before the one counted in retryState, in the same format
+    private final AtomicLongArray retries = new AtomicLongArray(WINDOW);
+    // the retries of the latest second which a retry was taken out in; the second in the upper half, the count in the lower
+    volatile long retryState;
+
+    RetryBudget() {
+        this(PERCENT, MIN_PER_SECOND, System.nanoTime());
+    }
+
+    RetryBudget(final int percent, final int minPerSecond, final long now) {
+        this.percent = percent;
+        this.minPerSecond = minPerSecond;
+        // start out with empty slots which are already outside of the window
+        final long expired = stamp(Math.floorDiv(now, SLOT_NANOS) - WINDOW);
+        for (int i = 0; i < WINDOW; i ++) {
+            requests.set(i, expired);
+            retries.set(i, expired);
+        }
+        retryState = expired;
+    }
+
+    /**
+     * Record a request sent to the destination.
+     */
+    void deposit() {
+        deposit(System.nanoTime());
+    }
+
+    void deposit(final long now) {
+        increment(requests, Math.floorDiv(now, SLOT_NANOS));
+    }
+
+    /**
+     * Attempt to take a retry out of the budget.
+     *
+     * @return {@code true} if the retry may proceed, {@code false} if the budget is exhausted
+     */
+    boolean tryWithdraw() {
+        return tryWithdraw(System.nanoTime());
+    }
+
+    boolean tryWithdraw(final long now) {
+        final long slot = Math.floorDiv(now, SLOT_NANOS);
+        // all quantities are in percent of a retry
+        final long allowance = (long) minPerSecond * WINDOW * 100L + sum(requests, slot) * percent;
+        long oldState, newState;
+        do {
+            oldState = retryState;
+            final int age = age(slot, oldState);
+            final long current;
+            if (age > 0) {
+                // the state counts an earlier second, whose count is final unless the state changes; archive it
+                // before moving on, so that it is never missing from the sum
+                if (age < WINDOW) {
+                    archive(slot - age, oldState);
+                }
+                current = 0L;
+                newState = stamp(slot) | 1L;
+            } else {
+                // the state counts this second, or a slightly later one if another thread already moved on
+                current = oldState & 0xFFFFFFFFL;
+                newState = oldState + 1L;
+            }
+            if (allowance - (sum(retries, slot) + current) * 100L < 100L) {
+                return false;
+            }
+        } while (! retryStateUpdater.compareAndSet(this, oldState, newState));
+        return true;
+    }
+
+    /**
+     * Determine whether the budget holds no requests and no retries any more, and so is no different from a new one.
+     *
+     * @param now the current time in nanoseconds
+     * @return {@code true} if the budget is idle, {@code false} otherwise
+     */
+    boolean isIdle(final long now) {
+        final long slot = Math.floorDiv(now, SLOT_NANOS);
+        final int age = age(slot, retryState);
+        return (age >= WINDOW || age <= -WINDOW) && sum(requests, slot) == 0L && sum(retries, slot) == 0L;
+    }
+
+    private static long stamp(final long slot) {
+        return slot << 32;
+    }
+
+    private static int age(final long slot, final long value) {
+        return (int) slot - (int) (value >>> 32);
+    }
+
+    private static void increment(final AtomicLongArray slots, final long slot) {
+        final int idx = (int) Math.floorMod(slot, (long) WINDOW);
+        long oldVal, newVal;
+        do {
+            oldVal = slots.get(idx);
+            final int age = age(slot, oldVal);
+            if (age > 0 || age <= -WINDOW) {
+                // the slot counts a second which has left the window; start counting this second
+                newVal = stamp(slot) | 1L;
+            } else {
+                // the slot counts this second, or a slightly later one if another thread already moved on
+                newVal = oldVal + 1L;
+            }
+        } while (! slots.compareAndSet(idx, oldVal, newVal));
+    }
+
+    private void archive(final long slot, final long value) {
+        final int idx = (int) Math.floorMod(slot, (long) WINDOW);
+        long oldVal;
+        do {
+            oldVal = retries.get(idx);
+            final int age = age(slot, oldVal);
+            if (age < 0 || age == 0 && (oldVal & 0xFFFFFFFFL) >= (value & 0xFFFFFFFFL)) {
+                // already holds a later second, or this second as counted by a later state
+                return;
+            }
+        } while (! retries.compareAndSet(idx, oldVal, value));
+    }
+
+    private static long sum(final AtomicLongArray slots, final long slot) {
+        long total = 0L;
+        for (int i = 0; i < WINDOW; i ++) {
+            final long value = slots.get(i);
+            final int age = age(slot, value);
+            if (age < WINDOW && age > -WINDOW) {
+                total += value & 0xFFFFFFFFL;
+            }
+        }
+        return total;
+    }
+}
@@ -1,80 +1,193 @@
 package org.jboss.ejb.protocol.remote;
 
+import org.jboss.ejb._private.Keys;
 import org.jboss.ejb._private.Logs;
+import org.jboss.ejb.client.AttachmentKey;
 import org.jboss.ejb.client.EJBClientContext;
-import org.wildfly.common.context.ContextManager;
+import org.jboss.ejb.client.EJBClientInvocationContext;
+import org.jboss.ejb.client.EJBReceiverInvocationContext;
 import org.wildfly.discovery.Discovery;
 import org.wildfly.security.auth.client.AuthenticationContext;
+import org.xnio.XnioWorker;
 
+import java.net.URI;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
-import java.util.function.Supplier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 /**
- * A class for queuing retry operations as well as transferring various necessary contexts from calling thread to executor thread.
+ * A class for scheduling retry operations as well as transferring various necessary contexts from calling thread to executor thread.
+ * <p>
+ * Retries of different invocations run independently of each other.  The first retry of an invocation is run right
+ * away so that fail over is not delayed, and further retries of the same invocation are delayed by an exponential
+ * backoff with jitter.  Every retry is taken out of the {@link RetryBudget} of the destination which failed; once the
+ * budget is exhausted, the failure is delivered without any retry being allowed.  Failures which are not retried
+ * neither use up the budget nor wait for the backoff.
  *
  * @author Stuart Douglas
  * @author Richard Achmatowicz
  */
 class RetryExecutorWrapper {
 
-    private final Object lock = new Object();
-    private Task last = null;
+    static final long BACKOFF_INITIAL = Math.max(0L, SecurityUtils.getLong(SystemProperties.RETRY_BACKOFF_INITIAL, 10L));
+    static final long BACKOFF_MAX = Math.max(BACKOFF_INITIAL, SecurityUtils.getLong(SystemProperties.RETRY_BACKOFF_MAX, 1000L));
+
+    private static final AttachmentKey<AtomicInteger> RETRY_COUNT_KEY = new AttachmentKey<>();
+
+    private final ConcurrentHashMap<URI, RetryBudget> retryBudgets = new ConcurrentHashMap<>();
+
+    /**
+     * Get the retry budget of a destination.  Before a budget is created, the budgets which are idle are dropped, as
+     * they are no different from new ones; so only the destinations used within the window of the budget are kept.
+     *
+     * @param destination the destination URI
+     * @return the retry budget (not {@code null})
+     */
+    RetryBudget getRetryBudget(URI destination) {
+        final RetryBudget budget = retryBudgets.get(destination);
+        if (budget != null) {
+            return budget;
+        }
+        final long now = System.nanoTime();
+        for (Map.Entry<URI, RetryBudget> entry : retryBudgets.entrySet()) {
+            if (entry.getValue().isIdle(now)) {
+                retryBudgets.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        return retryBudgets.computeIfAbsent(destination, ignored -> new RetryBudget());
+    }
+
+    /**
+     * Record that an invocation is being sent to its destination, adding to the retry budget of the destination.
+     *
+     * @param receiverContext the receiver context of the invocation
+     */
+    void requestSent(EJBReceiverInvocationContext receiverContext) {
+        final URI destination = receiverContext.getClientInvocationContext().getDestination();
+        if (destination != null) {
+            getRetryBudget(destination).deposit();
+        }
+    }
 
     /**
      * A version of getExecutor() which does not modify the thread contexts of the executor thread
      *
-     * @param executor the executor used to execute the runnable
+     * @param worker the worker used to execute the runnable
+     * @param receiverContext the receiver context of the failed invocation
      * @return the modified executor
      */
-    Executor getExecutor(Executor executor) {
+    Executor getExecutor(XnioWorker worker, EJBReceiverInvocationContext receiverContext) {
         if (Logs.INVOCATION.isTraceEnabled()) {
-            Logs.INVOCATION.tracef("RetryExecutorWrapper: calling getExecutor(executor= %s)", executor.getClass().getName());
+            Logs.INVOCATION.tracef("RetryExecutorWrapper: calling getExecutor(worker = %s)", worker);
         }
-        return runnable -> {
-            synchronized (lock) {
-                // create a new task
-                Task task = new Task(runnable, executor);
-                if (last != null) {
-                    last.next = task;
-                    last = task;
-                } else {
-                    last = task;
-                    executor.execute(task);
-                }
-            }
-        };
+        return runnable -> schedule(worker, receiverContext, runnable);
     }
 
     /**
      * A version of getExecutor which allows transferring thread contexts from the calling tread to the executor thread
      *
-     * @param executor  the executor used to execute the runnable
+     * @param worker the worker used to execute the runnable
+     * @param receiverContext the receiver context of the failed invocation
      * @param ejbClientContext the EJBClientContext to attach to the executor thread
      * @param discovery the Discovery context to attach to the executor thread
      * @param authenticationContext the AuthenticationContext to attach to the executor thread
      * @return the modified executor
      */
-    Executor getExecutor(Executor executor, EJBClientContext ejbClientContext, Discovery discovery, AuthenticationContext authenticationContext) {
+    Executor getExecutor(XnioWorker worker, EJBReceiverInvocationContext receiverContext, EJBClientContext ejbClientContext, Discovery discovery, AuthenticationContext authenticationContext) {
         if (Logs.INVOCATION.isTraceEnabled()) {
-            Logs.INVOCATION.tracef("RetryExecutorWrapper: calling getExecutor(executor= %s, ejbClientContext = %s, discovery = %s, authenticationContext = %s)",
-                    executor.getClass().getName(), ejbClientContext, discovery, authenticationContext);
+            Logs.INVOCATION.tracef("RetryExecutorWrapper: calling getExecutor(worker = %s, ejbClientContext = %s, discovery = %s, authenticationContext = %s)",
+                    worker, ejbClientContext, discovery, authenticationContext);
         }
-        return runnable -> {
-            synchronized (lock) {
-                // provide the caller's context to the executor thread
-                Runnable runnableWithContext = wrapExecutorThreadWithCallerContext(runnable, ejbClientContext, discovery, authenticationContext);
-
-                // create a new task
-                Task task = new Task(runnableWithContext, executor);
-                if (last != null) {
-                    last.next = task;
-                    last = task;
-                } else {
-                    last = task;
-                    executor.execute(task);
-                }
+        // provide the caller's context to the executor thread
+        return runnable -> schedule(worker, receiverContext, wrapExecutorThreadWithCallerContext(runnable, ejbClientContext, discovery, authenticationContext));
+    }
+
+    private void schedule(XnioWorker worker, EJBReceiverInvocationContext receiverContext, Runnable runnable) {
+        final EJBClientInvocationContext clientInvocationContext = receiverContext.getClientInvocationContext();
+        final URI destination = clientInvocationContext.getDestination();
+        worker.execute(() -> {
+            // the failure may not lead to a retry at all, so the budget and the backoff are only applied once the
+            // interceptors request a retry and the invocation is actually sent again
+            final BooleanSupplier permit = () -> permitRetry(destination);
+            final Executor backoff = retry -> backoff(worker, clientInvocationContext, retry);
+            clientInvocationContext.putAttachment(Keys.RETRY_PERMIT_ATTACHMENT_KEY, permit);
+            clientInvocationContext.putAttachment(Keys.RETRY_BACKOFF_ATTACHMENT_KEY, backoff);
+            try {
+                run(runnable);
+            } finally {
+                // the retry may already have failed and attached its own
+                clientInvocationContext.removeAttachment(Keys.RETRY_PERMIT_ATTACHMENT_KEY, permit);
+                clientInvocationContext.removeAttachment(Keys.RETRY_BACKOFF_ATTACHMENT_KEY, backoff);
             }
-        };
+        });
+    }
+
+    private boolean permitRetry(URI destination) {
+        if (destination != null && ! getRetryBudget(destination).tryWithdraw()) {
+            if (Logs.INVOCATION.isDebugEnabled()) {
+                Logs.INVOCATION.debugf("RetryExecutorWrapper: retry budget of %s is exhausted, invocation will not be retried", destination);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private void backoff(XnioWorker worker, EJBClientInvocationContext clientInvocationContext, Runnable retry) {
+        AtomicInteger retryCount = clientInvocationContext.getAttachment(RETRY_COUNT_KEY);
+        if (retryCount == null) {
+            final AtomicInteger appearing = clientInvocationContext.putAttachmentIfAbsent(RETRY_COUNT_KEY, retryCount = new AtomicInteger());
+            if (appearing != null) {
+                retryCount = appearing;
+            }
+        }
+        final long delay = getBackoff(retryCount.incrementAndGet(), BACKOFF_INITIAL, BACKOFF_MAX, ThreadLocalRandom.current());
+        if (delay == 0L) {
+            retry.run();
+        } else {
+            if (Logs.INVOCATION.isTraceEnabled()) {
+                Logs.INVOCATION.tracef("RetryExecutorWrapper: delaying retry %d of invocation by %d ms", retryCount.get(), delay);
+            }
+            try {
+                worker.getIoThread().executeAfter(() -> worker.execute(() -> run(retry)), delay, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // could not schedule; do not lose the retry
+                worker.execute(() -> run(retry));
+            }
+        }
+    }
+
+    /**
+     * Get the delay before the given retry of an invocation.  The first retry is not delayed; after that, the delay
+     * doubles with every retry up to the maximum, and a random amount of up to half the delay is taken off so that
+     * invocations which failed together do not retry together.
+     *
+     * @param retry the number of the retry, starting at 1
+     * @param initial the delay of the second retry in milliseconds
+     * @param max the maximum delay in milliseconds
+     * @param random the source of jitter
+     * @return the delay in milliseconds
+     */
+    static long getBackoff(int retry, long initial, long max, Random random) {
+        if (retry <= 1 || initial == 0L) {
+            return 0L;
+        }
+        final int shift = Math.min(retry - 2, Long.numberOfLeadingZeros(initial) - 1);
+        final long delay = Math.min(max, initial << shift);
+        final long half = delay >> 1;
+        return delay - half + (half == 0L ? 0L : (random.nextLong() & Long.MAX_VALUE) % (half + 1));
+    }
+
+    private static void run(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (Throwable t) {
+            Logs.MAIN.taskFailed(runnable, t);
+        }
     }
 
     private Runnable wrapExecutorThreadWithCallerContext(Runnable runnable, EJBClientContext callerEJBClientContext, Discovery callerDiscovery, AuthenticationContext callerAuthenticationContext) {
@@ -91,45 +204,16 @@ class RetryExecutorWrapper {
             Discovery.getContextManager().setThreadDefault(callerDiscovery);
             AuthenticationContext.getContextManager().setThreadDefault(callerAuthenticationContext);
 
-            // run the code
-            runnable.run();
-
-            // reset the original executor context
-            EJBClientContext.getContextManager().setThreadDefault(executorEJBClientContext);
-            Discovery.getContextManager().setThreadDefault(executorDiscovery);
-            AuthenticationContext.getContextManager().setThreadDefault(executorAuthenticationContext);
-        };
-        return callerContextTask;
-    }
-
-
-    private class Task implements Runnable {
-
-        private final Runnable runnable;
-        private final Executor delegate;
-        private Task next;
-
-        private Task(Runnable runnable, Executor delegate) {
-            this.runnable = runnable;
-            this.delegate = delegate;
-        }
-
-        @Override
-        public void run() {
             try {
+                // run the code
                 runnable.run();
-            } catch (Throwable t) {
-                Logs.MAIN.taskFailed(runnable, t);
             } finally {
-                synchronized (lock) {
-                    if (last == this) {
-                        last = null;
-                    }
-                    if (next != null) {
-                        next.delegate.execute(next);
-                    }
-                }
+                // reset the original executor context
+                EJBClientContext.getContextManager().setThreadDefault(executorEJBClientContext);
+                Discovery.getContextManager().setThreadDefault(executorDiscovery);
+                AuthenticationContext.getContextManager().setThreadDefault(executorAuthenticationContext);
             }
-        }
+        };
+        return callerContextTask;
     }
 }
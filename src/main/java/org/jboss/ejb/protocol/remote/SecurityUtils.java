@@ -26,6 +26,15 @@ import org.wildfly.security.manager.WildFlySecurityManager;
  */
 final class SecurityUtils {
 
+    static int getInteger(final String propertyName, final int defaultValue) {
+        try {
+            final String propertyValue = getString(propertyName);
+            return propertyValue != null ? Integer.parseInt(propertyValue) : defaultValue;
+        } catch (Throwable t) {
+            return defaultValue;
+        }
+    }
+
     static long getLong(final String propertyName, final long defaultValue) {
         try {
             final String propertyValue = getString(propertyName);
@@ -24,7 +24,35 @@ package org.jboss.ejb.protocol.remote;
  */
 final class SystemProperties {
 
+    /**
+     * The number of EJB channels opened on each connection; 1 (no striping) unless set.  The extra channels share the
+     * socket of the connection, and with it its single XNIO I/O thread.  They relieve the message window and response
+     * ordering of a single channel to a busy destination, but do not spread the socket I/O of the destination over
+     * more I/O threads; that takes several connections, each configured with its own URI.
+     */
+    static final String CHANNELS_PER_CONNECTION = "org.jboss.ejb.client.channels-per-connection";
+    /**
+     * How invocations are assigned to the channels of a connection, if there are several: {@code round-robin} (the
+     * default) or {@code least-loaded}.
+     */
+    static final String CHANNEL_SELECTION = "org.jboss.ejb.client.channel-selection";
     static final String DESTINATION_RECHECK_INTERVAL = "org.jboss.ejb.client.destination-recheck-interval";
+    static final String MARSHALLER_POOL_SIZE = "org.jboss.ejb.client.marshaller-pool-size";
+    static final String COMPRESSION_POOL_SIZE = "org.jboss.ejb.client.compression-pool-size";
+    static final String COMPRESSION_THRESHOLD = "org.jboss.ejb.client.compression-threshold";
+    static final String COMPRESSION_MAX_RATIO = "org.jboss.ejb.client.compression-max-ratio";
+    static final String INTERN_TABLE_SIZE = "org.jboss.ejb.client.intern-table-size";
+    static final String CLASS_RESOLUTION_CACHE_SIZE = "org.jboss.ejb.client.class-resolution-cache-size";
+    static final String RAW_SEGMENT_THRESHOLD = "org.jboss.ejb.client.raw-segment-threshold";
+    static final String RESULT_STREAM_CHUNK_SIZE = "org.jboss.ejb.client.result-stream-chunk-size";
+    static final String RESULT_STREAM_WINDOW = "org.jboss.ejb.client.result-stream-window";
+    static final String RESULT_STREAM_IDLE_TIMEOUT = "org.jboss.ejb.server.result-stream-idle-timeout";
+    static final String MAX_REQUESTS = "org.jboss.ejb.server.max-requests";
+    static final String MAX_CONNECTION_REQUESTS = "org.jboss.ejb.server.max-connection-requests";
+    static final String RETRY_BACKOFF_INITIAL = "org.jboss.ejb.client.retry-backoff-initial";
+    static final String RETRY_BACKOFF_MAX = "org.jboss.ejb.client.retry-backoff-max";
+    static final String RETRY_BUDGET_PERCENT = "org.jboss.ejb.client.retry-budget-percent";
+    static final String RETRY_BUDGET_MIN_PER_SECOND = "org.jboss.ejb.client.retry-budget-min-per-second";
 
     private SystemProperties() {
         // forbidden instantiation
@@ -64,6 +64,35 @@ final class TCCLUtils {
         return old;
     }
 
+    /**
+     * Returns current TCCL.
+     * @return current TCCL
+     */
+    static ClassLoader getTCCL() {
+        if (getSecurityManager() != null) {
+            return doPrivileged(GetContextClassLoaderAction.getInstance());
+        } else {
+            return currentThread().getContextClassLoader();
+        }
+    }
+
+    /**
+     * Sets the given TCCL and returns previous one.
+     * @param cl the new TCCL
+     * @return previous TCCL
+     */
+    static ClassLoader getAndSetTCCL(final ClassLoader cl) {
+        final ClassLoader old;
+        if (getSecurityManager() != null) {
+            old = doPrivileged(GetContextClassLoaderAction.getInstance());
+            doPrivileged(new SetContextClassLoaderAction(cl));
+        } else {
+            old = currentThread().getContextClassLoader();
+            currentThread().setContextClassLoader(cl);
+        }
+        return old;
+    }
+
     /**
      * Resets TCCL to previous one.
      */
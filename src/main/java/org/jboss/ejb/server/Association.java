@@ -36,6 +36,8 @@ public interface Association {
      * @param invocationRequest the invocation request (not {@code null})
      * @param <T> the type of the target EJB
      * @return a handle which may be used to request cancellation of the invocation (must not be {@code null})
+     * @throws java.util.concurrent.RejectedExecutionException if the {@linkplain Request#getRequestExecutor() request executor}
+     *      rejected the request; the client is told that the server is busy and may retry elsewhere
      */
     @NotNull
     <T> CancelHandle receiveInvocationRequest(@NotNull InvocationRequest invocationRequest);
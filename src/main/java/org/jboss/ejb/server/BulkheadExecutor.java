@@ -0,0 +1,168 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.server;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jboss.ejb._private.Logs;
+import org.wildfly.common.Assert;
+
+/**
+ * An executor which limits the number of tasks running concurrently on a delegate executor.  Tasks beyond the limit
+ * are queued up to a maximum, and rejected once the queue is full.  Queued tasks are run by the threads of finishing
+ * tasks, so no task is ever resubmitted to the delegate.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class BulkheadExecutor implements Executor {
+    private final Executor delegate;
+    private final int maxConcurrency;
+    private final int maxQueued;
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private int active;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param delegate the executor to run tasks on (must not be {@code null})
+     * @param maxConcurrency the maximum number of tasks to run concurrently (must be at least 1)
+     * @param maxQueued the maximum number of tasks waiting to run (must not be negative)
+     */
+    public BulkheadExecutor(final Executor delegate, final int maxConcurrency, final int maxQueued) {
+        Assert.checkNotNullParam("delegate", delegate);
+        Assert.checkMinimumParameter("maxConcurrency", 1, maxConcurrency);
+        Assert.checkMinimumParameter("maxQueued", 0, maxQueued);
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueued = maxQueued;
+    }
+
+    public void execute(final Runnable command) {
+        Assert.checkNotNullParam("command", command);
+        synchronized (queue) {
+            if (active >= maxConcurrency) {
+                if (queue.size() >= maxQueued) {
+                    rejected.increment();
+                    throw Logs.MAIN.requestExecutorSaturated(active, queue.size());
+                }
+                queue.add(command);
+                return;
+            }
+            active++;
+        }
+        try {
+            delegate.execute(new Worker(command));
+        } catch (Throwable t) {
+            synchronized (queue) {
+                active--;
+            }
+            rejected.increment();
+            throw t;
+        }
+    }
+
+    /**
+     * Get the number of tasks which are currently running.
+     *
+     * @return the number of running tasks
+     */
+    public int getActiveCount() {
+        synchronized (queue) {
+            return active;
+        }
+    }
+
+    /**
+     * Get the number of tasks which are waiting to run.
+     *
+     * @return the number of queued tasks
+     */
+    public int getQueueSize() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Get the number of tasks which were rejected since this executor was created.
+     *
+     * @return the number of rejected tasks
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Get the number of tasks which completed since this executor was created.
+     *
+     * @return the number of completed tasks
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Get the maximum number of concurrently running tasks.
+     *
+     * @return the maximum number of concurrently running tasks
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Get the maximum number of queued tasks.
+     *
+     * @return the maximum number of queued tasks
+     */
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    final class Worker implements Runnable {
+        private final Runnable first;
+
+        Worker(final Runnable first) {
+            this.first = first;
+        }
+
+        public void run() {
+            Runnable task = first;
+            while (task != null) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    Logs.MAIN.taskFailed(task, t);
+                } finally {
+                    completed.increment();
+                }
+                synchronized (queue) {
+                    task = queue.poll();
+                    if (task == null) {
+                        active--;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.server;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import org.wildfly.common.Assert;
+
+/**
+ * A request executor strategy which routes requests to a separate {@link BulkheadExecutor} per key, for example
+ * per EJB or per EJB module.  Each bulkhead runs its requests on the executor of the transport provider which was
+ * passed with the first request for its key.
+ *
+ * @see RequestExecutorStrategy#perBean(int, int)
+ * @see RequestExecutorStrategy#perModule(int, int)
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class BulkheadRequestExecutorStrategy implements RequestExecutorStrategy {
+    private final Function<Request, Object> keyFunction;
+    private final int maxConcurrency;
+    private final int maxQueued;
+    private final ConcurrentHashMap<Object, BulkheadExecutor> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a new instance.
+     *
+     * @param keyFunction the function which maps a request to the key of its bulkhead (must not be {@code null})
+     * @param maxConcurrency the maximum number of concurrently running requests per bulkhead (must be at least 1)
+     * @param maxQueued the maximum number of requests per bulkhead waiting to run (must not be negative)
+     */
+    public BulkheadRequestExecutorStrategy(final Function<Request, Object> keyFunction, final int maxConcurrency, final int maxQueued) {
+        Assert.checkNotNullParam("keyFunction", keyFunction);
+        Assert.checkMinimumParameter("maxConcurrency", 1, maxConcurrency);
+        Assert.checkMinimumParameter("maxQueued", 0, maxQueued);
+        this.keyFunction = keyFunction;
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueued = maxQueued;
+    }
+
+    public Executor getRequestExecutor(final Request request, final Executor defaultExecutor) {
+        final Object key = keyFunction.apply(request);
+        if (key == null) {
+            return defaultExecutor;
+        }
+        final BulkheadExecutor bulkhead = bulkheads.get(key);
+        return bulkhead != null ? bulkhead : bulkheads.computeIfAbsent(key, ignored -> new BulkheadExecutor(defaultExecutor, maxConcurrency, maxQueued));
+    }
+
+    /**
+     * Get the bulkhead for the given key, if any requests were routed to it yet.
+     *
+     * @param key the key
+     * @return the bulkhead, or {@code null} if there is none
+     */
+    public BulkheadExecutor getBulkhead(final Object key) {
+        return bulkheads.get(key);
+    }
+
+    /**
+     * Get all bulkheads by key.
+     *
+     * @return a read-only view of the bulkheads (not {@code null})
+     */
+    public Map<Object, BulkheadExecutor> getBulkheads() {
+        return Collections.unmodifiableMap(bulkheads);
+    }
+}
@@ -20,6 +20,7 @@ package org.jboss.ejb.server;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.transaction.SystemException;
 import javax.transaction.Transaction;
@@ -66,6 +67,18 @@ public interface InvocationRequest extends Request {
      */
     void writeSessionNotActive();
 
+    /**
+     * Get the time remaining before the client gives up waiting for the result of this invocation.  If the client did
+     * not convey an invocation timeout, {@link Long#MAX_VALUE} is always returned.  If the deadline has passed, 0 is
+     * returned.
+     *
+     * @param timeUnit the time unit (must not be {@code null})
+     * @return the invocation's remaining time in the provided unit
+     */
+    default long getRemainingInvocationTime(TimeUnit timeUnit) {
+        return Long.MAX_VALUE;
+    }
+
 
     /**
      * Write a message indicating that this is an async request. If this is not required by the underlying protocol then
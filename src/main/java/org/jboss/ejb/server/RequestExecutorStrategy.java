@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.server;
+
+import java.util.concurrent.Executor;
+
+import org.wildfly.common.Assert;
+
+/**
+ * A strategy which selects the executor to run an EJB request on.  Protocol implementations call the strategy with
+ * each request and the executor they would otherwise use, allowing requests to be routed to separate executors, for
+ * example to keep a slow EJB from starving all the others.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@FunctionalInterface
+public interface RequestExecutorStrategy {
+
+    /**
+     * Get the executor for the given request.
+     *
+     * @param request the request (not {@code null})
+     * @param defaultExecutor the executor of the transport provider (not {@code null})
+     * @return the executor to use for the request (must not be {@code null})
+     */
+    Executor getRequestExecutor(Request request, Executor defaultExecutor);
+
+    /**
+     * The default strategy, which uses the executor of the transport provider for all requests.
+     */
+    RequestExecutorStrategy DEFAULT = (request, defaultExecutor) -> defaultExecutor;
+
+    /**
+     * Get a strategy which gives each EJB its own bulkhead on top of the executor of the transport provider.
+     *
+     * @param maxConcurrency the maximum number of concurrently running requests per EJB
+     * @param maxQueued the maximum number of requests per EJB waiting to run
+     * @return the strategy (not {@code null})
+     */
+    static BulkheadRequestExecutorStrategy perBean(int maxConcurrency, int maxQueued) {
+        return new BulkheadRequestExecutorStrategy(Request::getEJBIdentifier, maxConcurrency, maxQueued);
+    }
+
+    /**
+     * Get a strategy which gives each EJB module its own bulkhead on top of the executor of the transport provider.
+     *
+     * @param maxConcurrency the maximum number of concurrently running requests per module
+     * @param maxQueued the maximum number of requests per module waiting to run
+     * @return the strategy (not {@code null})
+     */
+    static BulkheadRequestExecutorStrategy perModule(int maxConcurrency, int maxQueued) {
+        return new BulkheadRequestExecutorStrategy(request -> request.getEJBIdentifier().getModuleIdentifier(), maxConcurrency, maxQueued);
+    }
+
+    /**
+     * Get a strategy which runs each request on a new virtual thread.  If the JVM does not support virtual threads,
+     * a warning is logged and the executor of the transport provider is used instead.
+     *
+     * @return the strategy (not {@code null})
+     */
+    static RequestExecutorStrategy virtualThreads() {
+        final Executor executor = VirtualThreadExecutor.create();
+        if (executor == null) {
+            return DEFAULT;
+        }
+        return (request, defaultExecutor) -> executor;
+    }
+
+    /**
+     * Get a strategy which runs all requests on the given executor.
+     *
+     * @param executor the executor (must not be {@code null})
+     * @return the strategy (not {@code null})
+     */
+    static RequestExecutorStrategy of(Executor executor) {
+        Assert.checkNotNullParam("executor", executor);
+        return (request, defaultExecutor) -> executor;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.jboss.ejb._private.Logs;
+
+/**
+ * Access to the virtual thread executor of JDK 21 and up.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+final class VirtualThreadExecutor {
+
+    private VirtualThreadExecutor() {
+    }
+
+    /**
+     * Create an executor which runs each task on a new virtual thread.
+     *
+     * @return the executor, or {@code null} if virtual threads are not supported
+     */
+    static Executor create() {
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Logs.MAIN.virtualThreadsUnavailable();
+            return null;
+        }
+    }
+}
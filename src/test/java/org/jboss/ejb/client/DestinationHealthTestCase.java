@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.client;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+
+import org.junit.Test;
+
+/**
+ * Tests the destination health tracking used to keep failed destinations out of selection.
+ */
+public final class DestinationHealthTestCase {
+
+    private static final long OPEN = 1000L;
+    private static final long HALF_LIFE = 10_000L;
+
+    private static final URI NODE1 = URI.create("remote+http://node1:8080");
+    private static final URI NODE2 = URI.create("remote+http://node2:8080");
+
+    @Test
+    public void testHalfOpenProbe() {
+        final DestinationHealth health = new DestinationHealth(OPEN, HALF_LIFE);
+        final long start = 1_000_000L;
+        assertTrue(health.isAvailable(NODE1, start));
+        health.recordFailure(NODE1, start);
+        assertFalse(health.isAvailable(NODE1, start + OPEN - 1));
+        assertTrue(health.isAvailable(NODE2, start));
+        // one request may probe the destination
+        assertTrue(health.isAvailable(NODE1, start + OPEN));
+        health.requestSent(NODE1, start + OPEN);
+        assertFalse(health.isAvailable(NODE1, start + OPEN + 1));
+        health.recordSuccess(NODE1, start + OPEN + 2);
+        assertTrue(health.isAvailable(NODE1, start + OPEN + 3));
+        // requests to a healthy destination do not probe
+        health.requestSent(NODE1, start + OPEN + 4);
+        assertTrue(health.isAvailable(NODE1, start + OPEN + 5));
+    }
+
+    @Test
+    public void testFailedProbe() {
+        final DestinationHealth health = new DestinationHealth(OPEN, HALF_LIFE);
+        final long start = 1_000_000L;
+        health.recordFailure(NODE1, start);
+        health.requestSent(NODE1, start + OPEN);
+        health.recordFailure(NODE1, start + OPEN + 1);
+        // the second failure came soon after the first, so the destination stays out for longer
+        assertFalse(health.isAvailable(NODE1, start + OPEN + 1 + 2 * OPEN - 1));
+        assertTrue(health.isAvailable(NODE1, start + OPEN + 1 + 2 * OPEN));
+    }
+
+    @Test
+    public void testProbeTimeout() {
+        final DestinationHealth health = new DestinationHealth(OPEN, HALF_LIFE);
+        final long start = 1_000_000L;
+        health.recordFailure(NODE1, start);
+        health.requestSent(NODE1, start + OPEN);
+        assertFalse(health.isAvailable(NODE1, start + 2 * OPEN - 1));
+        // the probe never reported back; let another one through
+        assertTrue(health.isAvailable(NODE1, start + 2 * OPEN));
+    }
+
+    @Test
+    public void testForget() {
+        final DestinationHealth health = new DestinationHealth(OPEN, HALF_LIFE);
+        final long start = 1_000_000L;
+        health.recordFailure(NODE1, start);
+        health.recordFailure(NODE2, start + HALF_LIFE);
+        assertEquals(2, health.size());
+        health.expire(start + OPEN);
+        assertEquals(2, health.size());
+        // the score of the first destination decays below the threshold after a bit more than three half lives
+        health.expire(start + 4 * HALF_LIFE);
+        assertEquals(1, health.size());
+        assertTrue(health.isAvailable(NODE1, start + 4 * HALF_LIFE));
+        health.expire(start + 5 * HALF_LIFE);
+        assertEquals(0, health.size());
+        // a forgotten destination starts over
+        health.recordFailure(NODE1, start + 5 * HALF_LIFE);
+        assertFalse(health.isAvailable(NODE1, start + 5 * HALF_LIFE + OPEN - 1));
+        assertTrue(health.isAvailable(NODE1, start + 5 * HALF_LIFE + OPEN));
+    }
+}
@@ -19,9 +19,24 @@
 package org.jboss.ejb.client;
 
 import org.junit.Assert;
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.wildfly.discovery.Discovery;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.security.auth.client.AuthenticationConfiguration;
+import org.wildfly.security.auth.client.AuthenticationContext;
+import org.wildfly.security.auth.client.MatchRule;
 
 import java.net.URI;
+import java.security.PrivilegedAction;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tests on DiscoveryEJBClientInterceptor
@@ -30,22 +45,200 @@ import java.net.URI;
  */
 public class DiscoveryEJBClientInterceptorTestCase {
 
+    private static final long BLACKLIST_TIMEOUT = 1000L;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // the timeout is read once, when the first client context of this test is built
+        System.setProperty("org.jboss.ejb.client.discovery.blacklist.timeout", BLACKLIST_TIMEOUT + "");
+    }
+
     @Test
     public void testBlackList() throws Exception {
-        long timeout = 1000L;
-        System.setProperty("org.jboss.ejb.client.discovery.blacklist.timeout", timeout + "");
-        AbstractInvocationContext context = new AbstractInvocationContext(null, null, null) {
+        long timeout = BLACKLIST_TIMEOUT;
+        AbstractInvocationContext context = new AbstractInvocationContext(null, new EJBClientContext.Builder().build(), null) {
             @Override
             public void requestRetry() {
             }
         };
         URI destination = new URI("http-remoting://localhost:9443");
-        DiscoveryEJBClientInterceptor.addBlackListedDestination(destination);
+        DiscoveryEJBClientInterceptor.addBlackListedDestination(context, destination);
         Assert.assertTrue(DiscoveryEJBClientInterceptor.isBlackListed(context, destination));
-        Assert.assertEquals(1, DiscoveryEJBClientInterceptor.getBlacklist().size());
+        Assert.assertEquals(1, context.getClientContext().getDestinationHealth().getUnavailable().size());
         Thread.sleep(timeout);
         Assert.assertFalse(DiscoveryEJBClientInterceptor.isBlackListed(context, destination));
-        Assert.assertEquals(0, DiscoveryEJBClientInterceptor.getBlacklist().size());
+        Assert.assertEquals(0, context.getClientContext().getDestinationHealth().getUnavailable().size());
+    }
+
+    @Test
+    public void testDiscoveryResultCache() throws Exception {
+        final DiscoveryResultCache cache = new DiscoveryResultCache();
+        final Discovery discovery = Discovery.create();
+        final FilterSpec filterSpec = FilterSpec.equal(EJBClientContext.FILTER_ATTR_EJB_MODULE, "app/module");
+        final ServiceURL.Builder builder = new ServiceURL.Builder();
+        builder.setUri(new URI("remote+http://localhost:8080"));
+        builder.setAbstractType(EJBClientContext.EJB_SERVICE_TYPE.getAbstractType());
+        builder.setAbstractTypeAuthority(EJBClientContext.EJB_SERVICE_TYPE.getAbstractTypeAuthority());
+        final List<ServiceURL> services = Collections.singletonList(builder.create());
+
+        // misses are never cached
+        cache.put(discovery, filterSpec, cache.currentGeneration(), Collections.emptyList(), true);
+        Assert.assertNull(cache.get(discovery, filterSpec, false));
+
+        // partial results only serve lookups which accept them
+        cache.put(discovery, filterSpec, cache.currentGeneration(), services, false);
+        Assert.assertEquals(services, cache.get(discovery, filterSpec, false));
+        Assert.assertNull(cache.get(discovery, filterSpec, true));
+
+        cache.put(discovery, filterSpec, cache.currentGeneration(), services, true);
+        Assert.assertEquals(services, cache.get(discovery, FilterSpec.equal(EJBClientContext.FILTER_ATTR_EJB_MODULE, "app/module"), true));
+        Assert.assertNull(cache.get(Discovery.create(), filterSpec, true));
+
+        // a topology change drops everything discovered so far
+        cache.invalidate();
+        Assert.assertNull(cache.get(discovery, filterSpec, false));
+
+        // as does a change which raced with the discovery
+        final long generation = cache.currentGeneration();
+        cache.invalidate();
+        cache.put(discovery, filterSpec, generation, services, true);
+        Assert.assertNull(cache.get(discovery, filterSpec, true));
+    }
+
+    @Test
+    public void testDiscoveryResultCacheEviction() throws Exception {
+        final DiscoveryResultCache cache = new DiscoveryResultCache(2);
+        final Discovery discovery = Discovery.create();
+        final FilterSpec filterSpec1 = FilterSpec.equal(EJBClientContext.FILTER_ATTR_EJB_MODULE, "app/module1");
+        final FilterSpec filterSpec2 = FilterSpec.equal(EJBClientContext.FILTER_ATTR_EJB_MODULE, "app/module2");
+        final FilterSpec filterSpec3 = FilterSpec.equal(EJBClientContext.FILTER_ATTR_EJB_MODULE, "app/module3");
+        final List<ServiceURL> services = Collections.singletonList(createServiceURL("remote+http://localhost:8080"));
+
+        cache.put(discovery, filterSpec1, cache.currentGeneration(), services, true);
+        cache.put(discovery, filterSpec2, cache.currentGeneration(), services, true);
+        // use the first entry, so that the second one is the least recently used
+        Assert.assertEquals(services, cache.get(discovery, filterSpec1, true));
+        cache.put(discovery, filterSpec3, cache.currentGeneration(), services, true);
+        Assert.assertEquals(services, cache.get(discovery, filterSpec1, true));
+        Assert.assertNull(cache.get(discovery, filterSpec2, true));
+        Assert.assertEquals(services, cache.get(discovery, filterSpec3, true));
+    }
+
+    @Test
+    public void testDiscoveryResultCachePerContext() throws Exception {
+        final EJBClientContext clientContext1 = new EJBClientContext.Builder().build();
+        final EJBClientContext clientContext2 = new EJBClientContext.Builder().build();
+        final Discovery discovery = Discovery.create();
+        final FilterSpec filterSpec = FilterSpec.equal(EJBClientContext.FILTER_ATTR_EJB_MODULE, "app/module");
+        final List<ServiceURL> services = Collections.singletonList(createServiceURL("remote+http://localhost:8080"));
+        final DiscoveryResultCache cache1 = clientContext1.getDiscoveryResultCache();
+        final DiscoveryResultCache cache2 = clientContext2.getDiscoveryResultCache();
+        cache1.put(discovery, filterSpec, cache1.currentGeneration(), services, true);
+        cache2.put(discovery, filterSpec, cache2.currentGeneration(), services, true);
+
+        // a change reported by a receiver of one context leaves the other context alone
+        new EJBReceiverContext(clientContext1).invalidateDiscoveryResults();
+        Assert.assertNull(cache1.get(discovery, filterSpec, true));
+        Assert.assertEquals(services, cache2.get(discovery, filterSpec, true));
+    }
+
+    @Test
+    public void testClusterNodesTracking() throws Exception {
+        final TrackingReceiver receiver = new TrackingReceiver();
+        final EJBClientContext clientContext = new EJBClientContext.Builder().addTransportProvider(new EJBTransportProvider() {
+            public boolean supportsProtocol(final String uriScheme) {
+                return "test".equals(uriScheme);
+            }
+
+            public EJBReceiver getReceiver(final EJBReceiverContext receiverContext, final String uriScheme) {
+                return receiver;
+            }
+        }).build();
+        final DiscoveryEJBClientInterceptor interceptor = new DiscoveryEJBClientInterceptor();
+        final URI node1 = new URI("test://node1");
+        final URI node2 = new URI("test://node2");
+        final Map<String, URI> nodes = new HashMap<>();
+        nodes.put("node1", node1);
+        nodes.put("node2", node2);
+        receiver.connected.add(node1);
+
+        final DiscoveryEJBClientInterceptor.ClusterNodes clusterNodes = interceptor.getClusterNodes(clientContext, "ejb", nodes, true);
+        Assert.assertArrayEquals(new String[] { "node1" }, clusterNodes.connectedNodes);
+        Assert.assertEquals(2, clusterNodes.availableNodes.length);
+        Assert.assertEquals(2, receiver.queries.get());
+
+        // unchanged nodes and connection state reuse the arrays without asking the receiver again
+        Assert.assertSame(clusterNodes, interceptor.getClusterNodes(clientContext, "ejb", new HashMap<>(nodes), true));
+        Assert.assertEquals(2, receiver.queries.get());
+
+        // another client context served by the same interceptor has its own cache
+        final EJBClientContext otherClientContext = new EJBClientContext.Builder().addTransportProvider(new EJBTransportProvider() {
+            public boolean supportsProtocol(final String uriScheme) {
+                return "test".equals(uriScheme);
+            }
+
+            public EJBReceiver getReceiver(final EJBReceiverContext receiverContext, final String uriScheme) {
+                return new TrackingReceiver();
+            }
+        }).build();
+        final DiscoveryEJBClientInterceptor.ClusterNodes otherClusterNodes = interceptor.getClusterNodes(otherClientContext, "ejb", nodes, true);
+        Assert.assertEquals(0, otherClusterNodes.connectedNodes.length);
+        Assert.assertSame(otherClusterNodes, interceptor.getClusterNodes(otherClientContext, "ejb", nodes, true));
+        Assert.assertSame(clusterNodes, interceptor.getClusterNodes(clientContext, "ejb", nodes, true));
+        Assert.assertEquals(2, receiver.queries.get());
+
+        // a connection state change is picked up
+        receiver.connected.add(node2);
+        receiver.version++;
+        final DiscoveryEJBClientInterceptor.ClusterNodes changed = interceptor.getClusterNodes(clientContext, "ejb", nodes, true);
+        Assert.assertNotSame(clusterNodes, changed);
+        Assert.assertEquals(2, changed.connectedNodes.length);
+
+        // as is a change of the discovered nodes
+        final Map<String, URI> fewerNodes = Collections.singletonMap("node1", node1);
+        Assert.assertArrayEquals(new String[] { "node1" }, interceptor.getClusterNodes(clientContext, "ejb", fewerNodes, true).availableNodes);
+
+        // another identity may not be connected to the same nodes
+        final DiscoveryEJBClientInterceptor.ClusterNodes current = interceptor.getClusterNodes(clientContext, "ejb", nodes, true);
+        final AuthenticationContext otherContext = AuthenticationContext.empty().with(MatchRule.ALL, AuthenticationConfiguration.EMPTY);
+        Assert.assertNotSame(current, otherContext.run((PrivilegedAction<DiscoveryEJBClientInterceptor.ClusterNodes>) () -> interceptor.getClusterNodes(clientContext, "ejb", nodes, true)));
+
+        // node sets narrowed down by the caller are never cached
+        final int queries = receiver.queries.get();
+        interceptor.getClusterNodes(clientContext, "ejb", nodes, false);
+        interceptor.getClusterNodes(clientContext, "ejb", nodes, false);
+        Assert.assertEquals(queries + 4, receiver.queries.get());
+
+        // and neither is the state of receivers which do not track it
+        receiver.version = -1;
+        final DiscoveryEJBClientInterceptor.ClusterNodes untracked = interceptor.getClusterNodes(clientContext, "ejb", nodes, true);
+        Assert.assertNotSame(untracked, interceptor.getClusterNodes(clientContext, "ejb", nodes, true));
+    }
+
+    private static ServiceURL createServiceURL(final String uri) throws Exception {
+        final ServiceURL.Builder builder = new ServiceURL.Builder();
+        builder.setUri(new URI(uri));
+        builder.setAbstractType(EJBClientContext.EJB_SERVICE_TYPE.getAbstractType());
+        builder.setAbstractTypeAuthority(EJBClientContext.EJB_SERVICE_TYPE.getAbstractTypeAuthority());
+        return builder.create();
     }
 
+    static final class TrackingReceiver extends EJBReceiver {
+        final Set<URI> connected = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        final AtomicInteger queries = new AtomicInteger();
+        volatile long version;
+
+        protected void processInvocation(final EJBReceiverInvocationContext receiverContext) {
+            throw new UnsupportedOperationException();
+        }
+
+        protected boolean isConnected(final URI uri) {
+            queries.incrementAndGet();
+            return connected.contains(uri);
+        }
+
+        protected long getConnectionStateVersion() {
+            return version;
+        }
+    }
 }
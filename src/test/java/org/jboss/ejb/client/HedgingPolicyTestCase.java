@@ -0,0 +1,170 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.client;
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the delay and the budget of the hedging policy.
+ */
+public final class HedgingPolicyTestCase {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+    private static Method method(String name) throws NoSuchMethodException {
+        return Object.class.getMethod(name);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        final HedgingPolicy policy = new HedgingPolicy(0, 5, 0L);
+        assertFalse(policy.isEnabled());
+        for (int i = 0; i < 100; i ++) {
+            policy.recordResponse(method("hashCode"), 1000L);
+        }
+        assertEquals(-1L, policy.getDelay(method("hashCode")));
+    }
+
+    @Test
+    public void testPercentileDelay() throws Exception {
+        final HedgingPolicy policy = new HedgingPolicy(90, 5, 0L);
+        final Method method = method("hashCode");
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES - 1; i ++) {
+            policy.recordResponse(method, 1_000_000L);
+        }
+        // too few responses are known yet
+        assertEquals(-1L, policy.getDelay(method));
+        for (int i = 0; i < 80; i ++) {
+            policy.recordResponse(method, 1_000_000L);
+        }
+        // a slow tenth of the responses
+        for (int i = 0; i < 11; i ++) {
+            policy.recordResponse(method, 50_000_000L);
+        }
+        final long delay = policy.getDelay(method);
+        assertTrue(delay > 1_000_000L && delay <= 1_250_000L);
+        // other methods are measured separately
+        assertEquals(-1L, policy.getDelay(method("toString")));
+        for (int i = 0; i < 100; i ++) {
+            policy.recordResponse(method, 50_000_000L);
+        }
+        assertTrue(policy.getDelay(method) > 50_000_000L);
+    }
+
+    @Test
+    public void testClassesMeasuredSeparately() throws Exception {
+        final HedgingPolicy policy = new HedgingPolicy(50, 5, 0L);
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES; i ++) {
+            policy.recordResponse(method("hashCode"), 1_000_000L);
+        }
+        assertTrue(policy.getDelay(method("hashCode")) > 0L);
+        assertEquals(-1L, policy.getDelay(String.class.getMethod("hashCode")));
+    }
+
+    @Test
+    public void testClassLoaderNotRetained() throws Exception {
+        final HedgingPolicy policy = new HedgingPolicy(50, 5, 0L);
+        final WeakReference<ClassLoader> ref = recordIsolated(policy);
+        for (int i = 0; i < 50 && ref.get() != null; i ++) {
+            System.gc();
+            Thread.sleep(100L);
+        }
+        assertNull("The policy keeps the class loader of a measured method alive", ref.get());
+    }
+
+    private static WeakReference<ClassLoader> recordIsolated(final HedgingPolicy policy) throws Exception {
+        final URL location = HedgingPolicyTestCase.class.getProtectionDomain().getCodeSource().getLocation();
+        final URLClassLoader isolated = new URLClassLoader(new URL[] { location }, null);
+        final Class<?> viewClass = Class.forName(View.class.getName(), false, isolated);
+        assertNotSame(View.class, viewClass);
+        final Method method = viewClass.getMethod("get");
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES; i ++) {
+            policy.recordResponse(method, 1_000_000L);
+        }
+        assertTrue(policy.getDelay(method) > 0L);
+        isolated.close();
+        return new WeakReference<>(isolated);
+    }
+
+    public interface View {
+        String get();
+    }
+
+    @Test
+    public void testRecentResponsesCountMore() throws Exception {
+        final HedgingPolicy policy = new HedgingPolicy(50, 5, 0L);
+        final Method method = method("hashCode");
+        for (int i = 0; i < HedgingPolicy.MAX_SAMPLES - 1; i ++) {
+            policy.recordResponse(method, 1_000_000L);
+        }
+        assertTrue(policy.getDelay(method) <= 1_250_000L);
+        // the old responses were halved away
+        for (int i = 0; i < HedgingPolicy.MAX_SAMPLES; i ++) {
+            policy.recordResponse(method, 10_000_000L);
+        }
+        assertTrue(policy.getDelay(method) > 10_000_000L);
+    }
+
+    @Test
+    public void testBuckets() {
+        long previous = 0L;
+        for (long value = 1L; value < 1L << 40; value += value / 7 + 1) {
+            final int bucket = HedgingPolicy.Histogram.bucketOf(value);
+            assertTrue(value < HedgingPolicy.Histogram.upperBoundOf(bucket));
+            assertTrue(bucket == 0 || value >= HedgingPolicy.Histogram.upperBoundOf(bucket - 1));
+            assertTrue(bucket >= previous);
+            previous = bucket;
+        }
+        assertEquals(HedgingPolicy.Histogram.BUCKETS - 1, HedgingPolicy.Histogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testBudget() {
+        final long start = 100 * SECOND;
+        final HedgingPolicy policy = new HedgingPolicy(95, 10, start);
+        // nothing was sent yet
+        assertFalse(policy.tryHedge(start));
+        for (int i = 0; i < 20; i ++) {
+            policy.requestSent(start);
+        }
+        assertTrue(policy.tryHedge(start));
+        assertTrue(policy.tryHedge(start));
+        assertFalse(policy.tryHedge(start));
+        // the budget is refilled by new requests
+        for (int i = 0; i < 10; i ++) {
+            policy.requestSent(start + SECOND);
+        }
+        assertTrue(policy.tryHedge(start + SECOND));
+        assertFalse(policy.tryHedge(start + SECOND));
+        // once the requests have left the window, so have the hedges
+        final long later = start + (HedgingPolicy.WINDOW + 1) * SECOND;
+        assertFalse(policy.tryHedge(later));
+        for (int i = 0; i < 10; i ++) {
+            policy.requestSent(later);
+        }
+        assertTrue(policy.tryHedge(later));
+    }
+}
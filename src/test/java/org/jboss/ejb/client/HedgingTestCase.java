@@ -0,0 +1,276 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.client;
+
+import static org.junit.Assert.*;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.ejb.client.annotation.Idempotent;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the hedging of an invocation which is sent to a slow node, with a hedge which is sent to a fast one.
+ */
+public final class HedgingTestCase {
+
+    private static final URI SLOW = URI.create("slow://node1");
+    private static final URI FAST = URI.create("fast://node2");
+    private static final EJBIdentifier IDENTIFIER = new EJBIdentifier("app", "module", "ViewBean", "");
+
+    private final TestReceiver slow = new TestReceiver();
+    private final TestReceiver fast = new TestReceiver();
+    private final BlockingQueue<Object> servedBy = new LinkedBlockingQueue<>();
+    private EJBClientContext context;
+    private View proxy;
+
+    @Before
+    public void beforeTest() throws Exception {
+        // hedge after about a millisecond, and every invocation which may be hedged
+        final HedgingPolicy policy = new HedgingPolicy(50, 100, System.nanoTime());
+        final java.lang.reflect.Method method = View.class.getMethod("get");
+        for (int i = 0; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            policy.recordResponse(method, 1_000_000L);
+        }
+        context = new EJBClientContext.Builder()
+            .addInterceptor(new RouteInterceptor())
+            .addTransportProvider(new TestTransportProvider("slow", slow))
+            .addTransportProvider(new TestTransportProvider("fast", fast))
+            .setHedgingPolicy(policy)
+            .build();
+        proxy = EJBClient.createProxy(StatelessEJBLocator.create(View.class, IDENTIFIER, new ClusterAffinity("cluster")));
+    }
+
+    @Test
+    public void testHedgeWins() throws Exception {
+        final CompletableFuture<String> result = invoke();
+        final EJBReceiverInvocationContext original = slow.invocations.poll(10L, TimeUnit.SECONDS);
+        assertNotNull("The invocation was not sent", original);
+        final EJBReceiverInvocationContext hedge = fast.invocations.poll(10L, TimeUnit.SECONDS);
+        assertNotNull("The invocation was not hedged", hedge);
+        assertNotSame(original.getClientInvocationContext(), hedge.getClientInvocationContext());
+        // the interceptor chain of the hedge does not run on the timer
+        assertTrue(fast.threadName, fast.threadName.startsWith("EJB client hedge"));
+
+        // the hedge answers first, with context data from its peer
+        hedge.getClientInvocationContext().getContextData().put("served-by", "fast");
+        hedge.resultReady(new TestResult("fast"));
+        assertEquals("fast", result.get(10L, TimeUnit.SECONDS));
+        assertEquals("The context data of the hedge was not used", "fast", servedBy.poll(10L, TimeUnit.SECONDS));
+
+        // the original request lost; it is cancelled without waiting for its peer
+        final Cancellation cancellation = slow.cancellations.poll(10L, TimeUnit.SECONDS);
+        assertNotNull("The original request was not cancelled", cancellation);
+        assertSame(original, cancellation.receiverContext);
+        assertFalse(cancellation.cancelled);
+        assertTrue(cancellation.awaitNanos < TimeUnit.SECONDS.toNanos(1L));
+
+        // a late answer of the original request is discarded
+        final TestResult late = new TestResult("slow");
+        original.resultReady(late);
+        assertTrue(late.discarded.get());
+        assertNull(fast.cancellations.poll());
+    }
+
+    @Test
+    public void testOriginalWins() throws Exception {
+        final CompletableFuture<String> result = invoke();
+        final EJBReceiverInvocationContext original = slow.invocations.poll(10L, TimeUnit.SECONDS);
+        assertNotNull("The invocation was not sent", original);
+        final EJBReceiverInvocationContext hedge = fast.invocations.poll(10L, TimeUnit.SECONDS);
+        assertNotNull("The invocation was not hedged", hedge);
+
+        // the original request answers before the hedge
+        original.getClientInvocationContext().getContextData().put("served-by", "slow");
+        original.resultReady(new TestResult("slow"));
+        assertEquals("slow", result.get(10L, TimeUnit.SECONDS));
+        assertEquals("slow", servedBy.poll(10L, TimeUnit.SECONDS));
+
+        // the hedge lost; it is cancelled, and completed as such before its peer confirms it
+        final Cancellation cancellation = fast.cancellations.poll(10L, TimeUnit.SECONDS);
+        assertNotNull("The hedge was not cancelled", cancellation);
+        assertSame(hedge, cancellation.receiverContext);
+        assertTrue(cancellation.cancelled);
+        assertTrue(cancellation.awaitNanos < TimeUnit.SECONDS.toNanos(1L));
+
+        // a late answer of the hedge is discarded
+        final TestResult late = new TestResult("fast");
+        hedge.resultReady(late);
+        assertTrue(late.discarded.get());
+        assertNull(slow.cancellations.poll());
+    }
+
+    @Test
+    public void testHedgeFails() throws Exception {
+        final CompletableFuture<String> result = invoke();
+        final EJBReceiverInvocationContext original = slow.invocations.poll(10L, TimeUnit.SECONDS);
+        assertNotNull("The invocation was not sent", original);
+        final EJBReceiverInvocationContext hedge = fast.invocations.poll(10L, TimeUnit.SECONDS);
+        assertNotNull("The invocation was not hedged", hedge);
+
+        // the hedge fails first; the failure is recorded against the node of the hedge
+        final FailedResult failed = new FailedResult(new RequestSendFailedException("node2 is down", new ConnectException(), true));
+        hedge.resultReady(failed);
+        final DestinationHealth destinationHealth = context.getDestinationHealth();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (destinationHealth.isAvailable(FAST)) {
+            assertTrue("The failure of the hedge was not recorded", System.nanoTime() - deadline < 0);
+            Thread.sleep(10L);
+        }
+        assertTrue("The failure of the hedge was recorded against the original node", destinationHealth.isAvailable(SLOW));
+
+        // the original request keeps waiting, and its answer is used
+        assertFalse("The failure of the hedge was used", result.isDone());
+        original.resultReady(new TestResult("slow"));
+        assertEquals("slow", result.get(10L, TimeUnit.SECONDS));
+        assertNull(slow.cancellations.poll());
+        assertFalse(failed.discarded.get());
+    }
+
+    private CompletableFuture<String> invoke() {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final Thread thread = new Thread(() -> {
+            try {
+                result.complete(context.runCallable(proxy::get));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    public interface View {
+        @Idempotent
+        String get();
+    }
+
+    /**
+     * Sends an invocation to the slow node, unless it was excluded, as it is for the hedge.
+     */
+    final class RouteInterceptor implements EJBClientInterceptor {
+        public void handleInvocation(final EJBClientInvocationContext context) throws Exception {
+            context.setDestination(DiscoveryEJBClientInterceptor.isBlackListed(context, SLOW) ? FAST : SLOW);
+            context.sendRequest();
+        }
+
+        public Object handleInvocationResult(final EJBClientInvocationContext context) throws Exception {
+            try {
+                return context.getResult();
+            } finally {
+                final Object value = context.getContextData().get("served-by");
+                if (value != null) servedBy.add(value);
+            }
+        }
+    }
+
+    static final class TestTransportProvider implements EJBTransportProvider {
+        private final String scheme;
+        private final EJBReceiver receiver;
+
+        TestTransportProvider(final String scheme, final EJBReceiver receiver) {
+            this.scheme = scheme;
+            this.receiver = receiver;
+        }
+
+        public boolean supportsProtocol(final String uriScheme) {
+            return scheme.equals(uriScheme);
+        }
+
+        public EJBReceiver getReceiver(final EJBReceiverContext receiverContext, final String uriScheme) {
+            return receiver;
+        }
+    }
+
+    /**
+     * A receiver which leaves answering to the test, and which cancels the way a remote receiver does.
+     */
+    static final class TestReceiver extends EJBReceiver {
+        final BlockingQueue<EJBReceiverInvocationContext> invocations = new LinkedBlockingQueue<>();
+        final BlockingQueue<Cancellation> cancellations = new LinkedBlockingQueue<>();
+        volatile String threadName;
+
+        protected void processInvocation(final EJBReceiverInvocationContext receiverContext) {
+            threadName = Thread.currentThread().getName();
+            invocations.add(receiverContext);
+        }
+
+        protected boolean cancelInvocation(final EJBReceiverInvocationContext receiverContext, final boolean cancelIfRunning) {
+            // the peer never confirms the cancellation, so this only returns once the invocation is complete
+            final long start = System.nanoTime();
+            final boolean cancelled = receiverContext.getClientInvocationContext().awaitCancellationResult();
+            cancellations.add(new Cancellation(receiverContext, cancelled, System.nanoTime() - start));
+            return cancelled;
+        }
+    }
+
+    static final class Cancellation {
+        final EJBReceiverInvocationContext receiverContext;
+        final boolean cancelled;
+        final long awaitNanos;
+
+        Cancellation(final EJBReceiverInvocationContext receiverContext, final boolean cancelled, final long awaitNanos) {
+            this.receiverContext = receiverContext;
+            this.cancelled = cancelled;
+            this.awaitNanos = awaitNanos;
+        }
+    }
+
+    static final class TestResult implements EJBReceiverInvocationContext.ResultProducer {
+        private final Object value;
+        final AtomicBoolean discarded = new AtomicBoolean();
+
+        TestResult(final Object value) {
+            this.value = value;
+        }
+
+        public Object getResult() {
+            return value;
+        }
+
+        public void discardResult() {
+            discarded.set(true);
+        }
+    }
+
+    static final class FailedResult implements EJBReceiverInvocationContext.ResultProducer {
+        private final Exception failure;
+        final AtomicBoolean discarded = new AtomicBoolean();
+
+        FailedResult(final Exception failure) {
+            this.failure = failure;
+        }
+
+        public Object getResult() throws Exception {
+            throw failure;
+        }
+
+        public void discardResult() {
+            discarded.set(true);
+        }
+    }
+}
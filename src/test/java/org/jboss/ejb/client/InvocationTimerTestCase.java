@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.client;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the timer wheel used to expire invocations.
+ */
+public final class InvocationTimerTestCase {
+
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        final InvocationTimer timer = new InvocationTimer("test timer", TICK, 4, Runnable::run);
+        final int count = 20;
+        final CountDownLatch latch = new CountDownLatch(count);
+        final ConcurrentLinkedQueue<Long> early = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < count; i++) {
+            // delays span several revolutions of the small wheel
+            final long delay = TimeUnit.MILLISECONDS.toNanos(i * 3L);
+            final long deadline = System.nanoTime() + delay;
+            timer.schedule(() -> {
+                final long now = System.nanoTime();
+                if (now < deadline) {
+                    early.add(deadline - now);
+                }
+                latch.countDown();
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue("Tasks ran early: " + early, early.isEmpty());
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        final InvocationTimer timer = new InvocationTimer("test timer", TICK, 4, Runnable::run);
+        final AtomicInteger cancelledRan = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final InvocationTimer.Timeout cancelled = timer.schedule(cancelledRan::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        final InvocationTimer.Timeout expired = timer.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(expired.isExpired());
+        assertFalse(expired.cancel());
+        assertEquals(0, cancelledRan.get());
+    }
+
+    @Test
+    public void testIdleStop() throws InterruptedException {
+        final InvocationTimer timer = new InvocationTimer("test timer", TICK, 4, Runnable::run);
+        assertFalse(timer.isRunning());
+        final CountDownLatch first = new CountDownLatch(1);
+        timer.schedule(first::countDown, 1, TimeUnit.MILLISECONDS);
+        assertTrue(first.await(10, TimeUnit.SECONDS));
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (timer.isRunning() && System.nanoTime() < end) {
+            Thread.sleep(1L);
+        }
+        assertFalse(timer.isRunning());
+        // the timer starts again when needed
+        final CountDownLatch second = new CountDownLatch(1);
+        final InvocationTimer.Timeout timeout = timer.schedule(second::countDown, 1, TimeUnit.MILLISECONDS);
+        assertTrue(second.await(10, TimeUnit.SECONDS));
+        assertTrue(timeout.isExpired());
+    }
+
+    @Test
+    public void testDefaultExecutor() throws InterruptedException {
+        final InvocationTimer timer = new InvocationTimer("test timer", TICK, 4, InvocationTimer.getDefaultExecutor());
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Thread[] thread = new Thread[1];
+        timer.schedule(() -> {
+            thread[0] = Thread.currentThread();
+            latch.countDown();
+        }, 1, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        // tasks run on dedicated daemon threads which do not hold up shutdown
+        assertTrue(thread[0].isDaemon());
+        assertTrue(thread[0].getName(), thread[0].getName().startsWith("EJB client timer task"));
+    }
+
+    @Test
+    public void testConfiguredExecutor() {
+        final Executor executor = Runnable::run;
+        final EJBClientContext context = new EJBClientContext.Builder().setTimerExecutor(executor).build();
+        assertSame(executor, context.getInvocationTimer().getExecutor());
+        // the executor is kept when the context is rebuilt
+        assertSame(executor, new EJBClientContext.Builder(context).build().getInvocationTimer().getExecutor());
+        assertSame(InvocationTimer.getDefaultExecutor(), new EJBClientContext.Builder().build().getInvocationTimer().getExecutor());
+    }
+}
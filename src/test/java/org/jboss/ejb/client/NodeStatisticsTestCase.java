@@ -0,0 +1,136 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.client;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the node statistics and the cluster node selectors which use them.
+ */
+public final class NodeStatisticsTestCase {
+
+    private static final long DECAY = TimeUnit.SECONDS.toNanos(10L);
+
+    private static final String[] NODES = { "node1", "node2" };
+
+    @Test
+    public void testOutstandingRequests() {
+        final NodeStatistics statistics = new NodeStatistics(DECAY);
+        assertEquals(0, statistics.getOutstandingRequests("node1"));
+        statistics.requestSent("node1");
+        statistics.requestSent("node1");
+        statistics.requestSent("node2");
+        assertEquals(2, statistics.getOutstandingRequests("node1"));
+        assertEquals(1, statistics.getOutstandingRequests("node2"));
+        statistics.requestCompleted("node1", 100L);
+        statistics.requestAbandoned("node1");
+        assertEquals(0, statistics.getOutstandingRequests("node1"));
+        assertEquals(1, statistics.getOutstandingRequests("node2"));
+    }
+
+    @Test
+    public void testResponseTime() {
+        final NodeStatistics statistics = new NodeStatistics(DECAY);
+        final long start = 1_000_000L;
+        assertEquals(-1L, statistics.getResponseTime("node1", TimeUnit.NANOSECONDS, start));
+        statistics.requestSent("node1");
+        statistics.requestAbandoned("node1");
+        // no response yet
+        assertEquals(-1L, statistics.getResponseTime("node1", TimeUnit.NANOSECONDS, start));
+        statistics.requestSent("node1");
+        statistics.requestCompleted("node1", 1000L, start);
+        assertEquals(1000L, statistics.getResponseTime("node1", TimeUnit.NANOSECONDS, start));
+        // a slower response is taken at once
+        statistics.requestSent("node1");
+        statistics.requestCompleted("node1", 5000L, start);
+        assertEquals(5000L, statistics.getResponseTime("node1", TimeUnit.NANOSECONDS, start));
+        // a faster one only moves the average
+        statistics.requestSent("node1");
+        statistics.requestCompleted("node1", 1000L, start + DECAY);
+        final long average = statistics.getResponseTime("node1", TimeUnit.NANOSECONDS, start + DECAY);
+        assertTrue(average > 1000L && average < 5000L);
+        // an idle node looks faster over time
+        assertTrue(statistics.getResponseTime("node1", TimeUnit.NANOSECONDS, start + 10 * DECAY) < average);
+    }
+
+    @Test
+    public void testLeastOutstanding() {
+        final NodeStatistics statistics = new NodeStatistics(DECAY);
+        final ClusterNodeSelector selector = ClusterNodeSelector.useLeastOutstandingConnectedNode(ClusterNodeSelector.FIRST_AVAILABLE);
+        statistics.requestSent("node1");
+        for (int i = 0; i < 100; i ++) {
+            assertEquals("node2", selector.selectNode("cluster", NODES, NODES, statistics));
+        }
+        statistics.requestSent("node2");
+        boolean node1 = false, node2 = false;
+        for (int i = 0; i < 1000; i ++) {
+            final String node = selector.selectNode("cluster", NODES, NODES, statistics);
+            node1 |= node.equals("node1");
+            node2 |= node.equals("node2");
+        }
+        // equally loaded nodes are both selected
+        assertTrue(node1 && node2);
+        // no connected nodes
+        assertEquals("node1", selector.selectNode("cluster", new String[0], NODES, statistics));
+    }
+
+    @Test
+    public void testPowerOfTwoChoices() {
+        final NodeStatistics statistics = new NodeStatistics(DECAY);
+        final ClusterNodeSelector selector = ClusterNodeSelector.usePowerOfTwoChoicesConnectedNode(ClusterNodeSelector.FIRST_AVAILABLE);
+        // without responses, the outstanding requests decide
+        statistics.requestSent("node2");
+        for (int i = 0; i < 100; i ++) {
+            assertEquals("node1", selector.selectNode("cluster", NODES, NODES, statistics));
+        }
+        statistics.requestCompleted("node2", TimeUnit.MILLISECONDS.toNanos(1L));
+        statistics.requestSent("node1");
+        statistics.requestCompleted("node1", TimeUnit.SECONDS.toNanos(1L));
+        // the slow node is avoided, even though the fast one has some requests outstanding
+        statistics.requestSent("node2");
+        statistics.requestSent("node2");
+        for (int i = 0; i < 100; i ++) {
+            assertEquals("node2", selector.selectNode("cluster", NODES, NODES, statistics));
+        }
+        assertEquals("node1", selector.selectNode("cluster", new String[] { "node1" }, NODES, statistics));
+    }
+
+    @Test
+    public void testLoadWeighted() {
+        final NodeStatistics statistics = new NodeStatistics(DECAY);
+        assertEquals(-1, statistics.getLoad("node1"));
+        statistics.loadReported("node1", 0);
+        statistics.loadReported("node2", 9);
+        assertEquals(0, statistics.getLoad("node1"));
+        assertEquals(9, statistics.getLoad("node2"));
+        int node1 = 0, node2 = 0;
+        for (int i = 0; i < 10_000; i ++) {
+            final String node = DeploymentNodeSelector.LOAD_WEIGHTED.selectNode(NODES, "app", "module", "", statistics);
+            if (node.equals("node1")) node1 ++; else node2 ++;
+        }
+        // node1 has a tenth of the load of node2, so it is selected about ten times as often
+        assertTrue(node1 > 7 * node2 && node1 < 13 * node2);
+        final ClusterNodeSelector selector = ClusterNodeSelector.useLoadWeightedConnectedNode(ClusterNodeSelector.FIRST_AVAILABLE);
+        assertEquals("node2", selector.selectNode("cluster", new String[] { "node2" }, NODES, statistics));
+        assertEquals("node1", selector.selectNode("cluster", new String[0], NODES, statistics));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.client.test;
+
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.ejb.client.EJBClient;
+import org.jboss.ejb.client.EJBIdentifier;
+import org.jboss.ejb.client.StatelessEJBLocator;
+import org.jboss.ejb.client.URIAffinity;
+import org.jboss.ejb.client.legacy.JBossEJBProperties;
+import org.jboss.ejb.client.test.common.DummyServer;
+import org.jboss.ejb.client.test.common.Echo;
+import org.jboss.ejb.client.test.common.EchoBean;
+import org.jboss.ejb.client.test.common.Result;
+import org.jboss.ejb.server.InvocationRequest;
+import org.jboss.logging.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that the invocation timeout of the client reaches the server as a deadline, and that requests whose deadline
+ * passes while they are queued on the server are never dispatched to the bean.
+ */
+public class InvocationDeadlineTestCase {
+
+    private static final Logger logger = Logger.getLogger(InvocationDeadlineTestCase.class);
+    private static final String PROPERTIES_FILE = "jboss-ejb-client.properties";
+
+    private static final String APP_NAME = "my-foo-app";
+    private static final String MODULE_NAME = "my-bar-module";
+    private static final String DISTINCT_NAME = "";
+    private static final String BEAN_NAME = "CountingEchoBean";
+
+    private DummyServer server;
+    private ScheduledExecutorService scheduler;
+    private final BlockingQueue<Long> remainingTimes = new LinkedBlockingQueue<>();
+    private volatile long dispatchDelay;
+    private final CountingEchoBean bean = new CountingEchoBean();
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        JBossEJBProperties ejbProperties = JBossEJBProperties.fromClassPath(InvocationDeadlineTestCase.class.getClassLoader(), PROPERTIES_FILE);
+        JBossEJBProperties.getContextManager().setGlobalDefault(ejbProperties);
+    }
+
+    @Before
+    public void beforeTest() throws Exception {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        server = new DummyServer("localhost", 6999, "node1");
+        // record the deadline the server sees, and optionally hold the request in the queue before running it
+        server.setRequestExecutorStrategy((request, defaultExecutor) -> {
+            if (request instanceof InvocationRequest) {
+                remainingTimes.add(Long.valueOf(((InvocationRequest) request).getRemainingInvocationTime(TimeUnit.MILLISECONDS)));
+            }
+            final long delay = dispatchDelay;
+            return delay == 0L ? defaultExecutor : task -> scheduler.schedule(task, delay, TimeUnit.MILLISECONDS);
+        });
+        server.start();
+        server.register(APP_NAME, MODULE_NAME, DISTINCT_NAME, BEAN_NAME, bean);
+        logger.info("Started server and registered module ...");
+    }
+
+    @After
+    public void afterTest() throws Exception {
+        server.unregister(APP_NAME, MODULE_NAME, DISTINCT_NAME, BEAN_NAME);
+        server.stop();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Test that an invocation without a timeout conveys no deadline.
+     */
+    @Test
+    public void testNoDeadline() throws Exception {
+        final Echo proxy = createProxy();
+        Assert.assertEquals("hello", proxy.echo("hello").getValue());
+        Assert.assertEquals(Long.MAX_VALUE, remainingTimes.poll(10, TimeUnit.SECONDS).longValue());
+    }
+
+    /**
+     * Test that the remaining invocation time of the client is visible through the server side request.
+     */
+    @Test
+    public void testDeadlineConveyed() throws Exception {
+        final Echo proxy = createProxy();
+        EJBClient.setInvocationTimeout(proxy, 30, TimeUnit.SECONDS);
+        Assert.assertEquals("hello", proxy.echo("hello").getValue());
+        final long remaining = remainingTimes.poll(10, TimeUnit.SECONDS).longValue();
+        Assert.assertTrue("Unexpected remaining time " + remaining, remaining > 20_000L && remaining <= 30_000L);
+        Assert.assertEquals(1, bean.invocations.get());
+    }
+
+    /**
+     * Test that a request whose deadline passes while it is queued never reaches the bean, while the client fails
+     * with its own timeout.
+     */
+    @Test
+    public void testExpiredRequestNotDispatched() throws Exception {
+        dispatchDelay = 1000L;
+        final Echo proxy = createProxy();
+        EJBClient.setInvocationTimeout(proxy, 200, TimeUnit.MILLISECONDS);
+        try {
+            proxy.echo("too late");
+            Assert.fail("Expected the invocation to time out");
+        } catch (Exception e) {
+            Assert.assertTrue("Unexpected exception " + e, e instanceof TimeoutException || e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertNotNull(remainingTimes.poll(10, TimeUnit.SECONDS));
+        // let the queued request come out of the queue
+        Thread.sleep(2 * dispatchDelay);
+        Assert.assertEquals("The expired request was dispatched", 0, bean.invocations.get());
+
+        // the channel is still usable afterwards
+        dispatchDelay = 0L;
+        EJBClient.setInvocationTimeout(proxy, 30, TimeUnit.SECONDS);
+        Assert.assertEquals("hello", proxy.echo("hello").getValue());
+        Assert.assertEquals(1, bean.invocations.get());
+    }
+
+    private Echo createProxy() throws Exception {
+        final EJBIdentifier identifier = new EJBIdentifier(APP_NAME, MODULE_NAME, BEAN_NAME, DISTINCT_NAME);
+        final StatelessEJBLocator<Echo> locator = StatelessEJBLocator.create(Echo.class, identifier, URIAffinity.forUri(new URI("remote://localhost:6999")));
+        return EJBClient.createProxy(locator);
+    }
+
+    public static class CountingEchoBean extends EchoBean {
+        final AtomicInteger invocations = new AtomicInteger();
+
+        public CountingEchoBean() {
+            super("node1");
+        }
+
+        @Override
+        public Result<String> echo(final String msg) {
+            invocations.incrementAndGet();
+            return super.echo(msg);
+        }
+    }
+}
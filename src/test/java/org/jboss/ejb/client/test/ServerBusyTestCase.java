@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.client.test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.ejb.client.Affinity;
+import org.jboss.ejb.client.EJBClient;
+import org.jboss.ejb.client.StatelessEJBLocator;
+import org.jboss.ejb.client.legacy.JBossEJBProperties;
+import org.jboss.ejb.client.test.common.DummyServer;
+import org.jboss.ejb.client.test.common.Echo;
+import org.jboss.ejb.client.test.common.Result;
+import org.jboss.ejb.server.RequestExecutorStrategy;
+import org.jboss.logging.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that a request rejected by a saturated request executor is answered as busy, so that the client retries it
+ * instead of failing with an application exception.
+ */
+public class ServerBusyTestCase extends AbstractEJBClientTestCase {
+
+    private static final Logger logger = Logger.getLogger(ServerBusyTestCase.class);
+    private static final String PROPERTIES_FILE = "jboss-ejb-client.properties";
+
+    private final AtomicInteger rejections = new AtomicInteger();
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        JBossEJBProperties ejbProperties = JBossEJBProperties.fromClassPath(ServerBusyTestCase.class.getClassLoader(), PROPERTIES_FILE);
+        JBossEJBProperties.getContextManager().setGlobalDefault(ejbProperties);
+    }
+
+    @Before
+    public void beforeTest() throws Exception {
+        // reject the first request which reaches either server, as a full bulkhead would
+        final RequestExecutorStrategy rejectOnce = (request, defaultExecutor) -> rejections.compareAndSet(0, 1) ? rejecting() : defaultExecutor;
+        for (int i = 0; i < 2; i++) {
+            servers[i] = new DummyServer("localhost", 6999 + (i * 100), serverNames[i]);
+            servers[i].setRequestExecutorStrategy(rejectOnce);
+            servers[i].start();
+            serversStarted[i] = true;
+            deployStateless(i);
+        }
+    }
+
+    @After
+    public void afterTest() {
+        for (int i = 0; i < 2; i++) {
+            undeployStateless(i);
+            stopServer(i);
+        }
+    }
+
+    @Test
+    public void testRejectedRequestIsRetried() {
+        logger.info("=== Testing retry of a request rejected by the request executor ===");
+        final StatelessEJBLocator<Echo> statelessEJBLocator = StatelessEJBLocator.create(Echo.class, STATELESS_IDENTIFIER, Affinity.NONE);
+        final Echo proxy = EJBClient.createProxy(statelessEJBLocator);
+        final Result<String> echoResult = proxy.echo("hello!");
+        Assert.assertEquals("Got an unexpected echo", "hello!", echoResult.getValue());
+        Assert.assertEquals("The request was not rejected", 1, rejections.get());
+    }
+
+    private static Executor rejecting() {
+        return task -> {
+            throw new RejectedExecutionException("Request executor is saturated");
+        };
+    }
+}
@@ -22,6 +22,7 @@ import org.jboss.ejb.client.EJBClient;
 import org.jboss.ejb.client.EJBClientConnection;
 import org.jboss.ejb.client.EJBClientContext;
 import org.jboss.ejb.client.EJBIdentifier;
+import org.jboss.ejb.client.EJBMethodLocator;
 import org.jboss.ejb.client.EJBModuleIdentifier;
 import org.jboss.ejb.client.StatefulEJBLocator;
 import org.jboss.ejb.client.StatelessEJBLocator;
@@ -46,7 +47,12 @@ import org.junit.Test;
 import javax.ejb.NoSuchEJBException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tests basic features of proxies for invocation of a bean deployed on a single server node.
@@ -479,6 +485,83 @@ public class SimpleInvocationTestCase extends AbstractEJBClientTestCase {
         deployStateless(0);
     }
 
+    /**
+     * Test SLSB invocation returning a completable future
+     *
+     * scenario:
+     *   invoked bean available on two targets, node1, node2
+     *   invocation is made through EJBClient.invokeCompletable with and without an executor
+     * expected result:
+     *   both futures complete with the echoed message, and the executor is used when supplied
+     */
+    @Test
+    public void testSLSBCompletableInvocation() throws Exception {
+        logger.info("=== Testing SLSB invocation with completable future ===");
+
+        // create a proxy for SLSB
+        final StatelessEJBLocator<Echo> statelessEJBLocator = StatelessEJBLocator.create(Echo.class, STATELESS_IDENTIFIER, Affinity.NONE);
+        Echo proxy = EJBClient.createProxy(statelessEJBLocator);
+        Assert.assertNotNull("Received a null proxy", proxy);
+
+        final EJBMethodLocator methodLocator = EJBMethodLocator.forMethod(Echo.class.getMethod("echo", String.class));
+        final String message = "hello!";
+
+        // complete on the receiving thread
+        final CompletableFuture<?> direct = EJBClient.invokeCompletable(proxy, null, methodLocator, message);
+        final Result<?> directResult = (Result<?>) direct.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("Got an unexpected echo", message, directResult.getValue());
+
+        // complete on a supplied executor
+        final AtomicInteger executed = new AtomicInteger();
+        final Executor executor = task -> {
+            executed.incrementAndGet();
+            new Thread(task).start();
+        };
+        final CompletableFuture<?> viaExecutor = EJBClient.invokeCompletable(proxy, executor, methodLocator, message);
+        final Object value = viaExecutor.thenApply(r -> ((Result<?>) r).getValue()).get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("Got an unexpected echo", message, value);
+        Assert.assertEquals("Completion executor was not used", 1, executed.get());
+    }
+
+    /**
+     * Test batched SLSB invocation
+     *
+     * scenario:
+     *   invoked bean available on two targets, node1, node2
+     *   a batch of invocations is made through EJBClient.invokeBatch
+     * expected result:
+     *   every future completes with its own echoed message, and the whole batch is sent to the single
+     *   destination resolved by the first invocation
+     */
+    @Test
+    public void testSLSBBatchInvocation() throws Exception {
+        logger.info("=== Testing batched SLSB invocation ===");
+
+        final StatelessEJBLocator<Echo> statelessEJBLocator = StatelessEJBLocator.create(Echo.class, STATELESS_IDENTIFIER, Affinity.NONE);
+        Echo proxy = EJBClient.createProxy(statelessEJBLocator);
+        Assert.assertNotNull("Received a null proxy", proxy);
+
+        final EJBMethodLocator methodLocator = EJBMethodLocator.forMethod(Echo.class.getMethod("echo", String.class));
+        final int count = 100;
+        final List<Object[]> argumentLists = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            argumentLists.add(new Object[] { "hello-" + i });
+        }
+
+        final List<CompletableFuture<?>> futures = EJBClient.invokeBatch(proxy, null, methodLocator, argumentLists);
+        Assert.assertEquals("Unexpected number of futures", count, futures.size());
+        String node = null;
+        for (int i = 0; i < count; i++) {
+            final Result<?> result = (Result<?>) futures.get(i).get(10, TimeUnit.SECONDS);
+            Assert.assertEquals("Got an unexpected echo", "hello-" + i, result.getValue());
+            if (node == null) {
+                node = result.getNode();
+            } else {
+                Assert.assertEquals("Batch was not sent to a single destination", node, result.getNode());
+            }
+        }
+    }
+
     /**
       * Do any test-specific tear down here.
      */
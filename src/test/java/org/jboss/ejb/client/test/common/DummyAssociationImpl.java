@@ -333,14 +333,10 @@ public class DummyAssociationImpl implements Association {
 
 
     /*
-     * We can decidie to run tasks in-line or on an executor
+     * The request executor already runs the tasks of callers which block for the result in-line, where possible
      */
     private void execute(Request request, Runnable task, final boolean isAsync) {
-        if (request.getProtocol().equals("local") && !isAsync) {
-            task.run();
-        } else {
-            request.getRequestExecutor().execute(task);
-        }
+        request.getRequestExecutor().execute(task);
     }
 
     /**
@@ -24,6 +24,7 @@ import org.jboss.ejb.server.ClusterTopologyListener.ClusterInfo;
 import org.jboss.ejb.server.ClusterTopologyListener.ClusterRemovalInfo;
 import org.jboss.ejb.server.ClusterTopologyListener.MappingInfo;
 import org.jboss.ejb.server.ClusterTopologyListener.NodeInfo;
+import org.jboss.ejb.server.RequestExecutorStrategy;
 import org.jboss.logging.Logger;
 import org.jboss.remoting3.Channel;
 import org.jboss.remoting3.Endpoint;
@@ -82,7 +83,7 @@ public class DummyServer implements AutoCloseable {
     private final String host;
     private final String endpointName;
     private final boolean startTxServer;
-
+    private RequestExecutorStrategy executorStrategy = RequestExecutorStrategy.DEFAULT;
 
     private Registration registration;
     private AcceptingChannel<org.xnio.StreamConnection> server;
@@ -118,6 +119,11 @@ public class DummyServer implements AutoCloseable {
         return endpointName;
     }
 
+    // must be called before start()
+    public void setRequestExecutorStrategy(final RequestExecutorStrategy executorStrategy) {
+        this.executorStrategy = executorStrategy;
+    }
+
     public void start() throws Exception {
         logger.info("Starting " + this);
 
@@ -182,7 +188,7 @@ public class DummyServer implements AutoCloseable {
         RemotingTransactionService transactionService = txnServiceBuilder.build();
 
         // setup remote EJB service
-        RemoteEJBService remoteEJBService = RemoteEJBService.create(dummyAssociation,transactionService, DEFAULT_CLASS_FILTER);
+        RemoteEJBService remoteEJBService = RemoteEJBService.create(dummyAssociation,transactionService, DEFAULT_CLASS_FILTER, executorStrategy);
         remoteEJBService.serverUp();
 
         // Register an EJB channel open listener
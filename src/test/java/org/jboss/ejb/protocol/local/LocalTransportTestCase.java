@@ -0,0 +1,376 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.protocol.local;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.ejb.client.Affinity;
+import org.jboss.ejb.client.EJBClient;
+import org.jboss.ejb.client.EJBClientContext;
+import org.jboss.ejb.client.EJBIdentifier;
+import org.jboss.ejb.client.EJBMethodLocator;
+import org.jboss.ejb.client.EJBModuleIdentifier;
+import org.jboss.ejb.client.StatelessEJBLocator;
+import org.jboss.ejb.client.URIAffinity;
+import org.jboss.ejb.server.Association;
+import org.jboss.ejb.server.CancelHandle;
+import org.jboss.ejb.server.ClusterTopologyListener;
+import org.jboss.ejb.server.InvocationRequest;
+import org.jboss.ejb.server.ListenerHandle;
+import org.jboss.ejb.server.ModuleAvailabilityListener;
+import org.jboss.ejb.server.SessionOpenRequest;
+import org.junit.After;
+import org.junit.Test;
+import org.wildfly.common.annotation.NotNull;
+import org.wildfly.discovery.Discovery;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.ServicesQueue;
+import org.wildfly.discovery.spi.DiscoveryProvider;
+
+/**
+ * Tests invocations through the local transport.
+ */
+public final class LocalTransportTestCase {
+
+    private static final EJBModuleIdentifier MODULE = new EJBModuleIdentifier("my-app", "my-module", "");
+    private static final EJBIdentifier IDENTIFIER = new EJBIdentifier(MODULE, "PayloadBean");
+
+    private final PayloadBean bean = new PayloadBean();
+    private final TestAssociation association = new TestAssociation();
+
+    @After
+    public void afterTest() {
+        EJBClientContext.getContextManager().setThreadDefault(null);
+    }
+
+    @Test
+    public void testParametersAndResultsCopied() {
+        final PayloadView proxy = createProxy(LocalTransportProvider.ParameterPassing.COPY, Runnable::run, URIAffinity.forUri(LocalTransportProvider.LOCAL_URI));
+        final Payload payload = new Payload("a");
+        final Payload result = proxy.append(payload, "b");
+        // the bean modified its own copy and returned it, which the client sees as yet another copy
+        assertNotSame(payload, bean.lastPayload);
+        assertNotSame(bean.lastPayload, result);
+        assertEquals(Collections.singletonList("a"), payload.items);
+        assertEquals(Arrays.asList("a", "b"), result.items);
+    }
+
+    @Test
+    public void testImmutableValuesPassedThrough() {
+        final PayloadView proxy = createProxy(LocalTransportProvider.ParameterPassing.COPY, Runnable::run, URIAffinity.forUri(LocalTransportProvider.LOCAL_URI));
+        final String value = new String("value");
+        assertSame(value, proxy.identity(value));
+        assertSame(value, bean.lastValue);
+    }
+
+    @Test
+    public void testExceptionCopied() {
+        final PayloadView proxy = createProxy(LocalTransportProvider.ParameterPassing.COPY, Runnable::run, URIAffinity.forUri(LocalTransportProvider.LOCAL_URI));
+        try {
+            proxy.fail("failed");
+            fail("Expected an exception");
+        } catch (PayloadException e) {
+            assertEquals("failed", e.getMessage());
+            assertNotSame(bean.lastException, e);
+        }
+    }
+
+    @Test
+    public void testByReference() {
+        final PayloadView proxy = createProxy(LocalTransportProvider.ParameterPassing.REFERENCE, Runnable::run, URIAffinity.forUri(LocalTransportProvider.LOCAL_URI));
+        final Payload payload = new Payload("a");
+        final Payload result = proxy.append(payload, "b");
+        assertSame(payload, bean.lastPayload);
+        assertSame(payload, result);
+    }
+
+    @Test
+    public void testCopyAcrossClassLoaders() throws Exception {
+        final PayloadView proxy = createProxy(LocalTransportProvider.ParameterPassing.COPY, Runnable::run, URIAffinity.forUri(LocalTransportProvider.LOCAL_URI));
+        try (URLClassLoader isolated = ValueCopierTestCase.createIsolatedClassLoader()) {
+            // the EJB lives in a deployment with its own copy of the payload classes
+            association.classLoader = isolated;
+            final List<Object> received = new CopyOnWriteArrayList<>();
+            association.handler = (method, parameters) -> {
+                received.add(parameters[0]);
+                if (method.getName().equals("fail")) {
+                    throw (Exception) isolated.loadClass(PayloadException.class.getName()).getConstructor(String.class).newInstance(parameters[0]);
+                }
+                return parameters[0];
+            };
+            final Payload result = proxy.append(new Payload("a"), "b");
+            assertSame(isolated, received.get(0).getClass().getClassLoader());
+            assertSame(Payload.class, result.getClass());
+            assertEquals(Collections.singletonList("a"), result.items);
+            try {
+                proxy.fail("failed");
+                fail("Expected an exception");
+            } catch (PayloadException e) {
+                assertEquals("failed", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testBlockingCallerRunsInline() {
+        final Executor executor = task -> fail("A blocking invocation was dispatched to the executor");
+        final PayloadView proxy = createProxy(LocalTransportProvider.ParameterPassing.COPY, executor, URIAffinity.forUri(LocalTransportProvider.LOCAL_URI));
+        assertEquals(Thread.currentThread().getName(), proxy.threadName());
+        assertTrue(association.blockingCallers.get(0).booleanValue());
+    }
+
+    @Test
+    public void testNonBlockingDispatch() throws Exception {
+        final LocalTransportProvider provider = LocalTransportProvider.create(association, "local-node");
+        final PayloadView proxy = createProxy(provider, URIAffinity.forUri(LocalTransportProvider.LOCAL_URI));
+        EJBClient.asynchronous(proxy).threadName();
+        final Future<?> future = EJBClient.getFutureResult();
+        final String threadName = (String) future.get(10, TimeUnit.SECONDS);
+        assertNotEquals(Thread.currentThread().getName(), threadName);
+        // the default executor is a dedicated pool
+        assertTrue(threadName, threadName.startsWith("EJB local invocation"));
+        assertFalse(association.blockingCallers.get(0).booleanValue());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final PayloadView proxy = createProxy(LocalTransportProvider.ParameterPassing.COPY, tasks::add, URIAffinity.forUri(LocalTransportProvider.LOCAL_URI));
+        EJBClient.asynchronous(proxy).threadName();
+        final Future<?> future = EJBClient.getFutureResult();
+        assertEquals(1, tasks.size());
+        assertTrue(future.cancel(true));
+        // the queued invocation notices the cancellation when it gets to run
+        tasks.poll().run();
+        assertTrue(future.isCancelled());
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected the invocation to be cancelled");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof CancellationException);
+        }
+        assertEquals(0, bean.invocations.get());
+    }
+
+    @Test
+    public void testDiscovery() throws Exception {
+        final PayloadView proxy = createProxy(LocalTransportProvider.ParameterPassing.COPY, Runnable::run, Affinity.NONE);
+        // the invocation is routed to the local transport by discovery
+        assertEquals("value", proxy.identity("value"));
+
+        final List<DiscoveryProvider> providers = new ArrayList<>();
+        new LocalEJBDiscoveryConfigurator().configure(providers::add, ignored -> {});
+        assertEquals(1, providers.size());
+        final Discovery discovery = Discovery.create(providers.get(0));
+        final FilterSpec filterSpec = FilterSpec.equal(EJBClientContext.FILTER_ATTR_EJB_MODULE, MODULE.getAppName() + '/' + MODULE.getModuleName());
+        assertEquals(Collections.singletonList(LocalTransportProvider.LOCAL_URI), discover(discovery, filterSpec));
+        assertEquals(Collections.emptyList(), discover(discovery, FilterSpec.equal(EJBClientContext.FILTER_ATTR_EJB_MODULE, "other-app/" + MODULE.getModuleName())));
+
+        // modules which become unavailable are no longer discovered
+        association.setModuleAvailable(false);
+        assertEquals(Collections.emptyList(), discover(discovery, filterSpec));
+    }
+
+    private PayloadView createProxy(final LocalTransportProvider.ParameterPassing parameterPassing, final Executor executor, final Affinity affinity) {
+        return createProxy(LocalTransportProvider.create(association, "local-node", parameterPassing, executor), affinity);
+    }
+
+    private PayloadView createProxy(final LocalTransportProvider provider, final Affinity affinity) {
+        final EJBClientContext context = new EJBClientContext.Builder().addTransportProvider(provider).build();
+        EJBClientContext.getContextManager().setThreadDefault(context);
+        return EJBClient.createProxy(StatelessEJBLocator.create(PayloadView.class, IDENTIFIER, affinity));
+    }
+
+    private static List<URI> discover(final Discovery discovery, final FilterSpec filterSpec) throws InterruptedException {
+        final List<URI> found = new ArrayList<>();
+        try (ServicesQueue queue = discovery.discover(EJBClientContext.EJB_SERVICE_TYPE, filterSpec)) {
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService(10, TimeUnit.SECONDS)) != null) {
+                found.add(serviceURL.getLocationURI());
+            }
+        }
+        return found;
+    }
+
+    interface Handler {
+        Object invoke(Method method, Object[] parameters) throws Exception;
+    }
+
+    /**
+     * An association which serves the payload bean, dispatching through the executor of the request as a real
+     * server does.
+     */
+    final class TestAssociation implements Association {
+        final List<Boolean> blockingCallers = new CopyOnWriteArrayList<>();
+        final List<ModuleAvailabilityListener> listeners = new CopyOnWriteArrayList<>();
+        volatile ClassLoader classLoader = PayloadBean.class.getClassLoader();
+        volatile Handler handler = (method, parameters) -> method.invoke(bean, parameters);
+
+        public <T> CancelHandle receiveInvocationRequest(@NotNull final InvocationRequest invocationRequest) {
+            if (! invocationRequest.getEJBIdentifier().equals(IDENTIFIER)) {
+                invocationRequest.writeNoSuchEJB();
+                return CancelHandle.NULL;
+            }
+            final Method method = findMethod(invocationRequest.getMethodLocator());
+            if (method == null) {
+                invocationRequest.writeNoSuchMethod();
+                return CancelHandle.NULL;
+            }
+            blockingCallers.add(Boolean.valueOf(invocationRequest.isBlockingCaller()));
+            final AtomicBoolean cancelled = new AtomicBoolean();
+            invocationRequest.getRequestExecutor().execute(() -> {
+                if (cancelled.get()) {
+                    invocationRequest.writeCancelResponse();
+                    return;
+                }
+                final InvocationRequest.Resolved content;
+                try {
+                    content = invocationRequest.getRequestContent(classLoader);
+                } catch (Exception e) {
+                    invocationRequest.writeException(e);
+                    return;
+                }
+                final Object result;
+                try {
+                    result = handler.invoke(method, content.getParameters());
+                } catch (InvocationTargetException e) {
+                    invocationRequest.writeException((Exception) e.getCause());
+                    return;
+                } catch (Exception e) {
+                    invocationRequest.writeException(e);
+                    return;
+                }
+                content.writeInvocationResult(result);
+            });
+            return ignored -> cancelled.set(true);
+        }
+
+        public CancelHandle receiveSessionOpenRequest(@NotNull final SessionOpenRequest sessionOpenRequest) {
+            sessionOpenRequest.writeNotStateful();
+            return CancelHandle.NULL;
+        }
+
+        public ListenerHandle registerClusterTopologyListener(@NotNull final ClusterTopologyListener clusterTopologyListener) {
+            return () -> {};
+        }
+
+        public ListenerHandle registerModuleAvailabilityListener(@NotNull final ModuleAvailabilityListener moduleAvailabilityListener) {
+            listeners.add(moduleAvailabilityListener);
+            moduleAvailabilityListener.moduleAvailable(Collections.singletonList(MODULE));
+            return () -> listeners.remove(moduleAvailabilityListener);
+        }
+
+        void setModuleAvailable(final boolean available) {
+            for (ModuleAvailabilityListener listener : listeners) {
+                if (available) {
+                    listener.moduleAvailable(Collections.singletonList(MODULE));
+                } else {
+                    listener.moduleUnavailable(Collections.singletonList(MODULE));
+                }
+            }
+        }
+
+        private Method findMethod(final EJBMethodLocator locator) {
+            for (Method method : PayloadView.class.getMethods()) {
+                if (method.getName().equals(locator.getMethodName()) && method.getParameterCount() == locator.getParameterCount()) {
+                    return method;
+                }
+            }
+            return null;
+        }
+    }
+
+    public interface PayloadView {
+        Payload append(Payload payload, String item);
+
+        String identity(String value);
+
+        String threadName();
+
+        void fail(String message) throws PayloadException;
+    }
+
+    public static final class PayloadBean implements PayloadView {
+        final AtomicInteger invocations = new AtomicInteger();
+        volatile Payload lastPayload;
+        volatile String lastValue;
+        volatile PayloadException lastException;
+
+        public Payload append(final Payload payload, final String item) {
+            invocations.incrementAndGet();
+            lastPayload = payload;
+            payload.items.add(item);
+            return payload;
+        }
+
+        public String identity(final String value) {
+            invocations.incrementAndGet();
+            lastValue = value;
+            return value;
+        }
+
+        public String threadName() {
+            invocations.incrementAndGet();
+            return Thread.currentThread().getName();
+        }
+
+        public void fail(final String message) throws PayloadException {
+            invocations.incrementAndGet();
+            throw lastException = new PayloadException(message);
+        }
+    }
+
+    public static final class Payload implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final List<String> items;
+
+        public Payload(final String... items) {
+            this.items = new ArrayList<>(Arrays.asList(items));
+        }
+    }
+
+    public static final class PayloadException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public PayloadException(final String message) {
+            super(message);
+        }
+    }
+}
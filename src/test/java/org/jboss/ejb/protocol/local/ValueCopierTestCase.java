@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.protocol.local;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests the copying of values passed between a local client and the EJB.
+ */
+public final class ValueCopierTestCase {
+
+    @Test
+    public void testImmutableValuesNotCopied() {
+        final ValueCopier copier = ValueCopier.create(LocalTransportProvider.ParameterPassing.COPY, getClass().getClassLoader());
+        final String string = new String("value");
+        assertSame(string, copier.copy(string));
+        final Integer integer = Integer.valueOf(100000);
+        assertSame(integer, copier.copy(integer));
+        final BigDecimal decimal = new BigDecimal("1.5");
+        assertSame(decimal, copier.copy(decimal));
+        final UUID uuid = UUID.randomUUID();
+        assertSame(uuid, copier.copy(uuid));
+        assertNull(copier.copy((Object) null));
+    }
+
+    @Test
+    public void testMutableValuesCopied() {
+        final ValueCopier copier = ValueCopier.create(LocalTransportProvider.ParameterPassing.COPY, getClass().getClassLoader());
+        final Value value = new Value("a", "b");
+        final Value copy = (Value) copier.copy(value);
+        assertNotSame(value, copy);
+        assertSame(Value.class, copy.getClass());
+        assertEquals(value.items, copy.items);
+        copy.items.add("c");
+        assertEquals(Arrays.asList("a", "b"), value.items);
+    }
+
+    @Test
+    public void testSharedReferencesPreserved() {
+        final ValueCopier copier = ValueCopier.create(LocalTransportProvider.ParameterPassing.COPY, getClass().getClassLoader());
+        final Value value = new Value("a");
+        final Object[] copies = copier.copy(new Object[] { value, value, "b" });
+        assertNotSame(value, copies[0]);
+        // values copied by one copier keep referring to the same object
+        assertSame(copies[0], copies[1]);
+        assertSame("b", copies[2]);
+    }
+
+    @Test
+    public void testByReference() {
+        final ValueCopier copier = ValueCopier.create(LocalTransportProvider.ParameterPassing.REFERENCE, getClass().getClassLoader());
+        assertSame(ValueCopier.BY_REFERENCE, copier);
+        final Value value = new Value("a");
+        assertSame(value, copier.copy(value));
+        final Object[] values = { value };
+        assertSame(values, copier.copy(values));
+    }
+
+    @Test
+    public void testCopyAcrossClassLoaders() throws Exception {
+        try (URLClassLoader isolated = createIsolatedClassLoader()) {
+            final Value value = new Value("a", "b");
+            final Object copy = ValueCopier.create(LocalTransportProvider.ParameterPassing.COPY, isolated).copy(value);
+            assertEquals(Value.class.getName(), copy.getClass().getName());
+            assertSame(isolated, copy.getClass().getClassLoader());
+            // and back again
+            final Value back = (Value) ValueCopier.create(LocalTransportProvider.ParameterPassing.COPY, getClass().getClassLoader()).copy(copy);
+            assertEquals(value.items, back.items);
+        }
+    }
+
+    @Test
+    public void testExceptionCopiedAcrossClassLoaders() throws Exception {
+        try (URLClassLoader isolated = createIsolatedClassLoader()) {
+            final ValueException exception = new ValueException("failed");
+            final Object copy = ValueCopier.create(LocalTransportProvider.ParameterPassing.COPY, isolated).copy(exception);
+            assertSame(isolated, copy.getClass().getClassLoader());
+            final Exception back = (Exception) ValueCopier.create(LocalTransportProvider.ParameterPassing.COPY, getClass().getClassLoader()).copy(copy);
+            assertSame(ValueException.class, back.getClass());
+            assertEquals("failed", back.getMessage());
+            assertArrayEquals(exception.getStackTrace(), back.getStackTrace());
+        }
+    }
+
+    /**
+     * Create a class loader which defines its own copy of the test classes, as the class loader of a separate
+     * deployment would.
+     */
+    static URLClassLoader createIsolatedClassLoader() {
+        final URL location = ValueCopierTestCase.class.getProtectionDomain().getCodeSource().getLocation();
+        return new URLClassLoader(new URL[] { location }, null);
+    }
+
+    public static final class Value implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final List<String> items;
+
+        public Value(final String... items) {
+            this.items = new ArrayList<>(Arrays.asList(items));
+        }
+    }
+
+    public static final class ValueException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public ValueException(final String message) {
+            super(message);
+        }
+    }
+}
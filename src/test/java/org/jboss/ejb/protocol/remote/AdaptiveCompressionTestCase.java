@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.jboss.remoting3.MessageOutputStream;
+import org.junit.Test;
+
+/**
+ * Tests threshold and ratio based selection of compressed message framing.
+ */
+public final class AdaptiveCompressionTestCase {
+
+    private static final class TestMessageOutputStream extends MessageOutputStream {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int closed;
+
+        public void write(final int b) {
+            bytes.write(b);
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+            closed ++;
+        }
+
+        public MessageOutputStream cancel() {
+            return this;
+        }
+    }
+
+    private static byte[] compressible(int size) {
+        final byte[] data = new byte[size];
+        for (int i = 0; i < size; i ++) {
+            data[i] = (byte) ('a' + i % 7);
+        }
+        return data;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final byte[] buf = new byte[256];
+        int res;
+        while ((res = in.read(buf)) != -1) {
+            os.write(buf, 0, res);
+        }
+        return os.toByteArray();
+    }
+
+    @Test
+    public void testBelowThreshold() throws IOException {
+        final CompressionPool pool = new CompressionPool();
+        final CompressionStatistics.MethodStatistics statistics = new CompressionStatistics().get("m");
+        final TestMessageOutputStream message = new TestMessageOutputStream();
+        final byte[] data = compressible(100);
+        try (MessageOutputStream os = new AdaptiveCompressionOutputStream(message, pool, Protocol.CODEC_DEFLATE, Deflater.DEFAULT_COMPRESSION, 128, statistics)) {
+            os.write(data[0]);
+            os.write(data, 1, data.length - 1);
+        }
+        assertArrayEquals(data, message.bytes.toByteArray());
+        assertEquals(1, message.closed);
+        assertEquals(1, statistics.getBelowThresholdCount());
+        assertEquals(0, statistics.getCompressedCount());
+        assertEquals(-1, statistics.getRatio());
+    }
+
+    @Test
+    public void testAboveThreshold() throws IOException {
+        for (int codec : new int[] { Protocol.CODEC_DEFLATE, Protocol.CODEC_LZ4 }) {
+            final CompressionPool pool = new CompressionPool();
+            final CompressionStatistics.MethodStatistics statistics = new CompressionStatistics().get("m");
+            final TestMessageOutputStream message = new TestMessageOutputStream();
+            final byte[] data = compressible(10000);
+            try (MessageOutputStream os = new AdaptiveCompressionOutputStream(message, pool, codec, Deflater.DEFAULT_COMPRESSION, 128, statistics)) {
+                os.write(data, 0, 100);
+                os.write(data[100]);
+                os.write(data, 101, data.length - 101);
+            }
+            final byte[] written = message.bytes.toByteArray();
+            final InputStream in;
+            if (codec == Protocol.CODEC_DEFLATE) {
+                assertEquals(Protocol.COMPRESSED_INVOCATION_MESSAGE, written[0]);
+                in = new ByteArrayInputStream(written, 1, written.length - 1);
+            } else {
+                assertEquals(Protocol.CODEC_COMPRESSED_INVOCATION_MESSAGE, written[0]);
+                assertEquals(codec, written[1]);
+                in = new ByteArrayInputStream(written, 2, written.length - 2);
+            }
+            assertArrayEquals(data, readFully(pool.getInputStream(codec, in)));
+            assertEquals(1, statistics.getCompressedCount());
+            assertEquals(data.length, statistics.getUncompressedBytes());
+            assertTrue(statistics.getCompressedBytes() < data.length / 4);
+            assertTrue(statistics.getRatio() < 25);
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testPoorRatio() throws IOException {
+        final CompressionPool pool = new CompressionPool();
+        final CompressionStatistics.MethodStatistics statistics = new CompressionStatistics().get("m");
+        final byte[] data = new byte[4096];
+        new Random(1234).nextBytes(data);
+        assertTrue(statistics.shouldCompress());
+        final TestMessageOutputStream message = new TestMessageOutputStream();
+        try (MessageOutputStream os = new AdaptiveCompressionOutputStream(message, pool, Protocol.CODEC_DEFLATE, Deflater.DEFAULT_COMPRESSION, 0, statistics)) {
+            os.write(data);
+        }
+        assertTrue(statistics.getRatio() > CompressionStatistics.MAX_RATIO);
+        // random data does not compress, so later messages are sent as is, apart from an occasional probe
+        int compress = 0;
+        for (int i = 0; i < 64; i ++) {
+            if (statistics.shouldCompress()) {
+                compress ++;
+            }
+        }
+        assertEquals(2, compress);
+        assertEquals(62, statistics.getPoorRatioCount());
+        pool.close();
+    }
+
+    @Test
+    public void testStatisticsPerMethod() {
+        final CompressionStatistics compressionStatistics = new CompressionStatistics();
+        final CompressionStatistics.MethodStatistics statistics = compressionStatistics.get(Arrays.asList("bean", "method"));
+        assertSame(statistics, compressionStatistics.get(Arrays.asList("bean", "method")));
+        assertNotSame(statistics, compressionStatistics.get(Arrays.asList("bean", "other")));
+        assertEquals(2, compressionStatistics.getMethodStatistics().size());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the per-connection and global in-flight request limits.
+ */
+public final class AdmissionControlTestCase {
+
+    @Test
+    public void testConnectionLimit() {
+        final AdmissionControl admissionControl = new AdmissionControl(0, 2);
+        final AtomicInteger connection1 = new AtomicInteger();
+        final AtomicInteger connection2 = new AtomicInteger();
+        assertTrue(admissionControl.tryAcquire(connection1));
+        assertTrue(admissionControl.tryAcquire(connection1));
+        assertFalse(admissionControl.tryAcquire(connection1));
+        assertTrue(admissionControl.tryAcquire(connection2));
+        assertEquals(2, connection1.get());
+        assertEquals(3, admissionControl.getInFlight());
+        assertEquals(1, admissionControl.getRejectedCount());
+        admissionControl.release(connection1);
+        assertTrue(admissionControl.tryAcquire(connection1));
+    }
+
+    @Test
+    public void testGlobalLimit() {
+        final AdmissionControl admissionControl = new AdmissionControl(2, 0);
+        final AtomicInteger connection1 = new AtomicInteger();
+        final AtomicInteger connection2 = new AtomicInteger();
+        assertTrue(admissionControl.tryAcquire(connection1));
+        assertTrue(admissionControl.tryAcquire(connection2));
+        assertFalse(admissionControl.tryAcquire(connection2));
+        assertEquals(1, connection2.get());
+        assertEquals(2, admissionControl.getInFlight());
+        admissionControl.release(connection1);
+        admissionControl.release(connection2);
+        assertEquals(0, admissionControl.getInFlight());
+        assertEquals(1, admissionControl.getRejectedCount());
+    }
+
+    @Test
+    public void testUnlimited() {
+        final AdmissionControl admissionControl = new AdmissionControl(0, 0);
+        final AtomicInteger connection = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(admissionControl.tryAcquire(connection));
+        }
+        assertEquals(1000, admissionControl.getInFlight());
+        assertEquals(0, admissionControl.getRejectedCount());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+import org.jboss.ejb.client.Affinity;
+import org.jboss.ejb.client.EJBClient;
+import org.jboss.ejb.client.EJBClientContext;
+import org.jboss.ejb.client.EJBIdentifier;
+import org.jboss.ejb.client.EJBLocator;
+import org.jboss.ejb.client.StatelessEJBLocator;
+import org.jboss.ejb.client.URIAffinity;
+import org.jboss.ejb.client.UUIDSessionID;
+import org.jboss.ejb.client.legacy.JBossEJBProperties;
+import org.jboss.ejb.client.test.common.DummyServer;
+import org.jboss.ejb.client.test.common.Echo;
+import org.jboss.remoting3.ConnectionPeerIdentity;
+import org.jboss.remoting3.Endpoint;
+import org.junit.Test;
+import org.wildfly.security.auth.client.AuthenticationContext;
+import org.xnio.OptionMap;
+
+/**
+ * Tests the selection of the channel which an invocation is sent over, and the release of invocations which could not
+ * be sent.
+ */
+public final class ChannelStripingTestCase {
+
+    private static final EJBIdentifier IDENTIFIER = new EJBIdentifier("my-foo-app", "my-bar-module", "SinkBean", "");
+    private static final IntUnaryOperator IDLE = i -> 0;
+
+    @Test
+    public void testRoundRobin() {
+        final EJBLocator<Echo> locator = StatelessEJBLocator.create(Echo.class, IDENTIFIER, Affinity.NONE);
+        for (int next = 0; next < 6; next++) {
+            assertEquals(next % 3, RemoteEJBReceiver.selectChannel(locator, false, 3, false, next, IDLE));
+        }
+        assertEquals(0, RemoteEJBReceiver.selectChannel(locator, false, 1, false, 5, IDLE));
+        // the counter may wrap around
+        assertEquals(Math.floorMod(Integer.MIN_VALUE, 3), RemoteEJBReceiver.selectChannel(locator, false, 3, false, Integer.MIN_VALUE, IDLE));
+    }
+
+    @Test
+    public void testStatefulStaysOnOneStripe() {
+        final EJBLocator<Echo> locator = StatelessEJBLocator.create(Echo.class, IDENTIFIER, Affinity.NONE).withSession(new UUIDSessionID(UUID.randomUUID()));
+        final int stripe = RemoteEJBReceiver.selectChannel(locator, false, 4, false, 0, IDLE);
+        for (int next = 0; next < 16; next++) {
+            assertEquals(stripe, RemoteEJBReceiver.selectChannel(locator, false, 4, false, next, IDLE));
+            // even when another channel is less loaded
+            final int busy = stripe;
+            assertEquals(stripe, RemoteEJBReceiver.selectChannel(locator, false, 4, true, next, i -> i == busy ? 100 : 0));
+        }
+    }
+
+    @Test
+    public void testTransactionalUsesFirstChannel() {
+        final EJBLocator<Echo> stateless = StatelessEJBLocator.create(Echo.class, IDENTIFIER, Affinity.NONE);
+        final EJBLocator<Echo> stateful = StatelessEJBLocator.create(Echo.class, IDENTIFIER, Affinity.NONE).withSession(new UUIDSessionID(UUID.randomUUID()));
+        for (int next = 0; next < 16; next++) {
+            assertEquals(0, RemoteEJBReceiver.selectChannel(stateless, true, 4, false, next, IDLE));
+            assertEquals(0, RemoteEJBReceiver.selectChannel(stateless, true, 4, true, next, i -> i == 0 ? 100 : 0));
+            assertEquals(0, RemoteEJBReceiver.selectChannel(stateful, true, 4, false, next, IDLE));
+        }
+    }
+
+    @Test
+    public void testLeastLoaded() {
+        final EJBLocator<Echo> locator = StatelessEJBLocator.create(Echo.class, IDENTIFIER, Affinity.NONE);
+        final int[] outstanding = { 5, 2, 7, 2 };
+        assertEquals(1, RemoteEJBReceiver.selectChannel(locator, false, 4, true, 0, i -> outstanding[i]));
+        // ties go to the first channel after the rotating start position
+        assertEquals(3, RemoteEJBReceiver.selectChannel(locator, false, 4, true, 2, i -> outstanding[i]));
+        // channels which cannot be used are skipped
+        final int[] failed = { -1, -1, 3, -1 };
+        assertEquals(2, RemoteEJBReceiver.selectChannel(locator, false, 4, true, 0, i -> failed[i]));
+        assertEquals(0, RemoteEJBReceiver.selectChannel(locator, false, 4, true, 0, i -> -1));
+    }
+
+    @Test
+    public void testSendFailureFreesInvocation() throws Exception {
+        final JBossEJBProperties ejbProperties = JBossEJBProperties.fromClassPath(ChannelStripingTestCase.class.getClassLoader(), "no-protocol-jboss-ejb-client.properties");
+        JBossEJBProperties.getContextManager().setGlobalDefault(ejbProperties);
+        final DummyServer server = new DummyServer("localhost", 6999, "node1");
+        server.start();
+        try {
+            server.register(IDENTIFIER.getAppName(), IDENTIFIER.getModuleName(), IDENTIFIER.getDistinctName(), IDENTIFIER.getBeanName(), new SinkBean());
+            final URI uri = new URI("remote://localhost:6999");
+            final Sink proxy = EJBClient.createProxy(StatelessEJBLocator.create(Sink.class, IDENTIFIER, URIAffinity.forUri(uri)));
+            assertEquals("value", proxy.take("value"));
+
+            final RemoteEJBReceiver receiver = EJBClientContext.getCurrent().getAttachment(RemoteTransportProvider.ATTACHMENT_KEY);
+            final ConnectionPeerIdentity identity = Endpoint.getCurrent().getConnectedIdentity(uri, "ejb", "jboss", AuthenticationContext.captureCurrent()).get();
+            final EJBClientChannel channel = receiver.serviceHandle.getClientService(identity.getConnection(), OptionMap.EMPTY).get();
+
+            // the parameter cannot be marshalled, so the request is never sent
+            try {
+                proxy.take(new Object());
+                fail("Expected the invocation to fail");
+            } catch (Exception expected) {
+            }
+            awaitNoOutstandingInvocations(channel);
+
+            // the channel is still usable afterwards
+            assertEquals("value", proxy.take("value"));
+            awaitNoOutstandingInvocations(channel);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void awaitNoOutstandingInvocations(final EJBClientChannel channel) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (channel.getOutstandingInvocations() != 0) {
+            assertTrue("Invocations were not released: " + channel.getOutstandingInvocations(), System.nanoTime() - deadline < 0);
+            Thread.sleep(10L);
+        }
+    }
+
+    public interface Sink {
+        String take(Object value);
+    }
+
+    public static final class SinkBean implements Sink {
+        public String take(final Object value) {
+            return String.valueOf(value);
+        }
+    }
+}
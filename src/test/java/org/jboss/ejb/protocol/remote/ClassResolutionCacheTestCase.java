@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.ejb.client.EJBModuleIdentifier;
+import org.junit.Test;
+
+/**
+ * Tests the server side cache of class resolver filter decisions and resolved classes.
+ */
+public final class ClassResolutionCacheTestCase {
+
+    @Test
+    public void testFilterDecisions() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ClassResolutionCache cache = new ClassResolutionCache(name -> {
+            calls.incrementAndGet();
+            return Boolean.valueOf(name.startsWith("java."));
+        }, 16);
+        assertTrue(cache.isAllowed("java.lang.String"));
+        assertTrue(cache.isAllowed("java.lang.String"));
+        assertFalse(cache.isAllowed("com.example.Gadget"));
+        assertFalse(cache.isAllowed("com.example.Gadget"));
+        assertEquals(2, calls.get());
+        assertTrue(new ClassResolutionCache(null, 16).isAllowed("com.example.Gadget"));
+    }
+
+    @Test
+    public void testBounded() {
+        final AtomicInteger calls = new AtomicInteger();
+        final ClassResolutionCache cache = new ClassResolutionCache(name -> {
+            calls.incrementAndGet();
+            return Boolean.TRUE;
+        }, 1);
+        cache.isAllowed("a");
+        cache.isAllowed("b");
+        cache.isAllowed("b");
+        assertEquals(3, calls.get());
+        final ClassLoader classLoader = getClass().getClassLoader();
+        cache.putClass(classLoader, "java.lang.String", String.class);
+        cache.putClass(classLoader, "java.lang.Integer", Integer.class);
+        assertSame(String.class, cache.getClass(classLoader, "java.lang.String"));
+        assertNull(cache.getClass(classLoader, "java.lang.Integer"));
+    }
+
+    @Test
+    public void testInvalidation() {
+        final ClassResolutionCache cache = new ClassResolutionCache(null, 16);
+        final ClassLoader classLoader = new ClassLoader(getClass().getClassLoader()) {};
+        final ClassLoader otherClassLoader = getClass().getClassLoader();
+        final EJBModuleIdentifier module = new EJBModuleIdentifier("app", "module", "");
+        final EJBModuleIdentifier otherModule = new EJBModuleIdentifier("app", "other", "");
+        cache.bind(module, classLoader);
+        cache.bind(otherModule, otherClassLoader);
+        cache.putClass(classLoader, "java.lang.String", String.class);
+        cache.putClass(otherClassLoader, "java.lang.String", String.class);
+        assertSame(String.class, cache.getClass(classLoader, "java.lang.String"));
+        cache.invalidate(Collections.singletonList(module));
+        assertNull(cache.getClass(classLoader, "java.lang.String"));
+        assertSame(String.class, cache.getClass(otherClassLoader, "java.lang.String"));
+        cache.clear();
+        assertNull(cache.getClass(otherClassLoader, "java.lang.String"));
+    }
+
+    @Test
+    public void testUnboundClassLoaders() {
+        final ClassResolutionCache cache = new ClassResolutionCache(null, 1);
+        final ClassLoader classLoader = new ClassLoader(getClass().getClassLoader()) {};
+        final ClassLoader otherClassLoader = new ClassLoader(getClass().getClassLoader()) {};
+        final EJBModuleIdentifier module = new EJBModuleIdentifier("app", "module", "");
+        final EJBModuleIdentifier otherModule = new EJBModuleIdentifier("app", "other", "");
+        // classes of a class loader which no module is bound to are not cached
+        cache.putClass(classLoader, "java.lang.String", String.class);
+        assertNull(cache.getClass(classLoader, "java.lang.String"));
+        cache.bind(module, classLoader);
+        cache.putClass(classLoader, "java.lang.String", String.class);
+        assertSame(String.class, cache.getClass(classLoader, "java.lang.String"));
+        // the cache is full, so the other module is not bound and its classes are not cached either
+        cache.bind(otherModule, otherClassLoader);
+        cache.putClass(otherClassLoader, "java.lang.String", String.class);
+        assertNull(cache.getClass(otherClassLoader, "java.lang.String"));
+        // once the first module goes away, there is room again
+        cache.invalidate(Collections.singletonList(module));
+        cache.bind(otherModule, otherClassLoader);
+        cache.putClass(otherClassLoader, "java.lang.String", String.class);
+        assertSame(String.class, cache.getClass(otherClassLoader, "java.lang.String"));
+    }
+
+    @Test
+    public void testRebind() {
+        final ClassResolutionCache cache = new ClassResolutionCache(null, 16);
+        final ClassLoader classLoader = new ClassLoader(getClass().getClassLoader()) {};
+        final ClassLoader newClassLoader = new ClassLoader(getClass().getClassLoader()) {};
+        final EJBModuleIdentifier module = new EJBModuleIdentifier("app", "module", "");
+        final EJBModuleIdentifier otherModule = new EJBModuleIdentifier("app", "other", "");
+        cache.bind(module, classLoader);
+        cache.bind(otherModule, classLoader);
+        cache.putClass(classLoader, "java.lang.String", String.class);
+        // a class loader shared by two modules keeps its classes until neither is bound to it
+        cache.bind(module, newClassLoader);
+        assertSame(String.class, cache.getClass(classLoader, "java.lang.String"));
+        cache.bind(otherModule, newClassLoader);
+        assertNull(cache.getClass(classLoader, "java.lang.String"));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests that pooled deflaters and inflaters are reset between streams.
+ */
+public final class CompressionPoolTestCase {
+
+    private static byte[] compress(CompressionPool pool, int level, byte[] data) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (OutputStream out = pool.getDeflaterOutputStream(os, level)) {
+            out.write(data);
+        }
+        return os.toByteArray();
+    }
+
+    private static byte[] decompress(CompressionPool pool, byte[] data) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (InputStream in = pool.getInflaterInputStream(new ByteArrayInputStream(data))) {
+            final byte[] buf = new byte[256];
+            int res;
+            while ((res = in.read(buf)) != -1) {
+                os.write(buf, 0, res);
+            }
+        }
+        return os.toByteArray();
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        final CompressionPool pool = new CompressionPool(2);
+        final byte[] first = "first message, first message, first message".getBytes(StandardCharsets.UTF_8);
+        final byte[] second = "second".getBytes(StandardCharsets.UTF_8);
+        final byte[] c1 = compress(pool, 9, first);
+        final byte[] c2 = compress(pool, 9, second);
+        assertArrayEquals(first, decompress(pool, c1));
+        assertArrayEquals(second, decompress(pool, c2));
+        // a different level does not share the deflater
+        assertArrayEquals(second, decompress(pool, compress(pool, 1, second)));
+        assertEquals(3, pool.getMissCount());
+        assertEquals(3, pool.getHitCount());
+        assertEquals(3, pool.getPooledCount());
+    }
+
+    @Test
+    public void testOverflowAndClose() throws Exception {
+        final CompressionPool pool = new CompressionPool(1);
+        final byte[] data = new byte[1000];
+        Arrays.fill(data, (byte) 'x');
+        final OutputStream a = pool.getDeflaterOutputStream(new ByteArrayOutputStream(), 6);
+        final OutputStream b = pool.getDeflaterOutputStream(new ByteArrayOutputStream(), 6);
+        a.write(data);
+        b.write(data);
+        a.close();
+        b.close();
+        // closing twice must not release twice
+        b.close();
+        assertEquals(1, pool.getDiscardCount());
+        assertEquals(1, pool.getPooledCount());
+        pool.close();
+        assertEquals(0, pool.getPooledCount());
+        compress(pool, 6, data);
+        assertEquals(0, pool.getPooledCount());
+        assertEquals(2, pool.getDiscardCount());
+    }
+}
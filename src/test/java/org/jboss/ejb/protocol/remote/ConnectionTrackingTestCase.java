@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.ejb.client.EJBClientContext;
+import org.jboss.ejb.client.legacy.JBossEJBProperties;
+import org.jboss.ejb.client.test.common.DummyServer;
+import org.jboss.ejb.client.test.common.EchoBean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wildfly.discovery.Discovery;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.ServicesQueue;
+
+/**
+ * Tests that the remote receiver tracks the connection state of the nodes it discovers through channel events.
+ */
+public final class ConnectionTrackingTestCase {
+
+    private static final String PROPERTIES_FILE = "jboss-ejb-client.properties";
+
+    private static final String APP_NAME = "my-foo-app";
+    private static final String MODULE_NAME = "my-bar-module";
+
+    private DummyServer server;
+    private RemoteEJBReceiver receiver;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        JBossEJBProperties ejbProperties = JBossEJBProperties.fromClassPath(ConnectionTrackingTestCase.class.getClassLoader(), PROPERTIES_FILE);
+        JBossEJBProperties.getContextManager().setGlobalDefault(ejbProperties);
+    }
+
+    @Before
+    public void beforeTest() throws Exception {
+        server = new DummyServer("localhost", 6999, "node1");
+        server.start();
+        server.register(APP_NAME, MODULE_NAME, "", "EchoBean", new EchoBean());
+        receiver = EJBClientContext.getCurrent().getAttachment(RemoteTransportProvider.ATTACHMENT_KEY);
+    }
+
+    @After
+    public void afterTest() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void testConnectionTracking() throws Exception {
+        final long initialVersion = receiver.getConnectionStateVersion();
+        assertNotEquals(-1L, initialVersion);
+
+        // discovery connects to the node and reports it under the URI which cluster node selection will ask about
+        final URI uri = discover();
+        assertNotNull("Node was not discovered", uri);
+        assertTrue(receiver.isConnected(uri));
+        final long connectedVersion = receiver.getConnectionStateVersion();
+        assertNotEquals(initialVersion, connectedVersion);
+        assertFalse(receiver.isConnected(new URI("remote://localhost:7099")));
+
+        // closing the channel is noticed without asking the endpoint
+        server.stop();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (receiver.isConnected(uri)) {
+            assertTrue("Closed connection is still reported as connected", System.nanoTime() - deadline < 0);
+            Thread.sleep(50L);
+        }
+        assertNotEquals(connectedVersion, receiver.getConnectionStateVersion());
+    }
+
+    private URI discover() throws InterruptedException {
+        final FilterSpec filterSpec = FilterSpec.equal(EJBClientContext.FILTER_ATTR_EJB_MODULE, APP_NAME + '/' + MODULE_NAME);
+        try (ServicesQueue queue = Discovery.create(receiver.getDiscoveredNodeRegistry()).discover(EJBClientContext.EJB_SERVICE_TYPE, filterSpec)) {
+            final ServiceURL serviceURL = queue.takeService(10, TimeUnit.SECONDS);
+            return serviceURL == null ? null : serviceURL.getLocationURI();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+
+import org.jboss.ejb.client.EJBIdentifier;
+import org.jboss.ejb.client.EJBMethodLocator;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.Marshalling;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.ObjectTable;
+import org.jboss.marshalling.Unmarshaller;
+import org.jboss.marshalling.river.RiverMarshallerFactory;
+import org.junit.Test;
+
+/**
+ * Tests connection-scoped interning of EJB identifiers and method locators.
+ */
+public final class InterningObjectTableTestCase {
+
+    private static final RiverMarshallerFactory factory = new RiverMarshallerFactory();
+
+    private static MarshallingConfiguration configuration(ObjectTable objectTable) {
+        final MarshallingConfiguration configuration = new MarshallingConfiguration();
+        configuration.setObjectTable(objectTable);
+        configuration.setVersion(4);
+        return configuration;
+    }
+
+    private static byte[] write(InterningObjectTable table, Object... objects) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final Marshaller marshaller = factory.createMarshaller(configuration(table));
+        marshaller.start(Marshalling.createByteOutput(os));
+        for (Object object : objects) {
+            marshaller.writeObject(object);
+        }
+        marshaller.finish();
+        return os.toByteArray();
+    }
+
+    private static Object[] read(InterningObjectTable table, byte[] bytes, int count) throws IOException, ClassNotFoundException {
+        final Unmarshaller unmarshaller = factory.createUnmarshaller(configuration(table));
+        unmarshaller.start(Marshalling.createByteInput(new ByteArrayInputStream(bytes)));
+        final Object[] objects = new Object[count];
+        for (int i = 0; i < count; i++) {
+            objects[i] = unmarshaller.readObject();
+        }
+        unmarshaller.finish();
+        return objects;
+    }
+
+    @Test
+    public void testInterning() throws Exception {
+        final InterningObjectTable client = new InterningObjectTable(16);
+        final InterningObjectTable server = new InterningObjectTable(0);
+        final EJBIdentifier identifier = new EJBIdentifier("app", "module", "SomeBean", "");
+        final EJBMethodLocator methodLocator = new EJBMethodLocator("doSomething", "java.lang.String", "int");
+
+        final byte[] first = write(client, identifier, methodLocator);
+        Object[] objects = read(server, first, 2);
+        assertEquals(identifier, objects[0]);
+        assertEquals(methodLocator, objects[1]);
+        assertEquals(2, server.size());
+
+        // not yet confirmed, so the definitions are sent again and accepted again
+        final byte[] second = write(client, identifier, methodLocator);
+        assertEquals(first.length, second.length);
+        assertSame(objects[0], read(server, second, 2)[0]);
+
+        client.confirm(identifier);
+        client.confirm(methodLocator);
+        final byte[] third = write(client, identifier, methodLocator);
+        assertTrue(third.length < first.length);
+        objects = read(server, third, 2);
+        assertEquals(identifier, objects[0]);
+        assertEquals(methodLocator, objects[1]);
+
+        // predefined objects are not affected
+        assertEquals(EJBIdentifier.class.getName(), read(server, write(client, EJBIdentifier.class.getName()), 1)[0]);
+    }
+
+    @Test
+    public void testUnknownReference() throws Exception {
+        final InterningObjectTable client = new InterningObjectTable(16);
+        final EJBIdentifier identifier = new EJBIdentifier("app", "module", "SomeBean", "");
+        write(client, identifier);
+        client.confirm(identifier);
+        try {
+            read(new InterningObjectTable(0), write(client, identifier), 1);
+            fail("Expected exception");
+        } catch (InvalidObjectException expected) {
+        }
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        final InterningObjectTable client = new InterningObjectTable(1);
+        final InterningObjectTable server = new InterningObjectTable(0);
+        final EJBMethodLocator one = new EJBMethodLocator("one");
+        final EJBMethodLocator two = new EJBMethodLocator("two");
+        final Object[] objects = read(server, write(client, one, two), 2);
+        assertEquals(one, objects[0]);
+        assertEquals(two, objects[1]);
+        assertEquals(1, client.size());
+        assertEquals(1, server.size());
+    }
+}
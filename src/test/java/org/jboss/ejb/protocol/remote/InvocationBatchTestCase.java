@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.ejb.client.EJBClient;
+import org.jboss.ejb.client.EJBClientContext;
+import org.jboss.ejb.client.EJBIdentifier;
+import org.jboss.ejb.client.EJBMethodLocator;
+import org.jboss.ejb.client.StatelessEJBLocator;
+import org.jboss.ejb.client.URIAffinity;
+import org.jboss.ejb.client.legacy.JBossEJBProperties;
+import org.jboss.ejb.client.test.common.DummyServer;
+import org.jboss.remoting3.ConnectionPeerIdentity;
+import org.jboss.remoting3.Endpoint;
+import org.junit.Test;
+import org.wildfly.security.auth.client.AuthenticationContext;
+import org.xnio.OptionMap;
+
+/**
+ * Tests that the requests of an invocation batch are sent over the channel in a single message.
+ */
+public final class InvocationBatchTestCase {
+
+    private static final EJBIdentifier IDENTIFIER = new EJBIdentifier("my-foo-app", "my-bar-module", "SinkBean", "");
+    private static final int COUNT = 50;
+
+    @Test
+    public void testBatchIsSentInOneMessage() throws Exception {
+        final JBossEJBProperties ejbProperties = JBossEJBProperties.fromClassPath(InvocationBatchTestCase.class.getClassLoader(), "no-protocol-jboss-ejb-client.properties");
+        JBossEJBProperties.getContextManager().setGlobalDefault(ejbProperties);
+        final DummyServer server = new DummyServer("localhost", 6999, "node1");
+        server.start();
+        try {
+            server.register(IDENTIFIER.getAppName(), IDENTIFIER.getModuleName(), IDENTIFIER.getDistinctName(), IDENTIFIER.getBeanName(), new ChannelStripingTestCase.SinkBean());
+            final URI uri = new URI("remote://localhost:6999");
+            final ChannelStripingTestCase.Sink proxy = EJBClient.createProxy(StatelessEJBLocator.create(ChannelStripingTestCase.Sink.class, IDENTIFIER, URIAffinity.forUri(uri)));
+            assertEquals("value", proxy.take("value"));
+
+            final RemoteEJBReceiver receiver = EJBClientContext.getCurrent().getAttachment(RemoteTransportProvider.ATTACHMENT_KEY);
+            final ConnectionPeerIdentity identity = Endpoint.getCurrent().getConnectedIdentity(uri, "ejb", "jboss", AuthenticationContext.captureCurrent()).get();
+            final EJBClientChannel channel = receiver.serviceHandle.getClientService(identity.getConnection(), OptionMap.EMPTY).get();
+            final EJBMethodLocator methodLocator = EJBMethodLocator.forMethod(ChannelStripingTestCase.Sink.class.getMethod("take", Object.class));
+
+            // one message for each invocation issued separately
+            int messages = channel.getInvocationMessages();
+            final List<CompletableFuture<?>> separate = new ArrayList<>(COUNT);
+            for (int i = 0; i < COUNT; i ++) {
+                separate.add(EJBClient.invokeCompletable(proxy, null, methodLocator, "value-" + i));
+            }
+            assertResults(separate);
+            assertEquals(COUNT, channel.getInvocationMessages() - messages);
+
+            // one message for the whole batch
+            messages = channel.getInvocationMessages();
+            final List<Object[]> argumentLists = new ArrayList<>(COUNT);
+            for (int i = 0; i < COUNT; i ++) {
+                argumentLists.add(new Object[] { "value-" + i });
+            }
+            assertResults(EJBClient.invokeBatch(proxy, null, methodLocator, argumentLists));
+            assertEquals(1, channel.getInvocationMessages() - messages);
+
+            // invocations after the batch are not held back
+            messages = channel.getInvocationMessages();
+            assertEquals("value", proxy.take("value"));
+            assertEquals(1, channel.getInvocationMessages() - messages);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void assertResults(final List<CompletableFuture<?>> futures) throws Exception {
+        assertEquals(COUNT, futures.size());
+        for (int i = 0; i < COUNT; i ++) {
+            assertEquals("value-" + i, futures.get(i).get(10L, TimeUnit.SECONDS));
+        }
+    }
+}
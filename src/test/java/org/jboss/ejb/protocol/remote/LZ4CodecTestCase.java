@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the in-tree LZ4 block codec and its stream framing.
+ */
+public final class LZ4CodecTestCase {
+
+    private static byte[] roundTrip(byte[] data) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (OutputStream out = new LZ4BlockOutputStream(os)) {
+            // mix single byte and bulk writes
+            if (data.length > 0) {
+                out.write(data[0]);
+                out.write(data, 1, data.length - 1);
+            }
+        }
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream in = new LZ4BlockInputStream(new ByteArrayInputStream(os.toByteArray()))) {
+            final byte[] buf = new byte[1000];
+            int res;
+            while ((res = in.read(buf)) != -1) {
+                result.write(buf, 0, res);
+            }
+        }
+        return result.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Random random = new Random(1234);
+        final byte[] randomBytes = new byte[100_000];
+        random.nextBytes(randomBytes);
+        assertArrayEquals(randomBytes, roundTrip(randomBytes));
+
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 20_000; i ++) {
+            b.append("row ").append(i % 97).append(", value=").append(i % 13).append(';');
+        }
+        final byte[] text = b.toString().getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(text, roundTrip(text));
+
+        // long runs exercise overlapping matches and long length encodings
+        final byte[] zeros = new byte[200_000];
+        assertArrayEquals(zeros, roundTrip(zeros));
+
+        assertArrayEquals(new byte[0], roundTrip(new byte[0]));
+        final byte[] small = "tiny".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(small, roundTrip(small));
+    }
+
+    @Test
+    public void testCompresses() {
+        final byte[] src = new byte[10_000];
+        for (int i = 0; i < src.length; i ++) {
+            src[i] = (byte) (i % 50);
+        }
+        final byte[] dst = new byte[LZ4Codec.maxCompressedLength(src.length)];
+        final int len = LZ4Codec.compress(src, 0, src.length, dst, 0, new int[LZ4Codec.HASH_TABLE_SIZE]);
+        assertTrue("Expected repetitive data to shrink, got " + len, len < src.length / 10);
+    }
+
+    @Test
+    public void testCorruptBlock() throws Exception {
+        final byte[] src = new byte[1000];
+        final byte[] dst = new byte[LZ4Codec.maxCompressedLength(src.length)];
+        final int len = LZ4Codec.compress(src, 0, src.length, dst, 0, new int[LZ4Codec.HASH_TABLE_SIZE]);
+        // an offset pointing before the start of the output must be rejected
+        dst[2] = (byte) 0xff;
+        dst[3] = (byte) 0xff;
+        try {
+            LZ4Codec.decompress(dst, 0, len, new byte[src.length], 0, src.length);
+            fail("Expected corrupt block to be rejected");
+        } catch (IOException expected) {
+        }
+    }
+}
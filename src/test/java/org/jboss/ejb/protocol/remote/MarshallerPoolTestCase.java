@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.Marshalling;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.Unmarshaller;
+import org.junit.Test;
+
+/**
+ * Tests that pooled marshallers are reset between streams.
+ */
+public final class MarshallerPoolTestCase {
+
+    private static MarshallerPool createPool(int size) {
+        final MarshallingConfiguration configuration = new MarshallingConfiguration();
+        configuration.setVersion(4);
+        return new MarshallerPool(Marshalling.getProvidedMarshallerFactory("river"), configuration, size);
+    }
+
+    private static byte[] write(MarshallerPool pool, Object... objects) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final Marshaller marshaller = pool.getMarshaller();
+        try {
+            marshaller.start(Marshalling.createByteOutput(os));
+            for (Object object : objects) {
+                marshaller.writeObject(object);
+            }
+            marshaller.finish();
+        } finally {
+            pool.release(marshaller);
+        }
+        return os.toByteArray();
+    }
+
+    private static Object[] read(MarshallerPool pool, byte[] bytes, int count) throws IOException, ClassNotFoundException {
+        final Object[] objects = new Object[count];
+        final Unmarshaller unmarshaller = pool.getUnmarshaller();
+        try {
+            unmarshaller.start(Marshalling.createByteInput(new ByteArrayInputStream(bytes)));
+            for (int i = 0; i < count; i ++) {
+                objects[i] = unmarshaller.readObject();
+            }
+            unmarshaller.finish();
+        } finally {
+            pool.release(unmarshaller);
+        }
+        return objects;
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        final MarshallerPool pool = createPool(4);
+        final String value = "repeated";
+        // the second stream must not contain back references into the first one
+        final byte[] first = write(pool, value, value);
+        final byte[] second = write(pool, value);
+        assertArrayEquals(new Object[] { value, value }, read(pool, first, 2));
+        assertArrayEquals(new Object[] { value }, read(pool, second, 1));
+        assertEquals(2, pool.getMissCount());
+        assertEquals(2, pool.getHitCount());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        final MarshallerPool pool = createPool(0);
+        write(pool, "a");
+        write(pool, "b");
+        assertEquals(2, pool.getMissCount());
+        assertEquals(0, pool.getHitCount());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.jboss.ejb.client.EJBClientContext;
+import org.jboss.ejb.client.EJBModuleIdentifier;
+import org.jboss.ejb.client.legacy.JBossEJBProperties;
+import org.jboss.ejb.client.test.common.DummyServer;
+import org.jboss.ejb.client.test.common.EchoBean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wildfly.discovery.Discovery;
+import org.wildfly.discovery.FilterSpec;
+import org.wildfly.discovery.ServiceURL;
+import org.wildfly.discovery.ServicesQueue;
+
+/**
+ * Tests the per-node and cross-node module indexes kept by the remoting discovery provider.
+ */
+public final class ModuleIndexTestCase {
+
+    private static final String PROPERTIES_FILE = "jboss-ejb-client.properties";
+
+    private static final String APP_NAME = "my-foo-app";
+    private static final String OTHER_APP = "my-other-app";
+    private static final String MODULE_NAME = "my-bar-module";
+    private static final String DISTINCT_NAME = "";
+    private static final String BEAN_NAME = "EchoBean";
+
+    private static final EJBModuleIdentifier MODULE = new EJBModuleIdentifier(APP_NAME, MODULE_NAME, DISTINCT_NAME);
+    private static final EJBModuleIdentifier OTHER_MODULE = new EJBModuleIdentifier(OTHER_APP, MODULE_NAME, DISTINCT_NAME);
+
+    private DummyServer server1;
+    private DummyServer server2;
+    private RemotingEJBDiscoveryProvider provider;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        JBossEJBProperties ejbProperties = JBossEJBProperties.fromClassPath(ModuleIndexTestCase.class.getClassLoader(), PROPERTIES_FILE);
+        JBossEJBProperties.getContextManager().setGlobalDefault(ejbProperties);
+    }
+
+    @Before
+    public void beforeTest() throws Exception {
+        server1 = new DummyServer("localhost", 6999, "node1");
+        server1.start();
+        server2 = new DummyServer("localhost", 7099, "node2");
+        server2.start();
+        server1.register(APP_NAME, MODULE_NAME, DISTINCT_NAME, BEAN_NAME, new EchoBean());
+        server2.register(OTHER_APP, MODULE_NAME, DISTINCT_NAME, BEAN_NAME, new EchoBean());
+        provider = EJBClientContext.getCurrent().getAttachment(RemoteTransportProvider.ATTACHMENT_KEY).getDiscoveredNodeRegistry();
+        // connect to both configured nodes and wait for their module reports
+        discover(MODULE);
+        awaitCondition(() -> candidateNodes(MODULE).contains("node1") && candidateNodes(OTHER_MODULE).contains("node2"));
+    }
+
+    @After
+    public void afterTest() throws Exception {
+        server1.stop();
+        server2.stop();
+    }
+
+    @Test
+    public void testCrossNodeIndex() {
+        assertEquals(Collections.singleton("node1"), candidateNodes(MODULE));
+        assertEquals(Collections.singleton("node2"), candidateNodes(OTHER_MODULE));
+        assertTrue(candidateNodes(new EJBModuleIdentifier("unknown-app", MODULE_NAME, DISTINCT_NAME)).isEmpty());
+        // a filter without a module requirement still sees every node
+        final Set<String> all = new HashSet<>();
+        for (NodeInformation information : provider.getCandidateNodes(null)) {
+            all.add(information.getNodeName());
+        }
+        assertTrue(all.contains("node1"));
+        assertTrue(all.contains("node2"));
+    }
+
+    @Test
+    public void testPerNodeIndex() throws Exception {
+        final Set<URI> found = discover(MODULE);
+        assertEquals(1, found.size());
+        assertEquals(6999, found.iterator().next().getPort());
+        final Set<URI> otherFound = discover(OTHER_MODULE);
+        assertEquals(1, otherFound.size());
+        assertEquals(7099, otherFound.iterator().next().getPort());
+    }
+
+    @Test
+    public void testIndexFollowsDeployments() throws Exception {
+        server1.unregister(APP_NAME, MODULE_NAME, DISTINCT_NAME, BEAN_NAME);
+        awaitCondition(() -> candidateNodes(MODULE).isEmpty());
+        assertTrue(discover(MODULE).isEmpty());
+
+        server2.register(APP_NAME, MODULE_NAME, DISTINCT_NAME, BEAN_NAME, new EchoBean());
+        awaitCondition(() -> candidateNodes(MODULE).equals(Collections.singleton("node2")));
+        final Set<URI> found = discover(MODULE);
+        assertEquals(1, found.size());
+        assertEquals(7099, found.iterator().next().getPort());
+    }
+
+    @Test
+    public void testIndexFollowsConnections() throws Exception {
+        server2.stop();
+        awaitCondition(() -> candidateNodes(OTHER_MODULE).isEmpty());
+        // the module of the node which is still connected stays indexed
+        assertEquals(Collections.singleton("node1"), candidateNodes(MODULE));
+    }
+
+    private Set<String> candidateNodes(final EJBModuleIdentifier module) {
+        final Set<String> names = new HashSet<>();
+        for (NodeInformation information : provider.getCandidateNodes(module)) {
+            names.add(information.getNodeName());
+        }
+        return names;
+    }
+
+    private Set<URI> discover(final EJBModuleIdentifier module) throws InterruptedException {
+        final FilterSpec filterSpec = FilterSpec.equal(EJBClientContext.FILTER_ATTR_EJB_MODULE, module.getAppName() + '/' + module.getModuleName());
+        final Set<URI> found = new HashSet<>();
+        try (ServicesQueue queue = Discovery.create(provider).discover(EJBClientContext.EJB_SERVICE_TYPE, filterSpec)) {
+            ServiceURL serviceURL;
+            while ((serviceURL = queue.takeService(5, TimeUnit.SECONDS)) != null) {
+                found.add(serviceURL.getLocationURI());
+            }
+        }
+        return found;
+    }
+
+    private static void awaitCondition(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (! condition.getAsBoolean()) {
+            assertTrue("Timed out waiting for the module index to be updated", System.nanoTime() - deadline < 0);
+            Thread.sleep(50L);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests the raw segment encoding of binary parameters and results.
+ */
+public final class RawSegmentsTestCase {
+
+    private static byte[] bytes(int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i ++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+
+    private static byte[] writeValue(Object value) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        RawSegments.writeValue(new DataOutputStream(os), value);
+        return os.toByteArray();
+    }
+
+    private static Object readValue(byte[] encoded) throws IOException {
+        final ByteArrayInputStream is = new ByteArrayInputStream(encoded);
+        final Object value = RawSegments.readValue(new DataInputStream(is));
+        assertEquals("trailing bytes", 0, is.available());
+        return value;
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int cnt;
+        while ((cnt = stream.read(buffer)) != -1) {
+            os.write(buffer, 0, cnt);
+        }
+        return os.toByteArray();
+    }
+
+    @Test
+    public void testIsRaw() {
+        assertFalse(RawSegments.isRaw(null));
+        assertFalse(RawSegments.isRaw("hello"));
+        assertFalse(RawSegments.isRaw(new byte[RawSegments.THRESHOLD - 1]));
+        assertTrue(RawSegments.isRaw(new byte[RawSegments.THRESHOLD]));
+        assertTrue(RawSegments.isRaw(ByteBuffer.allocate(0)));
+        assertTrue(RawSegments.isRaw(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void testBytes() throws IOException {
+        final byte[] original = bytes(100_000);
+        final byte[] encoded = writeValue(original);
+        // the type byte and a three byte length are the only overhead
+        assertEquals(original.length + 4, encoded.length);
+        assertArrayEquals(original, (byte[]) readValue(encoded));
+    }
+
+    @Test
+    public void testBuffer() throws IOException {
+        final byte[] original = bytes(50_000);
+        final ByteBuffer heap = ByteBuffer.wrap(original, 100, 40_000).slice();
+        final ByteBuffer direct = ByteBuffer.allocateDirect(40_000);
+        direct.put(original, 100, 40_000).flip();
+        for (ByteBuffer buffer : new ByteBuffer[] { heap, direct }) {
+            final ByteBuffer read = (ByteBuffer) readValue(writeValue(buffer));
+            // the caller's buffer is left alone
+            assertEquals(0, buffer.position());
+            assertEquals(40_000, buffer.remaining());
+            // the buffer is read back into a single array of the exact size
+            assertTrue(read.hasArray());
+            assertEquals(40_000, read.array().length);
+            assertEquals(buffer, read);
+        }
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        for (int length : new int[] { 0, 1, 8192, 100_000 }) {
+            final byte[] original = bytes(length);
+            final Object read = readValue(writeValue(new ByteArrayInputStream(original)));
+            assertTrue(read instanceof InputStream);
+            assertArrayEquals(original, readFully((InputStream) read));
+        }
+    }
+
+    @Test
+    public void testParameters() throws IOException {
+        final byte[] large = bytes(RawSegments.THRESHOLD);
+        final byte[] small = bytes(10);
+        final Object[] parameters = { "a", large, small, ByteBuffer.wrap(small), null };
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        RawSegments.writeParameters(new DataOutputStream(os), parameters);
+        final RawSegments raw = RawSegments.readParameters(new DataInputStream(new ByteArrayInputStream(os.toByteArray())));
+        assertNotNull(raw);
+        // the parameters which are marshalled keep their places
+        final Object[] read = { "a", null, small, null, null };
+        raw.applyTo(read);
+        assertEquals("a", read[0]);
+        assertArrayEquals(large, (byte[]) read[1]);
+        assertSame(small, read[2]);
+        assertEquals(ByteBuffer.wrap(small), read[3]);
+        assertNull(read[4]);
+    }
+
+    @Test
+    public void testNoParameters() throws IOException {
+        for (Object[] parameters : new Object[][] { null, {}, { "a", bytes(10) } }) {
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            RawSegments.writeParameters(new DataOutputStream(os), parameters);
+            // only the count is written
+            assertTrue(Arrays.equals(new byte[] { 0 }, os.toByteArray()));
+            assertNull(RawSegments.readParameters(new DataInputStream(new ByteArrayInputStream(os.toByteArray()))));
+        }
+    }
+}
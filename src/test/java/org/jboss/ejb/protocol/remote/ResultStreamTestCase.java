@@ -0,0 +1,336 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.jboss.ejb.client.EJBClient;
+import org.jboss.ejb.client.EJBClientContext;
+import org.jboss.ejb.client.EJBIdentifier;
+import org.jboss.ejb.client.StatelessEJBLocator;
+import org.jboss.ejb.client.URIAffinity;
+import org.jboss.ejb.client.legacy.JBossEJBProperties;
+import org.jboss.ejb.client.test.common.DummyServer;
+import org.jboss.remoting3.ConnectionPeerIdentity;
+import org.jboss.remoting3.Endpoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.security.auth.client.AuthenticationContext;
+import org.xnio.OptionMap;
+
+/**
+ * Tests results which are streamed to the client in chunks.
+ */
+public final class ResultStreamTestCase {
+
+    private static final EJBIdentifier IDENTIFIER = new EJBIdentifier("my-foo-app", "my-bar-module", "SourceBean", "");
+
+    private DummyServer server;
+    private Source proxy;
+    private EJBClientChannel channel;
+
+    @Before
+    public void beforeTest() throws Exception {
+        final JBossEJBProperties ejbProperties = JBossEJBProperties.fromClassPath(ResultStreamTestCase.class.getClassLoader(), "no-protocol-jboss-ejb-client.properties");
+        JBossEJBProperties.getContextManager().setGlobalDefault(ejbProperties);
+        server = new DummyServer("localhost", 6999, "node1");
+        server.start();
+        server.register(IDENTIFIER.getAppName(), IDENTIFIER.getModuleName(), IDENTIFIER.getDistinctName(), IDENTIFIER.getBeanName(), new SourceBean());
+        final URI uri = new URI("remote://localhost:6999");
+        proxy = EJBClient.createProxy(StatelessEJBLocator.create(Source.class, IDENTIFIER, URIAffinity.forUri(uri)));
+        // connect
+        assertEquals(0, proxy.list(0).size());
+        final RemoteEJBReceiver receiver = EJBClientContext.getCurrent().getAttachment(RemoteTransportProvider.ATTACHMENT_KEY);
+        final ConnectionPeerIdentity identity = Endpoint.getCurrent().getConnectedIdentity(uri, "ejb", "jboss", AuthenticationContext.captureCurrent()).get();
+        channel = receiver.serviceHandle.getClientService(identity.getConnection(), OptionMap.EMPTY).get();
+        Endless.reset();
+    }
+
+    @After
+    public void afterTest() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void testIterator() throws Exception {
+        final int count = EJBServerChannel.CHUNK_SIZE * 3 + 7;
+        final Iterator<String> iterator = proxy.iterate(count);
+        // the lazy view of a streamed result may be closed early
+        assertTrue("The result was not streamed", iterator instanceof AutoCloseable);
+        for (int i = 0; i < count; i++) {
+            assertTrue(iterator.hasNext());
+            assertEquals(String.valueOf(i), iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail("Expected the iterator to be exhausted");
+        } catch (NoSuchElementException expected) {
+        }
+        awaitNoOutstandingInvocations();
+    }
+
+    @Test
+    public void testEmptyIterator() throws Exception {
+        assertFalse(proxy.iterate(0).hasNext());
+        awaitNoOutstandingInvocations();
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        final int count = EJBServerChannel.CHUNK_SIZE * 2;
+        try (Stream<String> stream = proxy.stream(count)) {
+            assertEquals(IntStream.range(0, count).mapToObj(String::valueOf).collect(Collectors.toList()), stream.collect(Collectors.toList()));
+        }
+        awaitNoOutstandingInvocations();
+    }
+
+    @Test
+    public void testInputStream() throws Exception {
+        final int length = EJBServerChannel.BYTE_CHUNK_SIZE * 2 + 100;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream inputStream = proxy.read(length)) {
+            final byte[] buffer = new byte[1000];
+            int cnt;
+            while ((cnt = inputStream.read(buffer)) != -1) {
+                out.write(buffer, 0, cnt);
+            }
+        }
+        final byte[] bytes = out.toByteArray();
+        assertEquals(length, bytes.length);
+        for (int i = 0; i < length; i++) {
+            assertEquals(bytes(i), bytes[i]);
+        }
+        awaitNoOutstandingInvocations();
+    }
+
+    @Test
+    public void testEarlyClose() throws Exception {
+        try (Stream<String> stream = proxy.stream(EJBServerChannel.CHUNK_SIZE * 100)) {
+            assertEquals(3L, stream.limit(3L).count());
+        }
+        // the server answers the cancellation with a final chunk, which releases the invocation
+        awaitNoOutstandingInvocations();
+        // and the channel is still usable afterwards
+        assertEquals(2, proxy.list(2).size());
+    }
+
+    @Test
+    public void testCancelClosesServerResult() throws Exception {
+        final Iterator<Integer> iterator = proxy.endless();
+        assertEquals(Integer.valueOf(0), iterator.next());
+        ((AutoCloseable) iterator).close();
+        assertTrue("The server did not close the result", Endless.closed.await(10L, TimeUnit.SECONDS));
+        awaitNoOutstandingInvocations();
+    }
+
+    @Test
+    public void testServerExceptionMidStream() throws Exception {
+        final Iterator<String> iterator = proxy.failAfter(EJBServerChannel.CHUNK_SIZE + 5);
+        final List<String> received = new ArrayList<>();
+        try {
+            while (iterator.hasNext()) {
+                received.add(iterator.next());
+            }
+            fail("Expected the stream to fail");
+        } catch (IllegalStateException expected) {
+            assertEquals("boom", expected.getMessage());
+        }
+        assertEquals(EJBServerChannel.CHUNK_SIZE, received.size());
+        awaitNoOutstandingInvocations();
+    }
+
+    @Test
+    public void testCreditBoundsChunksInFlight() throws Exception {
+        final Iterator<Integer> iterator = proxy.endless();
+        assertEquals(Integer.valueOf(0), iterator.next());
+        // the window was granted when the result was first read, and one more chunk when the first was taken
+        final int limit = (EJBClientChannel.WINDOW + 1) * EJBServerChannel.CHUNK_SIZE;
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (Endless.pulled.get() < limit) {
+            assertTrue("The server did not use its credit: " + Endless.pulled.get(), System.nanoTime() - deadline < 0);
+            Thread.sleep(10L);
+        }
+        // give the server the chance to overrun its credit
+        Thread.sleep(500L);
+        assertEquals(limit, Endless.pulled.get());
+        // consuming one more chunk grants exactly one more
+        for (int i = 1; i <= EJBServerChannel.CHUNK_SIZE; i++) {
+            assertEquals(Integer.valueOf(i), iterator.next());
+        }
+        Thread.sleep(500L);
+        assertEquals(limit + EJBServerChannel.CHUNK_SIZE, Endless.pulled.get());
+        ((AutoCloseable) iterator).close();
+        assertTrue(Endless.closed.await(10L, TimeUnit.SECONDS));
+        awaitNoOutstandingInvocations();
+    }
+
+    @Test
+    public void testUndeclaredStreamNotStreamed() throws Exception {
+        // the runtime type is an Iterator, but the declared return type is not, so the result is marshalled as usual
+        final Object result = proxy.iterateUndeclared(3);
+        assertSame(SerializableIterator.class, result.getClass());
+        final SerializableIterator iterator = (SerializableIterator) result;
+        assertEquals("0", iterator.next());
+        assertEquals("1", iterator.next());
+        assertEquals("2", iterator.next());
+        assertFalse(iterator.hasNext());
+        awaitNoOutstandingInvocations();
+    }
+
+    private void awaitNoOutstandingInvocations() throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+        while (channel.getOutstandingInvocations() != 0) {
+            assertTrue("Invocations were not released: " + channel.getOutstandingInvocations(), System.nanoTime() - deadline < 0);
+            Thread.sleep(10L);
+        }
+    }
+
+    static byte bytes(final int i) {
+        return (byte) (i % 251);
+    }
+
+    /**
+     * The dummy server cannot resolve primitive parameter types, so the parameters are boxed.
+     */
+    public interface Source {
+        List<String> list(Integer count);
+
+        Iterator<String> iterate(Integer count);
+
+        Stream<String> stream(Integer count);
+
+        InputStream read(Integer length);
+
+        Iterator<String> failAfter(Integer count);
+
+        Iterator<Integer> endless();
+
+        Object iterateUndeclared(Integer count);
+    }
+
+    public static final class SourceBean implements Source {
+        public List<String> list(final Integer count) {
+            return IntStream.range(0, count).mapToObj(String::valueOf).collect(Collectors.toList());
+        }
+
+        public Iterator<String> iterate(final Integer count) {
+            return list(count).iterator();
+        }
+
+        public Stream<String> stream(final Integer count) {
+            return IntStream.range(0, count).mapToObj(String::valueOf);
+        }
+
+        public InputStream read(final Integer length) {
+            return new InputStream() {
+                private int pos;
+
+                public int read() {
+                    return pos == length ? -1 : bytes(pos ++) & 0xff;
+                }
+            };
+        }
+
+        public Iterator<String> failAfter(final Integer count) {
+            return new Iterator<String>() {
+                private int pos;
+
+                public boolean hasNext() {
+                    return true;
+                }
+
+                public String next() {
+                    if (pos == count) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return String.valueOf(pos ++);
+                }
+            };
+        }
+
+        public Iterator<Integer> endless() {
+            return new Endless();
+        }
+
+        public Object iterateUndeclared(final Integer count) {
+            return new SerializableIterator(list(count));
+        }
+    }
+
+    static final class Endless implements Iterator<Integer>, AutoCloseable {
+        static final AtomicInteger pulled = new AtomicInteger();
+        static volatile CountDownLatch closed = new CountDownLatch(1);
+
+        static void reset() {
+            pulled.set(0);
+            closed = new CountDownLatch(1);
+        }
+
+        public boolean hasNext() {
+            return true;
+        }
+
+        public Integer next() {
+            return Integer.valueOf(pulled.getAndIncrement());
+        }
+
+        public void close() {
+            closed.countDown();
+        }
+    }
+
+    public static final class SerializableIterator implements Iterator<String>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<String> items;
+        private int pos;
+
+        SerializableIterator(final List<String> items) {
+            this.items = new ArrayList<>(items);
+        }
+
+        public boolean hasNext() {
+            return pos < items.size();
+        }
+
+        public String next() {
+            if (! hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return items.get(pos ++);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.ejb.protocol.remote;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the per-destination retry budget and the retry backoff.
+ */
+public final class RetryBudgetTestCase {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+    @Test
+    public void testMinimumRate() {
+        final long start = 100 * SECOND;
+        final RetryBudget budget = new RetryBudget(0, 2, start);
+        // two per second over the ten second window
+        for (int i = 0; i < 2 * RetryBudget.WINDOW; i++) {
+            assertTrue(budget.tryWithdraw(start));
+        }
+        assertFalse(budget.tryWithdraw(start));
+        // still exhausted until the retries leave the window
+        assertFalse(budget.tryWithdraw(start + (RetryBudget.WINDOW - 1) * SECOND));
+        assertTrue(budget.tryWithdraw(start + RetryBudget.WINDOW * SECOND));
+    }
+
+    @Test
+    public void testPercentOfRequests() {
+        final long start = 100 * SECOND;
+        final RetryBudget budget = new RetryBudget(20, 0, start);
+        assertFalse(budget.tryWithdraw(start));
+        for (int i = 0; i < 50; i++) {
+            budget.deposit(start);
+        }
+        // twenty percent of fifty requests
+        for (int i = 0; i < 10; i++) {
+            assertTrue(budget.tryWithdraw(start + SECOND));
+        }
+        assertFalse(budget.tryWithdraw(start + SECOND));
+        // the requests leave the window along with the retries
+        assertFalse(budget.tryWithdraw(start + 20 * SECOND));
+        budget.deposit(start + 20 * SECOND);
+        budget.deposit(start + 20 * SECOND);
+        budget.deposit(start + 20 * SECOND);
+        budget.deposit(start + 20 * SECOND);
+        budget.deposit(start + 20 * SECOND);
+        assertTrue(budget.tryWithdraw(start + 20 * SECOND));
+        assertFalse(budget.tryWithdraw(start + 20 * SECOND));
+    }
+
+    @Test
+    public void testIdleSlotsExpire() {
+        final long start = 100 * SECOND;
+        final RetryBudget budget = new RetryBudget(100, 0, start);
+        budget.deposit(start);
+        // a slot which is reused after a long idle period no longer counts what it counted before
+        final long later = start + 1000 * SECOND;
+        budget.deposit(later);
+        assertTrue(budget.tryWithdraw(later));
+        assertFalse(budget.tryWithdraw(later));
+    }
+
+    @Test
+    public void testConcurrentDeposits() throws InterruptedException {
+        final long start = 100 * SECOND;
+        final RetryBudget budget = new RetryBudget(100, 0, start);
+        final int threadCount = 4;
+        final int deposits = 10000;
+        final Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            // the deposits of every thread straddle a second boundary
+            final long offset = i * (SECOND / 4);
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < deposits; j++) {
+                    budget.deposit(start + offset + (j < deposits / 2 ? 0L : SECOND / 2));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // no deposit was lost; every request allows one retry at one hundred percent
+        final long now = start + 2 * SECOND;
+        for (int i = 0; i < threadCount * deposits; i++) {
+            assertTrue(budget.tryWithdraw(now));
+        }
+        assertFalse(budget.tryWithdraw(now));
+    }
+
+    @Test
+    public void testConcurrentWithdrawals() throws InterruptedException {
+        final long start = 100 * SECOND;
+        final RetryBudget budget = new RetryBudget(0, 100, start);
+        final int threadCount = 4;
+        final AtomicInteger withdrawn = new AtomicInteger();
+        final Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            // the withdrawals of half of the threads fall into the next second
+            final long now = start + (i % 2) * SECOND;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100 * RetryBudget.WINDOW; j++) {
+                    if (budget.tryWithdraw(now)) {
+                        withdrawn.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // no retry was taken out twice, and none was lost
+        assertEquals(100 * RetryBudget.WINDOW, withdrawn.get());
+        assertFalse(budget.tryWithdraw(start + SECOND));
+    }
+
+    @Test
+    public void testIdle() {
+        final long start = 100 * SECOND;
+        final RetryBudget budget = new RetryBudget(20, 10, start);
+        assertTrue(budget.isIdle(start));
+        budget.deposit(start);
+        assertFalse(budget.isIdle(start));
+        assertTrue(budget.isIdle(start + RetryBudget.WINDOW * SECOND));
+        assertTrue(budget.tryWithdraw(start + RetryBudget.WINDOW * SECOND));
+        assertFalse(budget.isIdle(start + (2 * RetryBudget.WINDOW - 1) * SECOND));
+        assertTrue(budget.isIdle(start + 2 * RetryBudget.WINDOW * SECOND));
+    }
+
+    @Test
+    public void testIdleBudgetsAreEvicted() {
+        final RetryExecutorWrapper wrapper = new RetryExecutorWrapper();
+        final URI used = URI.create("remote://node1:8080");
+        final URI unused = URI.create("remote://node2:8080");
+        final RetryBudget usedBudget = wrapper.getRetryBudget(used);
+        usedBudget.deposit();
+        final RetryBudget unusedBudget = wrapper.getRetryBudget(unused);
+        // creating a budget drops the ones which are no different from new ones
+        wrapper.getRetryBudget(URI.create("remote://node3:8080"));
+        assertSame(usedBudget, wrapper.getRetryBudget(used));
+        assertNotSame(unusedBudget, wrapper.getRetryBudget(unused));
+    }
+
+    @Test
+    public void testBackoff() {
+        final Random random = new Random(42);
+        assertEquals(0L, RetryExecutorWrapper.getBackoff(1, 10L, 1000L, random));
+        assertEquals(0L, RetryExecutorWrapper.getBackoff(5, 0L, 1000L, random));
+        for (int i = 0; i < 100; i++) {
+            final long second = RetryExecutorWrapper.getBackoff(2, 10L, 1000L, random);
+            assertTrue(second >= 5L && second <= 10L);
+            final long third = RetryExecutorWrapper.getBackoff(3, 10L, 1000L, random);
+            assertTrue(third >= 10L && third <= 20L);
+            final long capped = RetryExecutorWrapper.getBackoff(100, 10L, 1000L, random);
+            assertTrue(capped >= 500L && capped <= 1000L);
+        }
+    }
+}
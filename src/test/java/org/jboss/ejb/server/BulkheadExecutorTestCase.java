@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2026 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.ejb.server;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the bounded request executor used by the bulkhead request executor strategies.
+ */
+public final class BulkheadExecutorTestCase {
+
+    @Test
+    public void testLimits() {
+        final List<Runnable> submitted = new ArrayList<>();
+        final BulkheadExecutor executor = new BulkheadExecutor(submitted::add, 2, 1);
+        final AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            executor.execute(ran::incrementAndGet);
+        }
+        assertEquals(2, submitted.size());
+        assertEquals(2, executor.getActiveCount());
+        assertEquals(1, executor.getQueueSize());
+        try {
+            executor.execute(ran::incrementAndGet);
+            fail("Expected rejection");
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(1, executor.getRejectedCount());
+
+        // the first worker also runs the queued task
+        submitted.get(0).run();
+        assertEquals(2, ran.get());
+        assertEquals(1, executor.getActiveCount());
+        assertEquals(0, executor.getQueueSize());
+        submitted.get(1).run();
+        assertEquals(3, ran.get());
+        assertEquals(0, executor.getActiveCount());
+        assertEquals(3, executor.getCompletedCount());
+    }
+
+    @Test
+    public void testDelegateRejection() {
+        final BulkheadExecutor executor = new BulkheadExecutor(command -> {
+            throw new RejectedExecutionException();
+        }, 1, 0);
+        try {
+            executor.execute(() -> {});
+            fail("Expected rejection");
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(0, executor.getActiveCount());
+        assertEquals(1, executor.getRejectedCount());
+    }
+
+    @Test
+    public void testFailingTask() throws InterruptedException {
+        final List<Runnable> submitted = new ArrayList<>();
+        final BulkheadExecutor executor = new BulkheadExecutor(submitted::add, 1, 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(() -> {
+            throw new IllegalStateException("expected");
+        });
+        executor.execute(latch::countDown);
+        submitted.get(0).run();
+        assertEquals(0, latch.getCount());
+        assertEquals(0, executor.getActiveCount());
+        assertEquals(2, executor.getCompletedCount());
+    }
+}